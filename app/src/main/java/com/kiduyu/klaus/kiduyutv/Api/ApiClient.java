@@ -2,27 +2,51 @@ package com.kiduyu.klaus.kiduyutv.Api;
 
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.AtomicFile;
 import android.util.Log;
 
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import okhttp3.Call;
 import okhttp3.ConnectionPool;
 import okhttp3.Cookie;
 import okhttp3.CookieJar;
+import okhttp3.Dispatcher;
 import okhttp3.Dns;
+import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
@@ -38,14 +62,22 @@ import okhttp3.Response;
  *
  * Key Features:
  * - Singleton pattern for application-wide client sharing
- * - Persistent CookieJar using SharedPreferences for session continuity
+ * - Persistent CookieJar (written behind to a file) for session continuity
  * - Custom User-Agent header for all requests
- * - Connection pooling and retry mechanisms
- * - DNS caching for improved performance
+ * - Connection pooling, per-host circuit breakers and budgeted retries
+ * - DNS caching, optionally resolved over DNS-over-HTTPS (see DohDns)
+ *
+ * - Per traffic class variants (media, API, background) with their own dispatchers
+ *
+ * Retries wait on the calling thread. Calls that are enqueued must be marked with
+ * {@link #async} (or made through {@link #asyncCalls}) so they are never held on a
+ * dispatcher thread. Synchronous calls are not: a provider call executed on a
+ * StreamExecutor worker keeps that worker for up to 2s per retry.
  *
  * Usage:
  *   OkHttpClient client = ApiClient.getClient(context);
  *   // Use client for all network requests
+ *   OkHttpClient media = ApiClient.getClient(context, ApiClient.TrafficClass.MEDIA);
  */
 public class ApiClient {
     private static final String TAG = "ApiClient";
@@ -57,7 +89,12 @@ public class ApiClient {
     private static final int MAX_IDLE_CONNECTIONS = 10;
     private static final int KEEP_ALIVE_DURATION_MINUTES = 5;
     private static final long DNS_CACHE_DURATION_MS = 5 * 60 * 1000; // 5 minutes
+    private static final long DNS_REFRESH_AHEAD_MS = 60 * 1000;      // re-resolve in the last minute
+    private static final long DNS_NEGATIVE_TTL_MS = 10 * 1000;       // remember failed lookups briefly
+    private static final long DNS_STALE_MS = 60 * 60 * 1000;         // serve old addresses if DNS is down
     private static final int MAX_DNS_CACHE_SIZE = 100; // Prevent unbounded growth
+    private static final int MAX_BACKGROUND_REQUESTS = 4;          // throttled to 1 while a player is open
+    private static final int MAX_BACKGROUND_REQUESTS_PER_HOST = 2;
 
     // Default User-Agent mimicking a modern desktop browser
     // Updated to a recent stable version
@@ -69,6 +106,12 @@ public class ApiClient {
     private final OkHttpClient client;
     private final Context context;
     private final PersistentCookieJar cookieJar;
+    private final CachedDnsSelector dns;
+    private final Map<TrafficClass, OkHttpClient> classClients = new ConcurrentHashMap<>();
+
+    // Dispatchers per traffic class, shared by every client derived for that class
+    private static final Map<TrafficClass, Dispatcher> dispatchers = new EnumMap<>(TrafficClass.class);
+    private static final AtomicInteger activePlayers = new AtomicInteger();
 
     // Enable/disable debug logging
     private static boolean debugLogging = false;
@@ -79,7 +122,9 @@ public class ApiClient {
     private ApiClient(Context context) {
         this.context = context.getApplicationContext();
         this.cookieJar = new PersistentCookieJar(this.context);
+        this.dns = new CachedDnsSelector(resolverFor(PreferencesManager.getInstance(this.context).getDnsResolver()));
         this.client = buildClient();
+        dns.prefetch(FetchStreams.getPrefetchHosts());
         Log.i(TAG, "ApiClient singleton initialized");
     }
 
@@ -112,6 +157,29 @@ public class ApiClient {
         getInstance(context).cookieJar.clearCookies();
     }
 
+    /**
+     * Switch DNS resolution to the resolver now stored in PreferencesManager
+     * (system or DNS over HTTPS); cached answers are dropped
+     */
+    public static void applyDnsResolver(Context context) {
+        ApiClient apiClient = getInstance(context);
+        String setting = PreferencesManager.getInstance(apiClient.context).getDnsResolver();
+        apiClient.dns.setUpstream(resolverFor(setting));
+        Log.i(TAG, "DNS resolver: " + setting);
+    }
+
+    private static Dns resolverFor(String setting) {
+        DohDns doh = DohDns.forSetting(setting);
+        return doh != null ? doh : Dns.SYSTEM;
+    }
+
+    /**
+     * DNS cache counters, for diagnostics
+     */
+    public static String getDnsStats(Context context) {
+        return getInstance(context).dns.describe();
+    }
+
     /**
      * Enable or disable debug logging
      */
@@ -149,7 +217,7 @@ public class ApiClient {
                 .protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1))
 
                 // Custom DNS with caching
-                .dns(new CachedDnsSelector())
+                .dns(dns)
 
                 // Interceptors
                 .addInterceptor(new UserAgentInterceptor(DEFAULT_USER_AGENT))
@@ -163,6 +231,28 @@ public class ApiClient {
                 .build();
     }
 
+    /**
+     * Mark a request that will be enqueued: its failures feed the circuit breakers but
+     * it is never retried, since the backoff would hold a dispatcher thread
+     */
+    public static Request async(Request request) {
+        return request.newBuilder().tag(AsyncCall.class, AsyncCall.INSTANCE).build();
+    }
+
+    /**
+     * Call factory for code that enqueues its calls itself, e.g. media3's OkHttpDataSource
+     */
+    public static Call.Factory asyncCalls(OkHttpClient client) {
+        return request -> client.newCall(async(request));
+    }
+
+    /**
+     * Request tag set by {@link #async}
+     */
+    private static final class AsyncCall {
+        static final AsyncCall INSTANCE = new AsyncCall();
+    }
+
     /**
      * Get the User-Agent string being used
      */
@@ -170,128 +260,439 @@ public class ApiClient {
         return DEFAULT_USER_AGENT;
     }
 
+    // ============================================
+    // Traffic classes
+    // ============================================
+
+    /**
+     * TrafficClass - What a request is for, which decides the dispatcher it runs on
+     *
+     * MEDIA is segment and file loading for the player, API is what the user is
+     * waiting on (catalog screens, stream resolution), BACKGROUND is work nobody
+     * waits on (cache revalidation, next-episode prefetch). Each class has its own
+     * {@link Dispatcher}; every derived client shares the connection pool, cookie jar
+     * and DNS cache of the base client.
+     */
+    public enum TrafficClass {
+        MEDIA(64, 16),
+        API(32, 8),
+        BACKGROUND(MAX_BACKGROUND_REQUESTS, MAX_BACKGROUND_REQUESTS_PER_HOST);
+
+        final int maxRequests;
+        final int maxRequestsPerHost;
+
+        TrafficClass(int maxRequests, int maxRequestsPerHost) {
+            this.maxRequests = maxRequests;
+            this.maxRequestsPerHost = maxRequestsPerHost;
+        }
+    }
+
+    /**
+     * Get the shared client's variant for a traffic class
+     */
+    public static OkHttpClient getClient(Context context, TrafficClass trafficClass) {
+        ApiClient apiClient = getInstance(context);
+        return apiClient.classClients.computeIfAbsent(trafficClass,
+                c -> withTrafficClass(apiClient.client, c));
+    }
+
+    /**
+     * Derive a client (e.g. one with its own cache and interceptors) that runs on a traffic
+     * class's dispatcher. Media calls have no overall deadline: a progressive read can
+     * stream for the whole film.
+     */
+    public static OkHttpClient withTrafficClass(OkHttpClient client, TrafficClass trafficClass) {
+        OkHttpClient.Builder builder = client.newBuilder().dispatcher(dispatcherFor(trafficClass));
+        if (trafficClass == TrafficClass.MEDIA) {
+            builder.callTimeout(0, TimeUnit.SECONDS);
+        }
+        return builder.build();
+    }
+
+    private static synchronized Dispatcher dispatcherFor(TrafficClass trafficClass) {
+        Dispatcher dispatcher = dispatchers.get(trafficClass);
+        if (dispatcher == null) {
+            dispatcher = trafficClass == TrafficClass.BACKGROUND
+                    ? new Dispatcher(newBackgroundExecutor())
+                    : new Dispatcher();
+            dispatcher.setMaxRequests(trafficClass.maxRequests);
+            dispatcher.setMaxRequestsPerHost(trafficClass.maxRequestsPerHost);
+            dispatchers.put(trafficClass, dispatcher);
+            applyBackgroundLimits();
+        }
+        return dispatcher;
+    }
+
+    /**
+     * Dispatcher threads for background calls run at background priority, so they
+     * lose the CPU to playback and the UI
+     */
+    private static ExecutorService newBackgroundExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(() -> {
+                        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                        runnable.run();
+                    }, "http-background-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * A player screen opened; background traffic is throttled until every one has closed
+     */
+    public static void onPlayerStarted() {
+        activePlayers.incrementAndGet();
+        applyBackgroundLimits();
+    }
+
+    public static void onPlayerStopped() {
+        activePlayers.decrementAndGet();
+        applyBackgroundLimits();
+    }
+
+    private static synchronized void applyBackgroundLimits() {
+        boolean throttled = activePlayers.get() > 0;
+        int maxRequests = throttled ? 1 : MAX_BACKGROUND_REQUESTS;
+        Dispatcher background = dispatchers.get(TrafficClass.BACKGROUND);
+        if (background != null) {
+            background.setMaxRequests(maxRequests);
+            background.setMaxRequestsPerHost(throttled ? 1 : MAX_BACKGROUND_REQUESTS_PER_HOST);
+        }
+        StreamExecutor.setBackgroundThrottled(throttled);
+    }
+
     // ============================================
     // Custom CookieJar implementation
     // ============================================
 
     /**
-     * PersistentCookieJar - CookieJar implementation using SharedPreferences
+     * PersistentCookieJar - CookieJar kept in memory and written behind to a file
      *
      * This implementation:
-     * - Stores cookies in SharedPreferences as JSON for persistence across app restarts
-     * - Automatically handles cookie serialization/deserialization with all attributes
-     * - Filters cookies by domain and path
-     * - Expires old cookies automatically
-     * - Thread-safe operations
+     * - Indexes cookies by registrable domain, then by cookie domain; a lookup walks
+     *   the request host's suffixes down to its registrable domain instead of scanning
+     *   every stored domain
+     * - Reads without locking (concurrent maps of immutable cookies), so segment
+     *   fetches on the shared client never queue behind each other
+     * - Batches changes and writes them PERSIST_DELAY_MS later, one cookie per line,
+     *   to cookies.txt (migrated once from the old SharedPreferences JSON)
+     * - Drops expired cookies in a periodic sweep; lookups only skip them
+     * - Treats an already-expired Set-Cookie as a deletion
      */
     private static class PersistentCookieJar implements CookieJar {
+        private static final String COOKIES_FILE = "cookies.txt";
+        private static final long PERSIST_DELAY_MS = 2000;
+        private static final long SWEEP_INTERVAL_MINUTES = 10;
+        private static final int MAX_REGISTRABLE_DOMAINS = 512;
+
         private final SharedPreferences preferences;
-        private final ConcurrentHashMap<String, List<Cookie>> cookieStore = new ConcurrentHashMap<>();
-        private final Object saveLock = new Object();
+        private final AtomicFile file;
+        // registrable domain -> cookie domain -> "name;path" -> cookie
+        private final ConcurrentHashMap<String, ConcurrentHashMap<String, ConcurrentHashMap<String, Cookie>>>
+                cookieStore = new ConcurrentHashMap<>();
+        // host -> registrable domain, so the public suffix lookup runs once per host
+        private final ConcurrentHashMap<String, String> registrableDomains = new ConcurrentHashMap<>();
+        private final AtomicBoolean persistScheduled = new AtomicBoolean(false);
+        private final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cookie-jar");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         PersistentCookieJar(Context context) {
             this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
-            loadCookiesFromPrefs();
+            this.file = new AtomicFile(new File(context.getFilesDir(), COOKIES_FILE));
+            if (file.getBaseFile().exists()) {
+                loadCookiesFromFile();
+            } else {
+                migrateCookiesFromPrefs();
+            }
+            writer.scheduleWithFixedDelay(this::sweepExpired,
+                    SWEEP_INTERVAL_MINUTES, SWEEP_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        }
+
+        // ===================== INDEX =====================
+
+        // Adds run inside compute() so the sweep cannot drop a map that is being added to
+        private void store(Cookie cookie) {
+            cookieStore.compute(registrableDomain(cookie.domain()), (registrable, domains) -> {
+                if (domains == null) {
+                    domains = new ConcurrentHashMap<>();
+                }
+                domains.compute(cookie.domain(), (domain, cookies) -> {
+                    if (cookies == null) {
+                        cookies = new ConcurrentHashMap<>();
+                    }
+                    cookies.put(cookie.name() + ";" + cookie.path(), cookie);
+                    return cookies;
+                });
+                return domains;
+            });
+        }
+
+        private void remove(Cookie cookie) {
+            ConcurrentHashMap<String, ConcurrentHashMap<String, Cookie>> domains =
+                    cookieStore.get(registrableDomain(cookie.domain()));
+            ConcurrentHashMap<String, Cookie> cookies = domains != null ? domains.get(cookie.domain()) : null;
+            if (cookies != null) {
+                cookies.remove(cookie.name() + ";" + cookie.path());
+            }
         }
 
         /**
-         * Load cookies from SharedPreferences
-         * Fixed: Now properly deserializes all cookie attributes from JSON
+         * eTLD+1 of a host (e.g. "cdn.example.co.uk" -> "example.co.uk"); the host itself
+         * for IP addresses and bare public suffixes
          */
-        private void loadCookiesFromPrefs() {
-            String cookiesJson = preferences.getString(COOKIES_KEY, null);
-            if (cookiesJson != null && !cookiesJson.isEmpty()) {
-                try {
-                    JSONArray jsonArray = new JSONArray(cookiesJson);
-                    int loadedCount = 0;
-
-                    for (int i = 0; i < jsonArray.length(); i++) {
-                        JSONObject cookieJson = jsonArray.getJSONObject(i);
-                        Cookie cookie = deserializeCookie(cookieJson);
-
-                        if (cookie != null && cookie.expiresAt() >= System.currentTimeMillis()) {
-                            String domain = cookie.domain();
-                            List<Cookie> domainCookies = cookieStore.get(domain);
-                            if (domainCookies == null) {
-                                domainCookies = new ArrayList<>();
-                                cookieStore.put(domain, domainCookies);
-                            }
-                            domainCookies.add(cookie);
-                            loadedCount++;
+        private String registrableDomain(String host) {
+            String cached = registrableDomains.get(host);
+            if (cached != null) {
+                return cached;
+            }
+            HttpUrl url = HttpUrl.parse("https://" + host + "/");
+            String registrable = url != null ? url.topPrivateDomain() : null;
+            if (registrable == null) {
+                registrable = host;
+            }
+            if (registrableDomains.size() >= MAX_REGISTRABLE_DOMAINS) {
+                registrableDomains.clear();
+            }
+            registrableDomains.put(host, registrable);
+            return registrable;
+        }
+
+        @Override
+        public void saveFromResponse(HttpUrl url, List<Cookie> cookies) {
+            long now = System.currentTimeMillis();
+            for (Cookie cookie : cookies) {
+                if (cookie.expiresAt() < now) {
+                    remove(cookie); // servers delete cookies by expiring them
+                } else {
+                    store(cookie);
+                }
+
+                // Log Cloudflare cookies
+                if (debugLogging && (cookie.name().equals("cf_clearance") ||
+                        cookie.name().equals("__cf_bm") ||
+                        cookie.name().equals("__cfduid"))) {
+                    Log.i(TAG, "Saved Cloudflare cookie: " + cookie.name());
+                }
+            }
+            if (!cookies.isEmpty()) {
+                schedulePersist();
+            }
+        }
+
+        @Override
+        public List<Cookie> loadForRequest(HttpUrl url) {
+            String host = url.host();
+            String registrable = registrableDomain(host);
+            ConcurrentHashMap<String, ConcurrentHashMap<String, Cookie>> domains = cookieStore.get(registrable);
+            if (domains == null) {
+                return Collections.emptyList();
+            }
+
+            // Walk host suffixes: a.b.example.com, b.example.com, example.com
+            List<Cookie> result = new ArrayList<>();
+            long now = System.currentTimeMillis();
+            String domain = host;
+            while (true) {
+                ConcurrentHashMap<String, Cookie> cookies = domains.get(domain);
+                if (cookies != null) {
+                    for (Cookie cookie : cookies.values()) {
+                        // Expired ones are left for the sweep
+                        if (cookie.expiresAt() >= now && cookie.matches(url)) {
+                            result.add(cookie);
                         }
                     }
+                }
+                int dot = domain.indexOf('.');
+                if (domain.equals(registrable) || dot < 0) {
+                    break;
+                }
+                domain = domain.substring(dot + 1);
+            }
 
-                    if (debugLogging) {
-                        Log.i(TAG, "Loaded " + loadedCount + " cookies from storage");
-                    }
+            if (debugLogging && !result.isEmpty()) {
+                Log.i(TAG, "Sending " + result.size() + " cookies for " + host);
+            }
+            return result;
+        }
+
+        /**
+         * Clear all stored cookies
+         */
+        public void clearCookies() {
+            cookieStore.clear();
+            writer.execute(() -> {
+                file.delete();
+                preferences.edit().remove(COOKIES_KEY).apply();
+            });
+            Log.i(TAG, "All cookies cleared");
+        }
 
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error loading cookies from JSON", e);
-                    // Clear corrupted data
-                    preferences.edit().remove(COOKIES_KEY).apply();
+        // ===================== PERSISTENCE =====================
+
+        /**
+         * Write the jar once the current burst of Set-Cookie headers is over
+         */
+        private void schedulePersist() {
+            if (persistScheduled.compareAndSet(false, true)) {
+                writer.schedule(this::persist, PERSIST_DELAY_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private void sweepExpired() {
+            long now = System.currentTimeMillis();
+            int removed = 0;
+            for (String registrable : cookieStore.keySet()) {
+                ConcurrentHashMap<String, ConcurrentHashMap<String, Cookie>> domains = cookieStore.get(registrable);
+                if (domains == null) {
+                    continue;
+                }
+                for (String domain : domains.keySet()) {
+                    ConcurrentHashMap<String, Cookie> cookies = domains.get(domain);
+                    if (cookies == null) {
+                        continue;
+                    }
+                    Iterator<Cookie> iterator = cookies.values().iterator();
+                    while (iterator.hasNext()) {
+                        if (iterator.next().expiresAt() < now) {
+                            iterator.remove();
+                            removed++;
+                        }
+                    }
+                    domains.computeIfPresent(domain, (key, value) -> value.isEmpty() ? null : value);
+                }
+                cookieStore.computeIfPresent(registrable, (key, value) -> value.isEmpty() ? null : value);
+            }
+            if (removed > 0) {
+                if (debugLogging) {
+                    Log.i(TAG, "Swept " + removed + " expired cookies");
                 }
+                schedulePersist();
             }
         }
 
         /**
-         * Save cookies to SharedPreferences as JSON
-         * Fixed: Now properly serializes all cookie attributes
+         * One cookie per line: name, value, expiresAt, domain, path, flags (tab separated).
+         * Cookie names and values cannot contain tabs or line breaks.
          */
-        private void saveCookiesToPrefs() {
-            synchronized (saveLock) {
-                try {
-                    JSONArray jsonArray = new JSONArray();
-                    long now = System.currentTimeMillis();
-                    int savedCount = 0;
-
-                    for (List<Cookie> cookies : cookieStore.values()) {
-                        for (Cookie cookie : cookies) {
-                            // Only save non-expired cookies
-                            if (cookie.expiresAt() >= now) {
-                                JSONObject cookieJson = serializeCookie(cookie);
-                                jsonArray.put(cookieJson);
-                                savedCount++;
-                            }
+        private void persist() {
+            persistScheduled.set(false);
+            long now = System.currentTimeMillis();
+            StringBuilder out = new StringBuilder();
+            int savedCount = 0;
+            for (ConcurrentHashMap<String, ConcurrentHashMap<String, Cookie>> domains : cookieStore.values()) {
+                for (ConcurrentHashMap<String, Cookie> cookies : domains.values()) {
+                    for (Cookie cookie : cookies.values()) {
+                        if (cookie.expiresAt() < now) {
+                            continue;
                         }
+                        out.append(cookie.name()).append('\t')
+                                .append(cookie.value()).append('\t')
+                                .append(cookie.expiresAt()).append('\t')
+                                .append(cookie.domain()).append('\t')
+                                .append(cookie.path()).append('\t')
+                                .append(cookie.secure() ? 's' : '-')
+                                .append(cookie.httpOnly() ? 'h' : '-')
+                                .append(cookie.hostOnly() ? 'o' : '-')
+                                .append('\n');
+                        savedCount++;
                     }
+                }
+            }
 
-                    if (savedCount > 0) {
-                        preferences.edit()
-                                .putString(COOKIES_KEY, jsonArray.toString())
-                                .apply();
-                    } else {
-                        preferences.edit().remove(COOKIES_KEY).apply();
-                    }
+            FileOutputStream stream = null;
+            try {
+                stream = file.startWrite();
+                stream.write(out.toString().getBytes(StandardCharsets.UTF_8));
+                file.finishWrite(stream);
+                if (debugLogging) {
+                    Log.i(TAG, "Saved " + savedCount + " cookies to storage");
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Error saving cookies", e);
+                if (stream != null) {
+                    file.failWrite(stream);
+                }
+            }
+        }
 
-                    if (debugLogging) {
-                        Log.i(TAG, "Saved " + savedCount + " cookies to storage");
+        private void loadCookiesFromFile() {
+            long now = System.currentTimeMillis();
+            int loadedCount = 0;
+            try {
+                String[] lines = new String(file.readFully(), StandardCharsets.UTF_8).split("\n");
+                for (String line : lines) {
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length != 6 || fields[5].length() != 3) {
+                        continue;
+                    }
+                    try {
+                        Cookie.Builder builder = new Cookie.Builder()
+                                .name(fields[0])
+                                .value(fields[1])
+                                .expiresAt(Long.parseLong(fields[2]))
+                                .path(fields[4]);
+                        if (fields[5].charAt(2) == 'o') {
+                            builder.hostOnlyDomain(fields[3]);
+                        } else {
+                            builder.domain(fields[3]);
+                        }
+                        if (fields[5].charAt(0) == 's') {
+                            builder.secure();
+                        }
+                        if (fields[5].charAt(1) == 'h') {
+                            builder.httpOnly();
+                        }
+                        Cookie cookie = builder.build();
+                        if (cookie.expiresAt() >= now) {
+                            store(cookie);
+                            loadedCount++;
+                        }
+                    } catch (IllegalArgumentException e) {
+                        Log.e(TAG, "Skipping unreadable cookie line", e);
                     }
-
-                } catch (JSONException e) {
-                    Log.e(TAG, "Error saving cookies to JSON", e);
                 }
+            } catch (IOException e) {
+                Log.e(TAG, "Error loading cookies", e);
+            }
+
+            if (debugLogging) {
+                Log.i(TAG, "Loaded " + loadedCount + " cookies from storage");
             }
         }
 
         /**
-         * Serialize a Cookie to JSON with all attributes
+         * One-time move from the SharedPreferences JSON used by earlier versions
          */
-        private JSONObject serializeCookie(Cookie cookie) throws JSONException {
-            JSONObject json = new JSONObject();
-            json.put("name", cookie.name());
-            json.put("value", cookie.value());
-            json.put("expiresAt", cookie.expiresAt());
-            json.put("domain", cookie.domain());
-            json.put("path", cookie.path());
-            json.put("secure", cookie.secure());
-            json.put("httpOnly", cookie.httpOnly());
-            json.put("hostOnly", cookie.hostOnly());
-            json.put("persistent", cookie.persistent());
-            return json;
+        private void migrateCookiesFromPrefs() {
+            String cookiesJson = preferences.getString(COOKIES_KEY, null);
+            if (cookiesJson == null || cookiesJson.isEmpty()) {
+                return;
+            }
+            try {
+                JSONArray jsonArray = new JSONArray(cookiesJson);
+                long now = System.currentTimeMillis();
+                for (int i = 0; i < jsonArray.length(); i++) {
+                    Cookie cookie = deserializeCookie(jsonArray.getJSONObject(i));
+                    if (cookie != null && cookie.expiresAt() >= now) {
+                        store(cookie);
+                    }
+                }
+                Log.i(TAG, "Migrated " + jsonArray.length() + " cookies from preferences");
+            } catch (JSONException e) {
+                Log.e(TAG, "Error loading cookies from JSON", e);
+            }
+            preferences.edit().remove(COOKIES_KEY).apply();
+            schedulePersist();
         }
 
         /**
-         * Deserialize a Cookie from JSON
+         * Deserialize a Cookie from the legacy JSON format
          */
         private Cookie deserializeCookie(JSONObject json) {
             try {
@@ -325,107 +726,6 @@ public class ApiClient {
                 return null;
             }
         }
-
-        @Override
-        public synchronized void saveFromResponse(okhttp3.HttpUrl url, List<Cookie> cookies) {
-            String domain = url.host();
-            long now = System.currentTimeMillis();
-
-            // Filter out expired cookies
-            List<Cookie> validCookies = new ArrayList<>();
-            for (Cookie cookie : cookies) {
-                if (cookie.expiresAt() >= now) {
-                    validCookies.add(cookie);
-                }
-            }
-
-            if (!validCookies.isEmpty()) {
-                // Merge with existing cookies for this domain
-                List<Cookie> existingCookies = cookieStore.get(domain);
-                if (existingCookies == null) {
-                    existingCookies = new ArrayList<>();
-                }
-
-                // Remove cookies with the same name (update existing)
-                Iterator<Cookie> iterator = existingCookies.iterator();
-                while (iterator.hasNext()) {
-                    Cookie existing = iterator.next();
-                    for (Cookie newCookie : validCookies) {
-                        if (existing.name().equals(newCookie.name())) {
-                            iterator.remove();
-                            break;
-                        }
-                    }
-                }
-
-                // Add new cookies
-                existingCookies.addAll(validCookies);
-                cookieStore.put(domain, existingCookies);
-
-                // Save to preferences
-                saveCookiesToPrefs();
-
-                // Log Cloudflare cookies
-                if (debugLogging) {
-                    for (Cookie cookie : validCookies) {
-                        if (cookie.name().equals("cf_clearance") ||
-                                cookie.name().equals("__cf_bm") ||
-                                cookie.name().equals("__cfduid")) {
-                            Log.i(TAG, "Saved Cloudflare cookie: " + cookie.name());
-                        }
-                    }
-                }
-            }
-        }
-
-        @Override
-        public synchronized List<Cookie> loadForRequest(okhttp3.HttpUrl url) {
-            String domain = url.host();
-            List<Cookie> result = new ArrayList<>();
-            long now = System.currentTimeMillis();
-
-            // Iterate through all stored cookies
-            for (ConcurrentHashMap.Entry<String, List<Cookie>> entry : cookieStore.entrySet()) {
-                String storedDomain = entry.getKey();
-
-                // Domain match (subdomain-safe)
-                if (domain.equals(storedDomain) || domain.endsWith("." + storedDomain)) {
-                    List<Cookie> cookies = entry.getValue();
-
-                    // Use traditional iteration instead of streams (API 24+ compatibility)
-                    Iterator<Cookie> iterator = cookies.iterator();
-                    while (iterator.hasNext()) {
-                        Cookie cookie = iterator.next();
-
-                        if (cookie.expiresAt() < now) {
-                            iterator.remove(); // Remove expired cookie
-                        } else if (cookie.matches(url)) {
-                            result.add(cookie);
-                        }
-                    }
-
-                    // Remove domain if no cookies left
-                    if (cookies.isEmpty()) {
-                        cookieStore.remove(storedDomain);
-                    }
-                }
-            }
-
-            if (debugLogging && !result.isEmpty()) {
-                Log.i(TAG, "Sending " + result.size() + " cookies for " + domain);
-            }
-
-            return result;
-        }
-
-        /**
-         * Clear all stored cookies
-         */
-        public synchronized void clearCookies() {
-            cookieStore.clear();
-            preferences.edit().remove(COOKIES_KEY).apply();
-            Log.i(TAG, "All cookies cleared");
-        }
     }
 
     // ============================================
@@ -468,160 +768,373 @@ public class ApiClient {
     }
 
     /**
-     * RetryInterceptor - Retries failed requests with exponential backoff
-     * Fixed: Now handles both IOExceptions and retryable HTTP errors (500, 502, 503, 504)
+     * RetryInterceptor - Circuit breakers, a retry budget and jittered retries for idempotent calls
+     *
+     * Every call first checks the host's breaker (see {@link CircuitBreakers}) and fails
+     * at once while it is open; its outcome then feeds the breaker. Only GET, HEAD and
+     * OPTIONS calls that are not media loads are retried: POSTs (enc-dec.app encryption)
+     * may have taken effect, and the player retries segments and manifests itself.
+     * A retry spends a token from the app-wide {@link RetryBudget}, so an outage cannot
+     * multiply traffic. The wait before a retry is full jitter under an exponential cap
+     * and only happens on the caller's own thread. Calls marked with
+     * {@link ApiClient#async} (the player's data sources, cache revalidation) run on
+     * dispatcher threads and are never held for a backoff.
      */
     private static class RetryInterceptor implements Interceptor {
-        private final int maxRetries;
+        private final int maxAttempts;
 
         // HTTP status codes that should be retried
-        private static final int[] RETRYABLE_STATUS_CODES = {500, 502, 503, 504};
-
-        RetryInterceptor(int maxRetries) {
-            this.maxRetries = maxRetries;
+        private static final int[] RETRYABLE_STATUS_CODES = {429, 500, 502, 503, 504};
+        private static final long BASE_BACKOFF_MS = 250;
+        private static final long MAX_BACKOFF_MS = 2_000;
+        private static final long CANCEL_POLL_MS = 50;
+        private static final String[] MEDIA_EXTENSIONS = {
+                ".m3u8", ".m3u", ".mpd", ".ts", ".m4s", ".mp4", ".mkv", ".webm", ".aac", ".key", ".vtt", ".srt"
+        };
+
+        private final RetryBudget budget = new RetryBudget();
+
+        RetryInterceptor(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
         }
 
         @Override
         public Response intercept(Chain chain) throws IOException {
             Request request = chain.request();
-            Response response = null;
-            IOException lastException = null;
+            String host = request.url().host();
+            boolean media = isMediaRequest(request);
+            boolean retryable = !media && isIdempotent(request.method());
+            boolean async = request.tag(AsyncCall.class) != null;
+
+            for (int attempt = 0; ; attempt++) {
+                if (!media && !CircuitBreakers.allow(host)) {
+                    throw new IOException("Circuit open for " + host);
+                }
 
-            for (int attempt = 0; attempt < maxRetries; attempt++) {
+                // Any way out of an attempt that says nothing about the host (cancelled, a
+                // RuntimeException from an interceptor) must still free a half-open trial
+                boolean recorded = media;
                 try {
-                    // Close previous response if exists
-                    if (response != null) {
-                        response.close();
+                    Response response;
+                    try {
+                        response = chain.proceed(request);
+                    } catch (IOException e) {
+                        if (chain.call().isCanceled()) {
+                            throw e;
+                        }
+                        if (!media) {
+                            CircuitBreakers.onFailure(host);
+                            recorded = true;
+                        }
+                        if (!shouldRetry(retryable, async, attempt)) {
+                            throw e;
+                        }
+                        if (debugLogging) {
+                            Log.w(TAG, "Request failed: " + e.getMessage() + ", retry " +
+                                    (attempt + 1) + "/" + (maxAttempts - 1));
+                        }
+                        backoff(chain, attempt, e);
+                        continue;
                     }
 
-                    response = chain.proceed(request);
-
-                    // Success - return immediately
-                    if (response.isSuccessful()) {
+                    if (!isRetryableStatus(response.code())) {
+                        if (!media) {
+                            CircuitBreakers.onSuccess(host);
+                            budget.onSuccess();
+                            recorded = true;
+                        }
                         return response;
                     }
-
-                    // Check if this is a retryable error
-                    boolean shouldRetry = false;
-                    for (int retryableCode : RETRYABLE_STATUS_CODES) {
-                        if (response.code() == retryableCode) {
-                            shouldRetry = true;
-                            break;
-                        }
+                    if (!media) {
+                        CircuitBreakers.onFailure(host);
+                        recorded = true;
                     }
-
-                    // If not retryable, return the error response
-                    if (!shouldRetry) {
+                    if (!shouldRetry(retryable, async, attempt)) {
                         return response;
                     }
-
-                    // Log retry attempt
-                    if (debugLogging && attempt < maxRetries - 1) {
+                    if (debugLogging) {
                         Log.w(TAG, "HTTP " + response.code() + " error, retry " +
-                                (attempt + 1) + "/" + maxRetries);
+                                (attempt + 1) + "/" + (maxAttempts - 1));
+                    }
+                    response.close();
+                    backoff(chain, attempt, null);
+                } finally {
+                    if (!recorded) {
+                        CircuitBreakers.onAbandoned(host);
                     }
+                }
+            }
+        }
 
-                } catch (IOException e) {
-                    lastException = e;
+        private boolean shouldRetry(boolean retryable, boolean async, int attempt) {
+            return retryable && !async && attempt < maxAttempts - 1 && budget.tryAcquire();
+        }
 
-                    if (debugLogging && attempt < maxRetries - 1) {
-                        Log.w(TAG, "Request failed: " + e.getMessage() + ", retry " +
-                                (attempt + 1) + "/" + maxRetries);
-                    }
+        /**
+         * Full jitter: a random wait up to the exponential cap, cut short if the call is cancelled
+         */
+        private static void backoff(Chain chain, int attempt, IOException lastException) throws IOException {
+            long capMs = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << attempt);
+            long waitMs = (long) (Math.random() * capMs);
+            try {
+                while (waitMs > 0 && !chain.call().isCanceled()) {
+                    long sliceMs = Math.min(CANCEL_POLL_MS, waitMs);
+                    Thread.sleep(sliceMs);
+                    waitMs -= sliceMs;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                if (lastException != null) {
+                    throw lastException;
+                }
+                throw new IOException("Retry interrupted", ie);
+            }
+            if (chain.call().isCanceled()) {
+                throw lastException != null ? lastException : new IOException("Canceled");
+            }
+        }
 
-                    // If this is the last attempt, throw the exception
-                    if (attempt == maxRetries - 1) {
-                        throw e;
-                    }
+        private static boolean isRetryableStatus(int code) {
+            for (int retryableCode : RETRYABLE_STATUS_CODES) {
+                if (code == retryableCode) {
+                    return true;
                 }
+            }
+            return false;
+        }
 
-                // Exponential backoff before retry (skip on last attempt)
-                if (attempt < maxRetries - 1) {
-                    try {
-                        long backoffMs = (long) Math.pow(2, attempt) * 1000;
-                        Thread.sleep(backoffMs);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        // If interrupted, throw the last exception or close response
-                        if (lastException != null) {
-                            throw lastException;
-                        }
-                        if (response != null) {
-                            response.close();
-                        }
-                        throw new IOException("Retry interrupted", ie);
-                    }
+        private static boolean isIdempotent(String method) {
+            return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+        }
+
+        /**
+         * Segment, manifest and subtitle loads, and any ranged read
+         */
+        private static boolean isMediaRequest(Request request) {
+            if (request.header("Range") != null) {
+                return true;
+            }
+            String path = request.url().encodedPath().toLowerCase(Locale.ROOT);
+            for (String extension : MEDIA_EXTENSIONS) {
+                if (path.endsWith(extension)) {
+                    return true;
                 }
             }
+            return false;
+        }
+    }
 
-            // Should not reach here, but if we do, return the last response
-            return response;
+    /**
+     * RetryBudget - Token bucket shared by all retries
+     *
+     * Each retry spends one token; each successful call earns back a fraction of one.
+     * While calls mostly fail the bucket drains and retries stop, instead of tripling
+     * the load on hosts that are already struggling.
+     */
+    private static class RetryBudget {
+        private static final double MAX_TOKENS = 10;
+        private static final double TOKENS_PER_SUCCESS = 0.1;
+
+        private double tokens = MAX_TOKENS;
+
+        synchronized boolean tryAcquire() {
+            if (tokens < 1) {
+                if (debugLogging) {
+                    Log.w(TAG, "Retry budget exhausted");
+                }
+                return false;
+            }
+            tokens -= 1;
+            return true;
+        }
+
+        synchronized void onSuccess() {
+            tokens = Math.min(MAX_TOKENS, tokens + TOKENS_PER_SUCCESS);
         }
     }
 
     /**
-     * CachedDnsSelector - DNS resolver with in-memory caching
-     * Fixed: Now uses ConcurrentHashMap for thread safety and implements cache size limits
+     * CachedDnsSelector - LRU DNS cache with a TTL, refresh-ahead and negative caching
+     *
+     * One access-ordered map holds every host, so size and eviction cannot drift apart
+     * and the least recently used host is dropped in O(1). A host looked up during the
+     * last DNS_REFRESH_AHEAD_MS of its TTL is re-resolved in the background, so busy
+     * hosts never pay a lookup on the request path. Failed lookups are remembered for
+     * DNS_NEGATIVE_TTL_MS; a failed refresh of an expired host keeps serving its last
+     * addresses for up to DNS_STALE_MS. Answers from {@link DohDns} are kept for their
+     * own TTL (at most DNS_CACHE_DURATION_MS).
      */
-    private class CachedDnsSelector implements Dns {
-        private final ConcurrentHashMap<String, List<InetAddress>> cache = new ConcurrentHashMap<>();
-        private final ConcurrentHashMap<String, Long> timestamps = new ConcurrentHashMap<>();
-        private final AtomicInteger cacheSize = new AtomicInteger(0);
+    private static class CachedDnsSelector implements Dns {
+        private static final AtomicInteger threadCount = new AtomicInteger();
+
+        private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                2, 2, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dns-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+
+        static {
+            executor.allowCoreThreadTimeOut(true);
+        }
+
+        private volatile Dns upstream;
+        private final LinkedHashMap<String, DnsEntry> cache =
+                new LinkedHashMap<String, DnsEntry>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<String, DnsEntry> eldest) {
+                        return size() > MAX_DNS_CACHE_SIZE;
+                    }
+                };
+
+        // Diagnostics
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong negativeHits = new AtomicLong();
+        private final AtomicLong staleHits = new AtomicLong();
+        private final AtomicLong refreshes = new AtomicLong();
+
+        private static final class DnsEntry {
+            final List<InetAddress> addresses;  // null for a cached failure
+            final long resolvedAt;
+            final long expiresAt;
+            boolean refreshing;
+
+            DnsEntry(List<InetAddress> addresses, long resolvedAt, long expiresAt) {
+                this.addresses = addresses;
+                this.resolvedAt = resolvedAt;
+                this.expiresAt = expiresAt;
+            }
+        }
+
+        CachedDnsSelector(Dns upstream) {
+            this.upstream = upstream;
+        }
+
+        void setUpstream(Dns upstream) {
+            this.upstream = upstream;
+            synchronized (cache) {
+                cache.clear();
+            }
+        }
 
         @Override
         public List<InetAddress> lookup(String hostname) throws UnknownHostException {
-            // Check cache
-            Long timestamp = timestamps.get(hostname);
-            if (timestamp != null &&
-                    (System.currentTimeMillis() - timestamp) < DNS_CACHE_DURATION_MS) {
-                List<InetAddress> cached = cache.get(hostname);
-                if (cached != null) {
-                    if (debugLogging) {
-                        Log.i(TAG, "Using cached DNS for: " + hostname);
-                    }
-                    return cached;
+            long now = SystemClock.elapsedRealtime();
+            DnsEntry entry;
+            boolean refreshAhead = false;
+            synchronized (cache) {
+                entry = cache.get(hostname);
+                if (entry != null && now < entry.expiresAt && entry.addresses != null
+                        && !entry.refreshing && entry.expiresAt - now < refreshAheadMs(entry)) {
+                    entry.refreshing = true;
+                    refreshAhead = true;
                 }
             }
 
-            // Perform DNS lookup
-            List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
-
-            // Evict old entries if cache is full
-            if (cacheSize.get() >= MAX_DNS_CACHE_SIZE) {
-                evictOldestEntry();
+            if (entry != null && now < entry.expiresAt) {
+                if (entry.addresses == null) {
+                    negativeHits.incrementAndGet();
+                    throw new UnknownHostException(hostname + " (cached failure)");
+                }
+                hits.incrementAndGet();
+                if (refreshAhead) {
+                    executor.execute(() -> refresh(hostname));
+                }
+                if (debugLogging) {
+                    Log.i(TAG, "Using cached DNS for: " + hostname);
+                }
+                return entry.addresses;
             }
 
-            // Store in cache
-            cache.put(hostname, addresses);
-            timestamps.put(hostname, System.currentTimeMillis());
-            cacheSize.incrementAndGet();
+            misses.incrementAndGet();
+            try {
+                return resolve(hostname);
+            } catch (UnknownHostException e) {
+                if (entry != null && entry.addresses != null && now - entry.resolvedAt < DNS_STALE_MS) {
+                    staleHits.incrementAndGet();
+                    Log.w(TAG, "DNS lookup failed for " + hostname + ", using last known addresses");
+                    return entry.addresses;
+                }
+                throw e;
+            }
+        }
 
-            return addresses;
+        private static long refreshAheadMs(DnsEntry entry) {
+            return Math.min(DNS_REFRESH_AHEAD_MS, (entry.expiresAt - entry.resolvedAt) / 4);
         }
 
         /**
-         * Evict the oldest entry from the cache
+         * Look the host up upstream and cache the answer, or the failure
          */
-        private void evictOldestEntry() {
-            String oldestHost = null;
-            long oldestTime = Long.MAX_VALUE;
-
-            for (ConcurrentHashMap.Entry<String, Long> entry : timestamps.entrySet()) {
-                if (entry.getValue() < oldestTime) {
-                    oldestTime = entry.getValue();
-                    oldestHost = entry.getKey();
+        private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+            Dns resolver = upstream;
+            List<InetAddress> addresses;
+            long ttlMs = DNS_CACHE_DURATION_MS;
+            try {
+                if (resolver instanceof DohDns) {
+                    DohDns.Answer answer = ((DohDns) resolver).resolve(hostname);
+                    addresses = answer.addresses;
+                    ttlMs = Math.min(ttlMs, answer.ttlMs);
+                } else {
+                    addresses = resolver.lookup(hostname);
                 }
+            } catch (UnknownHostException e) {
+                long now = SystemClock.elapsedRealtime();
+                synchronized (cache) {
+                    DnsEntry previous = cache.get(hostname);
+                    if (previous == null || previous.addresses == null || now - previous.resolvedAt >= DNS_STALE_MS) {
+                        cache.put(hostname, new DnsEntry(null, now, now + DNS_NEGATIVE_TTL_MS));
+                    } else {
+                        // Keep the last answer for a while without retrying on every request
+                        DnsEntry stale = new DnsEntry(previous.addresses, previous.resolvedAt, now + DNS_NEGATIVE_TTL_MS);
+                        stale.refreshing = true;
+                        cache.put(hostname, stale);
+                    }
+                }
+                throw e;
+            }
+            long now = SystemClock.elapsedRealtime();
+            synchronized (cache) {
+                cache.put(hostname, new DnsEntry(addresses, now, now + ttlMs));
             }
+            return addresses;
+        }
 
-            if (oldestHost != null) {
-                cache.remove(oldestHost);
-                timestamps.remove(oldestHost);
-                cacheSize.decrementAndGet();
+        private void refresh(String hostname) {
+            refreshes.incrementAndGet();
+            try {
+                resolve(hostname);
+            } catch (UnknownHostException e) {
+                Log.w(TAG, "DNS refresh failed for " + hostname + ": " + e.getMessage());
+            }
+        }
 
-                if (debugLogging) {
-                    Log.i(TAG, "Evicted DNS cache entry: " + oldestHost);
-                }
+        /**
+         * Resolve hosts in the background so their first requests skip the lookup
+         */
+        void prefetch(List<String> hostnames) {
+            for (String hostname : hostnames) {
+                executor.execute(() -> {
+                    synchronized (cache) {
+                        DnsEntry entry = cache.get(hostname);
+                        if (entry != null && SystemClock.elapsedRealtime() < entry.expiresAt) {
+                            return;
+                        }
+                    }
+                    refresh(hostname);
+                });
+            }
+        }
+
+        String describe() {
+            int size;
+            synchronized (cache) {
+                size = cache.size();
             }
+            return String.format(Locale.US, "DNS cache: %d hosts, %d hits, %d misses, %d negative, %d stale, %d refreshes",
+                    size, hits.get(), misses.get(), negativeHits.get(), staleHits.get(), refreshes.get());
         }
     }
 
@@ -1,5 +1,6 @@
 package com.kiduyu.klaus.kiduyutv.Api;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -9,10 +10,7 @@ import com.kiduyu.klaus.kiduyutv.model.MediaItems;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -20,10 +18,15 @@ import java.util.concurrent.Executors;
 
 public class CastRepository {
     private static final String TAG = "CastRepository";
-    private static final String TMDB_BASE_URL = "https://api.themoviedb.org/3";
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    // Thread management - shared by all instances so activities don't each leak a pool
+    private static final ExecutorService executorService = Executors.newFixedThreadPool(4);
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TmdbClient tmdbClient;
+
+    public CastRepository(Context context) {
+        this.tmdbClient = TmdbClient.getInstance(context);
+    }
 
     // Callback interfaces
     public interface CastListCallback {
@@ -47,38 +50,23 @@ public class CastRepository {
     public void getTVShowCast(String tvShowId, CastListCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/tv/" + tvShowId + "/credits?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-                    JSONArray castArray = jsonResponse.optJSONArray("cast");
-
-                    List<CastMember> castList = new ArrayList<>();
-
-                    if (castArray != null) {
-                        int limit = Math.min(castArray.length(), 20); // Limit to 20 cast members
-                        for (int i = 0; i < limit; i++) {
-                            JSONObject castJson = castArray.getJSONObject(i);
-                            CastMember castMember = parseCastMember(castJson);
-                            castList.add(castMember);
-                        }
-                    }
+                JSONObject jsonResponse = tmdbClient.getCredits("tv", tvShowId);
+                JSONArray castArray = jsonResponse.optJSONArray("cast");
 
-                    List<CastMember> finalCastList = castList;
-                    mainHandler.post(() -> callback.onSuccess(finalCastList));
+                List<CastMember> castList = new ArrayList<>();
 
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
+                if (castArray != null) {
+                    int limit = Math.min(castArray.length(), 20); // Limit to 20 cast members
+                    for (int i = 0; i < limit; i++) {
+                        JSONObject castJson = castArray.getJSONObject(i);
+                        CastMember castMember = parseCastMember(castJson);
+                        castList.add(castMember);
+                    }
                 }
 
+                List<CastMember> finalCastList = castList;
+                mainHandler.post(() -> callback.onSuccess(finalCastList));
+
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching TV show cast", e);
                 mainHandler.post(() -> callback.onError(e.getMessage()));
@@ -92,38 +80,23 @@ public class CastRepository {
     public void getMovieCast(String movieId, CastListCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/movie/" + movieId + "/credits?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-                    JSONArray castArray = jsonResponse.optJSONArray("cast");
-
-                    List<CastMember> castList = new ArrayList<>();
-
-                    if (castArray != null) {
-                        int limit = Math.min(castArray.length(), 20);
-                        for (int i = 0; i < limit; i++) {
-                            JSONObject castJson = castArray.getJSONObject(i);
-                            CastMember castMember = parseCastMember(castJson);
-                            castList.add(castMember);
-                        }
-                    }
+                JSONObject jsonResponse = tmdbClient.getCredits("movie", movieId);
+                JSONArray castArray = jsonResponse.optJSONArray("cast");
 
-                    List<CastMember> finalCastList = castList;
-                    mainHandler.post(() -> callback.onSuccess(finalCastList));
+                List<CastMember> castList = new ArrayList<>();
 
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
+                if (castArray != null) {
+                    int limit = Math.min(castArray.length(), 20);
+                    for (int i = 0; i < limit; i++) {
+                        JSONObject castJson = castArray.getJSONObject(i);
+                        CastMember castMember = parseCastMember(castJson);
+                        castList.add(castMember);
+                    }
                 }
 
+                List<CastMember> finalCastList = castList;
+                mainHandler.post(() -> callback.onSuccess(finalCastList));
+
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching movie cast", e);
                 mainHandler.post(() -> callback.onError(e.getMessage()));
@@ -137,36 +110,21 @@ public class CastRepository {
     public void getCastDetails(int personId, CastDetailsCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/person/" + personId + "?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-
-                    CastMember castMember = new CastMember();
-                    castMember.setId(jsonResponse.optInt("id", 0));
-                    castMember.setName(jsonResponse.optString("name", "Unknown"));
-                    castMember.setBiography(jsonResponse.optString("biography", "No biography available"));
-                    castMember.setBirthday(jsonResponse.optString("birthday", ""));
-                    castMember.setDeathday(jsonResponse.optString("deathday", ""));
-                    castMember.setPlaceOfBirth(jsonResponse.optString("place_of_birth", ""));
-                    castMember.setKnownForDepartment(jsonResponse.optString("known_for_department", ""));
-                    castMember.setPopularity((float) jsonResponse.optDouble("popularity", 0.0));
-                    castMember.setProfilePath(jsonResponse.optString("profile_path", ""));
-
-                    CastMember finalCastMember = castMember;
-                    mainHandler.post(() -> callback.onSuccess(finalCastMember));
-
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
-                }
+                JSONObject jsonResponse = tmdbClient.getPerson(personId);
+
+                CastMember castMember = new CastMember();
+                castMember.setId(jsonResponse.optInt("id", 0));
+                castMember.setName(jsonResponse.optString("name", "Unknown"));
+                castMember.setBiography(jsonResponse.optString("biography", "No biography available"));
+                castMember.setBirthday(jsonResponse.optString("birthday", ""));
+                castMember.setDeathday(jsonResponse.optString("deathday", ""));
+                castMember.setPlaceOfBirth(jsonResponse.optString("place_of_birth", ""));
+                castMember.setKnownForDepartment(jsonResponse.optString("known_for_department", ""));
+                castMember.setPopularity((float) jsonResponse.optDouble("popularity", 0.0));
+                castMember.setProfilePath(jsonResponse.optString("profile_path", ""));
+
+                CastMember finalCastMember = castMember;
+                mainHandler.post(() -> callback.onSuccess(finalCastMember));
 
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching cast details", e);
@@ -181,120 +139,87 @@ public class CastRepository {
     public void getPersonCredits(int personId, PersonCreditsCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/person/" + personId + "/combined_credits?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-                    JSONArray castArray = jsonResponse.optJSONArray("cast");
-
-                    List<MediaItems> credits = new ArrayList<>();
-
-                    if (castArray != null) {
-                        int limit = Math.min(castArray.length(), 40); // Limit to 40 credits
-                        for (int i = 0; i < limit; i++) {
-                            JSONObject creditJson = castArray.getJSONObject(i);
-
-                            String mediaType = creditJson.optString("media_type", "");
-                            if (!mediaType.equals("movie") && !mediaType.equals("tv")) {
-                                continue;
-                            }
-
-                            MediaItems mediaItem = new MediaItems();
-
-                            int id = creditJson.optInt("id", 0);
-                            String title = mediaType.equals("movie") ?
-                                    creditJson.optString("title", "Unknown") :
-                                    creditJson.optString("name", "Unknown");
-                            String overview = creditJson.optString("overview", "No description available");
-                            String releaseDate = mediaType.equals("movie") ?
-                                    creditJson.optString("release_date", "") :
-                                    creditJson.optString("first_air_date", "");
-
-                            JSONObject movieJsondetails =new TmdbRepository().getMovieDetails(String.valueOf(id));
-                            // Handle genres from genre array
-                            JSONArray genresArray = movieJsondetails.optJSONArray("genres");
-                            Log.i(TAG, "createMediaItemFromTMDB: genresArray=" + genresArray);
-
-                            if (genresArray != null && genresArray.length() > 0) {
-                                List<String> genreNames = new ArrayList<>();
+                JSONObject jsonResponse = tmdbClient.getPersonCombinedCredits(personId);
+                JSONArray castArray = jsonResponse.optJSONArray("cast");
 
-                                for (int j = 0; j < genresArray.length(); j++) {
-                                    JSONObject genreObject = genresArray.optJSONObject(j);
+                List<MediaItems> credits = new ArrayList<>();
 
-                                    if (genreObject != null) {
-                                        String genreName = genreObject.optString("name", null);
-                                        //Log.i(TAG, "createMediaItemFromTMDB: genreName=" + genreName);
+                if (castArray != null) {
+                    int limit = Math.min(castArray.length(), 40); // Limit to 40 credits
+                    for (int i = 0; i < limit; i++) {
+                        JSONObject creditJson = castArray.getJSONObject(i);
 
-                                        genreNames.add(genreName);
-
-                                    }
-                                }
+                        String mediaType = creditJson.optString("media_type", "");
+                        if (!mediaType.equals("movie") && !mediaType.equals("tv")) {
+                            continue;
+                        }
 
-                                Log.i(TAG, "createMediaItemFromTMDB: genreNames=" + genreNames);
-                                mediaItem.setGenres(genreNames);
-                                // Set first genre as the genre string for backward compatibility
-                                if (!genreNames.isEmpty()) {
-                                    mediaItem.setGenre(genreNames.get(0));
-                                }
-                            }
+                        MediaItems mediaItem = new MediaItems();
+
+                        int id = creditJson.optInt("id", 0);
+                        String title = mediaType.equals("movie") ?
+                                creditJson.optString("title", "Unknown") :
+                                creditJson.optString("name", "Unknown");
+                        String overview = creditJson.optString("overview", "No description available");
+                        String releaseDate = mediaType.equals("movie") ?
+                                creditJson.optString("release_date", "") :
+                                creditJson.optString("first_air_date", "");
+
+                        // Resolve genres from genre_ids instead of fetching details per credit
+                        TmdbApi.ContentType contentType = mediaType.equals("movie") ?
+                                TmdbApi.ContentType.MOVIE : TmdbApi.ContentType.TV;
+                        List<String> genreNames = tmdbClient.getGenres()
+                                .resolve(creditJson.optJSONArray("genre_ids"), contentType);
+                        if (!genreNames.isEmpty()) {
+                            mediaItem.setGenres(genreNames);
+                            mediaItem.setGenre(genreNames.get(0));
+                        }
 
-                            mediaItem.setId(String.valueOf(id));
-                            mediaItem.setTitle(title);
-                            mediaItem.setDescription(overview);
-                            mediaItem.setMediaType(mediaType);
-                            mediaItem.setTmdbId(String.valueOf(id));
-                            mediaItem.setFromTMDB(true);
-
-                            // Parse year
-                            if (!releaseDate.isEmpty() && releaseDate.length() >= 4) {
-                                try {
-                                    mediaItem.setYear(Integer.parseInt(releaseDate.substring(0, 4)));
-                                } catch (NumberFormatException e) {
-                                    mediaItem.setYear(0);
-                                }
+                        mediaItem.setId(String.valueOf(id));
+                        mediaItem.setTitle(title);
+                        mediaItem.setDescription(overview);
+                        mediaItem.setMediaType(mediaType);
+                        mediaItem.setTmdbId(String.valueOf(id));
+                        mediaItem.setFromTMDB(true);
+
+                        // Parse year
+                        if (!releaseDate.isEmpty() && releaseDate.length() >= 4) {
+                            try {
+                                mediaItem.setYear(Integer.parseInt(releaseDate.substring(0, 4)));
+                            } catch (NumberFormatException e) {
+                                mediaItem.setYear(0);
                             }
+                        }
 
-                            // Set poster and backdrop
-                            String posterPath = creditJson.optString("poster_path", "");
-                            String backdropPath = creditJson.optString("backdrop_path", "");
-
-                            if (!posterPath.isEmpty()) {
-                                mediaItem.setPosterUrl(TmdbApi.IMAGE_BASE_URL + TmdbApi.POSTER_SIZE + posterPath);
-                                mediaItem.setCardImageUrl(TmdbApi.IMAGE_BASE_URL + TmdbApi.POSTER_SIZE + posterPath);
-                            }
+                        // Set poster and backdrop
+                        String posterPath = creditJson.optString("poster_path", "");
+                        String backdropPath = creditJson.optString("backdrop_path", "");
 
-                            if (!backdropPath.isEmpty()) {
-                                mediaItem.setBackgroundImageUrl(TmdbApi.IMAGE_BASE_URL + TmdbApi.BACKDROP_SIZE + backdropPath);
-                                mediaItem.setHeroImageUrl(TmdbApi.IMAGE_BASE_URL + "original" + backdropPath);
-                            }
+                        if (!posterPath.isEmpty()) {
+                            mediaItem.setPosterUrl(TmdbApi.IMAGE_BASE_URL + TmdbApi.POSTER_SIZE + posterPath);
+                            mediaItem.setCardImageUrl(TmdbApi.IMAGE_BASE_URL + TmdbApi.POSTER_SIZE + posterPath);
+                        }
 
-                            // Set character name if available
-                            String character = creditJson.optString("character", "");
-                            if (!character.isEmpty()) {
-                                mediaItem.setGenre(character);
-                            }
+                        if (!backdropPath.isEmpty()) {
+                            mediaItem.setBackgroundImageUrl(TmdbApi.IMAGE_BASE_URL + TmdbApi.BACKDROP_SIZE + backdropPath);
+                            mediaItem.setHeroImageUrl(TmdbApi.IMAGE_BASE_URL + "original" + backdropPath);
+                        }
 
-                            credits.add(mediaItem);
+                        // Set character name if available
+                        String character = creditJson.optString("character", "");
+                        if (!character.isEmpty()) {
+                            mediaItem.setGenre(character);
                         }
-                    }
 
-                    // Sort by release date (newest first)
-                    credits.sort((a, b) -> Integer.compare(b.getYear(), a.getYear()));
+                        credits.add(mediaItem);
+                    }
+                }
 
-                    List<MediaItems> finalCredits = credits;
-                    mainHandler.post(() -> callback.onSuccess(finalCredits));
+                // Sort by release date (newest first)
+                credits.sort((a, b) -> Integer.compare(b.getYear(), a.getYear()));
 
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
-                }
+                List<MediaItems> finalCredits = credits;
+                mainHandler.post(() -> callback.onSuccess(finalCredits));
 
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching person credits", e);
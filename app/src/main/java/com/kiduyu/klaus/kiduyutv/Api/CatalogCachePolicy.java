@@ -0,0 +1,97 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.content.Context;
+
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
+import okhttp3.HttpUrl;
+
+/**
+ * CatalogCachePolicy - Per-endpoint TTLs for the TMDB response cache
+ *
+ * Endpoints are grouped into tiers:
+ * - LISTS: discover/trending/top rated/popular/recommendations rows (TTL tunable in Settings)
+ * - DETAILS: movie/tv/season/credits/person payloads
+ * - REFERENCE: genres, companies, networks and the remote company/network lists
+ * - NONE: search and anything else, never cached
+ *
+ * Entries past their TTL but inside the stale window are served immediately
+ * while a conditional request revalidates them in the background.
+ */
+public class CatalogCachePolicy {
+
+    public enum Tier { NONE, LISTS, DETAILS, REFERENCE }
+
+    private static final String TMDB_HOST = "api.themoviedb.org";
+    private static final String LISTS_HOST = "raw.githubusercontent.com";
+
+    private static final long HOUR_SECONDS = 60 * 60;
+    private static final long DAY_SECONDS = 24 * HOUR_SECONDS;
+    private static final long DETAILS_TTL_SECONDS = DAY_SECONDS;
+    private static final long REFERENCE_TTL_SECONDS = 7 * DAY_SECONDS;
+
+    private final PreferencesManager preferencesManager;
+
+    public CatalogCachePolicy(Context context) {
+        this.preferencesManager = PreferencesManager.getInstance(context);
+    }
+
+    /**
+     * Classify a request URL into a cache tier
+     */
+    public Tier tierFor(HttpUrl url) {
+        String host = url.host();
+        String path = url.encodedPath();
+
+        if (LISTS_HOST.equals(host)) {
+            return Tier.REFERENCE;
+        }
+        if (!TMDB_HOST.equals(host) || path.contains("/search/")) {
+            return Tier.NONE;
+        }
+        if (path.contains("/genre/") || path.contains("/company/") || path.contains("/network/")) {
+            return Tier.REFERENCE;
+        }
+        if (path.contains("/discover/") || path.contains("/trending/")
+                || path.endsWith("/top_rated") || path.endsWith("/popular")
+                || path.endsWith("/recommendations")) {
+            return Tier.LISTS;
+        }
+        return Tier.DETAILS;
+    }
+
+    /**
+     * Freshness lifetime for a URL in seconds, 0 if it must not be cached
+     */
+    public long ttlSeconds(HttpUrl url) {
+        switch (tierFor(url)) {
+            case LISTS:
+                return preferencesManager.getCatalogCacheTtlHours() * HOUR_SECONDS;
+            case DETAILS:
+                return DETAILS_TTL_SECONDS;
+            case REFERENCE:
+                return REFERENCE_TTL_SECONDS;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * How long past its TTL an entry may still be served while it revalidates
+     */
+    public long staleWindowSeconds() {
+        return preferencesManager.getCatalogStaleDays() * DAY_SECONDS;
+    }
+
+    /**
+     * Human readable summary for the Settings screen
+     */
+    public String describe() {
+        int listHours = preferencesManager.getCatalogCacheTtlHours();
+        int staleDays = preferencesManager.getCatalogStaleDays();
+
+        String lists = listHours > 0 ? "Lists " + listHours + "h" : "Lists off";
+        String stale = staleDays > 0 ? "stale up to " + staleDays + "d" : "no stale";
+        return lists + " · Details 24h · Studios 7d · " + stale;
+    }
+}
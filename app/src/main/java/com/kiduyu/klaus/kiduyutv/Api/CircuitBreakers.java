@@ -0,0 +1,181 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * CircuitBreakers - Per-host circuit breakers shared by every ApiClient call
+ *
+ * A host starts CLOSED. After FAILURE_THRESHOLD consecutive failures (I/O errors,
+ * 429 or 5xx) it turns OPEN and calls to it fail immediately instead of waiting on
+ * a dead provider. Once the cooldown has passed the breaker is HALF_OPEN and lets
+ * a single trial call through: success closes it, failure opens it again with a
+ * doubled cooldown (up to MAX_COOLDOWN_MS).
+ *
+ * Calls made while a provider runs (see {@link #runAs}) tie their hosts to that
+ * provider, so {@link StreamProviderRegistry} can hold back providers whose hosts
+ * are down.
+ */
+public final class CircuitBreakers {
+    private static final String TAG = "CircuitBreakers";
+
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final long INITIAL_COOLDOWN_MS = 30_000;
+    private static final long MAX_COOLDOWN_MS = 5 * 60_000;
+    private static final int MAX_HOSTS = 256;
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private static final ConcurrentHashMap<String, Breaker> breakers = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, Set<String>> providerHosts = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> currentProvider = new ThreadLocal<>();
+
+    private static final class Breaker {
+        State state = State.CLOSED;
+        int failures;
+        long openedAt;
+        long cooldownMs = INITIAL_COOLDOWN_MS;
+        boolean trialInFlight;
+    }
+
+    private CircuitBreakers() {
+    }
+
+    /**
+     * Whether a call to the host may go out now; claims the trial call of a half-open breaker
+     */
+    static boolean allow(String host) {
+        Breaker breaker = breakers.get(host);
+        if (breaker == null) {
+            return true;
+        }
+        synchronized (breaker) {
+            switch (breaker.state) {
+                case OPEN:
+                    if (SystemClock.elapsedRealtime() - breaker.openedAt < breaker.cooldownMs) {
+                        return false;
+                    }
+                    breaker.state = State.HALF_OPEN;
+                    breaker.trialInFlight = true;
+                    Log.i(TAG, host + " half-open, sending a trial call");
+                    return true;
+                case HALF_OPEN:
+                    if (breaker.trialInFlight) {
+                        return false;
+                    }
+                    breaker.trialInFlight = true;
+                    return true;
+                default:
+                    return true;
+            }
+        }
+    }
+
+    static void onSuccess(String host) {
+        noteProviderHost(host);
+        Breaker breaker = breakers.get(host);
+        if (breaker == null) {
+            return;
+        }
+        synchronized (breaker) {
+            if (breaker.state != State.CLOSED) {
+                Log.i(TAG, host + " recovered, closing breaker");
+            }
+            breaker.state = State.CLOSED;
+            breaker.failures = 0;
+            breaker.cooldownMs = INITIAL_COOLDOWN_MS;
+            breaker.trialInFlight = false;
+        }
+    }
+
+    static void onFailure(String host) {
+        noteProviderHost(host);
+        if (breakers.size() >= MAX_HOSTS && !breakers.containsKey(host)) {
+            breakers.clear(); // a long session across many CDNs; start over rather than grow
+        }
+        Breaker breaker = breakers.computeIfAbsent(host, h -> new Breaker());
+        synchronized (breaker) {
+            if (breaker.state == State.HALF_OPEN) {
+                breaker.cooldownMs = Math.min(MAX_COOLDOWN_MS, breaker.cooldownMs * 2);
+                open(host, breaker);
+            } else if (breaker.state == State.CLOSED && ++breaker.failures >= FAILURE_THRESHOLD) {
+                open(host, breaker);
+            }
+        }
+    }
+
+    /**
+     * A call that ended without telling anything about the host (e.g. cancelled)
+     */
+    static void onAbandoned(String host) {
+        Breaker breaker = breakers.get(host);
+        if (breaker != null) {
+            synchronized (breaker) {
+                breaker.trialInFlight = false;
+            }
+        }
+    }
+
+    private static void open(String host, Breaker breaker) {
+        breaker.state = State.OPEN;
+        breaker.openedAt = SystemClock.elapsedRealtime();
+        breaker.trialInFlight = false;
+        Log.w(TAG, host + " is failing, breaker open for " + breaker.cooldownMs + "ms");
+    }
+
+    public static State getState(String host) {
+        Breaker breaker = breakers.get(host);
+        if (breaker == null) {
+            return State.CLOSED;
+        }
+        synchronized (breaker) {
+            if (breaker.state == State.OPEN
+                    && SystemClock.elapsedRealtime() - breaker.openedAt >= breaker.cooldownMs) {
+                return State.HALF_OPEN; // the next call is the trial
+            }
+            return breaker.state;
+        }
+    }
+
+    // ===================== PROVIDERS =====================
+
+    /**
+     * Run provider work with its name bound to the current thread, so the hosts it calls
+     * count towards its health
+     */
+    static void runAs(String provider, Runnable work) {
+        String previous = currentProvider.get();
+        currentProvider.set(provider);
+        try {
+            work.run();
+        } finally {
+            currentProvider.set(previous);
+        }
+    }
+
+    private static void noteProviderHost(String host) {
+        String provider = currentProvider.get();
+        if (provider != null) {
+            providerHosts.computeIfAbsent(provider, p -> ConcurrentHashMap.newKeySet()).add(host);
+        }
+    }
+
+    /**
+     * False while any host the provider depends on has an open breaker
+     */
+    public static boolean isProviderHealthy(String provider) {
+        Set<String> hosts = providerHosts.get(provider);
+        if (hosts == null) {
+            return true;
+        }
+        for (String host : hosts) {
+            if (getState(host) == State.OPEN) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,168 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.util.Log;
+
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * DohDns - DNS over HTTPS, for ISP resolvers that are slow or blackhole provider domains
+ *
+ * Queries a DoH service's JSON API (application/dns-json) for A records, then AAAA
+ * when there are none. The service's own host is reached through fixed bootstrap
+ * addresses, so resolving it never goes through the ISP resolver. Answers carry
+ * their TTL for ApiClient's DNS cache (see {@link #resolve}). When the service
+ * cannot be reached or answers with an error, the lookup falls back to the system
+ * resolver; a name the service reports as nonexistent (NXDOMAIN) does not.
+ *
+ * Any endpoint speaking the same JSON format works, e.g. a local stand-in at
+ * http://127.0.0.1:port/dns-query with no bootstrap addresses.
+ */
+public class DohDns implements Dns {
+    private static final String TAG = "DohDns";
+
+    private static final int TIMEOUT_SECONDS = 5;
+    private static final long MIN_TTL_MS = 60 * 1000;
+    private static final long MAX_TTL_MS = 60 * 60 * 1000;
+    private static final int TYPE_A = 1;
+    private static final int TYPE_AAAA = 28;
+    private static final int STATUS_NXDOMAIN = 3;
+
+    private final String name;
+    private final HttpUrl endpoint;
+    private final Dns fallback;
+    private final OkHttpClient client;
+
+    /**
+     * Addresses of a lookup and how long they may be cached
+     */
+    static final class Answer {
+        final List<InetAddress> addresses;
+        final long ttlMs;
+
+        Answer(List<InetAddress> addresses, long ttlMs) {
+            this.addresses = addresses;
+            this.ttlMs = ttlMs;
+        }
+    }
+
+    public DohDns(String name, HttpUrl endpoint, List<InetAddress> bootstrap, Dns fallback) {
+        this.name = name;
+        this.endpoint = endpoint;
+        this.fallback = fallback;
+        this.client = new OkHttpClient.Builder()
+                .dns(hostname -> hostname.equals(endpoint.host()) && !bootstrap.isEmpty()
+                        ? bootstrap : fallback.lookup(hostname))
+                .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                .callTimeout(TIMEOUT_SECONDS * 2, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * The resolver for a PreferencesManager DNS setting, or null for the system resolver
+     */
+    static DohDns forSetting(String setting) {
+        try {
+            switch (setting) {
+                case PreferencesManager.DNS_RESOLVER_CLOUDFLARE:
+                    return new DohDns("Cloudflare", HttpUrl.get("https://cloudflare-dns.com/dns-query"),
+                            Arrays.asList(InetAddress.getByName("1.1.1.1"), InetAddress.getByName("1.0.0.1")),
+                            Dns.SYSTEM);
+                case PreferencesManager.DNS_RESOLVER_GOOGLE:
+                    return new DohDns("Google", HttpUrl.get("https://dns.google/resolve"),
+                            Arrays.asList(InetAddress.getByName("8.8.8.8"), InetAddress.getByName("8.8.4.4")),
+                            Dns.SYSTEM);
+                default:
+                    return null;
+            }
+        } catch (UnknownHostException e) {
+            return null; // IP literals; does not happen
+        }
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        return resolve(hostname).addresses;
+    }
+
+    /**
+     * Look the host up over DoH, falling back to the system resolver when DoH fails
+     */
+    Answer resolve(String hostname) throws UnknownHostException {
+        try {
+            Answer answer = query(hostname, TYPE_A);
+            if (answer.addresses.isEmpty()) {
+                answer = query(hostname, TYPE_AAAA);
+            }
+            if (!answer.addresses.isEmpty()) {
+                return answer;
+            }
+            throw new UnknownHostException(hostname + " has no addresses (" + name + " DoH)");
+        } catch (IOException | JSONException e) {
+            if (e instanceof UnknownHostException) {
+                throw (UnknownHostException) e;
+            }
+            Log.w(TAG, name + " DoH failed for " + hostname + ", using system DNS: " + e.getMessage());
+            return new Answer(fallback.lookup(hostname), MIN_TTL_MS);
+        }
+    }
+
+    private Answer query(String hostname, int type) throws IOException, JSONException {
+        HttpUrl url = endpoint.newBuilder()
+                .setQueryParameter("name", hostname)
+                .setQueryParameter("type", String.valueOf(type))
+                .build();
+        Request request = new Request.Builder()
+                .url(url)
+                .header("Accept", "application/dns-json")
+                .build();
+
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("HTTP " + response.code());
+            }
+            JSONObject json = new JSONObject(body.string());
+            int status = json.optInt("Status", -1);
+            if (status == STATUS_NXDOMAIN) {
+                throw new UnknownHostException(hostname + " does not exist (" + name + " DoH)");
+            }
+            if (status != 0) {
+                throw new IOException("DNS status " + status);
+            }
+
+            List<InetAddress> addresses = new ArrayList<>();
+            long ttlMs = MAX_TTL_MS;
+            JSONArray records = json.optJSONArray("Answer");
+            for (int i = 0; records != null && i < records.length(); i++) {
+                JSONObject record = records.getJSONObject(i);
+                if (record.optInt("type") != type) {
+                    continue; // CNAMEs on the way to the address
+                }
+                // An IP literal, so no lookup happens here
+                addresses.add(InetAddress.getByName(record.getString("data")));
+                ttlMs = Math.min(ttlMs, record.optLong("TTL", 0) * 1000);
+            }
+            return new Answer(addresses, Math.max(MIN_TTL_MS, ttlMs));
+        }
+    }
+}
@@ -8,19 +8,17 @@ import android.util.Log;
 import com.kiduyu.klaus.kiduyutv.model.MediaItems;
 import com.kiduyu.klaus.kiduyutv.utils.CloudflareSessionHandler;
 
-import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.net.URLEncoder;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
 import okhttp3.ResponseBody;
 import retrofit2.Call;
@@ -41,24 +39,28 @@ public class FetchStreams {
 
     // Base URLs
     private static final String ENC_DEC_API = "https://enc-dec.app/";
-    private static final String VIDEASY_API_BASE = "https://api.videasy.net";
-    private static final String HEXA_API_BASE = "https://theemoviedb.hexa.su";
-    private static final String MAPPLE_API_BASE = "https://mapple.uk";
+    static final String VIDEASY_API_BASE = "https://api.videasy.net";
+    static final String HEXA_API_BASE = "https://theemoviedb.hexa.su";
+    static final String MAPPLE_API_BASE = "https://mapple.uk";
     private static final String ONETOUCHTV_API_BASE = "https://api3.devcorp.me";
-    private static final String SMASHYSTREAM_API_BASE = "https://api.smashystream.top";
-    private static final String VIDLINK_API_BASE = "https://vidlink.pro";
+    static final String SMASHYSTREAM_API_BASE = "https://api.smashystream.top";
+    static final String VIDLINK_API_BASE = "https://vidlink.pro";
     private static final String YFLIX_API_BASE = "https://yflix.to";
-    private static final String XPRIME_API_BASE = "https://backend.xprime.tv";
-    private static final String KISSKH_API_BASE = "https://kisskh.do";
+    static final String XPRIME_API_BASE = "https://backend.xprime.tv";
+    static final String KISSKH_API_BASE = "https://kisskh.do";
 
     private static final String DATABASE_BASE = "https://enc-dec.app/db";
 
+    // Referer matching Python megaup.py
+    private static final ProviderHeaders MEGAUP_HEADERS = new ProviderHeaders("https://megaup.live/", null);
+
     private static final int TIMEOUT_SECONDS = 30;
 
-    private final EncDecApi encDecApi;
-    private final ExecutorService executorService;
+    final EncDecApi encDecApi;
+    private final StreamHandle handle = new StreamHandle();
+    private final Map<String, GenericApi> apis = new ConcurrentHashMap<>();
     private final Handler mainHandler;
-    private final OkHttpClient okHttpClient;
+    final OkHttpClient okHttpClient;
 
     // Application context for ApiClient
     private static Context applicationContext;
@@ -157,6 +159,15 @@ public class FetchStreams {
         Call<ResponseBody> getResponse(@Url String url, @Header("User-Agent") String userAgent,
                                        @Header("Referer") String referer);
 
+        // User-Agent, Referer and Origin come from the api's ProviderHeaders
+        @GET
+        @Headers("Accept: application/json")
+        Call<ResponseBody> get(@Url String url);
+
+        @GET
+        @Headers("Accept: */*")
+        Call<ResponseBody> getAny(@Url String url);
+
         @GET
         @Headers("Accept: */*")
         Call<ResponseBody> getResponseWithOrigin(@Url String url, @Header("User-Agent") String userAgent,
@@ -223,24 +234,7 @@ public class FetchStreams {
 
     static class DecryptResponse {
         int status;
-        Result result;  // ✅ Change to object
-
-        static class Result {
-            List<Source> sources;
-            List<Subtitle> subtitles;
-
-            static class Source {
-                String url;
-                String quality;
-                String server;  // ← Added this line
-            }
-
-            static class Subtitle {
-                String url;
-                String lang;
-                String language;
-            }
-        }
+        StreamPayload result;
     }
 
     static class EncryptResponse {
@@ -274,7 +268,6 @@ public class FetchStreams {
     }
 
     public FetchStreams(Context context) {
-        executorService = Executors.newCachedThreadPool();
         mainHandler = new Handler(Looper.getMainLooper());
 
         // Store application context for ApiClient
@@ -282,25 +275,48 @@ public class FetchStreams {
             applicationContext = context.getApplicationContext();
         }
 
-        // Use the shared OkHttpClient from ApiClient
-        okHttpClient = ApiClient.getClient(applicationContext);
+        // Use the shared OkHttpClient from ApiClient (interactive API class), tagging calls so a
+        // StreamHandle can cancel them
+        okHttpClient = ApiClient.getClient(applicationContext, ApiClient.TrafficClass.API).newBuilder()
+                .addInterceptor(StreamHandle.interceptor())
+                .build();
 
         Retrofit retrofit = new Retrofit.Builder()
                 .baseUrl(ENC_DEC_API)
                 .client(okHttpClient)
                 .addConverterFactory(ScalarsConverterFactory.create())
-                .addConverterFactory(GsonConverterFactory.create())
+                .addConverterFactory(GsonConverterFactory.create(StreamPayload.GSON))
                 .build();
         encDecApi = retrofit.create(EncDecApi.class);
     }
 
     /**
      * Get the shared OkHttpClient instance for use with ExoPlayer streaming.
-     * This allows sharing the connection pool and cookies between API calls and media playback.
+     * This allows sharing the connection pool and cookies between API calls and media playback,
+     * while media loads run on their own dispatcher (ApiClient.TrafficClass.MEDIA).
      * Note: Context is required for first initialization to set up persistent CookieJar.
      */
     public static OkHttpClient getSharedClient(Context context) {
-        return ApiClient.getClient(context.getApplicationContext());
+        return ApiClient.getClient(context.getApplicationContext(), ApiClient.TrafficClass.MEDIA);
+    }
+
+    /**
+     * Hosts of every provider and TMDB base URL, resolved ahead of time by ApiClient's DNS cache
+     */
+    static List<String> getPrefetchHosts() {
+        String[] baseUrls = {
+                ENC_DEC_API, VIDEASY_API_BASE, HEXA_API_BASE, MAPPLE_API_BASE, ONETOUCHTV_API_BASE,
+                SMASHYSTREAM_API_BASE, VIDLINK_API_BASE, YFLIX_API_BASE, XPRIME_API_BASE, KISSKH_API_BASE,
+                TmdbRepository.TMDB_BASE_URL, TmdbApi.IMAGE_BASE_URL
+        };
+        List<String> hosts = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            HttpUrl url = HttpUrl.parse(baseUrl);
+            if (url != null && !hosts.contains(url.host())) {
+                hosts.add(url.host());
+            }
+        }
+        return hosts;
     }
 
     /**
@@ -310,181 +326,84 @@ public class FetchStreams {
         return "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/137.0.0.0 Safari/537.36";
     }
 
-    // ===================== VIDEASY =====================
-    public void fetchVideasyMovie(String title, String year, String tmdbId, String imdbId, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                // Python uses double URL encoding: quote(quote(title, safe=""), safe="")
-                String encodedTitle = URLEncoder.encode(URLEncoder.encode(title, "UTF-8"), "UTF-8");
-                String url = VIDEASY_API_BASE + "/myflixerzupcloud/sources-with-title?title=" + encodedTitle +
-                        "&mediaType=movie&year=" + year + "&tmdbId=" + tmdbId + "&imdbId=" + imdbId;
 
-                MediaItems result = fetchVideasyStreams(url, tmdbId);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Videasy Movie error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    // ===================== STREAM PROVIDERS =====================
+    // Provider logic lives in the StreamProvider implementations; these keep the
+    // callback-style entry points for callers that want a single provider.
+
+    interface StreamTask {
+        MediaItems run() throws Exception;
     }
 
-    public void fetchVideasyTV(String title, String year, String tmdbId, String imdbId, String season,
-                               String episode, StreamCallback callback) {
-        executorService.execute(() -> {
+    private StreamHandle execute(String label, StreamTask task, StreamCallback callback) {
+        StreamHandle taskHandle = handle.newChild();
+        StreamExecutor.get().execute(() -> taskHandle.runBound(() -> {
+            if (taskHandle.isCancelled()) {
+                return;
+            }
             try {
-                // Python uses double URL encoding: quote(quote(title, safe=""), safe="")
-                String encodedTitle = URLEncoder.encode(URLEncoder.encode(title, "UTF-8"), "UTF-8");
-                String url = VIDEASY_API_BASE + "/myflixerzupcloud/sources-with-title?title=" + encodedTitle +
-                        "&mediaType=tv&year=" + year + "&tmdbId=" + tmdbId + "&imdbId=" + imdbId +
-                        "&seasonId=" + season + "&episodeId=" + episode;
-
-                MediaItems result = fetchVideasyStreams(url, tmdbId);
-                mainHandler.post(() -> callback.onSuccess(result));
+                MediaItems result = task.run();
+                mainHandler.post(() -> {
+                    if (!taskHandle.isCancelled()) {
+                        callback.onSuccess(result);
+                    }
+                });
             } catch (Exception e) {
-                Log.e(TAG, "Videasy TV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
+                if (taskHandle.isCancelled()) {
+                    Log.i(TAG, label + " cancelled");
+                    return;
+                }
+                Log.e(TAG, label + " error", e);
+                mainHandler.post(() -> {
+                    if (!taskHandle.isCancelled()) {
+                        callback.onError(e.getMessage());
+                    }
+                });
+            } finally {
+                taskHandle.detach();
             }
-        });
+        }));
+        return taskHandle;
     }
 
-    private MediaItems fetchVideasyStreams(String url, String tmdbId) throws Exception {
-        // Create API with proper headers including Origin
-        GenericApi api = createGenericApiWithHeaders(VIDEASY_API_BASE, "https://player.videasy.net");
-        Log.i(TAG, "Fetching from: " + url);
-
-        // Use the API that includes Origin header (matching Python implementation)
-        Response<ResponseBody> response = api.getResponseWithOrigin(url, getUserAgent(), 
-                "https://videasy.net/", "https://player.videasy.net").execute();
-        if (!response.isSuccessful() || response.body() == null) {
-            throw new IOException("Failed to fetch encrypted data");
-        }
-
-        String encrypted = response.body().string();
-
-        Response<DecryptResponse> decResponse = encDecApi.decryptVideasy(
-                DecryptRequest.withId(encrypted, tmdbId)).execute();
-
-        if (!decResponse.isSuccessful() || decResponse.body() == null) {
-            throw new IOException("Failed to decrypt");
-        }
-
-        // Convert DecryptResponse.Result to JSON string for parseStreamData
-        DecryptResponse.Result result = decResponse.body().result;
-        String jsonStr = new com.google.gson.Gson().toJson(result);
-        Log.i(TAG, "fetchVideasyMovie JSON: " + jsonStr);
-
-
-        Map<String, String> responseHeaders = extractHeaders(response);
-
-
-        Log.i(TAG, "Response headers captured fetchVideasyStreams: " + responseHeaders.size());
-        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
-            Log.i(TAG, "  " + header.getKey() + ": " +
-                    (header.getValue().length() > 100 ?
-                            header.getValue().substring(0, 100) + "..." :
-                            header.getValue()));
-        }
-
-
-
-        return parseStreamData(jsonStr, "https://videasy.net/", responseHeaders);
+    // ===================== VIDEASY =====================
+    public StreamHandle fetchVideasyMovie(String title, String year, String tmdbId, String imdbId, StreamCallback callback) {
+        return execute("Videasy Movie", () -> new VideasyProvider(this).resolve(
+                StreamRequest.movie(title, year, tmdbId, imdbId)), callback);
     }
 
-    // ===================== HEXA =====================
-    public void fetchHexaMovie(String tmdbId, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                String key = generateHexKey();
-                String url = HEXA_API_BASE + "/api/tmdb/movie/" + tmdbId + "/images";
-
-                MediaItems result = fetchHexaStreams(url, key);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Hexa Movie error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    public StreamHandle fetchVideasyTV(String title, String year, String tmdbId, String imdbId, String season,
+                               String episode, StreamCallback callback) {
+        return execute("Videasy TV", () -> new VideasyProvider(this).resolve(
+                StreamRequest.episode(title, year, tmdbId, imdbId, season, episode)), callback);
     }
 
-    public void fetchHexaTV(String tmdbId, String season, String episode, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                String key = generateHexKey();
-                String url = HEXA_API_BASE + "/api/tmdb/tv/" + tmdbId + "/season/" +
-                        season + "/episode/" + episode + "/images";
-
-                MediaItems result = fetchHexaStreams(url, key);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Hexa TV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    // ===================== HEXA =====================
+    public StreamHandle fetchHexaMovie(String tmdbId, StreamCallback callback) {
+        return execute("Hexa Movie", () -> new HexaProvider(this).resolve(
+                StreamRequest.movie(null, null, tmdbId, null)), callback);
     }
 
-    private MediaItems fetchHexaStreams(String url, String key) throws Exception {
-        GenericApi api = createGenericApi(HEXA_API_BASE);
-
-        // Pass fingerprint header matching Python HEADERS dict
-        Response<String> response = api.getString(
-                url,
-                getUserAgent(),
-                key,
-                "e9136c41504646444"   // ← X-Fingerprint-Lite value from Python
-        ).execute();
-
-        if (!response.isSuccessful() || response.body() == null) {
-            throw new IOException("Failed to fetch encrypted data: HTTP " + response.code());
-        }
-
-        String encrypted = response.body();
-
-        Response<DecryptResponse> decResponse = encDecApi.decryptHexa(
-                DecryptRequest.withKey(encrypted, key)).execute();
-
-        if (!decResponse.isSuccessful() || decResponse.body() == null) {
-            throw new IOException("Failed to decrypt hexa response");
-        }
-
-        DecryptResponse.Result result = decResponse.body().result;
-        String jsonStr = new com.google.gson.Gson().toJson(result);
-        Log.i(TAG, "fetchHexaStreams JSON: " + jsonStr);
-
-        Map<String, String> responseHeaders = extractHeaders(response);
-        return parseStreamData(jsonStr, "https://hexa.su/", responseHeaders);
+    public StreamHandle fetchHexaTV(String tmdbId, String season, String episode, StreamCallback callback) {
+        return execute("Hexa TV", () -> new HexaProvider(this).resolve(
+                StreamRequest.episode(null, null, tmdbId, null, season, episode)), callback);
     }
 
     // ===================== ONETOUCHTV =====================
-    public void fetchOnetouchtvMovie(String vodId, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                String url = ONETOUCHTV_API_BASE + "/web/vod/" + vodId + "/episode/1";
-                MediaItems result = fetchOnetouchtvStreams(url);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "OneTouchTV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    public StreamHandle fetchOnetouchtvMovie(String vodId, StreamCallback callback) {
+        return execute("OneTouchTV", () -> fetchOnetouchtvStreams(
+                ONETOUCHTV_API_BASE + "/web/vod/" + vodId + "/episode/1"), callback);
     }
 
-    public void fetchOnetouchtvTV(String vodId, String episode, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                String url = ONETOUCHTV_API_BASE + "/web/vod/" + vodId + "/episode/" + episode;
-                MediaItems result = fetchOnetouchtvStreams(url);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "OneTouchTV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    public StreamHandle fetchOnetouchtvTV(String vodId, String episode, StreamCallback callback) {
+        return execute("OneTouchTV", () -> fetchOnetouchtvStreams(
+                ONETOUCHTV_API_BASE + "/web/vod/" + vodId + "/episode/" + episode), callback);
     }
 
     private MediaItems fetchOnetouchtvStreams(String url) throws Exception {
         GenericApi api = createGenericApi(ONETOUCHTV_API_BASE);
 
-        Response<ResponseBody> response = api.getResponse(url, getUserAgent(), null).execute();
+        Response<ResponseBody> response = api.get(url).execute();
         if (!response.isSuccessful() || response.body() == null) {
             throw new IOException("Failed to fetch encrypted data");
         }
@@ -501,639 +420,81 @@ public class FetchStreams {
             throw new IOException("Failed to decrypt");
         }
         Map<String, String> responseHeaders = extractHeaders(response);
+        logHeaders("fetchOnetouchtvStreams", responseHeaders);
 
 
-        Log.i(TAG, "Response headers captured fetchOnetouchtvStreams: " + responseHeaders.size());
-        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
-            Log.i(TAG, "  " + header.getKey() + ": " +
-                    (header.getValue().length() > 100 ?
-                            header.getValue().substring(0, 100) + "..." :
-                            header.getValue()));
-        }
-
-
-        DecryptResponse.Result result = decResponse.body().result;
-        String jsonStr = new com.google.gson.Gson().toJson(result);
-
-        return parseStreamData(jsonStr, url, responseHeaders);
+        return parseStreamData(decResponse.body().result, url, responseHeaders);
     }
 
+
     // ===================== SMASHYSTREAM (VIDSTACK) =====================
-    public void fetchSmashystreamMovie(String imdbId, String tmdbId, String serverType,
+    public StreamHandle fetchSmashystreamMovie(String imdbId, String tmdbId, String serverType,
                                        StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                Response<EncryptResponse> tokenResp = encDecApi.encryptVidstack().execute();
-                if (!tokenResp.isSuccessful() || tokenResp.body() == null) {
-                    throw new IOException("Failed to get token");
-                }
-
-                EncryptResponse.EncryptResult tokenData = tokenResp.body().result;
-                MediaItems result;
-
-                if ("1".equals(serverType)) {
-                    result = fetchSmashystreamType1(imdbId, tokenData);
-                } else {
-                    result = fetchSmashystreamType2(tmdbId, tokenData, "videofsh");
-                    Log.i(TAG, "fetchSmashystreamMovie result: " + result.toString());
-                }
-
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Smashystream Movie error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
-    }
-
-    private MediaItems fetchSmashystreamType1(String imdbId, EncryptResponse.EncryptResult tokenData)
-            throws Exception {
-        GenericApi api = createGenericApi(SMASHYSTREAM_API_BASE);
-
-        String url = SMASHYSTREAM_API_BASE + "/api/v1/videosmashyi/" + imdbId +
-                "?token=" + tokenData.token + "&user_id=" + tokenData.user_id;
-
-        // Use correct Referer header matching Python smashystream.py
-        Response<ResponseBody> response = api.getResponse(url, getUserAgent(), "https://smashystream.top/").execute();
-        if (!response.isSuccessful() || response.body() == null) {
-            throw new IOException("Failed to fetch player data");
-        }
-
-        JSONObject json = new JSONObject(response.body().string());
-        String[] parts = json.getString("data").split("/#");
-        String host = parts[0];
-        String id = parts[1];
-
-        String streamUrl = host + "/api/v1/video?id=" + id;
-        Response<ResponseBody> streamResp = api.getResponse(streamUrl, getUserAgent(), "https://smashystream.top/").execute();
-
-        if (!streamResp.isSuccessful() || streamResp.body() == null) {
-            throw new IOException("Failed to fetch stream");
-        }
-
-        String encrypted = streamResp.body().string();
-        Response<DecryptResponse> decResp = encDecApi.decryptVidstack(
-                new VidstackDecryptRequest(encrypted, "1")).execute();
-
-        if (!decResp.isSuccessful() || decResp.body() == null) {
-            throw new IOException("Failed to decrypt");
-        }
-        DecryptResponse.Result result = decResp.body().result;
-        String jsonStr = new com.google.gson.Gson().toJson(result);
-        Map<String, String> responseHeaders = extractHeaders(response);
-
-
-        Log.i(TAG, "Response headers captured fetchSmashystreamType1: " + responseHeaders.size());
-        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
-            Log.i(TAG, "  " + header.getKey() + ": " +
-                    (header.getValue().length() > 100 ?
-                            header.getValue().substring(0, 100) + "..." :
-                            header.getValue()));
-        }
-
-        return parseStreamData(jsonStr, streamUrl, responseHeaders);
-    }
-
-
-    private MediaItems fetchSmashystreamType2(String tmdbId, EncryptResponse.EncryptResult tokenData,
-                                              String server) throws Exception {
-        GenericApi api = createGenericApi(SMASHYSTREAM_API_BASE);
-
-        String url = SMASHYSTREAM_API_BASE + "/api/v1/" + server + "/" + tmdbId +
-                "?token=" + tokenData.token + "&user_id=" + tokenData.user_id;
-
-        // Use correct Referer header matching Python smashystream.py
-        Response<ResponseBody> response = api.getResponse(url, getUserAgent(), "https://smashystream.top/").execute();
-        if (!response.isSuccessful() || response.body() == null) {
-            throw new IOException("Failed to fetch player data");
-        }
-
-        JSONObject json = new JSONObject(response.body().string());
-        JSONObject data = json.getJSONObject("data");
-        String file = data.getJSONArray("sources").getJSONObject(0).getString("file");
-
-        // ✅ Use DecryptResponseType2 for type "2"
-        Response<DecryptResponseType2> decResp = encDecApi.decryptVidstackType2(
-                new VidstackDecryptRequest(file, "2")).execute();
-
-        if (!decResp.isSuccessful() || decResp.body() == null) {
-            throw new IOException("Failed to decrypt");
-        }
-
-        // ✅ Result is a string, parse it using listParser logic
-        String resultString = decResp.body().result;
-
-        Map<String, String> responseHeaders = extractHeaders(decResp);
-
-
-        Log.i(TAG, "Response headers captured fetchSmashystreamType2: " + responseHeaders.size());
-        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
-            Log.i(TAG, "  " + header.getKey() + ": " +
-                    (header.getValue().length() > 100 ?
-                            header.getValue().substring(0, 100) + "..." :
-                            header.getValue()));
-        }
-
-        // Parse the string result (similar to Python's listParser)
-        MediaItems mediaItem = parseListResult(resultString, url);
-
-        // Handle subtitles
-        String subtitles = data.optString("tracks", "");
-        if (!subtitles.isEmpty()) {
-            List<MediaItems.SubtitleItem> parsedSubs = parseListSubtitles(subtitles);
-            mediaItem.getSubtitles().addAll(parsedSubs);
-        }
-
-        return mediaItem;
+        return execute("Smashystream Movie", () -> new SmashystreamProvider(this, serverType).resolve(
+                StreamRequest.movie(null, null, tmdbId, imdbId)), callback);
     }
 
-    // Add helper method to parse list-format results
-    private MediaItems parseListResult(String text, String refererUrl) {
-        MediaItems item = new MediaItems();
-        List<MediaItems.VideoSource> sources = new ArrayList<>();
-
-        // Parse format: "[Label] url, [Label2] url2" or "url1, url2"
-        String cleaned = text.trim().replaceAll("\\s+or\\s+", ",");
-        String[] items = cleaned.split(",");
-
-        for (String s : items) {
-            s = s.trim();
-            if (s.isEmpty()) continue;
-
-            String quality = "auto";
-            String url = s;
-
-            // Check if format is "[Quality] url"
-            if (s.startsWith("[") && s.contains("]")) {
-                int closeBracket = s.indexOf(']');
-                quality = s.substring(1, closeBracket).trim();
-                url = s.substring(closeBracket + 1).trim();
-            }
-
-            if (!url.isEmpty()) {
-                sources.add(new MediaItems.VideoSource(quality, url));
-            }
-        }
-
-        item.setVideoSources(sources);
-        item.setRefererUrl(refererUrl);
-
-        return item;
-    }
-
-
-
-    public void fetchSmashystreamTV(String imdbId, String tmdbId, String season, String episode,
+    public StreamHandle fetchSmashystreamTV(String imdbId, String tmdbId, String season, String episode,
                                     String serverType, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                Response<EncryptResponse> tokenResp = encDecApi.encryptVidstack().execute();
-                if (!tokenResp.isSuccessful() || tokenResp.body() == null) {
-                    throw new IOException("Failed to get token");
-                }
-
-                EncryptResponse.EncryptResult tokenData = tokenResp.body().result;
-                MediaItems result;
-
-                if ("1".equals(serverType)) {
-                    // Type 1: smashystream server
-                    result = fetchSmashystreamTVType1(imdbId, tmdbId, season, episode, tokenData);
-                } else {
-                    // Type 2: videoophim, short2embed, videofsh servers
-                    String server = getServerName("2");
-                    result = fetchSmashystreamTVType2(tmdbId, season, episode, tokenData, "videoophim");
-                }
-
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Smashystream TV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+        return execute("Smashystream TV", () -> new SmashystreamProvider(this, serverType).resolve(
+                StreamRequest.episode(null, null, tmdbId, imdbId, season, episode)), callback);
     }
 
-    /**
-     * Fetch TV streams for Type 1 servers (smashystream)
-     * URL format: /api/v1/{server}/{imdbId}/{tmdbId}/{season}/{episode}
-     */
-    private MediaItems fetchSmashystreamTVType1(String imdbId, String tmdbId, String season,
-                                                String episode, EncryptResponse.EncryptResult tokenData)
-            throws Exception {
-        GenericApi api = createGenericApi(SMASHYSTREAM_API_BASE);
-
-        // Build URL with season and episode
-        String url = SMASHYSTREAM_API_BASE + "/api/v1/videosmashyi/" + imdbId + "/" +
-                tmdbId + "/" + season + "/" + episode +
-                "?token=" + tokenData.token + "&user_id=" + tokenData.user_id;
-
-        Log.i(TAG, "Fetching Type 1 TV stream: " + url);
-
-        // Use correct Referer header matching Python smashystream.py
-        Response<ResponseBody> response = api.getResponse(url, getUserAgent(), "https://smashystream.top/").execute();
-        if (!response.isSuccessful() || response.body() == null) {
-            throw new IOException("Failed to fetch player data");
-        }
-
-        JSONObject json = new JSONObject(response.body().string());
-        String[] parts = json.getString("data").split("/#");
-        String host = parts[0];
-        String id = parts[1];
-
-        String streamUrl = host + "/api/v1/video?id=" + id;
-        Log.i(TAG, "Fetching encrypted stream from: " + streamUrl);
-
-        Response<ResponseBody> streamResp = api.getResponse(streamUrl, getUserAgent(), "https://smashystream.top/").execute();
-
-        if (!streamResp.isSuccessful() || streamResp.body() == null) {
-            throw new IOException("Failed to fetch stream");
-        }
-
-        String encrypted = streamResp.body().string();
-        Response<DecryptResponse> decResp = encDecApi.decryptVidstack(
-                new VidstackDecryptRequest(encrypted, "1")).execute();
-
-        if (!decResp.isSuccessful() || decResp.body() == null) {
-            throw new IOException("Failed to decrypt");
-        }
-
-        DecryptResponse.Result result = decResp.body().result;
-        String jsonStr = new com.google.gson.Gson().toJson(result);
-
-        Map<String, String> responseHeaders = extractHeaders(response);
-
-
-        Log.i(TAG, "Response headers captured fetchSmashystreamType1: " + responseHeaders.size());
-        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
-            Log.i(TAG, "  " + header.getKey() + ": " +
-                    (header.getValue().length() > 100 ?
-                            header.getValue().substring(0, 100) + "..." :
-                            header.getValue()));
-        }
-        Log.i(TAG, "Decrypted Type 1 TV data: " + jsonStr);
-
-        return parseStreamData(jsonStr, streamUrl, responseHeaders);
-    }
-
-    /**
-     * Fetch TV streams for Type 2 servers (videoophim, short2embed, videofsh)
-     * URL format: /api/v1/{server}/{tmdbId}/{season}/{episode}
-     */
-
-    private MediaItems fetchSmashystreamTVType2(String tmdbId, String season, String episode,
-                                                EncryptResponse.EncryptResult tokenData, String server)
-            throws Exception {
-        GenericApi api = createGenericApi(SMASHYSTREAM_API_BASE);
-
-        String url = SMASHYSTREAM_API_BASE + "/api/v1/" + server + "/" + tmdbId + "/" +
-                season + "/" + episode +
-                "?token=" + tokenData.token + "&user_id=" + tokenData.user_id;
-
-        Log.i(TAG, "Fetching Type 2 TV stream: " + url);
-
-        // Use correct Referer header matching Python smashystream.py
-        Response<ResponseBody> response = api.getResponse(url, getUserAgent(), "https://smashystream.top/").execute();
-        if (!response.isSuccessful() || response.body() == null) {
-            throw new IOException("Failed to fetch player data");
-        }
-
-        JSONObject json = new JSONObject(response.body().string());
-        JSONObject data = json.getJSONObject("data");
-        String file = data.getJSONArray("sources").getJSONObject(0).getString("file");
-
-        Log.i(TAG, "Encrypted file: " + file.substring(0, Math.min(50, file.length())) + "...");
-
-        // ✅ Use Type 2 response
-        Response<DecryptResponseType2> decResp = encDecApi.decryptVidstackType2(
-                new VidstackDecryptRequest(file, "2")).execute();
-
-        if (!decResp.isSuccessful() || decResp.body() == null) {
-            throw new IOException("Failed to decrypt");
-        }
-
-        String resultString = decResp.body().result;
-        Log.i(TAG, "Decrypted Type 2 TV data: " + resultString);
-
-        MediaItems mediaItem = parseListResult(resultString, url);
-
-        // Handle subtitles
-        String subtitles = data.optString("tracks", "");
-        if (!subtitles.isEmpty()) {
-            List<MediaItems.SubtitleItem> parsedSubs = parseListSubtitles(subtitles);
-            if (!parsedSubs.isEmpty()) {
-                mediaItem.getSubtitles().addAll(parsedSubs);
-                Log.i(TAG, "Added " + parsedSubs.size() + " subtitles");
-            }
-        }
-
-        return mediaItem;
-    }
-
-    /**
-     * Get server name from server type code
-     * Maps server codes to actual server names
-     */
-    private String getServerName(String serverType) {
-        // Default server mapping based on Python script comments
-        switch (serverType) {
-            case "2":
-                return "short2embed";  // Player SM
-            case "3":
-                return "videoophim";   // Player O
-            case "4":
-                return "videofsh";     // Player FS
-            default:
-                return "videoophim";   // Default to Player O
-        }
-    }
-
-    /**
-     * Parse subtitle list from vidstack format
-     * Format: "[Label] url, [Label2] url2" or "url1, url2"
-     */
-    private List<MediaItems.SubtitleItem> parseListSubtitles(String subtitlesText) {
-        List<MediaItems.SubtitleItem> subtitles = new ArrayList<>();
-
-        if (subtitlesText == null || subtitlesText.trim().isEmpty()) {
-            return subtitles;
-        }
-
-        try {
-            // Remove 'or' separators and split by comma
-            String cleaned = subtitlesText.trim().replaceAll("\\s+or\\s+", ",");
-            String[] items = cleaned.split(",");
-
-            for (String item : items) {
-                item = item.trim();
-                if (item.isEmpty()) continue;
-
-                String label = "Unknown";
-                String url = item;
-
-                // Check if format is "[Label] url"
-                if (item.startsWith("[") && item.contains("]")) {
-                    int closeBracket = item.indexOf(']');
-                    label = item.substring(1, closeBracket).trim();
-                    url = item.substring(closeBracket + 1).trim();
-                }
-
-                // Only add if URL is not empty
-                if (!url.isEmpty()) {
-                    subtitles.add(new MediaItems.SubtitleItem(url, label, label));
-                    Log.i(TAG, "Parsed subtitle: " + label + " -> " + url);
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error parsing subtitles: " + subtitlesText, e);
-        }
-
-        return subtitles;
-    }
-
-
     // ===================== VIDLINK =====================
-    public void fetchVidlinkMovie(String tmdbId, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                Response<VidlinkEncryptResponse> encResp = encDecApi.encryptVidlink(tmdbId).execute();
-                if (!encResp.isSuccessful() || encResp.body() == null) {
-                    throw new IOException("Failed to encrypt ID");
-                }
-
-                String encrypted = encResp.body().result;
-                String url = VIDLINK_API_BASE + "/api/b/movie/" + encrypted;
-
-                MediaItems result = fetchVidlinkStreams(url);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Vidlink Movie error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    public StreamHandle fetchVidlinkMovie(String tmdbId, StreamCallback callback) {
+        return execute("Vidlink Movie", () -> new VidlinkProvider(this).resolve(
+                StreamRequest.movie(null, null, tmdbId, null)), callback);
     }
 
-    public void fetchVidlinkTV(String tmdbId, String season, String episode, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                //Response<EncryptResponse> encResp = encDecApi.encryptVidlink(tmdbId).execute();
-
-                Response<VidlinkEncryptResponse> encResp = encDecApi.encryptVidlink(tmdbId).execute();
-                if (!encResp.isSuccessful() || encResp.body() == null) {
-                    throw new IOException("Failed to encrypt ID");
-                }
-
-                String encrypted = encResp.body().result;
-                String url = VIDLINK_API_BASE + "/api/b/tv/" + encrypted + "/" + season + "/" + episode;
-
-                MediaItems result = fetchVidlinkStreams(url);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Vidlink TV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
-    }
-
-    private MediaItems fetchVidlinkStreams(String url) throws Exception {
-        // Create API with proper headers matching Python implementation
-        GenericApi api = createGenericApiWithHeaders(VIDLINK_API_BASE, "https://vidlink.pro");
-
-        // Use getResponseWithOrigin to include Origin header (matching Python vidlink.py)
-        Response<ResponseBody> response = api.getResponseWithOrigin(url, getUserAgent(),
-                "https://vidlink.pro/", "https://vidlink.pro").execute();
-        if (!response.isSuccessful() || response.body() == null) {
-            throw new IOException("Failed to fetch streams");
-        }
-        Map<String, String> responseHeaders = extractHeaders(response);
-
-
-        Log.i(TAG, "Response headers captured fetchVidlinkStreams: " + responseHeaders.size());
-        for (Map.Entry<String, String> header : responseHeaders.entrySet()) {
-            Log.i(TAG, "  " + header.getKey() + ": " +
-                    (header.getValue().length() > 100 ?
-                            header.getValue().substring(0, 100) + "..." :
-                            header.getValue()));
-        }
-        Log.i(TAG, "Response headers captured: " + responseHeaders.size());
-        for (Map.Entry<String, String> header : responseHeaders.entrySet()){
-            Log.i(TAG, "  " + header.getKey() + ": " + header.getValue());
-        }
-
-
-        return parseStreamData(response.body().string(), "https://vidlink.pro/", responseHeaders);
+    public StreamHandle fetchVidlinkTV(String tmdbId, String season, String episode, StreamCallback callback) {
+        return execute("Vidlink TV", () -> new VidlinkProvider(this).resolve(
+                StreamRequest.episode(null, null, tmdbId, null, season, episode)), callback);
     }
 
     // ===================== YFLIX/RAPIDSHARE =====================
-    public void fetchYflixMovie(String contentId, StreamCallback callback) {
+    public StreamHandle fetchYflixMovie(String contentId, StreamCallback callback) {
         // Complex multi-step process
-        executorService.execute(() -> {
-            try {
-                // Implementation would follow the yflix_rapidshare_combine.py logic
-                mainHandler.post(() -> callback.onError("Yflix implementation pending"));
-            } catch (Exception e) {
-                Log.e(TAG, "Yflix error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+        // Implementation would follow the yflix_rapidshare_combine.py logic
+        return execute("Yflix", () -> {
+            throw new IOException("Yflix implementation pending");
+        }, callback);
     }
 
     // ===================== MAPPLE =====================
-    public void fetchMappleMovie(String tmdbId, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                MediaItems result = fetchMappleStreams(tmdbId, "movie", null, null);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Mapple error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    public StreamHandle fetchMappleMovie(String tmdbId, StreamCallback callback) {
+        return execute("Mapple", () -> new MappleProvider(this).resolve(
+                StreamRequest.movie(null, null, tmdbId, null)), callback);
     }
 
-    public void fetchMappleTV(String tmdbId, String season, String episode, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                MediaItems result = fetchMappleStreams(tmdbId, "tv", season, episode);
-                mainHandler.post(() -> callback.onSuccess(result));
-            } catch (Exception e) {
-                Log.e(TAG, "Mapple TV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
-    }
-
-    /**
-     * Fetch Mapple streams - matches Python implementation
-     * 1. Get HTML and extract __REQUEST_TOKEN__
-     * 2. Call /api/encrypt with payload
-     * 3. Build final URL and fetch streams
-     */
-    private MediaItems fetchMappleStreams(String tmdbId, String mediaType, String season, String episode) throws Exception {
-        GenericApi api = createGenericApi(MAPPLE_API_BASE);
-        
-        // Step 1: Get HTML and extract request token (matching Python implementation)
-        String watchUrl = MAPPLE_API_BASE + "/watch/" + mediaType + "/" + tmdbId;
-        if ("tv".equals(mediaType) && season != null && episode != null) {
-            watchUrl = MAPPLE_API_BASE + "/watch/" + mediaType + "/" + tmdbId + "/" + season + "-" + episode;
-        }
-        
-        Map<String, String> headers = new HashMap<>();
-        headers.put("User-Agent", getUserAgent());
-        headers.put("Referer", "https://mapple.uk/");
-        
-        // Fetch HTML to extract __REQUEST_TOKEN__
-        Response<ResponseBody> htmlResponse = api.getResponse(watchUrl, getUserAgent(), "https://mapple.uk/").execute();
-        if (!htmlResponse.isSuccessful() || htmlResponse.body() == null) {
-            throw new IOException("Failed to fetch Mapple HTML");
-        }
-        
-        String html = htmlResponse.body().string();
-        
-        // Extract __REQUEST_TOKEN__ from HTML using regex (matching Python: window.__REQUEST_TOKEN__ = "...")
-        String requestToken = extractRequestToken(html);
-        if (requestToken == null) {
-            throw new IOException("Failed to extract request token from HTML");
-        }
-        Log.i(TAG, "Extracted request token: " + requestToken);
-        
-        // Step 2: Call /api/encrypt with payload (matching Python implementation)
-        String encryptUrl = MAPPLE_API_BASE + "/api/encrypt";
-        
-        // Build the encrypt payload JSON
-        JSONObject encryptPayload = new JSONObject();
-        JSONObject dataObj = new JSONObject();
-        dataObj.put("mediaId", Integer.parseInt(tmdbId));
-        dataObj.put("mediaType", mediaType);
-        dataObj.put("tv_slug", "");  // Empty for movies
-        dataObj.put("source", "mapple");
-        encryptPayload.put("data", dataObj);
-        encryptPayload.put("endpoint", "stream-encrypted");
-        
-        // Make the encrypt request - need to use raw OkHttpClient for this
-        okhttp3.RequestBody body = okhttp3.RequestBody.create(
-                okhttp3.MediaType.parse("application/json"),
-                encryptPayload.toString()
-        );
-        
-        okhttp3.Request.Builder requestBuilder = new okhttp3.Request.Builder()
-                .url(encryptUrl)
-                .post(body)
-                .addHeader("User-Agent", getUserAgent())
-                .addHeader("Referer", "https://mapple.uk/")
-                .addHeader("Content-Type", "application/json");
-        
-        okhttp3.Response encryptResp = okHttpClient.newCall(requestBuilder.build()).execute();
-        if (!encryptResp.isSuccessful() || encryptResp.body() == null) {
-            throw new IOException("Failed to encrypt Mapple request");
-        }
-        
-        JSONObject encryptJson = new JSONObject(encryptResp.body().string());
-        String streamPath = encryptJson.optString("url", "");
-        if (streamPath.isEmpty()) {
-            throw new IOException("No stream path in encrypt response");
-        }
-        Log.i(TAG, "Stream path: " + streamPath);
-        
-        // Step 3: Build final URL with stream path and token (matching Python implementation)
-        String finalUrl = MAPPLE_API_BASE + streamPath + "&requestToken=" + requestToken;
-        Log.i(TAG, "Final stream URL: " + finalUrl);
-        
-        // Fetch streams
-        Response<ResponseBody> streamResp = api.getResponse(finalUrl, getUserAgent(), "https://mapple.uk/").execute();
-        if (!streamResp.isSuccessful() || streamResp.body() == null) {
-            throw new IOException("Failed to fetch Mapple streams");
-        }
-        
-        String streamData = streamResp.body().string();
-        Log.i(TAG, "Mapple stream data: " + streamData);
-        
-        MediaItems result = parseStreamData(streamData, "https://mapple.uk/", new HashMap<>());
-        return result;
-    }
-    
-    /**
-     * Extract __REQUEST_TOKEN__ from HTML using regex
-     * Matches Python: window.__REQUEST_TOKEN__ = "([^"]+)"
-     */
-    private String extractRequestToken(String html) {
-        try {
-            // Match: window.__REQUEST_TOKEN__ = "..."
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-                    "window\\.__REQUEST_TOKEN__\\s*=\\s*\"([^\"]+)\"");
-            java.util.regex.Matcher matcher = pattern.matcher(html);
-            if (matcher.find()) {
-                return matcher.group(1);
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error extracting request token", e);
-        }
-        return null;
+    public StreamHandle fetchMappleTV(String tmdbId, String season, String episode, StreamCallback callback) {
+        return execute("Mapple TV", () -> new MappleProvider(this).resolve(
+                StreamRequest.episode(null, null, tmdbId, null, season, episode)), callback);
     }
 
     // ===================== HELPER METHODS =====================
-    private GenericApi createGenericApi(String baseUrl) {
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(baseUrl)
-                .client(okHttpClient)
-                .addConverterFactory(ScalarsConverterFactory.create())
-                .build();
-        return retrofit.create(GenericApi.class);
+    GenericApi createGenericApi(String baseUrl) {
+        return getApi(baseUrl, ProviderHeaders.NONE);
     }
 
     /**
-     * Create GenericApi with custom headers including Origin
+     * Prebuilt GenericApi for a base URL whose client applies the provider's headers.
+     * Built once per (base URL, headers) and reused for every later call.
      */
-    private GenericApi createGenericApiWithHeaders(String baseUrl, String origin) {
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(baseUrl)
-                .client(okHttpClient)
-                .addConverterFactory(ScalarsConverterFactory.create())
-                .build();
-        return retrofit.create(GenericApi.class);
+    GenericApi getApi(String baseUrl, ProviderHeaders headers) {
+        return apis.computeIfAbsent(baseUrl + "|" + headers.key(), key -> {
+            OkHttpClient client = headers == ProviderHeaders.NONE
+                    ? okHttpClient
+                    : okHttpClient.newBuilder().addInterceptor(headers).build();
+            Retrofit retrofit = new Retrofit.Builder()
+                    .baseUrl(baseUrl)
+                    .client(client)
+                    .addConverterFactory(ScalarsConverterFactory.create())
+                    .build();
+            return retrofit.create(GenericApi.class);
+        });
     }
 
-
-
-    private String generateHexKey() {
+    String generateHexKey() {
         byte[] bytes = new byte[32];
         new java.security.SecureRandom().nextBytes(bytes);
         StringBuilder sb = new StringBuilder();
@@ -1143,7 +504,7 @@ public class FetchStreams {
         return sb.toString();
     }
 
-    private Map<String, String> extractHeaders(Response<?> response) {
+    Map<String, String> extractHeaders(Response<?> response) {
         Map<String, String> headers = new HashMap<>();
         okhttp3.Response raw = response.raw();
         for (String name : raw.headers().names()) {
@@ -1152,183 +513,172 @@ public class FetchStreams {
         return headers;
     }
 
+    /**
+     * Log captured response headers, truncating long values
+     */
+    static void logHeaders(String label, Map<String, String> headers) {
+        Log.i(TAG, "Response headers captured " + label + ": " + headers.size());
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            Log.i(TAG, "  " + header.getKey() + ": " +
+                    (header.getValue().length() > 100 ?
+                            header.getValue().substring(0, 100) + "..." :
+                            header.getValue()));
+        }
+    }
 
 
 
 
-    private MediaItems parseStreamData(String jsonStr, String refererUrl,
-                                       Map<String, String> responseHeaders) throws Exception {
-        JSONObject data = new JSONObject(jsonStr);
+
+    /**
+     * Sources, subtitles and per-source headers from a decrypted payload. Static and free
+     * of the network so the parsing can be tested on the JVM.
+     */
+    static MediaItems parseStreamData(StreamPayload data, String refererUrl,
+                                      Map<String, String> responseHeaders) throws IOException {
+        if (data == null) {
+            throw new IOException("Empty stream payload");
+        }
 
         List<MediaItems.VideoSource> sources = new ArrayList<>();
         List<MediaItems.SubtitleItem> subs = new ArrayList<>();
         Map<String, String> customHeaders = new HashMap<>();
 
-        // Parse sourceId (it's a string, not an array)
-        String sourceId = data.optString("sourceId", "");
+        String sourceId = data.sourceId != null ? data.sourceId : "";
         Log.i(TAG, "SourceId: " + sourceId);
 
         // ============================================
         // HEXA FORMAT: Parse sources array with server names
         // ============================================
-        JSONArray hexaSourcesArray = data.optJSONArray("sources");
-        if (hexaSourcesArray != null && hexaSourcesArray.length() > 0) {
-            // Check if first element has "server" field (Hexa format indicator)
-            JSONObject firstSource = hexaSourcesArray.optJSONObject(0);
-            if (firstSource != null && firstSource.has("server")) {
-                Log.i(TAG, "Detected Hexa format response");
-
-                for (int i = 0; i < hexaSourcesArray.length(); i++) {
-                    JSONObject sourceObj = hexaSourcesArray.getJSONObject(i);
-                    String server = sourceObj.optString("server", "");
-                    String url = sourceObj.optString("url", "");
-
-                    if (!url.isEmpty()) {
-                        // Use server name as quality identifier
-                        sources.add(new MediaItems.VideoSource(server, url));
-                        Log.i(TAG, "Added Hexa source - Server: " + server + ", URL: " + url);
-                    }
+        if (data.isHexaLayout()) {
+            Log.i(TAG, "Detected Hexa format response");
+
+            for (StreamPayload.Source source : data.sources) {
+                if (source != null && source.url != null && !source.url.isEmpty()) {
+                    // Use server name as quality identifier
+                    String server = source.server != null ? source.server : "";
+                    sources.add(new MediaItems.VideoSource(server, source.url));
+                    Log.i(TAG, "Added Hexa source - Server: " + server + ", URL: " + source.url);
                 }
+            }
 
-                // Set headers for Hexa format (matching Python hexa.py)
-                customHeaders.put("User-Agent", getUserAgent());
-                customHeaders.put("Accept", "plain/text");
-                customHeaders.put("Accept-Encoding", "gzip, deflate");
-                customHeaders.put("Accept-Language", "en-US,en;q=0.9");
-                customHeaders.put("Connection", "keep-alive");
-                customHeaders.put("Referer", "https://hexa.su/");
-                customHeaders.put("Origin", "https://hexa.su");
+            // Set headers for Hexa format (matching Python hexa.py)
+            customHeaders.put("User-Agent", getUserAgent());
+            customHeaders.put("Accept", "plain/text");
+            customHeaders.put("Accept-Encoding", "gzip, deflate");
+            customHeaders.put("Accept-Language", "en-US,en;q=0.9");
+            customHeaders.put("Connection", "keep-alive");
+            customHeaders.put("Referer", "https://hexa.su/");
+            customHeaders.put("Origin", "https://hexa.su");
 
-                Log.i(TAG, "Applied Hexa format headers");
-            }
-            // ============================================
-            // VIDLINK FORMAT: Check for stream object
-            // ============================================
-            else {
-                JSONObject streamObj = data.optJSONObject("stream");
-                if (streamObj != null) {
-                    Log.i(TAG, "Detected Vidlink format response");
-
-                    // Get playlist URL from stream object
-                    String playlistUrl = streamObj.optString("playlist", "");
-                    if (!playlistUrl.isEmpty()) {
-                        Log.i(TAG, "Original playlist URL: " + playlistUrl);
-
-                        // Extract headers and clean URL
-                        String cleanUrl = playlistUrl;
-                        Map<String, String> extractedHeaders = extractHeadersFromUrl(playlistUrl);
-
-                        // Remove the ?headers=...&host=... part to get clean URL
-                        int headersIndex = playlistUrl.indexOf("?headers=");
-                        if (headersIndex != -1) {
-                            cleanUrl = playlistUrl.substring(0, headersIndex);
-                            Log.i(TAG, "Clean playlist URL: " + cleanUrl);
-                        }
-
-                        // Add the CLEAN playlist URL as a video source
-                        String streamType = streamObj.optString("type", "hls").toUpperCase();
-                        sources.add(new MediaItems.VideoSource(streamType, cleanUrl));
-
-                        Log.i(TAG, "Added source - Type: " + streamType + ", URL: " + cleanUrl);
-
-                        // Apply extracted headers to custom headers
-                        if (!extractedHeaders.isEmpty()) {
-                            customHeaders.put("User-Agent", getUserAgent());
-                            customHeaders.putAll(extractedHeaders);
-
-                            // Update referer if extracted from URL
-                            if (extractedHeaders.containsKey("Referer")) {
-                                refererUrl = extractedHeaders.get("Referer");
-                                Log.i(TAG, "Updated referer from URL: " + refererUrl);
-                            }
-
-                            Log.i(TAG, "Extracted " + extractedHeaders.size() + " headers from playlist URL");
-                            Log.i(TAG, "extractedHeaders: " + extractedHeaders.toString());
-                        }
-                    }
+            Log.i(TAG, "Applied Hexa format headers");
+        }
+        // ============================================
+        // VIDLINK FORMAT: Check for stream object
+        // ============================================
+        else if (data.stream != null) {
+            Log.i(TAG, "Detected Vidlink format response");
+
+            // Get playlist URL from stream object
+            String playlistUrl = data.stream.playlist != null ? data.stream.playlist : "";
+            if (!playlistUrl.isEmpty()) {
+                Log.i(TAG, "Original playlist URL: " + playlistUrl);
+
+                // Extract headers and clean URL
+                String cleanUrl = playlistUrl;
+                Map<String, String> extractedHeaders = extractHeadersFromUrl(playlistUrl);
+
+                // Remove the ?headers=...&host=... part to get clean URL
+                int headersIndex = playlistUrl.indexOf("?headers=");
+                if (headersIndex != -1) {
+                    cleanUrl = playlistUrl.substring(0, headersIndex);
+                    Log.i(TAG, "Clean playlist URL: " + cleanUrl);
+                }
+
+                // Add the CLEAN playlist URL as a video source
+                String streamType = (data.stream.type != null ? data.stream.type : "hls").toUpperCase();
+                sources.add(new MediaItems.VideoSource(streamType, cleanUrl));
+
+                Log.i(TAG, "Added source - Type: " + streamType + ", URL: " + cleanUrl);
 
-                    // Parse captions array from stream object (NOT from root)
-                    JSONArray captionsArray = streamObj.optJSONArray("captions");
-                    if (captionsArray != null) {
-                        Log.i(TAG, "Found " + captionsArray.length() + " caption(s)");
-
-                        for (int i = 0; i < captionsArray.length(); i++) {
-                            JSONObject captionObj = captionsArray.getJSONObject(i);
-                            String captionUrl = captionObj.optString("url", "");
-                            String captionId = captionObj.optString("id", "");
-                            String language = captionObj.optString("language", "Unknown");
-
-                            // Use url if available, otherwise use id
-                            String subtitleUrl = !captionUrl.isEmpty() ? captionUrl : captionId;
-
-                            if (!subtitleUrl.isEmpty()) {
-                                // Extract language code (e.g., "English" -> "en")
-                                String langCode = extractLanguageCode(language, captionId);
-
-                                subs.add(new MediaItems.SubtitleItem(
-                                        subtitleUrl,
-                                        langCode,
-                                        language
-                                ));
-
-                                Log.i(TAG, "Added subtitle: " + language + " (" + langCode + ")");
-                            }
-                        }
+                // Apply extracted headers to custom headers
+                if (!extractedHeaders.isEmpty()) {
+                    customHeaders.put("User-Agent", getUserAgent());
+                    customHeaders.putAll(extractedHeaders);
+
+                    // Update referer if extracted from URL
+                    if (extractedHeaders.containsKey("Referer")) {
+                        refererUrl = extractedHeaders.get("Referer");
+                        Log.i(TAG, "Updated referer from URL: " + refererUrl);
                     }
+
+                    Log.i(TAG, "Extracted " + extractedHeaders.size() + " headers from playlist URL");
+                    Log.i(TAG, "extractedHeaders: " + extractedHeaders.toString());
                 }
-                // ============================================
-                // STANDARD FORMAT: Fallback for other APIs
-                // ============================================
-                else {
-                    Log.i(TAG, "Detected standard format response");
-
-                    // Parse sources array (standard format)
-                    if (hexaSourcesArray != null) {
-                        for (int i = 0; i < hexaSourcesArray.length(); i++) {
-                            JSONObject obj = hexaSourcesArray.getJSONObject(i);
-                            sources.add(new MediaItems.VideoSource(
-                                    obj.optString("quality", "auto"),
-                                    obj.optString("url", "")
-                            ));
-                        }
-                        Log.i(TAG, "Parsed " + sources.size() + " source(s)");
-                    }
+            }
 
-                    // Parse subtitles array
-                    JSONArray subsArray = data.optJSONArray("subtitles");
-                    if (subsArray != null) {
-                        for (int i = 0; i < subsArray.length(); i++) {
-                            JSONObject obj = subsArray.getJSONObject(i);
-                            subs.add(new MediaItems.SubtitleItem(
-                                    obj.optString("url", ""),
-                                    obj.optString("lang", ""),
-                                    obj.optString("language", "")
-                            ));
-                        }
-                        Log.i(TAG, "Parsed " + subs.size() + " subtitle(s)");
-                    }
+            // Parse captions array from stream object (NOT from root)
+            if (data.stream.captions != null) {
+                Log.i(TAG, "Found " + data.stream.captions.size() + " caption(s)");
+
+                for (StreamPayload.Caption caption : data.stream.captions) {
+                    if (caption == null) continue;
+                    String language = caption.language != null ? caption.language : "Unknown";
+
+                    // Use url if available, otherwise use id
+                    String subtitleUrl = caption.url != null && !caption.url.isEmpty() ? caption.url : caption.id;
 
-                    // Also check for captions at root level (some APIs)
-                    JSONArray captionsArray = data.optJSONArray("captions");
-                    if (captionsArray != null && subs.isEmpty()) {
-                        for (int i = 0; i < captionsArray.length(); i++) {
-                            JSONObject captionObj = captionsArray.getJSONObject(i);
-                            String captionUrl = captionObj.optString("url", "");
-                            String language = captionObj.optString("language", "Unknown");
-                            String langCode = extractLanguageCode(language, captionObj.optString("id", ""));
-
-                            if (!captionUrl.isEmpty()) {
-                                subs.add(new MediaItems.SubtitleItem(
-                                        captionUrl,
-                                        langCode,
-                                        language
-                                ));
-                            }
-                        }
+                    if (subtitleUrl != null && !subtitleUrl.isEmpty()) {
+                        // Extract language code (e.g., "English" -> "en")
+                        String langCode = extractLanguageCode(language, caption.id != null ? caption.id : "");
+                        subs.add(new MediaItems.SubtitleItem(subtitleUrl, langCode, language));
+
+                        Log.i(TAG, "Added subtitle: " + language + " (" + langCode + ")");
                     }
                 }
             }
         }
+        // ============================================
+        // STANDARD FORMAT: Fallback for other APIs
+        // ============================================
+        else {
+            Log.i(TAG, "Detected standard format response");
+
+            // Parse sources array (standard format)
+            if (data.sources != null) {
+                for (StreamPayload.Source source : data.sources) {
+                    if (source == null) continue;
+                    sources.add(new MediaItems.VideoSource(
+                            source.quality != null ? source.quality : "auto",
+                            source.url != null ? source.url : ""
+                    ));
+                }
+                Log.i(TAG, "Parsed " + sources.size() + " source(s)");
+            }
+
+            // Parse subtitles array
+            if (data.subtitles != null) {
+                for (StreamPayload.Subtitle subtitle : data.subtitles) {
+                    if (subtitle == null) continue;
+                    subs.add(new MediaItems.SubtitleItem(
+                            subtitle.url != null ? subtitle.url : "",
+                            subtitle.lang != null ? subtitle.lang : "",
+                            subtitle.language != null ? subtitle.language : ""
+                    ));
+                }
+                Log.i(TAG, "Parsed " + subs.size() + " subtitle(s)");
+            }
+
+            // Also check for captions at root level (some APIs)
+            if (data.captions != null && subs.isEmpty()) {
+                for (StreamPayload.Caption caption : data.captions) {
+                    if (caption == null || caption.url == null || caption.url.isEmpty()) continue;
+                    String language = caption.language != null ? caption.language : "Unknown";
+                    String langCode = extractLanguageCode(language, caption.id != null ? caption.id : "");
+                    subs.add(new MediaItems.SubtitleItem(caption.url, langCode, language));
+                }
+            }
+        }
 
         // ============================================
         // Extract Cloudflare session
@@ -1409,7 +759,7 @@ public class FetchStreams {
      * @param url The URL containing the headers parameter
      * @return Map of extracted headers with proper capitalization
      */
-    private Map<String, String> extractHeadersFromUrl(String url) {
+    static Map<String, String> extractHeadersFromUrl(String url) {
         Map<String, String> headers = new HashMap<>();
 
         try {
@@ -1463,7 +813,7 @@ public class FetchStreams {
      * Capitalizes HTTP header names properly.
      * Examples: "referer" -> "Referer", "origin" -> "Origin", "user-agent" -> "User-Agent"
      */
-    private String capitalizeHeaderName(String headerName) {
+    private static String capitalizeHeaderName(String headerName) {
         if (headerName == null || headerName.isEmpty()) {
             return headerName;
         }
@@ -1495,7 +845,7 @@ public class FetchStreams {
      * Extracts language code from language name or ID.
      * Examples: "English" -> "en", "eng-3.vtt" -> "en"
      */
-    private String extractLanguageCode(String language, String id) {
+    static String extractLanguageCode(String language, String id) {
         // Try to extract from ID first (e.g., "eng-3.vtt" -> "eng")
         if (id != null && id.contains("eng")) {
             return "en";
@@ -1533,7 +883,7 @@ public class FetchStreams {
      * Extracts origin from a URL.
      * Example: "https://megacloud.blog/path" -> "https://megacloud.blog"
      */
-    private String getOriginFromUrl(String url) {
+    private static String getOriginFromUrl(String url) {
         try {
             java.net.URL parsedUrl = new java.net.URL(url);
             return parsedUrl.getProtocol() + "://" + parsedUrl.getHost();
@@ -1542,46 +892,36 @@ public class FetchStreams {
         }
     }
 
+
     // ===================== MEGAUP =====================
     /**
      * Fetch streams from Megaup embed URL
      * @param embedUrl Format: https://megaup.live/e/{id}
      */
-    public void fetchMegaup(String embedUrl, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                // Replace /e/ with /media/
-                String mediaUrl = embedUrl.replace("/e/", "/media/");
+    public StreamHandle fetchMegaup(String embedUrl, StreamCallback callback) {
+        return execute("Megaup", () -> {
+            // Replace /e/ with /media/
+            String mediaUrl = embedUrl.replace("/e/", "/media/");
 
-                GenericApi api = createGenericApi("https://megaup.live");
-                
-                // Use correct Referer header matching Python megaup.py
-                Response<ResponseBody> response = api.getResponse(mediaUrl, getUserAgent(), "https://megaup.live/").execute();
+            GenericApi api = getApi("https://megaup.live", MEGAUP_HEADERS);
+            Response<ResponseBody> response = api.get(mediaUrl).execute();
 
-                if (!response.isSuccessful() || response.body() == null) {
-                    throw new IOException("Failed to fetch encrypted data");
-                }
-
-                JSONObject json = new JSONObject(response.body().string());
-                String encrypted = json.getString("result");
-
-                Response<DecryptResponse> decResponse = encDecApi.decryptMega(
-                        new RapidDecryptRequest(encrypted, getUserAgent())).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                throw new IOException("Failed to fetch encrypted data");
+            }
 
-                if (!decResponse.isSuccessful() || decResponse.body() == null) {
-                    throw new IOException("Failed to decrypt");
-                }
+            JSONObject json = new JSONObject(response.body().string());
+            String encrypted = json.getString("result");
 
-                DecryptResponse.Result result = decResponse.body().result;
-                String jsonStr = new com.google.gson.Gson().toJson(result);
+            Response<DecryptResponse> decResponse = encDecApi.decryptMega(
+                    new RapidDecryptRequest(encrypted, getUserAgent())).execute();
 
-                MediaItems mediaItem = parseStreamData(jsonStr, embedUrl, new HashMap<>());
-                mainHandler.post(() -> callback.onSuccess(mediaItem));
-            } catch (Exception e) {
-                Log.e(TAG, "Megaup error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
+            if (!decResponse.isSuccessful() || decResponse.body() == null) {
+                throw new IOException("Failed to decrypt");
             }
-        });
+
+            return parseStreamData(decResponse.body().result, embedUrl, new HashMap<>());
+        }, callback);
     }
 
     // ===================== XPRIME =====================
@@ -1589,100 +929,16 @@ public class FetchStreams {
      * Fetch streams from XPrime
      * Supports multiple servers: primebox, etc.
      */
-    public void fetchXprimeMovie(String title, String year, String tmdbId, String imdbId,
+    public StreamHandle fetchXprimeMovie(String title, String year, String tmdbId, String imdbId,
                                  String server, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                // Get turnstile token
-                Response<EncryptResponse> tokenResp = encDecApi.encryptXprime().execute();
-                if (!tokenResp.isSuccessful() || tokenResp.body() == null) {
-                    throw new IOException("Failed to get turnstile token");
-                }
-
-                String token = tokenResp.body().result.token;
-                String encodedTitle = URLEncoder.encode(title, "UTF-8");
-
-                String url = XPRIME_API_BASE + "/" + server + "?name=" + encodedTitle +
-                        "&year=" + year + "&id=" + tmdbId + "&imdb=" + imdbId +
-                        "&turnstile=" + token;
-
-                // Use API with Origin header (matching Python xprime.py)
-                GenericApi api = createGenericApiWithHeaders(XPRIME_API_BASE, "https://xprime.tv");
-                
-                // Include Origin header matching Python implementation
-                Response<ResponseBody> response = api.getResponseWithOrigin(url, getUserAgent(),
-                        "https://xprime.tv", "https://xprime.tv").execute();
-
-                if (!response.isSuccessful() || response.body() == null) {
-                    throw new IOException("Failed to fetch encrypted data");
-                }
-
-                String encrypted = response.body().string();
-                Response<DecryptResponse> decResponse = encDecApi.decryptXprime(
-                        DecryptRequest.withId(encrypted, null)).execute();
-
-                if (!decResponse.isSuccessful() || decResponse.body() == null) {
-                    throw new IOException("Failed to decrypt");
-                }
-
-                DecryptResponse.Result result = decResponse.body().result;
-                String jsonStr = new com.google.gson.Gson().toJson(result);
-
-                MediaItems mediaItem = parseStreamData(jsonStr, url, new HashMap<>());
-                mainHandler.post(() -> callback.onSuccess(mediaItem));
-            } catch (Exception e) {
-                Log.e(TAG, "XPrime error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+        return execute("XPrime", () -> new XprimeProvider(this, server).resolve(
+                StreamRequest.movie(title, year, tmdbId, imdbId)), callback);
     }
 
-    public void fetchXprimeTV(String title, String year, String tmdbId, String imdbId,
+    public StreamHandle fetchXprimeTV(String title, String year, String tmdbId, String imdbId,
                               String season, String episode, String server, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                Response<EncryptResponse> tokenResp = encDecApi.encryptXprime().execute();
-                if (!tokenResp.isSuccessful() || tokenResp.body() == null) {
-                    throw new IOException("Failed to get turnstile token");
-                }
-
-                String token = tokenResp.body().result.token;
-                String encodedTitle = URLEncoder.encode(title, "UTF-8");
-
-                String url = XPRIME_API_BASE + "/" + server + "?name=" + encodedTitle +
-                        "&year=" + year + "&id=" + tmdbId + "&imdb=" + imdbId +
-                        "&season=" + season + "&episode=" + episode +
-                        "&turnstile=" + token;
-
-                // Use API with Origin header (matching Python xprime.py)
-                GenericApi api = createGenericApiWithHeaders(XPRIME_API_BASE, "https://xprime.tv");
-                
-                // Include Origin header matching Python implementation
-                Response<ResponseBody> response = api.getResponseWithOrigin(url, getUserAgent(),
-                        "https://xprime.tv", "https://xprime.tv").execute();
-
-                if (!response.isSuccessful() || response.body() == null) {
-                    throw new IOException("Failed to fetch encrypted data");
-                }
-
-                String encrypted = response.body().string();
-                Response<DecryptResponse> decResponse = encDecApi.decryptXprime(
-                        DecryptRequest.withId(encrypted, null)).execute();
-
-                if (!decResponse.isSuccessful() || decResponse.body() == null) {
-                    throw new IOException("Failed to decrypt");
-                }
-
-                DecryptResponse.Result result = decResponse.body().result;
-                String jsonStr = new com.google.gson.Gson().toJson(result);
-
-                MediaItems mediaItem = parseStreamData(jsonStr, url, new HashMap<>());
-                mainHandler.post(() -> callback.onSuccess(mediaItem));
-            } catch (Exception e) {
-                Log.e(TAG, "XPrime TV error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+        return execute("XPrime TV", () -> new XprimeProvider(this, server).resolve(
+                StreamRequest.episode(title, year, tmdbId, imdbId, season, episode)), callback);
     }
 
     // ===================== KISSKH =====================
@@ -1690,70 +946,11 @@ public class FetchStreams {
      * Fetch streams and subtitles from KissKH
      * @param contentId The KissKH content ID
      */
-    public void fetchKisskh(String contentId, StreamCallback callback) {
-        executorService.execute(() -> {
-            try {
-                // Get video encryption key
-                Response<EncryptResponse> vidKeyResp = encDecApi.encryptKisskh(contentId, "vid").execute();
-                if (!vidKeyResp.isSuccessful() || vidKeyResp.body() == null) {
-                    throw new IOException("Failed to get video key");
-                }
-                String vidKey = vidKeyResp.body().result.token;
-
-                // Fetch video sources
-                String videoUrl = KISSKH_API_BASE + "/api/DramaList/Episode/" + contentId +
-                        ".png?err=false&ts=&time=&kkey=" + vidKey;
-
-                GenericApi api = createGenericApi(KISSKH_API_BASE);
-                Response<ResponseBody> videoResp = api.getResponse(videoUrl, getUserAgent(), null).execute();
-
-                if (!videoResp.isSuccessful() || videoResp.body() == null) {
-                    throw new IOException("Failed to fetch video data");
-                }
-
-                JSONObject videoData = new JSONObject(videoResp.body().string());
-
-                // Get subtitle encryption key
-                Response<EncryptResponse> subKeyResp = encDecApi.encryptKisskh(contentId, "sub").execute();
-                if (!subKeyResp.isSuccessful() || subKeyResp.body() == null) {
-                    throw new IOException("Failed to get subtitle key");
-                }
-                String subKey = subKeyResp.body().result.token;
-
-                // Fetch subtitles
-                String subtitleUrl = KISSKH_API_BASE + "/api/Sub/" + contentId + "?kkey=" + subKey;
-                Response<ResponseBody> subResp = api.getResponse(subtitleUrl, getUserAgent(), null).execute();
-
-                List<MediaItems.SubtitleItem> subtitles = new ArrayList<>();
-                if (subResp.isSuccessful() && subResp.body() != null) {
-                    JSONArray subArray = new JSONArray(subResp.body().string());
-
-                    for (int i = 0; i < subArray.length(); i++) {
-                        JSONObject subObj = subArray.getJSONObject(i);
-                        String subUrl = subObj.optString("src", "");
-                        String label = subObj.optString("label", "Unknown");
-
-                        if (!subUrl.isEmpty()) {
-                            String langCode = extractLanguageCode(label, "");
-                            subtitles.add(new MediaItems.SubtitleItem(subUrl, langCode, label));
-                        }
-                    }
-                }
-
-                // Parse video sources
-                MediaItems mediaItem = parseStreamData(videoData.toString(), videoUrl, new HashMap<>());
-                mediaItem.getSubtitles().addAll(subtitles);
-
-                mainHandler.post(() -> callback.onSuccess(mediaItem));
-            } catch (Exception e) {
-                Log.e(TAG, "KissKH error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
-            }
-        });
+    public StreamHandle fetchKisskh(String contentId, StreamCallback callback) {
+        return execute("KissKH", () -> new KisskhProvider(this).resolve(
+                StreamRequest.movie(null, null, null, null).setKisskhId(contentId)), callback);
     }
 
-
-
     // ===================== DATABASE QUERIES =====================
     /**
      * Query Flix database by TMDB ID
@@ -1763,8 +960,12 @@ public class FetchStreams {
         void onError(String error);
     }
 
-    public void queryFlixDatabase(String tmdbId, String type, DatabaseCallback callback) {
-        executorService.execute(() -> {
+    public StreamHandle queryFlixDatabase(String tmdbId, String type, DatabaseCallback callback) {
+        StreamHandle taskHandle = handle.newChild();
+        StreamExecutor.get().execute(() -> taskHandle.runBound(() -> {
+            if (taskHandle.isCancelled()) {
+                return;
+            }
             try {
                 String url = DATABASE_BASE + "/flix/find?tmdb_id=" + tmdbId;
                 if (type != null && !type.isEmpty()) {
@@ -1772,26 +973,44 @@ public class FetchStreams {
                 }
 
                 GenericApi api = createGenericApi(DATABASE_BASE);
-                Response<ResponseBody> response = api.getResponse(url, getUserAgent(), null).execute();
+                Response<ResponseBody> response = api.get(url).execute();
 
                 if (!response.isSuccessful() || response.body() == null) {
                     throw new IOException("Failed to query database");
                 }
 
                 String jsonResult = response.body().string();
-                mainHandler.post(() -> callback.onSuccess(jsonResult));
+                mainHandler.post(() -> {
+                    if (!taskHandle.isCancelled()) {
+                        callback.onSuccess(jsonResult);
+                    }
+                });
             } catch (Exception e) {
+                if (taskHandle.isCancelled()) {
+                    Log.i(TAG, "Database query cancelled");
+                    return;
+                }
                 Log.e(TAG, "Database query error", e);
-                mainHandler.post(() -> callback.onError(e.getMessage()));
+                mainHandler.post(() -> {
+                    if (!taskHandle.isCancelled()) {
+                        callback.onError(e.getMessage());
+                    }
+                });
+            } finally {
+                taskHandle.detach();
             }
-        });
+        }));
+        return taskHandle;
     }
 
 
 
 
 
+    /**
+     * Cancel everything this instance started; later fetches fail fast
+     */
     public void shutdown() {
-        executorService.shutdown();
+        handle.cancel();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import java.io.IOException;
+
+import retrofit2.Response;
+
+/**
+ * HexaProvider - theemoviedb.hexa.su image endpoint, decrypted with a per-request hex key
+ */
+class HexaProvider implements StreamProvider {
+    private static final String FINGERPRINT = "e9136c41504646444"; // X-Fingerprint-Lite value from Python
+
+    private final FetchStreams streams;
+
+    HexaProvider(FetchStreams streams) {
+        this.streams = streams;
+    }
+
+    @Override
+    public String getName() {
+        return "hexa";
+    }
+
+    @Override
+    public boolean supports(StreamRequest request) {
+        return request.getTmdbId() != null;
+    }
+
+    @Override
+    public MediaItems resolve(StreamRequest request) throws Exception {
+        String key = streams.generateHexKey();
+        String url = request.isEpisode()
+                ? FetchStreams.HEXA_API_BASE + "/api/tmdb/tv/" + request.getTmdbId() + "/season/" +
+                        request.getSeason() + "/episode/" + request.getEpisode() + "/images"
+                : FetchStreams.HEXA_API_BASE + "/api/tmdb/movie/" + request.getTmdbId() + "/images";
+
+        FetchStreams.GenericApi api = streams.createGenericApi(FetchStreams.HEXA_API_BASE);
+
+        // Pass fingerprint header matching Python HEADERS dict
+        Response<String> response = api.getString(url, FetchStreams.getUserAgent(), key, FINGERPRINT).execute();
+
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("Failed to fetch encrypted data: HTTP " + response.code());
+        }
+
+        Response<FetchStreams.DecryptResponse> decResponse = streams.encDecApi.decryptHexa(
+                FetchStreams.DecryptRequest.withKey(response.body(), key)).execute();
+
+        if (!decResponse.isSuccessful() || decResponse.body() == null) {
+            throw new IOException("Failed to decrypt hexa response");
+        }
+
+        return streams.parseStreamData(decResponse.body().result, "https://hexa.su/", streams.extractHeaders(response));
+    }
+}
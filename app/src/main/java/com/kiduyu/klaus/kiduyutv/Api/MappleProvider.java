@@ -0,0 +1,124 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.util.Log;
+
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * MappleProvider - mapple.uk, matches the Python implementation
+ * 1. Get HTML and extract __REQUEST_TOKEN__
+ * 2. Call /api/encrypt with payload
+ * 3. Build final URL and fetch streams
+ */
+class MappleProvider implements StreamProvider {
+    private static final String TAG = "MappleProvider";
+    private static final String REFERER = "https://mapple.uk/";
+    private static final Pattern REQUEST_TOKEN_PATTERN =
+            Pattern.compile("window\\.__REQUEST_TOKEN__\\s*=\\s*\"([^\"]+)\"");
+    private static final ProviderHeaders HEADERS = new ProviderHeaders(REFERER, null);
+
+    private final FetchStreams streams;
+
+    MappleProvider(FetchStreams streams) {
+        this.streams = streams;
+    }
+
+    @Override
+    public String getName() {
+        return "mapple";
+    }
+
+    @Override
+    public boolean supports(StreamRequest request) {
+        return request.getTmdbId() != null;
+    }
+
+    @Override
+    public MediaItems resolve(StreamRequest request) throws Exception {
+        String mediaType = request.isEpisode() ? "tv" : "movie";
+        String tmdbId = request.getTmdbId();
+        FetchStreams.GenericApi api = streams.getApi(FetchStreams.MAPPLE_API_BASE, HEADERS);
+
+        // Step 1: Get HTML and extract request token (matching Python implementation)
+        String watchUrl = FetchStreams.MAPPLE_API_BASE + "/watch/" + mediaType + "/" + tmdbId;
+        if (request.isEpisode()) {
+            watchUrl += "/" + request.getSeason() + "-" + request.getEpisode();
+        }
+
+        Response<ResponseBody> htmlResponse = api.get(watchUrl).execute();
+        if (!htmlResponse.isSuccessful() || htmlResponse.body() == null) {
+            throw new IOException("Failed to fetch Mapple HTML");
+        }
+
+        String requestToken = extractRequestToken(htmlResponse.body().string());
+        if (requestToken == null) {
+            throw new IOException("Failed to extract request token from HTML");
+        }
+        Log.i(TAG, "Extracted request token: " + requestToken);
+
+        // Step 2: Call /api/encrypt with payload (matching Python implementation)
+        JSONObject encryptPayload = new JSONObject();
+        JSONObject dataObj = new JSONObject();
+        dataObj.put("mediaId", Integer.parseInt(tmdbId));
+        dataObj.put("mediaType", mediaType);
+        dataObj.put("tv_slug", "");  // Empty for movies
+        dataObj.put("source", "mapple");
+        encryptPayload.put("data", dataObj);
+        encryptPayload.put("endpoint", "stream-encrypted");
+
+        okhttp3.RequestBody body = okhttp3.RequestBody.create(
+                okhttp3.MediaType.parse("application/json"),
+                encryptPayload.toString()
+        );
+
+        okhttp3.Request encryptRequest = new okhttp3.Request.Builder()
+                .url(FetchStreams.MAPPLE_API_BASE + "/api/encrypt")
+                .post(body)
+                .addHeader("User-Agent", FetchStreams.getUserAgent())
+                .addHeader("Referer", REFERER)
+                .addHeader("Content-Type", "application/json")
+                .build();
+
+        String streamPath;
+        try (okhttp3.Response encryptResp = streams.okHttpClient.newCall(encryptRequest).execute()) {
+            if (!encryptResp.isSuccessful() || encryptResp.body() == null) {
+                throw new IOException("Failed to encrypt Mapple request");
+            }
+            streamPath = new JSONObject(encryptResp.body().string()).optString("url", "");
+        }
+        if (streamPath.isEmpty()) {
+            throw new IOException("No stream path in encrypt response");
+        }
+        Log.i(TAG, "Stream path: " + streamPath);
+
+        // Step 3: Build final URL with stream path and token (matching Python implementation)
+        String finalUrl = FetchStreams.MAPPLE_API_BASE + streamPath + "&requestToken=" + requestToken;
+        Log.i(TAG, "Final stream URL: " + finalUrl);
+
+        Response<ResponseBody> streamResp = api.get(finalUrl).execute();
+        if (!streamResp.isSuccessful() || streamResp.body() == null) {
+            throw new IOException("Failed to fetch Mapple streams");
+        }
+
+        return streams.parseStreamData(StreamPayload.read(streamResp.body()), REFERER, new HashMap<>());
+    }
+
+    /**
+     * Extract __REQUEST_TOKEN__ from HTML
+     * Matches Python: window.__REQUEST_TOKEN__ = "([^"]+)"
+     */
+    private String extractRequestToken(String html) {
+        Matcher matcher = REQUEST_TOKEN_PATTERN.matcher(html);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
@@ -0,0 +1,55 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import java.io.IOException;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * ProviderHeaders - The Referer/Origin a provider's API expects, applied as an interceptor
+ *
+ * Each provider declares its headers once and gets a GenericApi through
+ * {@link FetchStreams#getApi(String, ProviderHeaders)}; headers passed explicitly at a
+ * call site still win. The User-Agent defaults to {@link FetchStreams#getUserAgent()}.
+ */
+final class ProviderHeaders implements Interceptor {
+
+    static final ProviderHeaders NONE = new ProviderHeaders(null, null);
+
+    private final String referer;
+    private final String origin;
+
+    ProviderHeaders(String referer, String origin) {
+        this.referer = referer;
+        this.origin = origin;
+    }
+
+    String getReferer() {
+        return referer;
+    }
+
+    /**
+     * Identity used to share one GenericApi between providers with the same headers
+     */
+    String key() {
+        return referer + "|" + origin;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        Request.Builder builder = request.newBuilder();
+
+        if (request.header("User-Agent") == null) {
+            builder.header("User-Agent", FetchStreams.getUserAgent());
+        }
+        if (referer != null && request.header("Referer") == null) {
+            builder.header("Referer", referer);
+        }
+        if (origin != null && request.header("Origin") == null) {
+            builder.header("Origin", origin);
+        }
+        return chain.proceed(builder.build());
+    }
+}
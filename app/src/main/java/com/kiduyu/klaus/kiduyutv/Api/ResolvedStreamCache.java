@@ -0,0 +1,396 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * ResolvedStreamCache - Resolved sources and subtitles per (title, episode, provider)
+ *
+ * Entries live in memory and as small JSON files under cacheDir/resolved_streams so
+ * a replay, even after a restart, skips the fetch/encrypt/decrypt chain. Each entry
+ * expires at the earliest signed-URL expiry found in its sources (less a safety
+ * margin), or after DEFAULT_TTL_MS when the URLs carry no expiry.
+ * A source the player rejects with 403/410 drops its whole entry via invalidateUrl().
+ *
+ * Entries hold their own copies of the sources: callers get copies too, so a caller
+ * that swaps in a refreshed URL does not rewrite the cached result. Expired files
+ * are swept on a background thread when the cache is first used and after every
+ * SWEEP_INTERVAL writes, which also trims the directory to MAX_DISK_ENTRIES files.
+ */
+public class ResolvedStreamCache {
+    private static final String TAG = "ResolvedStreamCache";
+
+    public static final String CACHE_DIR = "resolved_streams";
+
+    private static final long DEFAULT_TTL_MS = 30 * 60 * 1000L;
+    private static final long MAX_TTL_MS = 6 * 60 * 60 * 1000L;
+    private static final long EXPIRY_MARGIN_MS = 2 * 60 * 1000L;
+    private static final int MAX_MEMORY_ENTRIES = 64;
+    private static final int MAX_DISK_ENTRIES = 256;
+    private static final int SWEEP_INTERVAL = 64;
+
+    // Query parameters that carry an absolute expiry (epoch seconds or millis)
+    private static final String[] EXPIRY_PARAMS = {
+            "expires", "Expires", "expire", "expiry", "exp", "e", "valid_until", "deadline"
+    };
+
+    private static volatile ResolvedStreamCache instance;
+
+    private final File cacheDir;
+    private final Gson gson = new Gson();
+    // Source URL -> cache key, so the player can invalidate by URL alone
+    private final Map<String, String> keysByUrl = new HashMap<>();
+    // Cache key -> its indexed URLs, so an evicted entry leaves nothing behind in keysByUrl
+    private final Map<String, List<String>> urlsByKey = new HashMap<>();
+    private final Map<String, CachedStreams> memory =
+            new LinkedHashMap<String, CachedStreams>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedStreams> eldest) {
+                    if (size() <= MAX_MEMORY_ENTRIES) {
+                        return false;
+                    }
+                    // The file stays on disk for a later get()
+                    unindexUrls(eldest.getKey());
+                    return true;
+                }
+            };
+    private int writesSinceSweep;
+
+    /**
+     * On-disk form of one entry
+     */
+    private static class CachedStreams {
+        long expiresAt;
+        List<MediaItems.VideoSource> sources;
+        List<MediaItems.SubtitleItem> subtitles;
+    }
+
+    private ResolvedStreamCache(Context context) {
+        this.cacheDir = new File(context.getApplicationContext().getCacheDir(), CACHE_DIR);
+        scheduleSweep();
+    }
+
+    public static ResolvedStreamCache getInstance(Context context) {
+        if (instance == null) {
+            synchronized (ResolvedStreamCache.class) {
+                if (instance == null) {
+                    instance = new ResolvedStreamCache(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Cached result for a provider, or null when missing or expired.
+     * May read from disk, so call it off the main thread.
+     */
+    public synchronized MediaItems get(StreamRequest request, String provider) {
+        String key = keyFor(request, provider);
+        CachedStreams cached = memory.get(key);
+        if (cached == null) {
+            cached = readFromDisk(key);
+            if (cached != null) {
+                memory.put(key, cached);
+                indexUrls(key, cached);
+            }
+        }
+        if (cached == null) {
+            return null;
+        }
+        if (cached.expiresAt <= System.currentTimeMillis()) {
+            Log.i(TAG, "Expired: " + key);
+            remove(key);
+            return null;
+        }
+
+        MediaItems item = new MediaItems();
+        item.setVideoSources(copyOf(cached.sources));
+        item.setSubtitles(new ArrayList<>(cached.subtitles));
+        Log.i(TAG, "Hit: " + key + " (" + cached.sources.size() + " sources, "
+                + (cached.expiresAt - System.currentTimeMillis()) / 1000 + "s left)");
+        return item;
+    }
+
+    /**
+     * Store a provider's result. Results without playable sources are not cached.
+     */
+    public synchronized void put(StreamRequest request, String provider, MediaItems item) {
+        if (item == null || item.getVideoSources() == null || item.getVideoSources().isEmpty()) {
+            return;
+        }
+
+        String key = keyFor(request, provider);
+        CachedStreams cached = new CachedStreams();
+        cached.sources = copyOf(item.getVideoSources());
+        cached.subtitles = item.getSubtitles() != null
+                ? new ArrayList<>(item.getSubtitles()) : new ArrayList<>();
+        cached.expiresAt = computeExpiry(cached.sources);
+
+        memory.put(key, cached);
+        indexUrls(key, cached);
+        writeToDisk(key, cached);
+        Log.i(TAG, "Stored: " + key + " until " + cached.expiresAt);
+    }
+
+    /**
+     * Drop the entry that produced this source URL, e.g. after a 403/410
+     */
+    public synchronized void invalidateUrl(String url) {
+        String key = url != null ? keysByUrl.get(url) : null;
+        if (key != null) {
+            Log.i(TAG, "Invalidated: " + key);
+            remove(key);
+        }
+    }
+
+    /**
+     * Drop every entry, in memory and on disk
+     */
+    public synchronized void clear() {
+        memory.clear();
+        keysByUrl.clear();
+        urlsByKey.clear();
+        File[] files = cacheDir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        memory.remove(key);
+        unindexUrls(key);
+        new File(cacheDir, key + ".json").delete();
+    }
+
+    private void indexUrls(String key, CachedStreams cached) {
+        unindexUrls(key);
+        List<String> urls = new ArrayList<>();
+        for (MediaItems.VideoSource source : cached.sources) {
+            if (source.getUrl() != null) {
+                keysByUrl.put(source.getUrl(), key);
+                urls.add(source.getUrl());
+            }
+        }
+        urlsByKey.put(key, urls);
+    }
+
+    private void unindexUrls(String key) {
+        List<String> urls = urlsByKey.remove(key);
+        if (urls != null) {
+            for (String url : urls) {
+                // Another entry may have indexed the same URL since
+                keysByUrl.remove(url, key);
+            }
+        }
+    }
+
+    private static List<MediaItems.VideoSource> copyOf(List<MediaItems.VideoSource> sources) {
+        List<MediaItems.VideoSource> copies = new ArrayList<>(sources.size());
+        for (MediaItems.VideoSource source : sources) {
+            copies.add(new MediaItems.VideoSource(source));
+        }
+        return copies;
+    }
+
+    private static String keyFor(StreamRequest request, String provider) {
+        String id = request.getTmdbId() != null ? request.getTmdbId() : "kk" + request.getKisskhId();
+        String key = provider + "_" + id;
+        if (request.isEpisode()) {
+            key += "_s" + request.getSeason() + "e" + request.getEpisode();
+        }
+        return key.replaceAll("[^A-Za-z0-9_-]", "_");
+    }
+
+    private CachedStreams readFromDisk(String key) {
+        File file = new File(cacheDir, key + ".json");
+        if (!file.exists()) {
+            return null;
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            CachedStreams cached = gson.fromJson(reader, CachedStreams.class);
+            if (cached == null || cached.sources == null) {
+                return null;
+            }
+            if (cached.subtitles == null) {
+                cached.subtitles = new ArrayList<>();
+            }
+            return cached;
+        } catch (Exception e) {
+            Log.w(TAG, "Unreadable cache entry " + key + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, CachedStreams cached) {
+        if (!cacheDir.exists() && !cacheDir.mkdirs()) {
+            return;
+        }
+        File file = new File(cacheDir, key + ".json");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            gson.toJson(cached, writer);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to write cache entry " + key + ": " + e.getMessage());
+        }
+        if (++writesSinceSweep >= SWEEP_INTERVAL) {
+            scheduleSweep();
+        }
+    }
+
+    // ===================== SWEEP =====================
+
+    private void scheduleSweep() {
+        writesSinceSweep = 0;
+        StreamExecutor.background().execute(this::sweep);
+    }
+
+    /**
+     * Delete expired files, then the least recently written ones beyond MAX_DISK_ENTRIES
+     */
+    private void sweep() {
+        File[] files = cacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<File> kept = new ArrayList<>();
+        int deleted = 0;
+        for (File file : files) {
+            String name = file.getName();
+            String key = name.endsWith(".json") ? name.substring(0, name.length() - 5) : null;
+            synchronized (this) {
+                CachedStreams cached = key != null ? memory.get(key) : null;
+                if (cached == null && key != null) {
+                    cached = readFromDisk(key);
+                }
+                if (cached == null || cached.expiresAt <= now) {
+                    if (key != null) {
+                        remove(key);
+                    }
+                    file.delete();
+                    deleted++;
+                } else {
+                    kept.add(file);
+                }
+            }
+        }
+
+        if (kept.size() > MAX_DISK_ENTRIES) {
+            kept.sort((a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (File file : kept.subList(0, kept.size() - MAX_DISK_ENTRIES)) {
+                synchronized (this) {
+                    // Still served from memory; dropping it there too keeps the two in step
+                    remove(file.getName().substring(0, file.getName().length() - 5));
+                }
+                deleted++;
+            }
+        }
+        if (deleted > 0) {
+            Log.i(TAG, "Swept " + deleted + " cache files");
+        }
+    }
+
+    // ===================== EXPIRY =====================
+
+    /**
+     * Earliest signed-URL expiry across the sources, minus a margin, capped at MAX_TTL_MS
+     */
+    static long computeExpiry(List<MediaItems.VideoSource> sources) {
+        long now = System.currentTimeMillis();
+        long expiry = now + DEFAULT_TTL_MS;
+        boolean signed = false;
+
+        for (MediaItems.VideoSource source : sources) {
+            long urlExpiry = parseUrlExpiry(source.getUrl());
+            if (urlExpiry > 0 && (!signed || urlExpiry < expiry)) {
+                expiry = urlExpiry;
+                signed = true;
+            }
+        }
+
+        if (signed) {
+            expiry -= EXPIRY_MARGIN_MS;
+        }
+        return Math.min(expiry, now + MAX_TTL_MS);
+    }
+
+    /**
+     * Absolute expiry in millis from a signed URL, or 0 when it carries none
+     */
+    static long parseUrlExpiry(String url) {
+        if (url == null) {
+            return 0;
+        }
+        try {
+            Uri uri = Uri.parse(url);
+
+            // AWS SigV4: X-Amz-Date (yyyyMMdd'T'HHmmss'Z') + X-Amz-Expires (seconds)
+            String amzDate = uri.getQueryParameter("X-Amz-Date");
+            String amzExpires = uri.getQueryParameter("X-Amz-Expires");
+            if (amzDate != null && amzExpires != null) {
+                SimpleDateFormat format = new SimpleDateFormat("yyyyMMdd'T'HHmmss'Z'", Locale.US);
+                format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                return format.parse(amzDate).getTime() + Long.parseLong(amzExpires) * 1000L;
+            }
+
+            // Akamai token: hdnts=st=...~exp=...~hmac=...
+            String hdnts = uri.getQueryParameter("hdnts");
+            if (hdnts != null) {
+                for (String part : hdnts.split("~")) {
+                    if (part.startsWith("exp=")) {
+                        return toMillis(part.substring(4));
+                    }
+                }
+            }
+
+            for (String param : EXPIRY_PARAMS) {
+                String value = uri.getQueryParameter(param);
+                if (value != null) {
+                    long millis = toMillis(value);
+                    if (millis > 0) {
+                        return millis;
+                    }
+                }
+            }
+        } catch (ParseException | RuntimeException e) {
+            Log.w(TAG, "Could not parse expiry from " + url);
+        }
+        return 0;
+    }
+
+    /**
+     * Epoch seconds or millis to millis; anything else is ignored
+     */
+    private static long toMillis(String value) {
+        if (!value.matches("\\d{9,13}")) {
+            return 0;
+        }
+        long number = Long.parseLong(value);
+        return value.length() >= 12 ? number : number * 1000L;
+    }
+}
@@ -0,0 +1,229 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.util.Log;
+
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * SmashystreamProvider - Smashystream/Vidstack players
+ *
+ * Type "1" is the videosmashyi player keyed by IMDB id, type "2" the
+ * videofsh (movies) / videoophim (TV) players keyed by TMDB id.
+ */
+class SmashystreamProvider implements StreamProvider {
+    private static final String TAG = "SmashystreamProvider";
+    private static final String REFERER = "https://smashystream.top/";
+    private static final ProviderHeaders HEADERS = new ProviderHeaders(REFERER, null);
+
+    private final FetchStreams streams;
+    private final String serverType;
+
+    SmashystreamProvider(FetchStreams streams, String serverType) {
+        this.streams = streams;
+        this.serverType = serverType;
+    }
+
+    @Override
+    public String getName() {
+        return "smashystream" + serverType;
+    }
+
+    @Override
+    public boolean supports(StreamRequest request) {
+        return "1".equals(serverType) ? request.getImdbId() != null : request.getTmdbId() != null;
+    }
+
+    @Override
+    public MediaItems resolve(StreamRequest request) throws Exception {
+        Response<FetchStreams.EncryptResponse> tokenResp = streams.encDecApi.encryptVidstack().execute();
+        if (!tokenResp.isSuccessful() || tokenResp.body() == null) {
+            throw new IOException("Failed to get token");
+        }
+        FetchStreams.EncryptResponse.EncryptResult tokenData = tokenResp.body().result;
+        String auth = "?token=" + tokenData.token + "&user_id=" + tokenData.user_id;
+
+        if ("1".equals(serverType)) {
+            // URL format: /api/v1/videosmashyi/{imdbId}[/{tmdbId}/{season}/{episode}]
+            String url = apiUrl() + "videosmashyi/" + request.getImdbId();
+            if (request.isEpisode()) {
+                url += "/" + request.getTmdbId() + "/" + request.getSeason() + "/" + request.getEpisode();
+            }
+            return fetchType1(url + auth);
+        }
+
+        // URL format: /api/v1/{server}/{tmdbId}[/{season}/{episode}]
+        if (request.isEpisode()) {
+            return fetchType2(apiUrl() + "videoophim/" + request.getTmdbId() + "/" +
+                    request.getSeason() + "/" + request.getEpisode() + auth);
+        }
+        return fetchType2(apiUrl() + "videofsh/" + request.getTmdbId() + auth);
+    }
+
+    private static String apiUrl() {
+        return FetchStreams.SMASHYSTREAM_API_BASE + "/api/v1/";
+    }
+
+    /**
+     * Type 1: player data points at a host + id whose payload is decrypted by dec-vidstack
+     */
+    private MediaItems fetchType1(String url) throws Exception {
+        FetchStreams.GenericApi api = streams.getApi(FetchStreams.SMASHYSTREAM_API_BASE, HEADERS);
+        Log.i(TAG, "Fetching Type 1 stream: " + url);
+
+        Response<ResponseBody> response = api.get(url).execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("Failed to fetch player data");
+        }
+
+        JSONObject json = new JSONObject(response.body().string());
+        String[] parts = json.getString("data").split("/#");
+        String host = parts[0];
+        String id = parts[1];
+
+        String streamUrl = host + "/api/v1/video?id=" + id;
+        Response<ResponseBody> streamResp = api.get(streamUrl).execute();
+        if (!streamResp.isSuccessful() || streamResp.body() == null) {
+            throw new IOException("Failed to fetch stream");
+        }
+
+        String encrypted = streamResp.body().string();
+        Response<FetchStreams.DecryptResponse> decResp = streams.encDecApi.decryptVidstack(
+                new FetchStreams.VidstackDecryptRequest(encrypted, "1")).execute();
+        if (!decResp.isSuccessful() || decResp.body() == null) {
+            throw new IOException("Failed to decrypt");
+        }
+
+        Map<String, String> responseHeaders = streams.extractHeaders(response);
+        FetchStreams.logHeaders("fetchSmashystreamType1", responseHeaders);
+
+        return streams.parseStreamData(decResp.body().result, streamUrl, responseHeaders);
+    }
+
+    /**
+     * Type 2: first source file is decrypted into a "[Label] url, ..." list
+     */
+    private MediaItems fetchType2(String url) throws Exception {
+        FetchStreams.GenericApi api = streams.getApi(FetchStreams.SMASHYSTREAM_API_BASE, HEADERS);
+        Log.i(TAG, "Fetching Type 2 stream: " + url);
+
+        Response<ResponseBody> response = api.get(url).execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IOException("Failed to fetch player data");
+        }
+
+        JSONObject json = new JSONObject(response.body().string());
+        JSONObject data = json.getJSONObject("data");
+        String file = data.getJSONArray("sources").getJSONObject(0).getString("file");
+
+        // ✅ Use DecryptResponseType2 for type "2"
+        Response<FetchStreams.DecryptResponseType2> decResp = streams.encDecApi.decryptVidstackType2(
+                new FetchStreams.VidstackDecryptRequest(file, "2")).execute();
+        if (!decResp.isSuccessful() || decResp.body() == null) {
+            throw new IOException("Failed to decrypt");
+        }
+
+        // ✅ Result is a string, parse it using listParser logic
+        String resultString = decResp.body().result;
+        FetchStreams.logHeaders("fetchSmashystreamType2", streams.extractHeaders(decResp));
+
+        MediaItems mediaItem = parseListResult(resultString, url);
+
+        // Handle subtitles
+        String subtitles = data.optString("tracks", "");
+        if (!subtitles.isEmpty()) {
+            List<MediaItems.SubtitleItem> parsedSubs = parseListSubtitles(subtitles);
+            mediaItem.getSubtitles().addAll(parsedSubs);
+            Log.i(TAG, "Added " + parsedSubs.size() + " subtitles");
+        }
+
+        return mediaItem;
+    }
+
+    /**
+     * Parse format: "[Label] url, [Label2] url2" or "url1, url2" (Python listParser)
+     */
+    private MediaItems parseListResult(String text, String refererUrl) {
+        MediaItems item = new MediaItems();
+        List<MediaItems.VideoSource> sources = new ArrayList<>();
+
+        String cleaned = text.trim().replaceAll("\\s+or\\s+", ",");
+        String[] items = cleaned.split(",");
+
+        for (String s : items) {
+            s = s.trim();
+            if (s.isEmpty()) continue;
+
+            String quality = "auto";
+            String url = s;
+
+            // Check if format is "[Quality] url"
+            if (s.startsWith("[") && s.contains("]")) {
+                int closeBracket = s.indexOf(']');
+                quality = s.substring(1, closeBracket).trim();
+                url = s.substring(closeBracket + 1).trim();
+            }
+
+            if (!url.isEmpty()) {
+                sources.add(new MediaItems.VideoSource(quality, url));
+            }
+        }
+
+        item.setVideoSources(sources);
+        item.setRefererUrl(refererUrl);
+
+        return item;
+    }
+
+    /**
+     * Parse subtitle list from vidstack format
+     * Format: "[Label] url, [Label2] url2" or "url1, url2"
+     */
+    private List<MediaItems.SubtitleItem> parseListSubtitles(String subtitlesText) {
+        List<MediaItems.SubtitleItem> subtitles = new ArrayList<>();
+
+        if (subtitlesText == null || subtitlesText.trim().isEmpty()) {
+            return subtitles;
+        }
+
+        try {
+            // Remove 'or' separators and split by comma
+            String cleaned = subtitlesText.trim().replaceAll("\\s+or\\s+", ",");
+            String[] items = cleaned.split(",");
+
+            for (String item : items) {
+                item = item.trim();
+                if (item.isEmpty()) continue;
+
+                String label = "Unknown";
+                String url = item;
+
+                // Check if format is "[Label] url"
+                if (item.startsWith("[") && item.contains("]")) {
+                    int closeBracket = item.indexOf(']');
+                    label = item.substring(1, closeBracket).trim();
+                    url = item.substring(closeBracket + 1).trim();
+                }
+
+                // Only add if URL is not empty
+                if (!url.isEmpty()) {
+                    subtitles.add(new MediaItems.SubtitleItem(url, label, label));
+                    Log.i(TAG, "Parsed subtitle: " + label + " -> " + url);
+                }
+            }
+        } catch (Exception e) {
+            Log.e(TAG, "Error parsing subtitles: " + subtitlesText, e);
+        }
+
+        return subtitles;
+    }
+}
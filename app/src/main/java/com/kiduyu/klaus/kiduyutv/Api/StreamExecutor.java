@@ -0,0 +1,86 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.os.Process;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StreamExecutor - The app-wide pools for stream resolution work
+ *
+ * Bounded so a long session cannot pile up threads, named so the work shows up
+ * as "stream-N" in traces. Idle threads time out, so the pool costs nothing
+ * while nothing is being resolved.
+ *
+ * Work nobody is waiting on (prefetching, warming) goes to the smaller background
+ * pool instead, whose threads run at background priority. It queues there rather
+ * than occupying the interactive workers, and drops to one thread while a player
+ * is open (see {@link #setBackgroundThrottled}).
+ */
+public final class StreamExecutor {
+    private static final int POOL_SIZE = 6;
+    private static final int BACKGROUND_POOL_SIZE = 2;
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ThreadFactory threadFactory = runnable -> {
+        Thread thread = new Thread(runnable, "stream-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            POOL_SIZE, POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), threadFactory);
+
+    private static final AtomicInteger backgroundThreadCount = new AtomicInteger();
+
+    private static final ThreadFactory backgroundThreadFactory = runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "stream-background-" + backgroundThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    };
+
+    private static final ThreadPoolExecutor backgroundExecutor = new ThreadPoolExecutor(
+            BACKGROUND_POOL_SIZE, BACKGROUND_POOL_SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), backgroundThreadFactory);
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+        backgroundExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    private StreamExecutor() {
+    }
+
+    public static ExecutorService get() {
+        return executor;
+    }
+
+    public static ExecutorService background() {
+        return backgroundExecutor;
+    }
+
+    /**
+     * Run background work one task at a time (e.g. while a player is open)
+     */
+    static synchronized void setBackgroundThrottled(boolean throttled) {
+        int size = throttled ? 1 : BACKGROUND_POOL_SIZE;
+        // Core size may never exceed the maximum, so order the two updates accordingly
+        if (size < backgroundExecutor.getMaximumPoolSize()) {
+            backgroundExecutor.setCorePoolSize(size);
+            backgroundExecutor.setMaximumPoolSize(size);
+        } else {
+            backgroundExecutor.setMaximumPoolSize(size);
+            backgroundExecutor.setCorePoolSize(size);
+        }
+    }
+}
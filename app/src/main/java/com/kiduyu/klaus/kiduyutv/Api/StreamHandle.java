@@ -0,0 +1,163 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.util.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+
+/**
+ * StreamHandle - Cancels the OkHttp calls made on behalf of one piece of stream work
+ *
+ * Work running on {@link StreamExecutor} binds its handle to the worker thread;
+ * the interceptor installed on FetchStreams' client then records every call that
+ * thread makes. cancel() aborts the in-flight calls, fails any later ones
+ * immediately and cascades to child handles. A child detaches from its parent when
+ * its work is done, so a long-lived handle does not collect finished children; it
+ * still counts as cancelled once the parent is. Work under a background handle (and
+ * its children) runs on StreamExecutor's background pool, so work nobody is waiting
+ * for gives way while a player is open.
+ *
+ * Usage:
+ *   StreamHandle handle = fetchStreams.fetchHexaTV(tmdbId, season, episode, callback);
+ *   ...
+ *   handle.cancel(); // e.g. in onDestroy()
+ */
+public class StreamHandle {
+    private static final String TAG = "StreamHandle";
+
+    private static final ThreadLocal<StreamHandle> current = new ThreadLocal<>();
+
+    private final List<Call> calls = new ArrayList<>();
+    private final List<StreamHandle> children = new ArrayList<>();
+    private final StreamHandle parent;
+    private final boolean background;
+    private boolean cancelled;
+
+    public StreamHandle() {
+        this(false);
+    }
+
+    /**
+     * @param background whether the calls are background traffic (e.g. prefetching)
+     */
+    public StreamHandle(boolean background) {
+        this(null, background);
+    }
+
+    private StreamHandle(StreamHandle parent, boolean background) {
+        this.parent = parent;
+        this.background = background;
+    }
+
+    /**
+     * A handle that is cancelled together with this one
+     */
+    public StreamHandle newChild() {
+        StreamHandle child = new StreamHandle(this, background);
+        synchronized (this) {
+            if (!cancelled) {
+                children.add(child);
+                return child;
+            }
+        }
+        child.cancel();
+        return child;
+    }
+
+    public boolean isBackground() {
+        return background;
+    }
+
+    public boolean isCancelled() {
+        synchronized (this) {
+            if (cancelled) {
+                return true;
+            }
+        }
+        return parent != null && parent.isCancelled();
+    }
+
+    /**
+     * The child's work is done; stop tracking it in the parent
+     */
+    void detach() {
+        if (parent != null) {
+            synchronized (parent) {
+                parent.children.remove(this);
+            }
+        }
+    }
+
+    public void cancel() {
+        List<Call> pendingCalls;
+        List<StreamHandle> pendingChildren;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            pendingCalls = new ArrayList<>(calls);
+            pendingChildren = new ArrayList<>(children);
+            calls.clear();
+            children.clear();
+        }
+        for (Call call : pendingCalls) {
+            call.cancel();
+        }
+        for (StreamHandle child : pendingChildren) {
+            child.cancel();
+        }
+        if (!pendingCalls.isEmpty()) {
+            Log.i(TAG, "Cancelled " + pendingCalls.size() + " in-flight calls");
+        }
+    }
+
+    /**
+     * Run work with this handle bound to the current thread
+     */
+    void runBound(Runnable work) {
+        StreamHandle previous = current.get();
+        current.set(this);
+        try {
+            work.run();
+        } finally {
+            current.set(previous);
+        }
+    }
+
+    private boolean track(Call call) {
+        if (parent != null && parent.isCancelled()) {
+            return false;
+        }
+        synchronized (this) {
+            if (cancelled) {
+                return false;
+            }
+            calls.add(call);
+            return true;
+        }
+    }
+
+    /**
+     * Ties calls made on a bound worker thread to that thread's handle
+     */
+    static Interceptor interceptor() {
+        return chain -> {
+            StreamHandle handle = current.get();
+            if (handle == null) {
+                return chain.proceed(chain.request());
+            }
+            Call call = chain.call();
+            if (!handle.track(call)) {
+                call.cancel();
+                throw new IOException("Canceled");
+            }
+            // Stays tracked until the handle goes away: the body is read after proceed() returns
+            return chain.proceed(chain.request());
+        };
+    }
+}
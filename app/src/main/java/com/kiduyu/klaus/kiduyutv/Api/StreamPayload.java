@@ -0,0 +1,76 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonReader;
+
+import java.io.IOException;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+
+/**
+ * StreamPayload - Typed form of the stream JSON returned by providers and enc-dec.app
+ *
+ * Covers the three layouts parseStreamData understands:
+ *   Hexa      - sources[] carrying a server name
+ *   Vidlink   - a stream object with playlist, type and captions[]
+ *   Standard  - sources[] with quality, subtitles[] and optional root captions[]
+ *
+ * Decrypted payloads are bound straight from the enc-dec response through GSON;
+ * raw provider bodies are streamed through a JsonReader with read(), so neither
+ * path builds an intermediate String or org.json tree.
+ */
+class StreamPayload {
+
+    /** Shared by the enc-dec Retrofit converter and read() */
+    static final Gson GSON = new Gson();
+
+    String sourceId;
+    List<Source> sources;
+    List<Subtitle> subtitles;
+    List<Caption> captions;
+    Stream stream;
+
+    static class Source {
+        String url;
+        String quality;
+        String server;
+    }
+
+    static class Subtitle {
+        String url;
+        String lang;
+        String language;
+    }
+
+    static class Caption {
+        String url;
+        String id;
+        String language;
+    }
+
+    static class Stream {
+        String playlist;
+        String type;
+        List<Caption> captions;
+    }
+
+    /**
+     * Decode a response body without buffering it into a String
+     */
+    static StreamPayload read(ResponseBody body) throws IOException {
+        try (JsonReader reader = new JsonReader(body.charStream())) {
+            StreamPayload payload = GSON.fromJson(reader, StreamPayload.class);
+            if (payload == null) {
+                throw new IOException("Empty stream payload");
+            }
+            return payload;
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed stream payload: " + e.getMessage(), e);
+        }
+    }
+
+    boolean isHexaLayout() {
+        return sources != null && !sources.isEmpty() && sources.get(0) != null && sources.get(0).server != null;
+    }
+}
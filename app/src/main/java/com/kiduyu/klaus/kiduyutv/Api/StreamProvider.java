@@ -0,0 +1,28 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+/**
+ * StreamProvider - One stream source (Videasy, Vidlink, Hexa, ...)
+ *
+ * Implementations are blocking and stateless: {@link #resolve} runs on a worker
+ * thread and either returns the provider's sources or throws. Threading, timeouts
+ * and concurrency limits are handled by {@link StreamProviderRegistry}.
+ */
+public interface StreamProvider {
+
+    /**
+     * Stable identifier used for settings and logging, e.g. "vidlink"
+     */
+    String getName();
+
+    /**
+     * Whether this provider can handle the given movie/episode coordinates
+     */
+    boolean supports(StreamRequest request);
+
+    /**
+     * Fetch, decrypt and parse the sources for a movie or episode
+     */
+    MediaItems resolve(StreamRequest request) throws Exception;
+}
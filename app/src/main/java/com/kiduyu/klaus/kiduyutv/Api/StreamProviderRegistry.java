@@ -0,0 +1,275 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * StreamProviderRegistry - Registered stream providers and how to run them
+ *
+ * Each provider has a priority (lower runs first), a backup flag (only started
+ * when the primaries lag, see {@link StreamResolver}), a concurrency limit and
+ * a timeout. Enable flags are persisted through PreferencesManager so a provider
+ * can be switched off without touching the callers.
+ *
+ * Usage:
+ *   StreamProviderRegistry registry = StreamProviderRegistry.getInstance(context);
+ *   for (StreamProviderRegistry.Entry entry : registry.getProviders(request)) {
+ *       registry.resolve(entry, request, handle, callback);
+ *   }
+ */
+public class StreamProviderRegistry {
+    private static final String TAG = "StreamProviderRegistry";
+
+    private static volatile StreamProviderRegistry instance;
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final PreferencesManager preferencesManager;
+    private final ResolvedStreamCache streamCache;
+
+    /**
+     * Per-provider scheduling settings
+     */
+    public static class ProviderConfig {
+        final int priority;
+        final int maxConcurrent;
+        final long timeoutMs;
+        final boolean backup;
+
+        public ProviderConfig(int priority, int maxConcurrent, long timeoutMs, boolean backup) {
+            this.priority = priority;
+            this.maxConcurrent = maxConcurrent;
+            this.timeoutMs = timeoutMs;
+            this.backup = backup;
+        }
+    }
+
+    /**
+     * A registered provider with its settings and concurrency permits
+     */
+    public static class Entry {
+        private final StreamProvider provider;
+        private final ProviderConfig config;
+        private final Semaphore permits;
+
+        Entry(StreamProvider provider, ProviderConfig config) {
+            this.provider = provider;
+            this.config = config;
+            this.permits = new Semaphore(config.maxConcurrent, true);
+        }
+
+        public StreamProvider getProvider() {
+            return provider;
+        }
+
+        public String getName() {
+            return provider.getName();
+        }
+
+        public int getPriority() {
+            return config.priority;
+        }
+
+        public long getTimeoutMs() {
+            return config.timeoutMs;
+        }
+
+        public boolean isBackup() {
+            return config.backup;
+        }
+
+        /**
+         * False while a host this provider called has an open circuit breaker
+         */
+        public boolean isHealthy() {
+            return CircuitBreakers.isProviderHealthy(getName());
+        }
+    }
+
+    private StreamProviderRegistry(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.preferencesManager = PreferencesManager.getInstance(appContext);
+        this.streamCache = ResolvedStreamCache.getInstance(appContext);
+
+        FetchStreams streams = new FetchStreams(appContext);
+        register(new SmashystreamProvider(streams, "2"), new ProviderConfig(0, 2, 12000, false));
+        register(new VidlinkProvider(streams), new ProviderConfig(1, 2, 10000, false));
+        register(new VideasyProvider(streams), new ProviderConfig(2, 2, 12000, false));
+        register(new HexaProvider(streams), new ProviderConfig(3, 2, 10000, false));
+        register(new XprimeProvider(streams, "primebox"), new ProviderConfig(4, 1, 15000, true));
+        register(new MappleProvider(streams), new ProviderConfig(5, 1, 15000, true));
+        register(new KisskhProvider(streams), new ProviderConfig(6, 1, 15000, true));
+    }
+
+    public static StreamProviderRegistry getInstance(Context context) {
+        if (instance == null) {
+            synchronized (StreamProviderRegistry.class) {
+                if (instance == null) {
+                    instance = new StreamProviderRegistry(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Add a provider, replacing any registered under the same name
+     */
+    public void register(StreamProvider provider, ProviderConfig config) {
+        for (Entry entry : entries) {
+            if (entry.getName().equals(provider.getName())) {
+                entries.remove(entry);
+            }
+        }
+        entries.add(new Entry(provider, config));
+        Log.i(TAG, "Registered provider: " + provider.getName() + " (priority " + config.priority + ")");
+    }
+
+    /**
+     * Enabled providers that can handle the request: healthy ones first, each group in
+     * priority order
+     */
+    public List<Entry> getProviders(StreamRequest request) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry entry : entries) {
+            if (isEnabled(entry.getName()) && entry.provider.supports(request)) {
+                result.add(entry);
+            }
+        }
+        Collections.sort(result, (a, b) -> a.isHealthy() != b.isHealthy()
+                ? (a.isHealthy() ? -1 : 1)
+                : Integer.compare(a.getPriority(), b.getPriority()));
+        return result;
+    }
+
+    /**
+     * All registered providers in priority order, enabled or not
+     */
+    public List<Entry> getAllProviders() {
+        List<Entry> result = new ArrayList<>(entries);
+        Collections.sort(result, (a, b) -> Integer.compare(a.getPriority(), b.getPriority()));
+        return result;
+    }
+
+    public boolean isEnabled(String name) {
+        return preferencesManager.isStreamProviderEnabled(name);
+    }
+
+    public void setEnabled(String name, boolean enabled) {
+        preferencesManager.setStreamProviderEnabled(name, enabled);
+    }
+
+    /**
+     * Run one provider on a worker thread, respecting its concurrency limit and timeout.
+     * A fresh ResolvedStreamCache entry is returned without running the provider.
+     * Cancelling the handle (or the timeout) aborts the provider's in-flight calls.
+     * The callback is invoked at most once on the main thread, and not at all once
+     * the handle is cancelled.
+     */
+    public void resolve(Entry entry, StreamRequest request, StreamHandle handle,
+                        FetchStreams.StreamCallback callback) {
+        AtomicBoolean delivered = new AtomicBoolean(false);
+        StreamHandle run = handle.newChild();
+
+        Runnable timeoutTask = () -> {
+            if (delivered.compareAndSet(false, true)) {
+                Log.w(TAG, entry.getName() + " timed out after " + entry.getTimeoutMs() + "ms");
+                run.cancel();
+                if (!handle.isCancelled()) {
+                    callback.onError(entry.getName() + " timed out");
+                }
+            }
+        };
+        mainHandler.postDelayed(timeoutTask, entry.getTimeoutMs());
+        long deadline = SystemClock.elapsedRealtime() + entry.getTimeoutMs();
+
+        // Background work queues on its own pool instead of holding interactive workers
+        ExecutorService executor = handle.isBackground() ? StreamExecutor.background() : StreamExecutor.get();
+        executor.execute(() -> CircuitBreakers.runAs(entry.getName(), () -> run.runBound(() -> {
+            try {
+                MediaItems cached = streamCache.get(request, entry.getName());
+                if (cached != null) {
+                    mainHandler.post(() -> {
+                        if (delivered.compareAndSet(false, true)) {
+                            mainHandler.removeCallbacks(timeoutTask);
+                            if (!run.isCancelled()) {
+                                callback.onSuccess(cached);
+                            }
+                        }
+                    });
+                    return;
+                }
+
+                // Wait no longer than the provider has left; the timeout task reports the error
+                long remainingMs = deadline - SystemClock.elapsedRealtime();
+                if (remainingMs <= 0 || !entry.permits.tryAcquire(remainingMs, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+                try {
+                    if (delivered.get() || run.isCancelled()) {
+                        return; // timed out or cancelled while waiting for a permit
+                    }
+                    MediaItems result = entry.provider.resolve(request);
+                    tagProvider(result, entry.getName());
+                    streamCache.put(request, entry.getName(), result);
+                    mainHandler.post(() -> {
+                        if (delivered.compareAndSet(false, true)) {
+                            mainHandler.removeCallbacks(timeoutTask);
+                            if (!run.isCancelled()) {
+                                callback.onSuccess(result);
+                            }
+                        }
+                    });
+                } finally {
+                    entry.permits.release();
+                }
+            } catch (Exception e) {
+                if (run.isCancelled()) {
+                    Log.i(TAG, entry.getName() + " cancelled");
+                    return;
+                }
+                Log.e(TAG, entry.getName() + " error", e);
+                String message = e.getMessage();
+                mainHandler.post(() -> {
+                    if (delivered.compareAndSet(false, true)) {
+                        mainHandler.removeCallbacks(timeoutTask);
+                        if (!run.isCancelled()) {
+                            callback.onError(message);
+                        }
+                    }
+                });
+            } finally {
+                run.detach(); // still sees the handle's cancellation through its parent
+            }
+        })));
+    }
+
+    /**
+     * Record which provider resolved each source, for playback stats
+     */
+    private static void tagProvider(MediaItems result, String provider) {
+        if (result == null || result.getVideoSources() == null) {
+            return;
+        }
+        for (MediaItems.VideoSource source : result.getVideoSources()) {
+            if (source.getProvider() == null) {
+                source.setProvider(provider);
+            }
+        }
+    }
+}
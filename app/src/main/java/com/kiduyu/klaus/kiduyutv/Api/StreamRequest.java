@@ -0,0 +1,80 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+/**
+ * StreamRequest - Movie or episode coordinates handed to the stream providers
+ */
+public class StreamRequest {
+    private final String title;
+    private final String year;
+    private final String tmdbId;
+    private final String imdbId;
+    private final String season;
+    private final String episode;
+    private String kisskhId;
+
+    private StreamRequest(String title, String year, String tmdbId, String imdbId,
+                          String season, String episode) {
+        this.title = title;
+        this.year = year;
+        this.tmdbId = tmdbId;
+        this.imdbId = imdbId;
+        this.season = season;
+        this.episode = episode;
+    }
+
+    public static StreamRequest movie(String title, String year, String tmdbId, String imdbId) {
+        return new StreamRequest(title, year, tmdbId, imdbId, null, null);
+    }
+
+    public static StreamRequest episode(String title, String year, String tmdbId, String imdbId,
+                                        String season, String episode) {
+        return new StreamRequest(title, year, tmdbId, imdbId, season, episode);
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getYear() {
+        return year;
+    }
+
+    public String getTmdbId() {
+        return tmdbId;
+    }
+
+    public String getImdbId() {
+        return imdbId;
+    }
+
+    public String getSeason() {
+        return season;
+    }
+
+    public String getEpisode() {
+        return episode;
+    }
+
+    public boolean isEpisode() {
+        return season != null && episode != null;
+    }
+
+    /**
+     * KissKH uses its own episode ids, so it only runs when the caller knows one
+     */
+    public String getKisskhId() {
+        return kisskhId;
+    }
+
+    public StreamRequest setKisskhId(String kisskhId) {
+        this.kisskhId = kisskhId;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return isEpisode()
+                ? title + " [" + tmdbId + "] S" + season + "E" + episode
+                : title + " (" + year + ") [" + tmdbId + "]";
+    }
+}
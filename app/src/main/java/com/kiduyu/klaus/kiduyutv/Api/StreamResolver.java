@@ -0,0 +1,334 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+import com.kiduyu.klaus.kiduyutv.utils.utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * StreamResolver - Races all stream providers in parallel under a global deadline
+ *
+ * Providers come from {@link StreamProviderRegistry}. The primary providers start
+ * together. If none of them has produced a playable source within the hedge delay
+ * (or all of them failed) the backup providers are started as well. Primaries whose
+ * hosts have an open circuit breaker (see {@link CircuitBreakers}) wait with the
+ * backups. The first playable result is handed out immediately; sources
+ * that arrive later are appended to the same {@link Resolution} so a running
+ * player can pick them up as extra servers.
+ *
+ * All state is confined to the main thread: the registry posts its callbacks there.
+ */
+public class StreamResolver {
+    private static final String TAG = "StreamResolver";
+
+    public static final String EXTRA_RESOLUTION_ID = "resolution_id";
+
+    private static final long DEADLINE_MS = 20000;      // give up on stragglers after 20 seconds
+    private static final long HEDGE_DELAY_MS = 4000;    // start backup providers after 4 seconds
+    private static final int MAX_TRACKED_RESOLUTIONS = 4;
+
+    // Recent resolutions so the player can attach by id; main thread only
+    private static final Map<String, Resolution> resolutions =
+            new LinkedHashMap<String, Resolution>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Resolution> eldest) {
+                    return size() > MAX_TRACKED_RESOLUTIONS;
+                }
+            };
+
+    private final StreamProviderRegistry registry;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public interface ResolveCallback {
+        /** First playable sources are available; later ones go to {@link SourcesListener}s */
+        void onFirstSource(Resolution resolution, List<MediaItems.VideoSource> sources,
+                           List<MediaItems.SubtitleItem> subtitles);
+
+        void onProgress(int completed, int total);
+
+        /** Every provider answered or the deadline passed */
+        void onComplete(Resolution resolution);
+
+        void onError(String error);
+    }
+
+    public interface SourcesListener {
+        void onSourcesAdded(List<MediaItems.VideoSource> sources, List<MediaItems.SubtitleItem> subtitles);
+    }
+
+    public StreamResolver(Context context) {
+        this.registry = StreamProviderRegistry.getInstance(context);
+    }
+
+    /**
+     * Look up a running or recently finished resolution by id
+     */
+    public static Resolution getResolution(String id) {
+        return id != null ? resolutions.get(id) : null;
+    }
+
+    /**
+     * Start resolving a movie or episode. Must be called on the main thread.
+     */
+    public Resolution resolve(StreamRequest request, ResolveCallback callback) {
+        return resolve(request, callback, false);
+    }
+
+    /**
+     * Start resolving, with background set for work nobody is waiting on (its provider
+     * calls are throttled as ApiClient background traffic)
+     */
+    public Resolution resolve(StreamRequest request, ResolveCallback callback, boolean background) {
+        Resolution resolution = new Resolution(request, callback, background);
+        resolutions.put(resolution.id, resolution);
+        resolution.start(registry.getProviders(request));
+        return resolution;
+    }
+
+    /**
+     * Resolution - One in-flight (or finished) race for a single movie/episode
+     */
+    public class Resolution {
+        private final String id = UUID.randomUUID().toString();
+        private final StreamRequest request;
+        private ResolveCallback callback;   // dropped once finished so the caller can be collected
+        private final long startedAt = System.currentTimeMillis();
+
+        private final List<MediaItems.VideoSource> sources = new ArrayList<>();
+        private final List<MediaItems.SubtitleItem> subtitles = new ArrayList<>();
+        private final Set<String> sourceUrls = new HashSet<>();
+        private final Set<String> subtitleKeys = new HashSet<>();
+        private final List<SourcesListener> listeners = new ArrayList<>();
+        private final List<StreamProviderRegistry.Entry> backups = new ArrayList<>();
+        private final StreamHandle calls;
+
+        private int started;
+        private int completed;
+        private int primaryFailures;
+        private int primaryCount;
+        private boolean backupsStarted;
+        private boolean firstDelivered;
+        private boolean finished;
+
+        private final Runnable hedgeTask = this::startBackups;
+        private final Runnable deadlineTask = () -> {
+            Log.w(TAG, "Deadline reached for " + request + " with " + sources.size() + " sources");
+            finish();
+        };
+
+        private Resolution(StreamRequest request, ResolveCallback callback, boolean background) {
+            this.request = request;
+            this.callback = callback;
+            this.calls = new StreamHandle(background);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        public List<MediaItems.VideoSource> getSources() {
+            return new ArrayList<>(sources);
+        }
+
+        public List<MediaItems.SubtitleItem> getSubtitles() {
+            return new ArrayList<>(subtitles);
+        }
+
+        /**
+         * Register for sources merged after the first result. Everything collected so
+         * far is replayed immediately, so listeners should ignore URLs they already have.
+         */
+        public void addListener(SourcesListener listener) {
+            listeners.add(listener);
+            if (!sources.isEmpty()) {
+                listener.onSourcesAdded(getSources(), getSubtitles());
+            }
+        }
+
+        public void removeListener(SourcesListener listener) {
+            listeners.remove(listener);
+        }
+
+        /**
+         * Stop outstanding providers and abort their in-flight requests
+         */
+        public void cancel() {
+            listeners.clear();
+            calls.cancel();
+            if (!finished) {
+                finished = true;
+                mainHandler.removeCallbacks(hedgeTask);
+                mainHandler.removeCallbacks(deadlineTask);
+                resolutions.remove(id);
+                callback = null;
+            }
+        }
+
+        private void start(List<StreamProviderRegistry.Entry> providers) {
+            Log.i(TAG, "Resolving " + request + " across " + providers.size() + " providers");
+            if (providers.isEmpty()) {
+                // Callbacks never run before resolve() has returned the Resolution
+                mainHandler.post(this::finish);
+                return;
+            }
+
+            for (StreamProviderRegistry.Entry provider : providers) {
+                // A primary whose host is failing only runs if the others lag, like a backup
+                if (provider.isBackup() || !provider.isHealthy()) {
+                    backups.add(provider);
+                } else {
+                    primaryCount++;
+                    launch(provider);
+                }
+            }
+
+            if (primaryCount == 0) {
+                startBackups();
+            } else if (!backups.isEmpty()) {
+                mainHandler.postDelayed(hedgeTask, HEDGE_DELAY_MS);
+            }
+            mainHandler.postDelayed(deadlineTask, DEADLINE_MS);
+        }
+
+        private void startBackups() {
+            if (backupsStarted || finished || backups.isEmpty()) {
+                return;
+            }
+            backupsStarted = true;
+            mainHandler.removeCallbacks(hedgeTask);
+            Log.i(TAG, "Hedging with " + backups.size() + " backup providers");
+            for (StreamProviderRegistry.Entry provider : backups) {
+                launch(provider);
+            }
+        }
+
+        private void launch(StreamProviderRegistry.Entry provider) {
+            started++;
+            registry.resolve(provider, request, calls, new FetchStreams.StreamCallback() {
+                @Override
+                public void onSuccess(MediaItems item) {
+                    if (finished) {
+                        return;
+                    }
+                    long elapsed = System.currentTimeMillis() - startedAt;
+                    Log.i(TAG, provider.getName() + " answered in " + elapsed + "ms");
+                    boolean added = merge(item);
+                    if (!added && !backups.contains(provider)) {
+                        primaryFailures++;
+                    }
+                    onProviderDone();
+                }
+
+                @Override
+                public void onError(String error) {
+                    if (finished) {
+                        return;
+                    }
+                    Log.e(TAG, provider.getName() + " failed: " + error);
+                    if (!backups.contains(provider)) {
+                        primaryFailures++;
+                    }
+                    onProviderDone();
+                }
+            });
+        }
+
+        private void onProviderDone() {
+            completed++;
+            callback.onProgress(completed, primaryCount + backups.size());
+
+            // Every primary came back empty - no point waiting for the hedge delay
+            if (primaryFailures >= primaryCount) {
+                startBackups();
+            }
+
+            boolean backupsPending = !backupsStarted && !backups.isEmpty() && !firstDelivered;
+            if (completed >= started && !backupsPending) {
+                finish();
+            }
+        }
+
+        /**
+         * Append new playable sources and subtitles, returns true if any source was added
+         */
+        private boolean merge(MediaItems item) {
+            List<MediaItems.VideoSource> newSources = new ArrayList<>();
+            if (item.getVideoSources() != null) {
+                for (MediaItems.VideoSource source : utils.removeDuplicateSources(item.getVideoSources())) {
+                    String url = source.getUrl();
+                    if (url != null && url.startsWith("http") && sourceUrls.add(url)) {
+                        newSources.add(source);
+                    }
+                }
+            }
+
+            List<MediaItems.SubtitleItem> newSubtitles = new ArrayList<>();
+            if (item.getSubtitles() != null) {
+                for (MediaItems.SubtitleItem subtitle : utils.removeDuplicateSubtitles(item.getSubtitles())) {
+                    if (subtitleKeys.add(subtitle.getUrl() + "_" + subtitle.getLang())) {
+                        newSubtitles.add(subtitle);
+                    }
+                }
+            }
+
+            if (newSources.isEmpty() && newSubtitles.isEmpty()) {
+                return false;
+            }
+
+            // Existing indices never move so a playing source keeps its position
+            newSources = utils.moveVipSourceToTop(newSources);
+            sources.addAll(newSources);
+            subtitles.addAll(newSubtitles);
+
+            if (!firstDelivered) {
+                if (!sources.isEmpty()) {
+                    firstDelivered = true;
+                    Log.i(TAG, "First playable source after " + (System.currentTimeMillis() - startedAt) + "ms");
+                    callback.onFirstSource(this, getSources(), getSubtitles());
+                }
+            } else {
+                for (SourcesListener listener : new ArrayList<>(listeners)) {
+                    listener.onSourcesAdded(newSources, newSubtitles);
+                }
+            }
+            return !newSources.isEmpty();
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            mainHandler.removeCallbacks(hedgeTask);
+            mainHandler.removeCallbacks(deadlineTask);
+            calls.cancel(); // stragglers past the deadline would be ignored anyway
+
+            Log.i(TAG, "Resolution finished: " + sources.size() + " sources, " + subtitles.size()
+                    + " subtitles in " + (System.currentTimeMillis() - startedAt) + "ms");
+
+            ResolveCallback finishedCallback = callback;
+            callback = null;
+            if (sources.isEmpty()) {
+                resolutions.remove(id);
+                finishedCallback.onError("No streams found");
+            } else {
+                finishedCallback.onComplete(this);
+            }
+        }
+    }
+}
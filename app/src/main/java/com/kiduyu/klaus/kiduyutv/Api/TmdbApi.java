@@ -6,13 +6,10 @@ import android.util.Log;
 
 import com.kiduyu.klaus.kiduyutv.model.CompanyNetwork;
 import com.kiduyu.klaus.kiduyutv.model.MediaItems;
-import com.kiduyu.klaus.kiduyutv.utils.utils;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -33,52 +30,45 @@ public class TmdbApi {
     public enum ContentType {
         MOVIE, TV, ALL
     }
-    public static List<MediaItems> fetchMoviesFromTMDB(String urlString) throws IOException, JSONException {
+    public static List<MediaItems> fetchMoviesFromTMDB(TmdbClient client, String urlString) throws IOException, JSONException {
         List<MediaItems> movies = new ArrayList<>();
 
-        Connection.Response response = Jsoup.connect(urlString)
-                .header("accept", "application/json")
-                .header("Authorization", "Bearer " + BEARER_TOKEN)
-                .ignoreContentType(true)
-                .timeout(TIMEOUT_MS)
-                .method(Connection.Method.GET)
-                .execute();
+        JSONObject jsonResponse = client.getJson(urlString);
+        Log.i(TAG, "fetchMoviesFromTMDB: Success");
 
-        if (response.statusCode() == 200) {
-            Log.i(TAG, "fetchMoviesFromTMDB: Success");
+        JSONArray results = jsonResponse.getJSONArray("results");
 
-            JSONObject jsonResponse = new JSONObject(response.body());
-            JSONArray results = jsonResponse.getJSONArray("results");
+        for (int i = 0; i < results.length() && i < 20; i++) { // Limit to 20 items
+            JSONObject movieJson = results.getJSONObject(i);
+            //Log.i(TAG, "fetchMoviesFromTMDB: movieJson=" + movieJson);
 
-            for (int i = 0; i < results.length() && i < 20; i++) { // Limit to 20 items
-                JSONObject movieJson = results.getJSONObject(i);
-                //Log.i(TAG, "fetchMoviesFromTMDB: movieJson=" + movieJson);
+            // Get movie ID
+            int movieId = movieJson.optInt("id", -1);
 
-                // Get movie ID
-                int movieId = movieJson.optInt("id", -1);
-
-                if (movieId == -1) {
-                    Log.w(TAG, "Invalid movie id");
-                    continue;
-                }
-                JSONObject movieJsondetails =new TmdbRepository().getMovieDetails(String.valueOf(movieId));
-                Log.i(TAG, "fetchMoviesFromTMDB: movieJsondetails=" + movieJsondetails);
-
-                MediaItems movie = createMediaItemFromTMDB(movieJsondetails, TmdbApi.ContentType.MOVIE);
-                if (movie != null) {
-                    movies.add(movie);
-                }
+            if (movieId == -1) {
+                Log.w(TAG, "Invalid movie id");
+                continue;
             }
-        } else {
 
-            Log.e(TAG, "fetchMoviesFromTMDB: Failed with status " + response.statusCode());
-            throw new IOException("Failed to fetch data: " + response.statusCode());
+            // Genres come from genre_ids + the cached genre table, no per-item detail fetch
+            MediaItems movie = createMediaItemFromTMDB(movieJson, ContentType.MOVIE, client.getGenres());
+            if (movie != null) {
+                movies.add(movie);
+            }
         }
 
         return movies;
     }
 
     public static MediaItems createMediaItemFromTMDB(JSONObject tmdbItem, ContentType contentType) {
+        return createMediaItemFromTMDB(tmdbItem, contentType, null);
+    }
+
+    /**
+     * Build a MediaItems from either a details payload ("genres" objects) or a list
+     * payload ("genre_ids", resolved through the cached genre table when given)
+     */
+    public static MediaItems createMediaItemFromTMDB(JSONObject tmdbItem, ContentType contentType, TmdbGenres genres) {
         try {
             MediaItems mediaItems = new MediaItems();
             //Log.i(TAG, "createMediaItemFromTMDB: tmdbItem=" + tmdbItem);
@@ -137,38 +127,30 @@ public class TmdbApi {
                 mediaItems.setBackgroundImageUrl(IMAGE_BASE_URL + ORIGINAL_SIZE + posterPath);
                 mediaItems.setHeroImageUrl(IMAGE_BASE_URL + ORIGINAL_SIZE + posterPath);
             }
-// Handle genres from genre array
+            // Handle genres from genre array (details) or genre_ids (lists)
+            List<String> genreNames = new ArrayList<>();
             JSONArray genresArray = tmdbItem.optJSONArray("genres");
-            //Log.i(TAG, "createMediaItemFromTMDB: genresArray=" + genresArray);
 
             if (genresArray != null && genresArray.length() > 0) {
-                List<String> genreNames = new ArrayList<>();
-
                 for (int i = 0; i < genresArray.length(); i++) {
                     JSONObject genreObject = genresArray.optJSONObject(i);
-
                     if (genreObject != null) {
-                        String genreName = genreObject.optString("name", null);
-                        //Log.i(TAG, "createMediaItemFromTMDB: genreName=" + genreName);
-
-
+                        String genreName = genreObject.optString("name", "");
+                        if (!genreName.isEmpty()) {
                             genreNames.add(genreName);
-
+                        }
                     }
                 }
+            } else if (genres != null) {
+                genreNames = genres.resolve(tmdbItem.optJSONArray("genre_ids"), contentType);
+            }
 
-                Log.i(TAG, "createMediaItemFromTMDB: genreNames=" + genreNames);
+            if (!genreNames.isEmpty()) {
                 mediaItems.setGenres(genreNames);
                 // Set first genre as the genre string for backward compatibility
-                if (!genreNames.isEmpty()) {
-                    mediaItems.setGenre(genreNames.get(0));
-                }
+                mediaItems.setGenre(genreNames.get(0));
             }
 
-
-
-
-
             // Set from TMDB flag
             mediaItems.setFromTMDB(true);
 
@@ -183,87 +165,59 @@ public class TmdbApi {
     /**
      * Common method to fetch TV shows from TMDB API - runs on background thread
      */
-    public static List<MediaItems> fetchTVShowsFromTMDB(String urlString) throws IOException, JSONException {
+    public static List<MediaItems> fetchTVShowsFromTMDB(TmdbClient client, String urlString) throws IOException, JSONException {
         List<MediaItems> tvShows = new ArrayList<>();
 
-        Connection.Response response = Jsoup.connect(urlString)
-                .header("accept", "application/json")
-                .header("Authorization", "Bearer " + BEARER_TOKEN)
-                .ignoreContentType(true)
-                .timeout(TIMEOUT_MS)
-                .method(Connection.Method.GET)
-                .execute();
-
-        if (response.statusCode() == 200) {
-            Log.i(TAG, "fetchTVShowsFromTMDB: Success");
-
-            JSONObject jsonResponse = new JSONObject(response.body());
-            JSONArray results = jsonResponse.getJSONArray("results");
-
-            for (int i = 0; i < results.length() && i < 20; i++) { // Limit to 20 items
-                JSONObject tvShowJson = results.getJSONObject(i);
-                MediaItems tvShow = createMediaItemFromTMDB(tvShowJson, ContentType.TV);
-                if (tvShow != null) {
-                    tvShows.add(tvShow);
-                }
+        JSONObject jsonResponse = client.getJson(urlString);
+        Log.i(TAG, "fetchTVShowsFromTMDB: Success");
+
+        JSONArray results = jsonResponse.getJSONArray("results");
+
+        for (int i = 0; i < results.length() && i < 20; i++) { // Limit to 20 items
+            JSONObject tvShowJson = results.getJSONObject(i);
+            MediaItems tvShow = createMediaItemFromTMDB(tvShowJson, ContentType.TV, client.getGenres());
+            if (tvShow != null) {
+                tvShows.add(tvShow);
             }
-        } else {
-            Log.e(TAG, "fetchTVShowsFromTMDB: Failed with status " + response.statusCode());
-            throw new IOException("Failed to fetch data: " + response.statusCode());
         }
 
         return tvShows;
     }
 
     /**
-     * Fetch recommendations from TMDB API using Jsoup
+     * Fetch recommendations from TMDB API
      */
-    public static List<MediaItems> fetchRecommendationsFromTMDB(String urlString, String mediaType) throws IOException, JSONException {
+    public static List<MediaItems> fetchRecommendationsFromTMDB(TmdbClient client, String urlString, String mediaType) throws IOException, JSONException {
         List<MediaItems> recommendations = new ArrayList<>();
 
-        Connection.Response response = Jsoup.connect(urlString)
-                .header("accept", "application/json")
-                .header("Authorization", "Bearer " + BEARER_TOKEN)
-                .ignoreContentType(true)
-                .timeout(TIMEOUT_MS)
-                .method(Connection.Method.GET)
-                .execute();
-
-        if (response.statusCode() == 200) {
-            Log.i(TAG, "fetchRecommendationsFromTMDB: Success");
-
-            JSONObject jsonResponse = new JSONObject(response.body());
-            JSONArray results = jsonResponse.getJSONArray("results");
-
-            for (int i = 0; i < results.length() && i < 20; i++) {
-                JSONObject itemJson = results.getJSONObject(i);
-
-                // Determine content type for parsing
-                ContentType contentType = "movie".equals(mediaType) ?
-                        ContentType.MOVIE : ContentType.TV;
-                int movieId = itemJson.optInt("id", -1);
-                JSONObject movieJsondetails =new TmdbRepository().getMovieDetails(String.valueOf(movieId));
-                MediaItems item = createMediaItemFromTMDB(movieJsondetails, contentType);
-                if (item != null) {
-                    recommendations.add(item);
-                }
+        JSONObject jsonResponse = client.getJson(urlString);
+        Log.i(TAG, "fetchRecommendationsFromTMDB: Success");
+
+        JSONArray results = jsonResponse.getJSONArray("results");
+
+        for (int i = 0; i < results.length() && i < 20; i++) {
+            JSONObject itemJson = results.getJSONObject(i);
+
+            // Determine content type for parsing
+            ContentType contentType = "movie".equals(mediaType) ?
+                    ContentType.MOVIE : ContentType.TV;
+            MediaItems item = createMediaItemFromTMDB(itemJson, contentType, client.getGenres());
+            if (item != null) {
+                recommendations.add(item);
             }
-        } else {
-            Log.e(TAG, "fetchRecommendationsFromTMDB: Failed with status " + response.statusCode());
-            throw new IOException("Failed to fetch recommendations: " + response.statusCode());
         }
 
         return recommendations;
     }
 
-    public static List<MediaItems> searchContent(String query, ContentType contentType, int page) {
+    public static List<MediaItems> searchContent(TmdbClient client, String query, ContentType contentType, int page) {
         List<MediaItems> results = new ArrayList<>();
 
         try {
             String endpoint = contentType == ContentType.MOVIE ? "movie" : "tv";
             String url = String.format("%s/search/%s?query=%s&page=%d",
                     TmdbRepository.TMDB_BASE_URL, endpoint, query.replace(" ", "%20"), page);
-            String response = makeRequest(url);
+            String response = makeRequest(client, url);
 
             if (response != null) {
                 JSONObject jsonObject = new JSONObject(response);
@@ -271,7 +225,7 @@ public class TmdbApi {
 
                 for (int i = 0; i < resultsArray.length(); i++) {
                     JSONObject item = resultsArray.getJSONObject(i);
-                    MediaItems mediaItems = createMediaItemFromTMDB(item, contentType);
+                    MediaItems mediaItems = createMediaItemFromTMDB(item, contentType, client.getGenres());
                     if (mediaItems != null) {
                         results.add(mediaItems);
                     }
@@ -287,26 +241,11 @@ public class TmdbApi {
     }
 
     /**
-     * Make HTTP request to TMDB API using Jsoup
+     * Make HTTP request to TMDB API through the shared TmdbClient
      */
-    private static String makeRequest(String urlString) {
+    private static String makeRequest(TmdbClient client, String urlString) {
         try {
-            Connection.Response response = Jsoup.connect(urlString)
-                    .header("accept", "application/json")
-                    .header("Authorization", "Bearer " + BEARER_TOKEN)
-                    .ignoreContentType(true)  // Important: allows Jsoup to fetch JSON
-                    .timeout(TIMEOUT_MS)
-                    .method(Connection.Method.GET)
-                    .execute();
-
-            if (response.statusCode() == 200) {
-                return response.body();
-            } else {
-                Log.e(TAG, "HTTP Error: " + response.statusCode() + " - " + response.statusMessage());
-                System.out.println("HTTP Error: " + response.statusCode() + " - " + response.statusMessage());
-                return null;
-            }
-
+            return client.get(urlString);
         } catch (IOException e) {
             Log.e(TAG, "Error making HTTP request", e);
             return null;
@@ -317,52 +256,26 @@ public class TmdbApi {
      * Fetch top production companies from a remote JSON list,
      * then fetch full details for each from TMDB /company/{id}
      */
-    public static List<CompanyNetwork> fetchTopProductionCompanies() throws IOException, JSONException {
+    public static List<CompanyNetwork> fetchTopProductionCompanies(TmdbClient client) throws IOException, JSONException {
         List<CompanyNetwork> companies = new ArrayList<>();
 
         // Step 1: Fetch company IDs from the remote JSON
         String companiesJsonUrl = "https://raw.githubusercontent.com/kiduyu-klaus/KiduyuTv/refs/heads/main/companies.json";
 
-        Connection.Response listResponse = Jsoup.connect(companiesJsonUrl)
-                .ignoreContentType(true)
-                .timeout(TIMEOUT_MS)
-                .method(Connection.Method.GET)
-                .execute();
-
-        if (listResponse.statusCode() != 200) {
-            Log.e(TAG, "fetchTopProductionCompanies: Failed to fetch company list, status " + listResponse.statusCode());
-            throw new IOException("Failed to fetch company list: " + listResponse.statusCode());
-        }
-
-        JSONArray companyList = new JSONArray(listResponse.body());
+        JSONArray companyList = client.getJsonArray(companiesJsonUrl);
 
         // Step 2: For each company_id, fetch full details from TMDB
         for (int i = 0; i < companyList.length(); i++) {
             JSONObject item = companyList.getJSONObject(i);
             int companyId = item.getInt("company_id");
 
-            String detailUrl = TmdbRepository.TMDB_BASE_URL + "/company/" + companyId;
-
             try {
-                Connection.Response detailResponse = Jsoup.connect(detailUrl)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (detailResponse.statusCode() == 200) {
-                    Log.i(TAG, "fetchTopProductionCompanies: Fetched company id=" + companyId);
-
-                    JSONObject companyJson = new JSONObject(detailResponse.body());
-                    CompanyNetwork company = createCompanyFromTMDB(companyJson, false);
-                    if (company != null) {
-                        companies.add(company);
-                    }
-                } else {
-                    Log.w(TAG, "fetchTopProductionCompanies: Skipping company id=" + companyId
-                            + ", status=" + detailResponse.statusCode());
+                JSONObject companyJson = client.getCompany(companyId);
+                Log.i(TAG, "fetchTopProductionCompanies: Fetched company id=" + companyId);
+
+                CompanyNetwork company = createCompanyFromTMDB(companyJson, false);
+                if (company != null) {
+                    companies.add(company);
                 }
 
             } catch (IOException | JSONException e) {
@@ -379,52 +292,26 @@ public class TmdbApi {
      * Fetch top TV networks from a remote JSON list,
      * then fetch full details for each from TMDB /network/{id}
      */
-    public static List<CompanyNetwork> fetchTopTVNetworks() throws IOException, JSONException {
+    public static List<CompanyNetwork> fetchTopTVNetworks(TmdbClient client) throws IOException, JSONException {
         List<CompanyNetwork> networks = new ArrayList<>();
 
         // Step 1: Fetch network IDs from the remote JSON
         String networksJsonUrl = "https://raw.githubusercontent.com/kiduyu-klaus/KiduyuTv/refs/heads/main/networks.json";
 
-        Connection.Response listResponse = Jsoup.connect(networksJsonUrl)
-                .ignoreContentType(true)
-                .timeout(TIMEOUT_MS)
-                .method(Connection.Method.GET)
-                .execute();
-
-        if (listResponse.statusCode() != 200) {
-            Log.e(TAG, "fetchTopTVNetworks: Failed to fetch network list, status " + listResponse.statusCode());
-            throw new IOException("Failed to fetch network list: " + listResponse.statusCode());
-        }
-
-        JSONArray networkList = new JSONArray(listResponse.body());
+        JSONArray networkList = client.getJsonArray(networksJsonUrl);
 
         // Step 2: For each network_id, fetch full details from TMDB
         for (int i = 0; i < networkList.length(); i++) {
             JSONObject item = networkList.getJSONObject(i);
             int networkId = item.getInt("network_id");
 
-            String detailUrl = TmdbRepository.TMDB_BASE_URL + "/network/" + networkId;
-
             try {
-                Connection.Response detailResponse = Jsoup.connect(detailUrl)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (detailResponse.statusCode() == 200) {
-                    Log.i(TAG, "fetchTopTVNetworks: Fetched network id=" + networkId);
-
-                    JSONObject networkJson = new JSONObject(detailResponse.body());
-                    CompanyNetwork network = createCompanyFromTMDB(networkJson, true);
-                    if (network != null) {
-                        networks.add(network);
-                    }
-                } else {
-                    Log.w(TAG, "fetchTopTVNetworks: Skipping network id=" + networkId
-                            + ", status=" + detailResponse.statusCode());
+                JSONObject networkJson = client.getNetwork(networkId);
+                Log.i(TAG, "fetchTopTVNetworks: Fetched network id=" + networkId);
+
+                CompanyNetwork network = createCompanyFromTMDB(networkJson, true);
+                if (network != null) {
+                    networks.add(network);
                 }
 
             } catch (IOException | JSONException e) {
@@ -469,12 +356,12 @@ public class TmdbApi {
      * @param companyId The TMDB company ID
      * @param page Page number for pagination
      */
-    public static List<MediaItems> discoverMoviesByCompany(int companyId, int page) throws IOException, JSONException {
+    public static List<MediaItems> discoverMoviesByCompany(TmdbClient client, int companyId, int page) throws IOException, JSONException {
         List<MediaItems> movies = new ArrayList<>();
 
         String urlString = TmdbRepository.TMDB_BASE_URL + "/discover/movie?include_adult=false&include_video=false&language=en-US&page=" + page + "&sort_by=popularity.desc&with_companies=" + companyId;
 
-        movies = fetchMoviesFromTMDB(urlString);
+        movies = fetchMoviesFromTMDB(client, urlString);
 
         return movies;
     }
@@ -484,12 +371,12 @@ public class TmdbApi {
      * @param networkId The TMDB network ID
      * @param page Page number for pagination
      */
-    public static List<MediaItems> discoverTVShowsByNetwork(int networkId, int page) throws IOException, JSONException {
+    public static List<MediaItems> discoverTVShowsByNetwork(TmdbClient client, int networkId, int page) throws IOException, JSONException {
         List<MediaItems> tvShows = new ArrayList<>();
 
         String urlString = TmdbRepository.TMDB_BASE_URL + "/discover/tv?include_adult=false&include_null_first_air_dates=false&language=en-US&page=" + page + "&sort_by=popularity.desc&with_networks=" + networkId;
 
-        tvShows = fetchTVShowsFromTMDB(urlString);
+        tvShows = fetchTVShowsFromTMDB(client, urlString);
 
         return tvShows;
     }
@@ -499,10 +386,10 @@ public class TmdbApi {
      * @param networkId The TMDB network ID
      * @param page Page number for pagination
      */
-    public static List<MediaItems> discoverMoviesByNetwork(int networkId, int page) throws IOException, JSONException {
+    public static List<MediaItems> discoverMoviesByNetwork(TmdbClient client, int networkId, int page) throws IOException, JSONException {
         String urlString = TmdbRepository.TMDB_BASE_URL + "/discover/movie?include_adult=false&include_video=false&language=en-US&page=" + page + "&sort_by=popularity.desc&with_networks=" + networkId;
 
-        return fetchMoviesFromTMDB(urlString);
+        return fetchMoviesFromTMDB(client, urlString);
     }
 
     /**
@@ -510,10 +397,10 @@ public class TmdbApi {
      * @param companyId The TMDB company ID
      * @param page Page number for pagination
      */
-    public static List<MediaItems> discoverTVShowsByCompany(int companyId, int page) throws IOException, JSONException {
+    public static List<MediaItems> discoverTVShowsByCompany(TmdbClient client, int companyId, int page) throws IOException, JSONException {
         String urlString = TmdbRepository.TMDB_BASE_URL + "/discover/tv?include_adult=false&include_null_first_air_dates=false&language=en-US&page=" + page + "&sort_by=popularity.desc&with_companies=" + companyId;
 
-        return fetchTVShowsFromTMDB(urlString);
+        return fetchTVShowsFromTMDB(client, urlString);
     }
 
 }
@@ -0,0 +1,409 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Cache;
+import okhttp3.CacheControl;
+import okhttp3.Callback;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Call;
+import retrofit2.Retrofit;
+import retrofit2.converter.scalars.ScalarsConverterFactory;
+import retrofit2.http.GET;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+import retrofit2.http.Url;
+
+/**
+ * TmdbClient - Single typed entry point for every TMDB request
+ *
+ * Built on top of ApiClient.getClient() so TMDB traffic shares the app-wide
+ * connection pool, DNS cache and cookie jar instead of opening a fresh
+ * Jsoup connection per call. The bearer token is attached by an interceptor
+ * and only sent to api.themoviedb.org.
+ *
+ * Responses are kept in a disk cache with per-endpoint TTLs from CatalogCachePolicy.
+ * Stale entries are served immediately and revalidated in the background with a
+ * conditional request (ETag / If-Modified-Since).
+ *
+ * Usage:
+ *   TmdbClient tmdb = TmdbClient.getInstance(context);
+ *   JSONObject movie = tmdb.getMovieDetails("550");
+ */
+public class TmdbClient {
+    private static final String TAG = "TmdbClient";
+    private static final String TMDB_HOST = "api.themoviedb.org";
+    private static final String LANGUAGE = "en-US";
+    public static final String HTTP_CACHE_DIR = "tmdb_http";
+    private static final long HTTP_CACHE_SIZE = 20L * 1024 * 1024; // 20 MB
+
+    // Singleton instance
+    private static volatile TmdbClient instance;
+    private final OkHttpClient client;
+    private final Cache cache;
+    private final CatalogCachePolicy cachePolicy;
+    private final TmdbService service;
+    private final TmdbGenres genres;
+
+    // Retrofit service interface
+    interface TmdbService {
+        @GET
+        Call<String> get(@Url String url);
+
+        @GET("movie/{id}")
+        Call<String> movieDetails(@Path("id") String id, @Query("language") String language);
+
+        @GET("movie/{id}")
+        Call<String> movieDetails(@Path("id") String id, @Query("language") String language,
+                                  @Query("append_to_response") String appendToResponse);
+
+        @GET("tv/{id}")
+        Call<String> tvDetails(@Path("id") String id, @Query("language") String language);
+
+        @GET("tv/{id}/season/{season}")
+        Call<String> seasonDetails(@Path("id") String id, @Path("season") int season,
+                                   @Query("language") String language);
+
+        @GET("{type}/{id}/credits")
+        Call<String> credits(@Path("type") String mediaType, @Path("id") String id,
+                             @Query("language") String language);
+
+        @GET("person/{id}")
+        Call<String> person(@Path("id") int id, @Query("language") String language);
+
+        @GET("person/{id}/combined_credits")
+        Call<String> personCombinedCredits(@Path("id") int id, @Query("language") String language);
+
+        @GET("company/{id}")
+        Call<String> company(@Path("id") int id);
+
+        @GET("network/{id}")
+        Call<String> network(@Path("id") int id);
+    }
+
+    /**
+     * Private constructor - use getInstance()
+     */
+    private TmdbClient(Context context) {
+        this.cache = new Cache(new File(context.getCacheDir(), HTTP_CACHE_DIR), HTTP_CACHE_SIZE);
+        this.cachePolicy = new CatalogCachePolicy(context);
+
+        StaleWhileRevalidateInterceptor staleWhileRevalidate = new StaleWhileRevalidateInterceptor(cachePolicy);
+        this.client = ApiClient.getClient(context, ApiClient.TrafficClass.API).newBuilder()
+                .connectTimeout(TmdbApi.TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .readTimeout(TmdbApi.TIMEOUT_MS, TimeUnit.MILLISECONDS)
+                .cache(cache)
+                .addInterceptor(new TmdbAuthInterceptor(TmdbApi.BEARER_TOKEN))
+                .addInterceptor(staleWhileRevalidate)
+                .addNetworkInterceptor(new CacheTtlInterceptor(cachePolicy))
+                .build();
+        // Revalidations nobody waits on run as background traffic
+        staleWhileRevalidate.setClient(ApiClient.withTrafficClass(client, ApiClient.TrafficClass.BACKGROUND));
+
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(TmdbRepository.TMDB_BASE_URL + "/")
+                .client(client)
+                .addConverterFactory(ScalarsConverterFactory.create())
+                .build();
+        this.service = retrofit.create(TmdbService.class);
+        this.genres = new TmdbGenres(context, this);
+        Log.i(TAG, "TmdbClient initialized");
+    }
+
+    /**
+     * Get the singleton TmdbClient instance
+     */
+    public static TmdbClient getInstance(Context context) {
+        if (instance == null) {
+            synchronized (TmdbClient.class) {
+                if (instance == null) {
+                    instance = new TmdbClient(context.getApplicationContext());
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get the OkHttpClient used for TMDB traffic
+     */
+    public OkHttpClient getHttpClient() {
+        return client;
+    }
+
+    /**
+     * Get the cache policy (shown and tuned from Settings)
+     */
+    public CatalogCachePolicy getCachePolicy() {
+        return cachePolicy;
+    }
+
+    /**
+     * Drop every cached TMDB response
+     */
+    public void clearCache() {
+        try {
+            cache.evictAll();
+            Log.i(TAG, "TMDB response cache cleared");
+        } catch (IOException e) {
+            Log.e(TAG, "Error clearing TMDB response cache", e);
+        }
+    }
+
+    /**
+     * Get the cached genre table used to resolve genre_ids in list payloads
+     */
+    public TmdbGenres getGenres() {
+        return genres;
+    }
+
+    // ===================== REQUESTS =====================
+
+    /**
+     * GET an absolute URL and return the raw body (list endpoints, discover, remote JSON lists)
+     */
+    public String get(String url) throws IOException {
+        return execute(service.get(url));
+    }
+
+    public JSONObject getJson(String url) throws IOException, JSONException {
+        return new JSONObject(get(url));
+    }
+
+    public JSONArray getJsonArray(String url) throws IOException, JSONException {
+        return new JSONArray(get(url));
+    }
+
+    public JSONObject getMovieDetails(String tmdbId) throws IOException, JSONException {
+        return new JSONObject(execute(service.movieDetails(tmdbId, LANGUAGE)));
+    }
+
+    /**
+     * Movie details with credits appended, for the details screen
+     */
+    public JSONObject getMovieDetailsWithCredits(String tmdbId) throws IOException, JSONException {
+        return new JSONObject(execute(service.movieDetails(tmdbId, LANGUAGE, "credits")));
+    }
+
+    public JSONObject getTVDetails(String tmdbId) throws IOException, JSONException {
+        return new JSONObject(execute(service.tvDetails(tmdbId, LANGUAGE)));
+    }
+
+    public JSONObject getSeasonDetails(String tmdbId, int seasonNumber) throws IOException, JSONException {
+        return new JSONObject(execute(service.seasonDetails(tmdbId, seasonNumber, LANGUAGE)));
+    }
+
+    /**
+     * @param mediaType "movie" or "tv"
+     */
+    public JSONObject getCredits(String mediaType, String tmdbId) throws IOException, JSONException {
+        return new JSONObject(execute(service.credits(mediaType, tmdbId, LANGUAGE)));
+    }
+
+    public JSONObject getPerson(int personId) throws IOException, JSONException {
+        return new JSONObject(execute(service.person(personId, LANGUAGE)));
+    }
+
+    public JSONObject getPersonCombinedCredits(int personId) throws IOException, JSONException {
+        return new JSONObject(execute(service.personCombinedCredits(personId, LANGUAGE)));
+    }
+
+    public JSONObject getCompany(int companyId) throws IOException, JSONException {
+        return new JSONObject(execute(service.company(companyId)));
+    }
+
+    public JSONObject getNetwork(int networkId) throws IOException, JSONException {
+        return new JSONObject(execute(service.network(networkId)));
+    }
+
+    /**
+     * Execute a call and return the body, throwing IOException on any non-2xx status
+     */
+    private String execute(Call<String> call) throws IOException {
+        retrofit2.Response<String> response = call.execute();
+        if (!response.isSuccessful() || response.body() == null) {
+            Log.e(TAG, "HTTP Error: " + response.code() + " for " + call.request().url());
+            throw new IOException("Failed with status: " + response.code());
+        }
+        return response.body();
+    }
+
+    // ============================================
+    // Interceptors
+    // ============================================
+
+    /**
+     * TmdbAuthInterceptor - Adds the bearer token and JSON accept header to TMDB requests
+     */
+    private static class TmdbAuthInterceptor implements Interceptor {
+        private final String bearerToken;
+
+        TmdbAuthInterceptor(String bearerToken) {
+            this.bearerToken = bearerToken;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            if (!TMDB_HOST.equals(request.url().host())) {
+                return chain.proceed(request);
+            }
+            return chain.proceed(request.newBuilder()
+                    .header("accept", "application/json")
+                    .header("Authorization", "Bearer " + bearerToken)
+                    .build());
+        }
+    }
+
+    /**
+     * StaleWhileRevalidateInterceptor - Serves cached catalog responses without waiting on the network
+     *
+     * Fresh entries (younger than the policy TTL) are returned straight from disk. Entries inside
+     * the stale window are returned as well, and a background call with max-age=0 makes OkHttp
+     * send a conditional request that refreshes the entry (a 304 just updates its headers).
+     */
+    private static class StaleWhileRevalidateInterceptor implements Interceptor {
+        private final CatalogCachePolicy policy;
+        private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+        private volatile OkHttpClient client;
+
+        StaleWhileRevalidateInterceptor(CatalogCachePolicy policy) {
+            this.policy = policy;
+        }
+
+        void setClient(OkHttpClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            long ttlSeconds = policy.ttlSeconds(request.url());
+
+            if (!"GET".equals(request.method()) || ttlSeconds <= 0
+                    || request.tag(Revalidation.class) != null) {
+                return chain.proceed(request);
+            }
+
+            // Look at the cache only, accepting any age
+            Request cacheOnly = request.newBuilder()
+                    .cacheControl(new CacheControl.Builder()
+                            .onlyIfCached()
+                            .maxStale(Integer.MAX_VALUE, TimeUnit.SECONDS)
+                            .build())
+                    .build();
+            Response cached = chain.proceed(cacheOnly);
+
+            if (cached.code() == 504) {
+                // Cache miss
+                cached.close();
+                return chain.proceed(request);
+            }
+
+            long ageMs = System.currentTimeMillis() - cached.receivedResponseAtMillis();
+            long ttlMs = ttlSeconds * 1000;
+            long staleMs = policy.staleWindowSeconds() * 1000;
+
+            if (ageMs <= ttlMs) {
+                return cached;
+            }
+            if (ageMs <= ttlMs + staleMs) {
+                revalidate(request);
+                return cached;
+            }
+
+            // Too old to serve - fetch now (OkHttp still sends it as a conditional request)
+            cached.close();
+            return chain.proceed(request);
+        }
+
+        private void revalidate(Request request) {
+            OkHttpClient httpClient = client;
+            String key = request.url().toString();
+            if (httpClient == null || !revalidating.add(key)) {
+                return;
+            }
+
+            Request revalidation = ApiClient.async(request.newBuilder()
+                    .cacheControl(new CacheControl.Builder().maxAge(0, TimeUnit.SECONDS).build())
+                    .tag(Revalidation.class, new Revalidation())
+                    .build());
+
+            httpClient.newCall(revalidation).enqueue(new Callback() {
+                @Override
+                public void onFailure(okhttp3.Call call, IOException e) {
+                    revalidating.remove(key);
+                    Log.w(TAG, "Background revalidation failed for " + key + ": " + e.getMessage());
+                }
+
+                @Override
+                public void onResponse(okhttp3.Call call, Response response) {
+                    // Body must be consumed for OkHttp to commit the entry
+                    try (Response r = response) {
+                        if (r.body() != null) {
+                            r.body().bytes();
+                        }
+                        Log.i(TAG, "Revalidated " + key + " (" + r.code()
+                                + (r.networkResponse() != null && r.networkResponse().code() == 304 ? ", not modified" : "") + ")");
+                    } catch (IOException e) {
+                        Log.w(TAG, "Error reading revalidation response for " + key, e);
+                    } finally {
+                        revalidating.remove(key);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Request tag marking a background revalidation call
+     */
+    private static final class Revalidation {
+    }
+
+    /**
+     * CacheTtlInterceptor - Rewrites Cache-Control on network responses to match the policy
+     * so the origin's own headers don't decide what ends up on disk
+     */
+    private static class CacheTtlInterceptor implements Interceptor {
+        private final CatalogCachePolicy policy;
+
+        CacheTtlInterceptor(CatalogCachePolicy policy) {
+            this.policy = policy;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            Response response = chain.proceed(request);
+
+            if (!"GET".equals(request.method())) {
+                return response;
+            }
+            if (!response.isSuccessful() && response.code() != 304) {
+                return response;
+            }
+
+            long ttlSeconds = policy.ttlSeconds(request.url());
+            String cacheControl = ttlSeconds > 0 ? "public, max-age=" + ttlSeconds : "no-store";
+            return response.newBuilder()
+                    .removeHeader("Pragma")
+                    .header("Cache-Control", cacheControl)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import android.util.SparseArray;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * TmdbGenres - Cached genre id -> name table built from /genre/movie/list and /genre/tv/list
+ *
+ * List endpoints only return genre_ids, so rows resolve names from this table instead
+ * of fetching full details per item. The table is loaded once, kept in memory and
+ * persisted to SharedPreferences so later launches resolve genres without a request.
+ * A persisted table older than REFRESH_INTERVAL_MS is still served at once and
+ * refreshed in the background; only a first launch waits for TMDB.
+ */
+public class TmdbGenres {
+    private static final String TAG = "TmdbGenres";
+    private static final String PREFS_NAME = "tmdb_genres_prefs";
+    private static final String KEY_MOVIE_GENRES = "movie_genres";
+    private static final String KEY_TV_GENRES = "tv_genres";
+    private static final String KEY_UPDATED_AT = "updated_at";
+    private static final long REFRESH_INTERVAL_MS = 7L * 24 * 60 * 60 * 1000; // 7 days
+    private static final long RETRY_INTERVAL_MS = 60 * 1000; // after a failed load
+
+    private final TmdbClient client;
+    private final SharedPreferences preferences;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private volatile SparseArray<String> movieGenres;
+    private volatile SparseArray<String> tvGenres;
+    private long lastFailedLoadAt;
+
+    TmdbGenres(Context context, TmdbClient client) {
+        this.client = client;
+        this.preferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Resolve a genre_ids array to names. Blocks on the first call while the table loads,
+     * so only call this from a background thread.
+     */
+    public List<String> resolve(JSONArray genreIds, TmdbApi.ContentType contentType) {
+        List<String> names = new ArrayList<>();
+        if (genreIds == null || genreIds.length() == 0) {
+            return names;
+        }
+
+        ensureLoaded();
+        SparseArray<String> movies = movieGenres;
+        SparseArray<String> tv = tvGenres;
+        if (movies == null || tv == null) {
+            return names;
+        }
+        SparseArray<String> primary = contentType == TmdbApi.ContentType.TV ? tv : movies;
+        SparseArray<String> secondary = contentType == TmdbApi.ContentType.TV ? movies : tv;
+
+        for (int i = 0; i < genreIds.length(); i++) {
+            int id = genreIds.optInt(i, -1);
+            String name = primary.get(id);
+            if (name == null) {
+                name = secondary.get(id);
+            }
+            if (name != null && !names.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private void ensureLoaded() {
+        if (movieGenres != null && tvGenres != null) {
+            return;
+        }
+        boolean stale;
+        synchronized (this) {
+            if (movieGenres != null && tvGenres != null) {
+                return;
+            }
+            if (System.currentTimeMillis() - lastFailedLoadAt < RETRY_INTERVAL_MS) {
+                return;
+            }
+
+            String movieJson = preferences.getString(KEY_MOVIE_GENRES, null);
+            String tvJson = preferences.getString(KEY_TV_GENRES, null);
+            if (movieJson == null || tvJson == null || !install(parse(movieJson), parse(tvJson))) {
+                // Nothing usable persisted yet, so the first rows have to wait for TMDB
+                try {
+                    if (fetch()) {
+                        Log.i(TAG, "Genre table loaded from TMDB");
+                        return;
+                    }
+                } catch (Exception e) {
+                    Log.e(TAG, "Error loading genre table", e);
+                }
+                // Keep retrying on later calls
+                lastFailedLoadAt = System.currentTimeMillis();
+                return;
+            }
+
+            // The persisted table is served now; an old one is replaced once the refresh lands
+            stale = System.currentTimeMillis() - preferences.getLong(KEY_UPDATED_AT, 0) > REFRESH_INTERVAL_MS;
+        }
+        if (stale) {
+            refreshInBackground();
+        }
+    }
+
+    /**
+     * Fetch both lists off the caller's thread, outside the lock, so no row waits on it
+     */
+    private void refreshInBackground() {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        StreamExecutor.background().execute(() -> {
+            try {
+                if (fetch()) {
+                    Log.i(TAG, "Genre table refreshed from TMDB");
+                }
+            } catch (Exception e) {
+                // The persisted table stays in use; the next launch tries again
+                Log.w(TAG, "Error refreshing genre table: " + e.getMessage());
+            } finally {
+                refreshing.set(false);
+            }
+        });
+    }
+
+    /**
+     * Fetch both lists from TMDB, persist them and use them; false when they hold no genres
+     */
+    private boolean fetch() throws IOException {
+        String movieJson = client.get(TmdbRepository.TMDB_BASE_URL + "/genre/movie/list?language=en-US");
+        String tvJson = client.get(TmdbRepository.TMDB_BASE_URL + "/genre/tv/list?language=en-US");
+        if (!install(parse(movieJson), parse(tvJson))) {
+            return false;
+        }
+        preferences.edit()
+                .putString(KEY_MOVIE_GENRES, movieJson)
+                .putString(KEY_TV_GENRES, tvJson)
+                .putLong(KEY_UPDATED_AT, System.currentTimeMillis())
+                .apply();
+        return true;
+    }
+
+    private boolean install(SparseArray<String> movies, SparseArray<String> tv) {
+        if (movies.size() == 0 && tv.size() == 0) {
+            return false;
+        }
+        movieGenres = movies;
+        tvGenres = tv;
+        return true;
+    }
+
+    private SparseArray<String> parse(String json) {
+        SparseArray<String> table = new SparseArray<>();
+        if (json == null || json.isEmpty()) {
+            return table;
+        }
+        try {
+            JSONArray genres = new JSONObject(json).optJSONArray("genres");
+            if (genres != null) {
+                for (int i = 0; i < genres.length(); i++) {
+                    JSONObject genre = genres.getJSONObject(i);
+                    table.put(genre.getInt("id"), genre.getString("name"));
+                }
+            }
+        } catch (JSONException e) {
+            Log.e(TAG, "Error parsing genre table", e);
+        }
+        return table;
+    }
+}
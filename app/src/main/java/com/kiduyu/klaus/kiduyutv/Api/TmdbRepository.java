@@ -1,5 +1,6 @@
 package com.kiduyu.klaus.kiduyutv.Api;
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
@@ -11,10 +12,7 @@ import com.kiduyu.klaus.kiduyutv.model.Season;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.jsoup.Connection;
-import org.jsoup.Jsoup;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
@@ -28,12 +26,14 @@ public class TmdbRepository {
 
     private static final String CUSTOM_USER_AGENT = "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0.0.0 Safari/537.36";
 
-    // Thread management
-    private final ExecutorService executorService = Executors.newFixedThreadPool(4);
+    // Thread management - shared by all instances so activities don't each leak a pool
+    private static final ExecutorService executorService = Executors.newFixedThreadPool(4);
     private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final TmdbClient tmdbClient;
 
-
-
+    public TmdbRepository(Context context) {
+        this.tmdbClient = TmdbClient.getInstance(context);
+    }
 
     // Callback interface for async operations
     public interface TMDBCallback {
@@ -50,7 +50,7 @@ public class TmdbRepository {
         executorService.execute(() -> {
             try {
                 String urlString = TMDB_BASE_URL + "/discover/movie?include_adult=false&include_video=false&language=en-US&page=1&region=US&sort_by=popularity.desc";
-                List<MediaItems> movies = TmdbApi.fetchMoviesFromTMDB(urlString);
+                List<MediaItems> movies = TmdbApi.fetchMoviesFromTMDB(tmdbClient, urlString);
                 mainHandler.post(() -> callback.onSuccess(movies));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching featured movies", e);
@@ -66,7 +66,7 @@ public class TmdbRepository {
         executorService.execute(() -> {
             try {
                 String urlString = TMDB_BASE_URL + "/movie/top_rated?language=en-US&page=1&region=US&sort_by=popularity.desc";
-                List<MediaItems> movies = TmdbApi.fetchMoviesFromTMDB(urlString);
+                List<MediaItems> movies = TmdbApi.fetchMoviesFromTMDB(tmdbClient, urlString);
                 mainHandler.post(() -> callback.onSuccess(movies));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching top rated movies", e);
@@ -83,7 +83,7 @@ public class TmdbRepository {
             try {
                 // Genre ID 28 is Action
                 String urlString = TMDB_BASE_URL + "/discover/movie?include_adult=false&include_video=false&language=en-US&page=1&sort_by=popularity.desc&with_genres=28";
-                List<MediaItems> movies = TmdbApi.fetchMoviesFromTMDB(urlString);
+                List<MediaItems> movies = TmdbApi.fetchMoviesFromTMDB(tmdbClient, urlString);
                 mainHandler.post(() -> callback.onSuccess(movies));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching action movies", e);
@@ -99,7 +99,7 @@ public class TmdbRepository {
         executorService.execute(() -> {
             try {
                 String urlString = TMDB_BASE_URL + "/tv/popular?language=en-US&page=1&region=US";
-                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(urlString);
+                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(tmdbClient, urlString);
                 mainHandler.post(() -> callback.onSuccess(tvShows));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching popular TV shows", e);
@@ -115,7 +115,7 @@ public class TmdbRepository {
         executorService.execute(() -> {
             try {
                 String urlString = TMDB_BASE_URL + "/tv/top_rated?language=en-US&page=1&region=US";
-                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(urlString);
+                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(tmdbClient, urlString);
                 mainHandler.post(() -> callback.onSuccess(tvShows));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching top rated TV shows", e);
@@ -131,7 +131,7 @@ public class TmdbRepository {
         executorService.execute(() -> {
             try {
                 String urlString = TMDB_BASE_URL + "/trending/tv/week?language=en-US";
-                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(urlString);
+                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(tmdbClient, urlString);
                 mainHandler.post(() -> callback.onSuccess(tvShows));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching trending TV shows", e);
@@ -148,7 +148,7 @@ public class TmdbRepository {
             try {
                 // Genre ID 10759 is Action & Adventure
                 String urlString = TMDB_BASE_URL + "/discover/tv?include_adult=false&include_null_first_air_dates=false&language=en-US&page=1&sort_by=popularity.desc&with_genres=10759&region=US";
-                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(urlString);
+                List<MediaItems> tvShows = TmdbApi.fetchTVShowsFromTMDB(tmdbClient, urlString);
                 mainHandler.post(() -> callback.onSuccess(tvShows));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching action & adventure TV shows", e);
@@ -164,7 +164,7 @@ public class TmdbRepository {
         executorService.execute(() -> {
             try {
                 String urlString = TMDB_BASE_URL + "/" + mediaType + "/" + tmdbId + "/recommendations?language=en-US&page=1";
-                List<MediaItems> recommendations = TmdbApi.fetchRecommendationsFromTMDB(urlString, mediaType);
+                List<MediaItems> recommendations = TmdbApi.fetchRecommendationsFromTMDB(tmdbClient, urlString, mediaType);
                 mainHandler.post(() -> callback.onSuccess(recommendations));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching recommendations", e);
@@ -179,85 +179,117 @@ public class TmdbRepository {
     public void getTVShowDetails(String tmdbId, TVShowDetailsCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/tv/" + tmdbId + "?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-
-                    // Create detailed MediaItems
-                    MediaItems tvShow = TmdbApi.createMediaItemFromTMDB(jsonResponse, TmdbApi.ContentType.TV);
-
-                    // Parse seasons
-                    List<Season> seasons = new ArrayList<>();
-                    JSONArray seasonsArray = jsonResponse.optJSONArray("seasons");
-
-                    if (seasonsArray != null) {
-                        for (int i = 0; i < seasonsArray.length(); i++) {
-                            JSONObject seasonJson = seasonsArray.getJSONObject(i);
-
-                            // Skip "Season 0" (specials)
-                            int seasonNumber = seasonJson.optInt("season_number", 0);
-                            if (seasonNumber == 0) continue;
-
-                            Season season = new Season();
-                            season.setId(seasonJson.optInt("id", 0));
-                            season.setName(seasonJson.optString("name", "Season " + seasonNumber));
-                            season.setOverview(seasonJson.optString("overview", ""));
-                            season.setSeasonNumber(seasonNumber);
-                            season.setEpisodeCount(seasonJson.optInt("episode_count", 0));
-                            season.setAirDate(seasonJson.optString("air_date", ""));
-
-                            String posterPath = seasonJson.optString("poster_path", "");
-                            if (!posterPath.isEmpty()) {
-                                season.setPosterPath(TmdbApi.IMAGE_BASE_URL + TmdbApi.POSTER_SIZE + posterPath);
-                            }
-
-                            seasons.add(season);
+                JSONObject jsonResponse = tmdbClient.getTVDetails(tmdbId);
+
+                // Create detailed MediaItems
+                MediaItems tvShow = TmdbApi.createMediaItemFromTMDB(jsonResponse, TmdbApi.ContentType.TV);
+
+                // Parse seasons
+                List<Season> seasons = new ArrayList<>();
+                JSONArray seasonsArray = jsonResponse.optJSONArray("seasons");
+
+                if (seasonsArray != null) {
+                    for (int i = 0; i < seasonsArray.length(); i++) {
+                        JSONObject seasonJson = seasonsArray.getJSONObject(i);
+
+                        // Skip "Season 0" (specials)
+                        int seasonNumber = seasonJson.optInt("season_number", 0);
+                        if (seasonNumber == 0) continue;
+
+                        Season season = new Season();
+                        season.setId(seasonJson.optInt("id", 0));
+                        season.setName(seasonJson.optString("name", "Season " + seasonNumber));
+                        season.setOverview(seasonJson.optString("overview", ""));
+                        season.setSeasonNumber(seasonNumber);
+                        season.setEpisodeCount(seasonJson.optInt("episode_count", 0));
+                        season.setAirDate(seasonJson.optString("air_date", ""));
+
+                        String posterPath = seasonJson.optString("poster_path", "");
+                        if (!posterPath.isEmpty()) {
+                            season.setPosterPath(TmdbApi.IMAGE_BASE_URL + TmdbApi.POSTER_SIZE + posterPath);
                         }
+
+                        seasons.add(season);
                     }
+                }
 
-                    MediaItems finalTvShow = tvShow;
-                    mainHandler.post(() -> callback.onSuccess(finalTvShow, seasons));
+                MediaItems finalTvShow = tvShow;
+                mainHandler.post(() -> callback.onSuccess(finalTvShow, seasons));
 
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
+            } catch (Exception e) {
+                Log.e(TAG, "Error fetching TV show details", e);
+                mainHandler.post(() -> callback.onError(e.getMessage()));
+            }
+        });
+    }
+
+    public interface MovieDetailsCallback {
+        void onSuccess(MediaItems detailedMovie, List<String> directors, List<String> stars);
+
+        void onError(String error);
+    }
+
+    /**
+     * Fetch full movie details (runtime, genres, directors, top cast) when a card is opened
+     */
+    public void getMovieDetailsAsync(String tmdbId, MovieDetailsCallback callback) {
+        executorService.execute(() -> {
+            try {
+                JSONObject jsonResponse = tmdbClient.getMovieDetailsWithCredits(tmdbId);
+                MediaItems movie = TmdbApi.createMediaItemFromTMDB(jsonResponse, TmdbApi.ContentType.MOVIE);
+                if (movie == null) {
+                    throw new IllegalStateException("Invalid movie details");
+                }
+
+                int runtime = jsonResponse.optInt("runtime", 0);
+                if (runtime > 0) {
+                    movie.setDuration(runtime >= 60
+                            ? (runtime / 60) + "h " + (runtime % 60) + "m"
+                            : runtime + "m");
                 }
 
+                List<String> directors = new ArrayList<>();
+                List<String> stars = new ArrayList<>();
+                JSONObject credits = jsonResponse.optJSONObject("credits");
+                if (credits != null) {
+                    JSONArray crewArray = credits.optJSONArray("crew");
+                    if (crewArray != null) {
+                        for (int i = 0; i < crewArray.length(); i++) {
+                            JSONObject crew = crewArray.getJSONObject(i);
+                            String name = crew.optString("name", "");
+                            if ("Director".equals(crew.optString("job")) && !name.isEmpty()) {
+                                directors.add(name);
+                            }
+                        }
+                    }
+
+                    JSONArray castArray = credits.optJSONArray("cast");
+                    if (castArray != null) {
+                        int limit = Math.min(castArray.length(), 10);
+                        for (int i = 0; i < limit; i++) {
+                            String name = castArray.getJSONObject(i).optString("name", "");
+                            if (!name.isEmpty()) {
+                                stars.add(name);
+                            }
+                        }
+                    }
+                }
+
+                mainHandler.post(() -> callback.onSuccess(movie, directors, stars));
             } catch (Exception e) {
-                Log.e(TAG, "Error fetching TV show details", e);
+                Log.e(TAG, "Error fetching movie details", e);
                 mainHandler.post(() -> callback.onError(e.getMessage()));
             }
         });
     }
 
     public JSONObject getMovieDetails(String tmdbId){
-        String url = TMDB_BASE_URL + "/movie/" + tmdbId + "?language=en-US";
         try {
-            Connection.Response response = Jsoup.connect(url)
-                    .header("accept", "application/json")
-                    .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                    .ignoreContentType(true)
-                    .timeout(TmdbApi.TIMEOUT_MS)
-                    .method(Connection.Method.GET)
-                    .execute();
-            if (response.statusCode() == 200) {
-                return new JSONObject(response.body());
-            }
-
+            return tmdbClient.getMovieDetails(tmdbId);
         } catch (Exception e) {
             Log.e(TAG, "Error fetching movie details", e);
             return null;
         }
-
-        return null;
     }
     public interface EpisodesCallback {
         void onSuccess(List<Episode> episodes);
@@ -271,51 +303,36 @@ public class TmdbRepository {
     public void getSeasonEpisodes(String tmdbId, int seasonNumber, EpisodesCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/tv/" + tmdbId + "/season/" + seasonNumber + "?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-
-                    List<Episode> episodes = new ArrayList<>();
-                    JSONArray episodesArray = jsonResponse.optJSONArray("episodes");
-
-                    if (episodesArray != null) {
-                        for (int i = 0; i < episodesArray.length(); i++) {
-                            JSONObject episodeJson = episodesArray.getJSONObject(i);
-
-                            Episode episode = new Episode();
-                            episode.setId(episodeJson.optInt("id", 0));
-                            episode.setName(episodeJson.optString("name", "Episode " + (i + 1)));
-                            episode.setOverview(episodeJson.optString("overview", "No description available"));
-                            episode.setEpisodeNumber(episodeJson.optInt("episode_number", i + 1));
-                            episode.setSeasonNumber(seasonNumber);
-                            episode.setAirDate(episodeJson.optString("air_date", ""));
-                            episode.setVoteAverage(episodeJson.optDouble("vote_average", 0.0));
-                            episode.setRuntime(episodeJson.optInt("runtime", 0));
-
-                            String stillPath = episodeJson.optString("still_path", "");
-                            if (!stillPath.isEmpty()) {
-                                episode.setStillPath(TmdbApi.IMAGE_BASE_URL + TmdbApi.BACKDROP_SIZE + stillPath);
-                            }
-
-                            episodes.add(episode);
+                JSONObject jsonResponse = tmdbClient.getSeasonDetails(tmdbId, seasonNumber);
+
+                List<Episode> episodes = new ArrayList<>();
+                JSONArray episodesArray = jsonResponse.optJSONArray("episodes");
+
+                if (episodesArray != null) {
+                    for (int i = 0; i < episodesArray.length(); i++) {
+                        JSONObject episodeJson = episodesArray.getJSONObject(i);
+
+                        Episode episode = new Episode();
+                        episode.setId(episodeJson.optInt("id", 0));
+                        episode.setName(episodeJson.optString("name", "Episode " + (i + 1)));
+                        episode.setOverview(episodeJson.optString("overview", "No description available"));
+                        episode.setEpisodeNumber(episodeJson.optInt("episode_number", i + 1));
+                        episode.setSeasonNumber(seasonNumber);
+                        episode.setAirDate(episodeJson.optString("air_date", ""));
+                        episode.setVoteAverage(episodeJson.optDouble("vote_average", 0.0));
+                        episode.setRuntime(episodeJson.optInt("runtime", 0));
+
+                        String stillPath = episodeJson.optString("still_path", "");
+                        if (!stillPath.isEmpty()) {
+                            episode.setStillPath(TmdbApi.IMAGE_BASE_URL + TmdbApi.BACKDROP_SIZE + stillPath);
                         }
-                    }
 
-                    mainHandler.post(() -> callback.onSuccess(episodes));
-
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
+                        episodes.add(episode);
+                    }
                 }
 
+                mainHandler.post(() -> callback.onSuccess(episodes));
+
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching season episodes", e);
                 mainHandler.post(() -> callback.onError(e.getMessage()));
@@ -341,38 +358,23 @@ public class TmdbRepository {
     public void getTVShowCreators(String tmdbId, CreatorsCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/tv/" + tmdbId + "?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-                    List<String> creators = new ArrayList<>();
-
-                    JSONArray createdByArray = jsonResponse.optJSONArray("created_by");
-                    if (createdByArray != null) {
-                        for (int i = 0; i < createdByArray.length(); i++) {
-                            JSONObject creator = createdByArray.getJSONObject(i);
-                            String name = creator.optString("name", "");
-                            if (!name.isEmpty()) {
-                                creators.add(name);
-                            }
+                JSONObject jsonResponse = tmdbClient.getTVDetails(tmdbId);
+                List<String> creators = new ArrayList<>();
+
+                JSONArray createdByArray = jsonResponse.optJSONArray("created_by");
+                if (createdByArray != null) {
+                    for (int i = 0; i < createdByArray.length(); i++) {
+                        JSONObject creator = createdByArray.getJSONObject(i);
+                        String name = creator.optString("name", "");
+                        if (!name.isEmpty()) {
+                            creators.add(name);
                         }
                     }
-
-                    List<String> finalCreators = creators;
-                    mainHandler.post(() -> callback.onSuccess(finalCreators));
-
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
                 }
 
+                List<String> finalCreators = creators;
+                mainHandler.post(() -> callback.onSuccess(finalCreators));
+
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching TV show creators", e);
                 mainHandler.post(() -> callback.onError(e.getMessage()));
@@ -388,40 +390,25 @@ public class TmdbRepository {
     public void getTVShowStars(String tmdbId, StarsCallback callback) {
         executorService.execute(() -> {
             try {
-                String url = TMDB_BASE_URL + "/tv/" + tmdbId + "/credits?language=en-US";
-
-                Connection.Response response = Jsoup.connect(url)
-                        .header("accept", "application/json")
-                        .header("Authorization", "Bearer " + TmdbApi.BEARER_TOKEN)
-                        .ignoreContentType(true)
-                        .timeout(TmdbApi.TIMEOUT_MS)
-                        .method(Connection.Method.GET)
-                        .execute();
-
-                if (response.statusCode() == 200) {
-                    JSONObject jsonResponse = new JSONObject(response.body());
-                    List<String> stars = new ArrayList<>();
-
-                    JSONArray castArray = jsonResponse.optJSONArray("cast");
-                    if (castArray != null) {
-                        // Get top 10 cast members (main stars)
-                        int limit = Math.min(castArray.length(), 10);
-                        for (int i = 0; i < limit; i++) {
-                            JSONObject castMember = castArray.getJSONObject(i);
-                            String name = castMember.optString("name", "");
-                            if (!name.isEmpty()) {
-                                stars.add(name);
-                            }
+                JSONObject jsonResponse = tmdbClient.getCredits("tv", tmdbId);
+                List<String> stars = new ArrayList<>();
+
+                JSONArray castArray = jsonResponse.optJSONArray("cast");
+                if (castArray != null) {
+                    // Get top 10 cast members (main stars)
+                    int limit = Math.min(castArray.length(), 10);
+                    for (int i = 0; i < limit; i++) {
+                        JSONObject castMember = castArray.getJSONObject(i);
+                        String name = castMember.optString("name", "");
+                        if (!name.isEmpty()) {
+                            stars.add(name);
                         }
                     }
-
-                    List<String> finalStars = stars;
-                    mainHandler.post(() -> callback.onSuccess(finalStars));
-
-                } else {
-                    throw new IOException("Failed with status: " + response.statusCode());
                 }
 
+                List<String> finalStars = stars;
+                mainHandler.post(() -> callback.onSuccess(finalStars));
+
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching TV show stars", e);
                 mainHandler.post(() -> callback.onError(e.getMessage()));
@@ -464,7 +451,7 @@ public class TmdbRepository {
         // Don't cache search results
         executorService.execute(() -> {
             try {
-                List<MediaItems> results = TmdbApi.searchContent(query, contentType, page);
+                List<MediaItems> results = TmdbApi.searchContent(tmdbClient, query, contentType, page);
                 mainHandler.post(() -> callback.onSuccess(results));
             } catch (Exception e) {
                 Log.e(TAG, "Error searching content", e);
@@ -504,7 +491,7 @@ public class TmdbRepository {
     public void getTopProductionCompaniesAsync(CompanyNetworkCallback callback) {
         executorService.execute(() -> {
             try {
-                List<CompanyNetwork> companies = TmdbApi.fetchTopProductionCompanies();
+                List<CompanyNetwork> companies = TmdbApi.fetchTopProductionCompanies(tmdbClient);
                 mainHandler.post(() -> callback.onSuccess(companies));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching top production companies", e);
@@ -519,7 +506,7 @@ public class TmdbRepository {
     public void getTopTVNetworksAsync(CompanyNetworkCallback callback) {
         executorService.execute(() -> {
             try {
-                List<CompanyNetwork> networks = TmdbApi.fetchTopTVNetworks();
+                List<CompanyNetwork> networks = TmdbApi.fetchTopTVNetworks(tmdbClient);
                 mainHandler.post(() -> callback.onSuccess(networks));
             } catch (Exception e) {
                 Log.e(TAG, "Error fetching top TV networks", e);
@@ -536,7 +523,7 @@ public class TmdbRepository {
     public void discoverMoviesByCompanyAsync(int companyId, int page, TMDBCallback callback) {
         executorService.execute(() -> {
             try {
-                List<MediaItems> movies = TmdbApi.discoverMoviesByCompany(companyId, page);
+                List<MediaItems> movies = TmdbApi.discoverMoviesByCompany(tmdbClient, companyId, page);
                 mainHandler.post(() -> callback.onSuccess(movies));
             } catch (Exception e) {
                 Log.e(TAG, "Error discovering movies by company", e);
@@ -553,7 +540,7 @@ public class TmdbRepository {
     public void discoverTVShowsByNetworkAsync(int networkId, int page, TMDBCallback callback) {
         executorService.execute(() -> {
             try {
-                List<MediaItems> tvShows = TmdbApi.discoverTVShowsByNetwork(networkId, page);
+                List<MediaItems> tvShows = TmdbApi.discoverTVShowsByNetwork(tmdbClient, networkId, page);
                 mainHandler.post(() -> callback.onSuccess(tvShows));
             } catch (Exception e) {
                 Log.e(TAG, "Error discovering TV shows by network", e);
@@ -570,7 +557,7 @@ public class TmdbRepository {
     public void discoverMoviesByNetworkAsync(int networkId, int page, TMDBCallback callback) {
         executorService.execute(() -> {
             try {
-                List<MediaItems> movies = TmdbApi.discoverMoviesByNetwork(networkId, page);
+                List<MediaItems> movies = TmdbApi.discoverMoviesByNetwork(tmdbClient, networkId, page);
                 mainHandler.post(() -> callback.onSuccess(movies));
             } catch (Exception e) {
                 Log.e(TAG, "Error discovering movies by network", e);
@@ -587,7 +574,7 @@ public class TmdbRepository {
     public void discoverTVShowsByCompanyAsync(int companyId, int page, TMDBCallback callback) {
         executorService.execute(() -> {
             try {
-                List<MediaItems> tvShows = TmdbApi.discoverTVShowsByCompany(companyId, page);
+                List<MediaItems> tvShows = TmdbApi.discoverTVShowsByCompany(tmdbClient, companyId, page);
                 mainHandler.post(() -> callback.onSuccess(tvShows));
             } catch (Exception e) {
                 Log.e(TAG, "Error discovering TV shows by company", e);
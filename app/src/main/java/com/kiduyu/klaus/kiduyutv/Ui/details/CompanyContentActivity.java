@@ -106,7 +106,7 @@ public class CompanyContentActivity extends AppCompatActivity implements Company
         retryButton = findViewById(R.id.retryButton);
         focusedItemTitle = findViewById(R.id.focusedItemTitle);
 
-        tmdbRepository = new TmdbRepository();
+        tmdbRepository = new TmdbRepository(this);
 
         // Set company/network info
         nameTextView.setText(companyNetwork.getName());
@@ -61,7 +61,7 @@ public class ActorDetailsActivity extends AppCompatActivity {
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_actor_details);
 
-        castRepository = new CastRepository();
+        castRepository = new CastRepository(this);
 
         // Get cast member from intent
         castMember = getIntent().getParcelableExtra("cast_member");
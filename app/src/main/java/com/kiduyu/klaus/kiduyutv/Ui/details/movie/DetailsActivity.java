@@ -22,7 +22,8 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.kiduyu.klaus.kiduyutv.Api.CastRepository;
-import com.kiduyu.klaus.kiduyutv.Api.FetchStreams;
+import com.kiduyu.klaus.kiduyutv.Api.StreamRequest;
+import com.kiduyu.klaus.kiduyutv.Api.StreamResolver;
 import com.kiduyu.klaus.kiduyutv.Api.TmdbApi;
 import com.kiduyu.klaus.kiduyutv.Api.TmdbRepository;
 import com.kiduyu.klaus.kiduyutv.R;
@@ -34,7 +35,6 @@ import com.kiduyu.klaus.kiduyutv.adapter.RecommendationsAdapter;
 import com.kiduyu.klaus.kiduyutv.model.CastMember;
 import com.kiduyu.klaus.kiduyutv.model.MediaItems;
 import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
-import com.kiduyu.klaus.kiduyutv.utils.utils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -74,10 +74,9 @@ public class DetailsActivity extends AppCompatActivity {
     private CastAdapter castAdapter;
     private CastRepository castRepository;
 
-    // FetchStreams for video source fetching
-    private FetchStreams fetchStreams;
-    private int currentServerIndex = 0;
-    private List<ServerSource> serverSources;
+    // Races all stream providers for video source fetching
+    private StreamResolver streamResolver;
+    private StreamResolver.Resolution activeResolution;
 
     private TmdbRepository mediaRepository;
     private RecommendationsAdapter recommendationsAdapter;
@@ -99,11 +98,10 @@ public class DetailsActivity extends AppCompatActivity {
 
         Log.i(TAG,"genres"+mediaItems.getGenres());
 
-        // Initialize FetchStreams instance
-        initializeFetchStreams();
+        streamResolver = new StreamResolver(this);
 
-        mediaRepository = new TmdbRepository();
-        castRepository = new CastRepository();
+        mediaRepository = new TmdbRepository(this);
+        castRepository = new CastRepository(this);
         // Initialize PreferencesManager and check watch history
         preferencesManager = PreferencesManager.getInstance(this);
 
@@ -114,33 +112,11 @@ public class DetailsActivity extends AppCompatActivity {
         setupCastSection();
         setupRecommendations();
         checkWatchHistory();
+        loadMovieDetails();
         loadCast();
         loadRecommendations();
     }
 
-    /**
-     * Initialize FetchStreams instance and setup server sources
-     */
-    private void initializeFetchStreams() {
-        fetchStreams = new FetchStreams(this);
-        setupServerSources();
-    }
-
-    /**
-     * Setup the list of servers to try in order
-     */
-    private void setupServerSources() {
-        serverSources = new ArrayList<>();
-
-        // Add servers in priority order
-        serverSources.add(new ServerSource("Videasy", ServerType.VIDEASY));
-        serverSources.add(new ServerSource("Vidlink", ServerType.VIDLINK));
-        serverSources.add(new ServerSource("Hexa", ServerType.HEXA));
-        serverSources.add(new ServerSource("OneTouchTV", ServerType.ONETOUCHTV));
-        serverSources.add(new ServerSource("Smashystream Type 1", ServerType.SMASHYSTREAM_TYPE1));
-        serverSources.add(new ServerSource("Smashystream Type 2", ServerType.SMASHYSTREAM_TYPE2));
-    }
-
     private void initializeViews() {
         backdropImageView = findViewById(R.id.backdropImageView);
         titleTextView = findViewById(R.id.titleTextView);
@@ -278,6 +254,52 @@ public class DetailsActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
+    /**
+     * Load full details (runtime, genres, directors, stars) now that the card is open.
+     * List rows only carry the lightweight list payload.
+     */
+    private void loadMovieDetails() {
+        if (mediaItems.getTmdbId() == null || mediaItems.getTmdbId().isEmpty()) {
+            creatorsTextView.setText("Unknown");
+            starsTextView.setText("Unknown");
+            return;
+        }
+
+        mediaRepository.getMovieDetailsAsync(mediaItems.getTmdbId(), new TmdbRepository.MovieDetailsCallback() {
+            @Override
+            public void onSuccess(MediaItems detailedMovie, List<String> directors, List<String> stars) {
+                if (isFinishing() || isDestroyed()) return;
+
+                if (detailedMovie.getDuration() != null && !detailedMovie.getDuration().isEmpty()) {
+                    mediaItems.setDuration(detailedMovie.getDuration());
+                    durationTextView.setText(detailedMovie.getDuration());
+                    durationTextView.setVisibility(View.VISIBLE);
+                }
+
+                if (detailedMovie.getGenres() != null && !detailedMovie.getGenres().isEmpty()) {
+                    mediaItems.setGenres(detailedMovie.getGenres());
+                    mediaItems.setGenre(detailedMovie.getGenre());
+                    populateGenres();
+                }
+
+                creatorsTextView.setText(!directors.isEmpty() ? String.join(", ", directors) : "Unknown");
+
+                String starsString = !stars.isEmpty() ? String.join(", ", stars) : "Unknown";
+                if (starsString.length() > 50) {
+                    starsString = starsString.substring(0, 47) + "...";
+                }
+                starsTextView.setText(starsString);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error loading movie details: " + error);
+                creatorsTextView.setText("Unknown");
+                starsTextView.setText("Unknown");
+            }
+        });
+    }
+
     /**
      * Load cast members for the movie
      */
@@ -393,10 +415,8 @@ public class DetailsActivity extends AppCompatActivity {
     }
 
     /**
-     * Fetch video sources from multiple servers sequentially
-     */
-    /**
-     * Fetch video sources from all movie servers (similar to fetchAllTVStreams)
+     * Fetch video sources from all movie servers in parallel.
+     * The player starts on the first playable result; later servers are merged into it.
      */
     private void fetchVideoSources() {
         loadingOverlay.setVisibility(View.VISIBLE);
@@ -409,110 +429,50 @@ public class DetailsActivity extends AppCompatActivity {
 
         Log.i(TAG, "Fetching video sources for: " + title + " (" + year + ") [" + tmdbId + "]");
 
-        final List<MediaItems.VideoSource> allVideoSources = new ArrayList<>();
-        final List<MediaItems.SubtitleItem> allSubtitles = new ArrayList<>();
-
-        // Counter to track completed fetches
-        final int[] completedFetches = {0};
-        final int totalServers = 1; // Number of servers we're querying
-
-        // Callback to handle each server response
-        FetchStreams.StreamCallback callback = new FetchStreams.StreamCallback() {
-            @Override
-            public void onSuccess(MediaItems item) {
-                // Add video sources (✅ each source already has headers attached!)
-                if (item.getVideoSources() != null && !item.getVideoSources().isEmpty()) {
-                    allVideoSources.addAll(item.getVideoSources());
-                    Log.i(TAG, "Added " + item.getVideoSources().size() + " sources from server");
-                    for (MediaItems.VideoSource source : item.getVideoSources()) {
-                        Log.i(TAG, "  Source: " + source.getQuality() +
-                                " - hasHeaders: " + (source.getCustomHeaders() != null &&
-                                !source.getCustomHeaders().isEmpty()));
-                    }
-                }
-
-                // Add subtitles
-                if (item.getSubtitles() != null && !item.getSubtitles().isEmpty()) {
-                    allSubtitles.addAll(item.getSubtitles());
-                    Log.i(TAG, "Added " + item.getSubtitles().size() + " subtitles");
-                }
-
-                // ✅ REMOVED: Don't set global headers anymore!
-                // Each VideoSource already has its own authentication headers attached
-                // This prevents one server's cookies from being used with another server's URLs
-
-                // Keep background image
-                mediaItems.setBackgroundImageUrl(mediaItems.getBackgroundImageUrl());
-
-                checkAndProceed();
-            }
-
-            @Override
-            public void onError(String error) {
-                Log.e(TAG, "Server fetch error: " + error);
-                checkAndProceed();
-            }
-
-            private void checkAndProceed() {
-                completedFetches[0]++;
-
-                // Update loading text if available
-                if (loadingText != null) {
-                    runOnUiThread(() -> {
-                        loadingText.setText("Fetching streams... " + completedFetches[0] + "/" + totalServers);
-                    });
-                }
+        if (activeResolution != null) {
+            activeResolution.cancel();
+        }
 
-                // Once all servers have responded
-                if (completedFetches[0] >= totalServers) {
-                    runOnUiThread(() -> {
+        activeResolution = streamResolver.resolve(StreamRequest.movie(title, year, tmdbId, imdbId),
+                new StreamResolver.ResolveCallback() {
+                    @Override
+                    public void onFirstSource(StreamResolver.Resolution resolution,
+                                              List<MediaItems.VideoSource> sources,
+                                              List<MediaItems.SubtitleItem> subtitles) {
                         loadingOverlay.setVisibility(View.GONE);
                         playButton.setEnabled(true);
 
-                        if (allVideoSources.isEmpty()) {
-                            Toast.makeText(DetailsActivity.this,
-                                    "No streams found for this movie", Toast.LENGTH_LONG).show();
-                            return;
-                        }
+                        // ✅ Each VideoSource already carries its own authentication headers
+                        mediaItems.setVideoSources(sources);
+                        mediaItems.setSubtitles(subtitles);
 
-                        // Remove duplicates based on URL
-                        List<MediaItems.VideoSource> uniqueSources = utils.removeDuplicateSources(allVideoSources);
-                        List<MediaItems.SubtitleItem> uniqueSubtitles = utils.removeDuplicateSubtitles(allSubtitles);
+                        Log.i(TAG, "First sources: " + sources.size() + ", subtitles: " + subtitles.size());
 
-                        // Move VIP source(s) to index 0
-                        uniqueSources = utils.moveVipSourceToTop(uniqueSources);
-
-                        // Set all sources and subtitles to the media item
-                        mediaItems.setVideoSources(uniqueSources);
-                        mediaItems.setSubtitles(uniqueSubtitles);
-
-                        Log.i(TAG, "Total unique sources: " + uniqueSources.size());
-                        Log.i(TAG, "Total unique subtitles: " + uniqueSubtitles.size());
-
-                        // Launch player
+                        // Launch player; remaining servers are merged in as they arrive
                         launchPlayer();
-                    });
-                }
-            }
-        };
-
-        // 1. Fetch from Videasy
-        //fetchStreams.fetchVideasyMovie(title, year, tmdbId, callback);
-
-        // 2. Fetch from Hexa
-        //fetchStreams.fetchHexaMovie(tmdbId, callback);
-
-        // 3. Fetch from Vidlink
-        //fetchStreams.fetchVidlinkMovie(tmdbId, callback);
+                    }
 
-        // 4. Fetch from SmashyStream/Vidstack Type 1
-        //fetchStreams.fetchSmashystreamMovie(imdbId, tmdbId, "1", callback);
+                    @Override
+                    public void onProgress(int completed, int total) {
+                        if (loadingText != null) {
+                            loadingText.setText("Fetching streams... " + completed + "/" + total);
+                        }
+                    }
 
-        // 5. Fetch from SmashyStream/Vidstack Type 2
-        fetchStreams.fetchSmashystreamMovie(imdbId, tmdbId, "2", callback);
+                    @Override
+                    public void onComplete(StreamResolver.Resolution resolution) {
+                        Log.i(TAG, "Total unique sources: " + resolution.getSources().size());
+                    }
 
-        // 6. Fetch from XPrime (using "primebox" server)
-        //fetchStreams.fetchXprimeMovie(title, year, tmdbId, imdbId, "primebox", callback);
+                    @Override
+                    public void onError(String error) {
+                        Log.e(TAG, "Stream resolution error: " + error);
+                        loadingOverlay.setVisibility(View.GONE);
+                        playButton.setEnabled(true);
+                        Toast.makeText(DetailsActivity.this,
+                                "No streams found for this movie", Toast.LENGTH_LONG).show();
+                    }
+                });
     }
 
 
@@ -531,6 +491,9 @@ public class DetailsActivity extends AppCompatActivity {
         Intent intent = new Intent(this, PlayerActivity.class);
         mediaItems.setMediaType(String.valueOf(TmdbApi.ContentType.MOVIE));
         intent.putExtra("media_item", mediaItems);
+        if (activeResolution != null) {
+            intent.putExtra(StreamResolver.EXTRA_RESOLUTION_ID, activeResolution.getId());
+        }
 
         // Pass start position if continuing watch history
         if (hasWatchHistory && savedPosition > 0) {
@@ -541,36 +504,12 @@ public class DetailsActivity extends AppCompatActivity {
         startActivity(intent);
     }
 
-    /**
-     * Server type enum for video source fetching
-     */
-    private enum ServerType {
-        VIDEASY,
-        VIDLINK,
-        HEXA,
-        ONETOUCHTV,
-        SMASHYSTREAM_TYPE1,
-        SMASHYSTREAM_TYPE2
-    }
-
-    /**
-     * Server source class to hold server information
-     */
-    private static class ServerSource {
-        String name;
-        ServerType type;
-
-        ServerSource(String name, ServerType type) {
-            this.name = name;
-            this.type = type;
-        }
-    }
-
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        if (fetchStreams != null) {
-            fetchStreams.shutdown();
+        // Only stop a resolution nobody is playing yet; a running player keeps receiving servers
+        if (activeResolution != null && activeResolution.getSources().isEmpty()) {
+            activeResolution.cancel();
         }
     }
 
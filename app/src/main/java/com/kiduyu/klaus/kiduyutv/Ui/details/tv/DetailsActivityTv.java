@@ -27,7 +27,8 @@ import androidx.recyclerview.widget.RecyclerView;
 
 import com.bumptech.glide.Glide;
 import com.kiduyu.klaus.kiduyutv.Api.CastRepository;
-import com.kiduyu.klaus.kiduyutv.Api.FetchStreams;
+import com.kiduyu.klaus.kiduyutv.Api.StreamRequest;
+import com.kiduyu.klaus.kiduyutv.Api.StreamResolver;
 import com.kiduyu.klaus.kiduyutv.Api.TmdbApi;
 import com.kiduyu.klaus.kiduyutv.Api.TmdbRepository;
 import com.kiduyu.klaus.kiduyutv.R;
@@ -43,7 +44,6 @@ import com.kiduyu.klaus.kiduyutv.model.Episode;
 import com.kiduyu.klaus.kiduyutv.model.MediaItems;
 import com.kiduyu.klaus.kiduyutv.model.Season;
 import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
-import com.kiduyu.klaus.kiduyutv.utils.utils;
 
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
@@ -97,14 +97,19 @@ public class DetailsActivityTv extends AppCompatActivity {
     // Watch history
     private PreferencesManager preferencesManager;
 
+    // Races all stream providers for episode playback
+    private StreamResolver streamResolver;
+    private StreamResolver.Resolution activeResolution;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_details_tv);
 
-        mediaRepository = new TmdbRepository();
-        castRepository = new CastRepository();
+        mediaRepository = new TmdbRepository(this);
+        castRepository = new CastRepository(this);
+        streamResolver = new StreamResolver(this);
 
         // Get TV show from intent
         tvShow = getIntent().getParcelableExtra("media_item");
@@ -307,134 +312,64 @@ public class DetailsActivityTv extends AppCompatActivity {
     private void fetchAllTVStreams(MediaItems episodeMedia, String title, String year,
                                    String tmdbId, String imdbId, String season, String episodeNumber) {
 
-        final List<MediaItems.VideoSource> allVideoSources = new ArrayList<>();
-        final List<MediaItems.SubtitleItem> allSubtitles = new ArrayList<>();
-
-        // Counter to track completed fetches
-        final int[] completedFetches = {0};
-        final int totalServers = 1; // Number of servers we're querying
-
-        FetchStreams fetchStreams = new FetchStreams(this);
+        if (activeResolution != null) {
+            activeResolution.cancel();
+        }
 
-        // Callback to handle each server response
-        FetchStreams.StreamCallback callback = new FetchStreams.StreamCallback() {
+        StreamRequest request = StreamRequest.episode(title, year, tmdbId, imdbId, season, episodeNumber);
+        activeResolution = streamResolver.resolve(request, new StreamResolver.ResolveCallback() {
             @OptIn(markerClass = UnstableApi.class)
             @Override
-            public void onSuccess(MediaItems item) {
-                // Add video sources
-                // Add video sources (✅ each source already has headers attached!)
-                if (item.getVideoSources() != null && !item.getVideoSources().isEmpty()) {
-                    allVideoSources.addAll(item.getVideoSources());
-                    Log.i(TAG, "Added " + item.getVideoSources().size() + " sources from server");
-                    for (MediaItems.VideoSource source : item.getVideoSources()) {
-                        Log.i(TAG, "  Source: " + source.getQuality() +
-                                " - hasHeaders: " + (source.getCustomHeaders() != null &&
-                                !source.getCustomHeaders().isEmpty()));
-                    }
-                }
+            public void onFirstSource(StreamResolver.Resolution resolution,
+                                      List<MediaItems.VideoSource> sources,
+                                      List<MediaItems.SubtitleItem> subtitles) {
+                loadingOverlay.setVisibility(View.GONE);
 
-                // Add subtitles
-                if (item.getSubtitles() != null && !item.getSubtitles().isEmpty()) {
-                    allSubtitles.addAll(item.getSubtitles());
-                    Log.i(TAG, "Added " + item.getSubtitles().size() + " subtitles");
-                }
+                // ✅ Each VideoSource already carries its own authentication headers
+                episodeMedia.setVideoSources(sources);
+                episodeMedia.setSubtitles(subtitles);
+                episodeMedia.setMediaType(String.valueOf(TmdbApi.ContentType.TV));
+                episodeMedia.setBackgroundImageUrl(episodeMedia.getPosterUrl());
 
+                Log.i(TAG, "First sources: " + sources.size() + ", subtitles: " + subtitles.size());
 
-                episodeMedia.setBackgroundImageUrl(episodeMedia.getPosterUrl());
+                // Launch player, resuming from saved position if available
+                Intent intent = new Intent(DetailsActivityTv.this, PlayerActivity.class);
+                intent.putExtra("media_item", episodeMedia);
+                intent.putExtra(StreamResolver.EXTRA_RESOLUTION_ID, resolution.getId());
+
+                long savedPosition = checkEpisodeWatchHistory(
+                        tvShow.getTmdbId(),
+                        selectedSeasonNumber,
+                        Integer.parseInt(episodeMedia.getEpisode())
+                );
+                if (savedPosition > 0) {
+                    intent.putExtra("start_position", savedPosition);
+                    Log.i(TAG, "Resuming episode from saved position: "
+                            + preferencesManager.formatTime((int) savedPosition));
+                }
 
-                checkAndProceed();
+                startActivity(intent);
             }
 
-            @OptIn(markerClass = UnstableApi.class)
             @Override
-            public void onError(String error) {
-                Log.e(TAG, "Server fetch error: " + error);
-                checkAndProceed();
+            public void onProgress(int completed, int total) {
+                loadingText.setText("Fetching streams... " + completed + "/" + total);
             }
 
-            @UnstableApi
-            private void checkAndProceed() {
-                completedFetches[0]++;
-
-                // Update progress text
-                runOnUiThread(() -> {
-                    // If you have a status text view, update it
-                    loadingText.setText("Fetching streams... " + completedFetches[0] + "/" + totalServers);
-                });
-
-                // Once all servers have responded
-                if (completedFetches[0] >= totalServers) {
-                    runOnUiThread(() -> {
-                        loadingOverlay.setVisibility(View.GONE);
-
-                        if (allVideoSources.isEmpty()) {
-                            Toast.makeText(DetailsActivityTv.this,
-                                    "No streams found for this episode", Toast.LENGTH_LONG).show();
-                            return;
-                        }
-
-                        // Remove duplicates based on URL
-                        List<MediaItems.VideoSource> uniqueSources = utils.removeDuplicateSources(allVideoSources);
-                        List<MediaItems.SubtitleItem> uniqueSubtitles = utils.removeDuplicateSubtitles(allSubtitles);
-
-                        // Move VIP source(s) to index 0
-                        uniqueSources = utils.moveVipSourceToTop(uniqueSources);
-
-                        // Set all sources and subtitles to the media item
-                        episodeMedia.setVideoSources(uniqueSources);
-                        episodeMedia.setSubtitles(uniqueSubtitles);
-                        episodeMedia.setMediaType(String.valueOf(TmdbApi.ContentType.TV));
-
-                        Log.i(TAG, "Total unique sources: " + uniqueSources.size());
-                        Log.i(TAG, "Total unique subtitles: " + uniqueSubtitles.size());
-
-                        // Launch player, resuming from saved position if available
-                        Intent intent = new Intent(DetailsActivityTv.this, PlayerActivity.class);
-                        intent.putExtra("media_item", episodeMedia);
-
-                        long savedPosition = checkEpisodeWatchHistory(
-                                tvShow.getTmdbId(),
-                                selectedSeasonNumber,
-                                Integer.parseInt(episodeMedia.getEpisode())
-                        );
-                        if (savedPosition > 0) {
-                            intent.putExtra("start_position", savedPosition);
-                            Log.i(TAG, "Resuming episode from saved position: "
-                                    + preferencesManager.formatTime((int) savedPosition));
-                        }
-
-                        startActivity(intent);
-                    });
-                }
+            @Override
+            public void onComplete(StreamResolver.Resolution resolution) {
+                Log.i(TAG, "Total unique sources: " + resolution.getSources().size());
             }
-        };
-
-        // 1. Fetch from Videasy (Multiple sub-servers available)
-        //fetchStreams.fetchVideasyTV(title, year, tmdbId, season, episodeNumber, callback);
-
-        // 2. Fetch from Hexa
-        //fetchStreams.fetchHexaTV(tmdbId, season, episodeNumber, callback);
-
-        // 3. Fetch from OneTouchTV (if you have the vodId)
-        // Note: OneTouchTV might need a different ID format
-        // fetchStreams.fetchOnetouchtvTV(vodId, episodeNumber, callback);
-        completedFetches[0]++; // Skip if not available
 
-        // 4. Fetch from SmashyStream/Vidstack Type 1
-        //fetchStreams.fetchSmashystreamTV(imdbId, tmdbId, season, episodeNumber, "1", callback);
-
-        // 5. Fetch from SmashyStream/Vidstack Type 2
-        fetchStreams.fetchSmashystreamTV(imdbId, tmdbId, season, episodeNumber, "2", callback);
-
-        // 6. Fetch from XPrime (requires server selection - use "primebox" or other available servers)
-        //fetchStreams.fetchXprimeTV(title, year, tmdbId, imdbId, season, episodeNumber, "primebox", callback);
-
-        // 7. Fetch from Mapple (if you have the TV slug format)
-        // Note: Mapple TV might need format like "1-1" for season-episode
-        String tvSlug = season + "-" + episodeNumber;
-        // You may need to implement fetchMappleTV in FetchStreams if it doesn't exist yet
-        // fetchStreams.fetchMappleTV(tmdbId, tvSlug, "mapple", callback);
-        //completedFetches[0]++; // Skip if not implemented
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Stream resolution error: " + error);
+                loadingOverlay.setVisibility(View.GONE);
+                Toast.makeText(DetailsActivityTv.this,
+                        "No streams found for this episode", Toast.LENGTH_LONG).show();
+            }
+        });
     }
 
 
@@ -632,4 +567,13 @@ public class DetailsActivityTv extends AppCompatActivity {
             }
         });
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Only stop a resolution nobody is playing yet; a running player keeps receiving servers
+        if (activeResolution != null && activeResolution.getSources().isEmpty()) {
+            activeResolution.cancel();
+        }
+    }
+}
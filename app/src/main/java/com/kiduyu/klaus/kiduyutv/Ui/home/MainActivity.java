@@ -114,7 +114,7 @@ public class MainActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_main);
-        tmdbRepository = new TmdbRepository();
+        tmdbRepository = new TmdbRepository(this);
         //apiRepository = new MediaRepositoryVideasy();
 // CRITICAL: Keep screen on during playback - prevents TV from sleeping
         getWindow().addFlags(WindowManager.LayoutParams.FLAG_KEEP_SCREEN_ON);
@@ -0,0 +1,122 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player;
+
+import android.content.Intent;
+import android.os.Binder;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.session.MediaSession;
+import androidx.media3.session.MediaSessionService;
+
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.WarmPlayer;
+
+/**
+ * PlaybackService - Owns the long-lived player and its MediaSession
+ *
+ * PlayerActivity starts and binds this service and hands it the {@link WarmPlayer}.
+ * The session gives the system (remote, Assistant, notification) control of
+ * playback. When no activity is bound and nothing plays for IDLE_TIMEOUT_MS the
+ * service stops and releases the player; until then a new player screen reuses it.
+ */
+@UnstableApi
+public class PlaybackService extends MediaSessionService {
+    private static final String TAG = "PlaybackService";
+
+    public static final String ACTION_BIND_PLAYER = "com.kiduyu.klaus.kiduyutv.BIND_PLAYER";
+    private static final long IDLE_TIMEOUT_MS = 3 * 60 * 1000L;
+
+    private final IBinder localBinder = new LocalBinder();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private MediaSession mediaSession;
+    // Binds with the same intent share one binder, so this is bound/unbound rather than a count
+    private boolean activityBound;
+
+    /**
+     * In-process binder for PlayerActivity
+     */
+    public class LocalBinder extends Binder {
+        public PlaybackService getService() {
+            return PlaybackService.this;
+        }
+    }
+
+    private final Runnable idleStop = () -> {
+        WarmPlayer warm = WarmPlayer.get();
+        if (!activityBound && (warm == null || !warm.player.isPlaying())) {
+            Log.i(TAG, "Idle, releasing player");
+            stopSelf();
+        }
+    };
+
+    /**
+     * Put the activity's player behind the session (a rebuilt player replaces the old one)
+     */
+    public void attach(Player player) {
+        if (mediaSession == null) {
+            mediaSession = new MediaSession.Builder(this, player).build();
+            addSession(mediaSession);
+        } else if (mediaSession.getPlayer() != player) {
+            mediaSession.setPlayer(player);
+        }
+    }
+
+    @Nullable
+    @Override
+    public MediaSession onGetSession(MediaSession.ControllerInfo controllerInfo) {
+        return mediaSession;
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(@Nullable Intent intent) {
+        if (intent != null && ACTION_BIND_PLAYER.equals(intent.getAction())) {
+            activityBound = true;
+            handler.removeCallbacks(idleStop);
+            return localBinder;
+        }
+        return super.onBind(intent);
+    }
+
+    @Override
+    public void onRebind(Intent intent) {
+        super.onRebind(intent);
+        if (ACTION_BIND_PLAYER.equals(intent.getAction())) {
+            activityBound = true;
+            handler.removeCallbacks(idleStop);
+        }
+    }
+
+    @Override
+    public boolean onUnbind(Intent intent) {
+        if (ACTION_BIND_PLAYER.equals(intent.getAction())) {
+            activityBound = false;
+            handler.postDelayed(idleStop, IDLE_TIMEOUT_MS);
+            return true; // deliver onRebind for the next player screen
+        }
+        return super.onUnbind(intent);
+    }
+
+    @Override
+    public void onTaskRemoved(@Nullable Intent rootIntent) {
+        WarmPlayer warm = WarmPlayer.get();
+        if (warm == null || !warm.player.getPlayWhenReady()) {
+            stopSelf();
+        }
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacks(idleStop);
+        if (mediaSession != null) {
+            mediaSession.release();
+            mediaSession = null;
+        }
+        WarmPlayer.release();
+        super.onDestroy();
+    }
+}
@@ -2,11 +2,14 @@ package com.kiduyu.klaus.kiduyutv.Ui.player;
 
 import static com.kiduyu.klaus.kiduyutv.Api.ApiClient.DEFAULT_USER_AGENT;
 
+import android.content.ComponentName;
+import android.content.ServiceConnection;
 import android.content.pm.ActivityInfo;
 import android.graphics.Color;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.IBinder;
 import android.os.Looper;
 import android.util.Log;
 import android.view.KeyEvent;
@@ -64,15 +67,24 @@ import androidx.media3.exoplayer.source.MediaSource;
 import androidx.media3.exoplayer.source.ProgressiveMediaSource;
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
 
+import com.kiduyu.klaus.kiduyutv.Api.ApiClient;
 import com.kiduyu.klaus.kiduyutv.Api.FetchStreams;
+import com.kiduyu.klaus.kiduyutv.Api.StreamResolver;
 import com.kiduyu.klaus.kiduyutv.Api.TmdbRepository;
 import com.kiduyu.klaus.kiduyutv.R;
 import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.PlayerControlsManager;
 import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.PlayerCore;
 import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.PlayerDialogManager;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.AdaptiveLoadControl;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.BandwidthHistory;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.HlsSegmentPrefetcher;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.NextEpisodePrefetcher;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.PlaybackStats;
 import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.PlayerGenreTagsManager;
 import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.PlayerSettingsManager;
 import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.PlayerSubtitleManager;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.SourceFailover;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.StreamUrlRefresher;
 import com.kiduyu.klaus.kiduyutv.model.EpisodeModel;
 import com.kiduyu.klaus.kiduyutv.model.MediaItems;
 import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
@@ -97,10 +109,16 @@ public class PlayerActivity extends AppCompatActivity {
     public static final int MIN_BUFFER_MS = 30000;     // 30 seconds
     public static final int PLAYBACK_BUFFER_MS = 10000; // 10 seconds
     public static final int REBUFFER_MS = 10000;
+    // Fast start: shorter startup buffer and a low first rendition that ABR ramps up from
+    public static final int FAST_START_MIN_BUFFER_MS = 15000;      // 15 seconds
+    public static final int FAST_START_PLAYBACK_BUFFER_MS = 1500;  // 1.5 seconds
+    public static final int FAST_START_REBUFFER_MS = 5000;         // 5 seconds
+    public static final long FAST_START_INITIAL_BITRATE = 1_500_000L; // 1.5 Mbps
 
     // ExoPlayer
     public ExoPlayer player;
     public DefaultTrackSelector trackSelector;
+    public AdaptiveLoadControl loadControl;
 
     // UI Components
     public SurfaceView videoSurface;
@@ -127,6 +145,7 @@ public class PlayerActivity extends AppCompatActivity {
     public LinearLayout loadingStatusContainer;
     public TextView loadingStatusText;
     public TextView hardsubBadge;
+    public TextView statsOverlay;
     public TextView tag1;
     public TextView tag2;
     public TextView tag3;
@@ -142,6 +161,7 @@ public class PlayerActivity extends AppCompatActivity {
     public SwitchCompat switchUseDoh;
     public SwitchCompat switchProgressiveCache;
     public SwitchCompat switchImageCdn;
+    public SwitchCompat switchPlaybackStats;
     public TextView textBufferSize;
     public TextView textSubtitleLanguage;
     public Button btnCloseSettings;
@@ -160,6 +180,11 @@ public class PlayerActivity extends AppCompatActivity {
     public float currentSpeed = 1.0f;
     public String mediaType; // "anime", "movie", "tv", etc.
     public boolean nextEpisodeTriggered = false;
+    public boolean waitingForSources = false; // every known source failed, more may still arrive
+
+    // Servers still being resolved after playback started
+    public StreamResolver.Resolution streamResolution;
+    public final StreamResolver.SourcesListener resolvedSourcesListener = this::mergeResolvedSources;
 
     // Quality selection tracking
     public String currentQuality = "Auto"; // Auto, High, Medium, Low
@@ -197,6 +222,11 @@ public class PlayerActivity extends AppCompatActivity {
     public PlayerDialogManager dialogManager;
     public PlayerGenreTagsManager genreTagsManager;
     public PlayerSettingsManager settingsManager;
+    public NextEpisodePrefetcher nextEpisodePrefetcher;
+    public SourceFailover sourceFailover;
+    public HlsSegmentPrefetcher segmentPrefetcher;
+    public StreamUrlRefresher streamUrlRefresher;   // the warm player's, set by PlayerCore
+    public PlaybackStats playbackStats;
 
     // Runnables kept here so managers can reference them
     public Runnable hideControlsTask = () -> {
@@ -215,6 +245,22 @@ public class PlayerActivity extends AppCompatActivity {
         }
     };
 
+    // PlaybackService exposes the player to the media session (remote, Assistant)
+    private boolean playbackServiceBound;
+    private final ServiceConnection playbackServiceConnection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            if (player != null) {
+                ((PlaybackService.LocalBinder) binder).getService().attach(player);
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // Same process, so this only happens if the service is torn down
+        }
+    };
+
     Runnable backPressResetTask = () -> {
         backPressedOnce = false;
     };
@@ -266,12 +312,16 @@ public class PlayerActivity extends AppCompatActivity {
         dialogManager = new PlayerDialogManager(this);
         genreTagsManager = new PlayerGenreTagsManager(this);
         settingsManager = new PlayerSettingsManager(this);
+        nextEpisodePrefetcher = new NextEpisodePrefetcher(this);
+        sourceFailover = new SourceFailover(this);
+        segmentPrefetcher = new HlsSegmentPrefetcher(this);
+        playbackStats = new PlaybackStats(this);
 
         // Initialize UI
         initializeViews();
         setupClickListeners();
         populateMediaInfo();
-        subtitleManager.fetchExternalSubtitles();
+        playerCore.runAfterFirstFrame(subtitleManager::fetchExternalSubtitles);
 
         // Initialize video sources and subtitles
         videoSources = mediaItems.getVideoSources();
@@ -285,12 +335,28 @@ public class PlayerActivity extends AppCompatActivity {
 
         // Initialize shared OkHttpClient - maintains cookies/sessions from FetchStreams API calls
         sharedOkHttpClient = FetchStreams.getSharedClient(this);
+        // Background fetches give way to segment downloads while this screen is open
+        ApiClient.onPlayerStarted();
+
+        // Initialize player - the warm one from PlaybackService when it is still around
+        boolean resumed = playerCore.initializePlayer();
+        startService(new Intent(this, PlaybackService.class));
+        playbackServiceBound = bindService(
+                new Intent(this, PlaybackService.class).setAction(PlaybackService.ACTION_BIND_PLAYER),
+                playbackServiceConnection, BIND_AUTO_CREATE);
+        playbackStats.setOverlayVisible(preferencesManager.isPlaybackStatsOverlayEnabled());
+
+        // Start playing, unless a recreated activity picked up the title still playing
+        if (!resumed) {
+            playerCore.loadVideoSource(currentSourceIndex);
+        }
 
-        // Initialize player
-        playerCore.initializePlayer();
-
-        // Start playing
-        playerCore.loadVideoSource(currentSourceIndex);
+        // Keep merging servers that are still being resolved
+        streamResolution = StreamResolver.getResolution(
+                getIntent().getStringExtra(StreamResolver.EXTRA_RESOLUTION_ID));
+        if (streamResolution != null) {
+            streamResolution.addListener(resolvedSourcesListener);
+        }
 
         // Populate genre tags for media content
         genreTagsManager.populateGenreTags();
@@ -302,6 +368,50 @@ public class PlayerActivity extends AppCompatActivity {
 
 
 
+    /**
+     * Append servers that resolved after playback started, skipping ones already listed
+     */
+    public void mergeResolvedSources(List<MediaItems.VideoSource> sources, List<MediaItems.SubtitleItem> newSubtitles) {
+        int added = 0;
+        for (MediaItems.VideoSource source : sources) {
+            boolean known = false;
+            for (MediaItems.VideoSource existing : videoSources) {
+                if (existing.getUrl() != null && existing.getUrl().equals(source.getUrl())) {
+                    known = true;
+                    break;
+                }
+            }
+            if (!known) {
+                videoSources.add(source);
+                added++;
+            }
+        }
+
+        if (subtitles != null) {
+            for (MediaItems.SubtitleItem subtitle : newSubtitles) {
+                boolean known = false;
+                for (MediaItems.SubtitleItem existing : subtitles) {
+                    if (existing.getUrl() != null && existing.getUrl().equals(subtitle.getUrl())) {
+                        known = true;
+                        break;
+                    }
+                }
+                if (!known) {
+                    subtitles.add(subtitle);
+                }
+            }
+        }
+
+        if (added > 0) {
+            Log.i(TAG, "Merged " + added + " late sources, total: " + videoSources.size());
+            // Playback ran out of servers while these were still resolving
+            if (waitingForSources) {
+                waitingForSources = false;
+                playerCore.loadVideoSource(currentSourceIndex + 1);
+            }
+        }
+    }
+
     private void initializeViews() {
         videoSurface = findViewById(R.id.videoSurface);
         backgroundImage = findViewById(R.id.backgroundImage);
@@ -327,6 +437,7 @@ public class PlayerActivity extends AppCompatActivity {
         loadingStatusContainer = findViewById(R.id.loadingStatusContainer);
         loadingStatusText = findViewById(R.id.loadingStatusText);
         hardsubBadge = findViewById(R.id.hardsubBadge);
+        statsOverlay = findViewById(R.id.statsOverlay);
         subtitleView = findViewById(R.id.subtitleView);
 
         // Initialize genre tags
@@ -578,11 +689,47 @@ public class PlayerActivity extends AppCompatActivity {
         // Save final watch progress
         playerCore.saveWatchProgress();
 
-        // Release player
+        // Close the stats session before the player goes away
+        if (playbackStats != null) {
+            playbackStats.setOverlayVisible(false);
+            playbackStats.endSession();
+        }
+
+        // These detach from the player (e.g. a queued next episode), so they go first
+        if (nextEpisodePrefetcher != null) {
+            nextEpisodePrefetcher.cancel();
+        }
+        if (sourceFailover != null) {
+            sourceFailover.reset();
+        }
+        if (segmentPrefetcher != null) {
+            segmentPrefetcher.reset();
+        }
+
+        // Hand the player back to PlaybackService; it stays warm for the next launch
         if (player != null) {
-            player.release();
+            BandwidthHistory.getInstance(this).flush();
+            playerCore.releasePlayer(isFinishing());
             player = null;
         }
+        if (playbackServiceBound) {
+            unbindService(playbackServiceConnection);
+            playbackServiceBound = false;
+        }
+        if (sharedOkHttpClient != null) {
+            ApiClient.onPlayerStopped();
+        }
+
+        if (streamResolution != null) {
+            streamResolution.removeListener(resolvedSourcesListener);
+            if (isFinishing()) {
+                // Backing out abandons whatever servers are still resolving
+                streamResolution.cancel();
+            }
+        }
+        if (genreTagsManager != null) {
+            genreTagsManager.cancelNextEpisodeFetch();
+        }
 
 
 
@@ -0,0 +1,154 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.app.ActivityManager;
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.Format;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
+import androidx.media3.exoplayer.DefaultLoadControl;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+import androidx.media3.exoplayer.upstream.DefaultAllocator;
+
+import java.util.Locale;
+
+/**
+ * AdaptiveLoadControl - Buffer sizing from device memory and measured throughput
+ *
+ * Buffered bytes are capped at a share of the app's heap (the allocator lives on
+ * the Java heap), so a high-bitrate source cannot exhaust a 1 GB device. Within
+ * that cap, the forward buffer target moves between the minimum and the user's
+ * buffer duration, which is now an upper bound: a link with plenty of headroom
+ * over the video bitrate keeps a short buffer, a tight link or a stall history
+ * buffers further ahead.
+ */
+@UnstableApi
+public class AdaptiveLoadControl extends DefaultLoadControl implements AnalyticsListener {
+    private static final String TAG = "AdaptiveLoadControl";
+
+    private static final float HEAP_SHARE = 0.3f;
+    private static final float LOW_RAM_HEAP_SHARE = 0.2f;
+    private static final int MIN_BUFFER_BYTES = 16 * 1024 * 1024;
+
+    // Forward buffer targets by throughput headroom (bandwidth / video bitrate)
+    private static final long HIGH_HEADROOM_TARGET_MS = 60_000;    // >= 4x
+    private static final long GOOD_HEADROOM_TARGET_MS = 120_000;   // >= 2x
+    private static final long LOW_HEADROOM_TARGET_MS = 240_000;    // >= 1.2x
+    private static final long REBUFFER_STEP_MS = 60_000;           // added per stall
+
+    private final BandwidthMeter bandwidthMeter;
+    private final long minBufferUs;
+    private final long maxBufferUs;
+    private final int targetBufferBytes;
+
+    private volatile int videoBitrate = Format.NO_VALUE;
+    private volatile int rebufferCount;
+    private volatile long targetUs;
+    private boolean wasRebuffering;
+
+    public AdaptiveLoadControl(Context context, BandwidthMeter bandwidthMeter, int minBufferMs, int maxBufferMs,
+                               int bufferForPlaybackMs, int bufferForPlaybackAfterRebufferMs) {
+        this(bandwidthMeter, minBufferMs, Math.max(minBufferMs, maxBufferMs),
+                bufferForPlaybackMs, bufferForPlaybackAfterRebufferMs, bufferBytesFor(context));
+    }
+
+    private AdaptiveLoadControl(BandwidthMeter bandwidthMeter, int minBufferMs, int maxBufferMs,
+                                int bufferForPlaybackMs, int bufferForPlaybackAfterRebufferMs, int targetBufferBytes) {
+        super(new DefaultAllocator(true, C.DEFAULT_BUFFER_SEGMENT_SIZE),
+                minBufferMs,
+                maxBufferMs,
+                bufferForPlaybackMs,
+                bufferForPlaybackAfterRebufferMs,
+                targetBufferBytes,
+                false, // the byte cap wins over time targets
+                DEFAULT_BACK_BUFFER_DURATION_MS,
+                DEFAULT_RETAIN_BACK_BUFFER_FROM_KEYFRAME);
+        this.bandwidthMeter = bandwidthMeter;
+        this.minBufferUs = minBufferMs * 1000L;
+        this.maxBufferUs = maxBufferMs * 1000L;
+        this.targetBufferBytes = targetBufferBytes;
+        this.targetUs = maxBufferUs;
+        Log.i(TAG, "Buffer cap " + (targetBufferBytes / (1024 * 1024)) + " MB, max " + maxBufferMs / 1000 + "s");
+    }
+
+    /**
+     * Keep loading until the adaptive target, then defer to the default thresholds
+     */
+    @Override
+    public boolean shouldContinueLoading(Parameters parameters) {
+        if (parameters.rebuffering && !wasRebuffering) {
+            rebufferCount++;
+        }
+        wasRebuffering = parameters.rebuffering;
+
+        targetUs = computeTargetUs();
+        if (parameters.bufferedDurationUs >= targetUs) {
+            return false;
+        }
+        return super.shouldContinueLoading(parameters);
+    }
+
+    private long computeTargetUs() {
+        long bandwidth = bandwidthMeter.getBitrateEstimate();
+        int bitrate = videoBitrate;
+
+        long targetMs;
+        if (bitrate <= 0 || bandwidth <= 0) {
+            targetMs = maxBufferUs / 1000; // nothing measured yet, the cap still applies
+        } else {
+            double headroom = (double) bandwidth / bitrate;
+            if (headroom >= 4) {
+                targetMs = HIGH_HEADROOM_TARGET_MS;
+            } else if (headroom >= 2) {
+                targetMs = GOOD_HEADROOM_TARGET_MS;
+            } else if (headroom >= 1.2) {
+                targetMs = LOW_HEADROOM_TARGET_MS;
+            } else {
+                targetMs = maxBufferUs / 1000;
+            }
+        }
+        targetMs += rebufferCount * REBUFFER_STEP_MS;
+        return Math.max(minBufferUs, Math.min(maxBufferUs, targetMs * 1000));
+    }
+
+    /**
+     * Forget the stalls of the previous title; the warm player carries this across titles
+     */
+    public void resetStallHistory() {
+        rebufferCount = 0;
+    }
+
+    @Override
+    public void onVideoInputFormatChanged(@NonNull EventTime eventTime, @NonNull Format format,
+                                          @Nullable DecoderReuseEvaluation decoderReuseEvaluation) {
+        videoBitrate = format.bitrate != Format.NO_VALUE ? format.bitrate : format.peakBitrate;
+    }
+
+    /**
+     * Current decisions for the stats overlay
+     */
+    public String describe() {
+        long bandwidth = bandwidthMeter.getBitrateEstimate();
+        int bitrate = videoBitrate;
+        String headroom = bitrate > 0 && bandwidth > 0
+                ? String.format(Locale.US, "%.1fx", (double) bandwidth / bitrate) : "-";
+        return String.format(Locale.US, "Buffer target: %ds of %ds, cap %d MB\nHeadroom: %s, %d stalls",
+                targetUs / 1_000_000, maxBufferUs / 1_000_000, targetBufferBytes / (1024 * 1024),
+                headroom, rebufferCount);
+    }
+
+    private static int bufferBytesFor(Context context) {
+        ActivityManager activityManager = (ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE);
+        if (activityManager == null) {
+            return DEFAULT_TARGET_BUFFER_BYTES;
+        }
+        float share = activityManager.isLowRamDevice() ? LOW_RAM_HEAP_SHARE : HEAP_SHARE;
+        long bytes = (long) (activityManager.getMemoryClass() * 1024L * 1024L * share);
+        return (int) Math.max(MIN_BUFFER_BYTES, Math.min(bytes, Integer.MAX_VALUE));
+    }
+}
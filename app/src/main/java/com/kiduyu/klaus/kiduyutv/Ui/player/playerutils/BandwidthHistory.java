@@ -0,0 +1,171 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.net.NetworkCapabilities;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.source.LoadEventInfo;
+import androidx.media3.exoplayer.source.MediaLoadData;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * BandwidthHistory - Smoothed throughput per CDN host and network type, kept across sessions
+ *
+ * Media loads that came over the network (not from the media cache) feed an
+ * exponentially weighted average for "host|network". The player seeds its
+ * bandwidth meter from the stored value for the first source's host, so the
+ * first segments are picked for what the link sustained last time instead of a
+ * generic default. Entries older than MAX_AGE_MS are ignored.
+ */
+@UnstableApi
+public class BandwidthHistory implements AnalyticsListener {
+    private static final String TAG = "BandwidthHistory";
+    private static final String PREF_NAME = "bandwidth_history";
+
+    private static final double SMOOTHING = 0.3;          // weight of a new sample
+    private static final long MIN_SAMPLE_BYTES = 256 * 1024;
+    private static final long MAX_AGE_MS = 14L * 24 * 60 * 60 * 1000;
+    private static final int MAX_ENTRIES = 64;
+    private static final int SAVE_EVERY_SAMPLES = 10;
+
+    private static volatile BandwidthHistory instance;
+
+    private final SharedPreferences preferences;
+    private final ConnectivityManager connectivityManager;
+    private final Map<String, long[]> estimates = new HashMap<>(); // key -> {bitsPerSecond, updatedAt}
+    private int unsavedSamples;
+
+    private BandwidthHistory(Context context) {
+        Context appContext = context.getApplicationContext();
+        this.preferences = appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        this.connectivityManager = (ConnectivityManager) appContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        for (Map.Entry<String, ?> entry : preferences.getAll().entrySet()) {
+            long[] value = decode(String.valueOf(entry.getValue()));
+            if (value != null) {
+                estimates.put(entry.getKey(), value);
+            }
+        }
+    }
+
+    public static BandwidthHistory getInstance(Context context) {
+        if (instance == null) {
+            synchronized (BandwidthHistory.class) {
+                if (instance == null) {
+                    instance = new BandwidthHistory(context);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Last smoothed estimate in bits/s for a URL's host on the current network, or 0 if unknown
+     */
+    public synchronized long getEstimate(String url) {
+        String key = keyFor(url);
+        long[] value = key != null ? estimates.get(key) : null;
+        if (value == null || System.currentTimeMillis() - value[1] > MAX_AGE_MS) {
+            return 0;
+        }
+        return value[0];
+    }
+
+    @Override
+    public void onLoadCompleted(@NonNull EventTime eventTime, @NonNull LoadEventInfo loadEventInfo,
+                                @NonNull MediaLoadData mediaLoadData) {
+        // Cache reads carry no response headers and would report disk speed
+        if (mediaLoadData.dataType != C.DATA_TYPE_MEDIA
+                || loadEventInfo.bytesLoaded < MIN_SAMPLE_BYTES
+                || loadEventInfo.loadDurationMs <= 0
+                || loadEventInfo.responseHeaders.isEmpty()) {
+            return;
+        }
+        long bitsPerSecond = loadEventInfo.bytesLoaded * 8000L / loadEventInfo.loadDurationMs;
+        record(loadEventInfo.uri.toString(), bitsPerSecond);
+    }
+
+    synchronized void record(String url, long bitsPerSecond) {
+        String key = keyFor(url);
+        if (key == null) {
+            return;
+        }
+        long[] value = estimates.get(key);
+        long smoothed = value == null
+                ? bitsPerSecond
+                : (long) (SMOOTHING * bitsPerSecond + (1 - SMOOTHING) * value[0]);
+        estimates.put(key, new long[]{smoothed, System.currentTimeMillis()});
+
+        if (++unsavedSamples >= SAVE_EVERY_SAMPLES) {
+            flush();
+        }
+    }
+
+    /**
+     * Persist the estimates, keeping the MAX_ENTRIES most recently updated
+     */
+    public synchronized void flush() {
+        if (unsavedSamples == 0) {
+            return;
+        }
+        unsavedSamples = 0;
+        while (estimates.size() > MAX_ENTRIES) {
+            String oldest = null;
+            for (Map.Entry<String, long[]> entry : estimates.entrySet()) {
+                if (oldest == null || entry.getValue()[1] < estimates.get(oldest)[1]) {
+                    oldest = entry.getKey();
+                }
+            }
+            estimates.remove(oldest);
+        }
+
+        SharedPreferences.Editor editor = preferences.edit().clear();
+        for (Map.Entry<String, long[]> entry : estimates.entrySet()) {
+            editor.putString(entry.getKey(), entry.getValue()[0] + "," + entry.getValue()[1]);
+        }
+        editor.apply();
+        Log.i(TAG, "Saved " + estimates.size() + " bandwidth estimates");
+    }
+
+    private String keyFor(String url) {
+        String host = url != null ? Uri.parse(url).getHost() : null;
+        return host != null ? host + "|" + networkType() : null;
+    }
+
+    private String networkType() {
+        Network network = connectivityManager != null ? connectivityManager.getActiveNetwork() : null;
+        NetworkCapabilities capabilities = network != null
+                ? connectivityManager.getNetworkCapabilities(network) : null;
+        if (capabilities == null) {
+            return "none";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_ETHERNET)) {
+            return "ethernet";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_WIFI)) {
+            return "wifi";
+        } else if (capabilities.hasTransport(NetworkCapabilities.TRANSPORT_CELLULAR)) {
+            return "cellular";
+        }
+        return "other";
+    }
+
+    private static long[] decode(String value) {
+        String[] parts = value.split(",");
+        if (parts.length != 2) {
+            return null;
+        }
+        try {
+            return new long[]{Long.parseLong(parts[0]), Long.parseLong(parts[1])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.common.util.UriUtil;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.exoplayer.hls.HlsManifest;
+import androidx.media3.exoplayer.hls.playlist.HlsMediaPlaylist;
+
+import com.kiduyu.klaus.kiduyutv.Ui.player.PlayerActivity;
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HlsSegmentPrefetcher - Parallel download of upcoming HLS segments into the media cache
+ *
+ * Some provider CDNs cap each connection's throughput, while the player loads one
+ * segment at a time. While an HLS source plays, the next PREFETCH_SEGMENTS segments
+ * beyond the player's loading point (in the variant it is playing) are fetched over
+ * several connections through the same cached data source, so the player then reads
+ * them from disk (see {@link MediaCache}).
+ *
+ * Concurrency starts at one connection and grows while each added connection keeps
+ * roughly the per-connection throughput of the level below (the host is throttling
+ * connections, not the link). It shrinks when connections start sharing the link.
+ * A 429 or 503 from the host drops back to one connection and pauses the stage with
+ * exponential backoff, honouring Retry-After.
+ */
+@UnstableApi
+public class HlsSegmentPrefetcher {
+    private static final String TAG = "HlsSegmentPrefetcher";
+
+    private static final int PREFETCH_SEGMENTS = 6;
+    private static final int MAX_CONNECTIONS = 4;
+    private static final double KEEP_THROUGHPUT_SHARE = 0.75;   // grow while per-connection speed holds
+    private static final double DROP_THROUGHPUT_SHARE = 0.5;    // shrink when it falls below this
+    private static final double SMOOTHING = 0.3;
+    private static final long INITIAL_BACKOFF_MS = 5_000;
+    private static final long MAX_BACKOFF_MS = 60_000;
+
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_CONNECTIONS, MAX_CONNECTIONS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "hls-prefetch-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private final PlayerActivity activity;
+
+    // Main thread state for the current source
+    private DataSource.Factory factory;
+    private final Set<String> fetched = new HashSet<>();
+    private final Set<String> inFlight = new HashSet<>();
+    private int concurrency = 1;
+    private long pausedUntil;
+    private long backoffMs = INITIAL_BACKOFF_MS;
+    private long bytesFetched;
+    private long fetchTimeMs;
+
+    // Smoothed per-connection throughput (bits/s) measured at each concurrency level
+    private final double[] throughputAt = new double[MAX_CONNECTIONS + 1];
+
+    // Bumped on every source change so in-flight downloads stop early
+    private volatile int generation;
+
+    public HlsSegmentPrefetcher(PlayerActivity activity) {
+        this.activity = activity;
+    }
+
+    /**
+     * Forget the current source and abandon its downloads, e.g. when a new source starts loading
+     */
+    public void reset() {
+        generation++;
+        factory = null;
+        fetched.clear();
+        inFlight.clear();
+        concurrency = 1;
+        pausedUntil = 0;
+        backoffMs = INITIAL_BACKOFF_MS;
+        bytesFetched = 0;
+        fetchTimeMs = 0;
+        for (int i = 0; i < throughputAt.length; i++) {
+            throughputAt[i] = 0;
+        }
+    }
+
+    /**
+     * Called with every progress tick; tops up the downloads ahead of the loading point
+     */
+    void onProgress() {
+        if (activity.player == null || SystemClock.elapsedRealtime() < pausedUntil
+                || inFlight.size() >= concurrency) {
+            return;
+        }
+        Object manifest = activity.player.getCurrentManifest();
+        if (!(manifest instanceof HlsManifest)) {
+            return;
+        }
+        // Only segments that land in the cache help the player
+        if (!PreferencesManager.getInstance(activity).isProgressiveCacheEnabled()) {
+            return;
+        }
+        HlsMediaPlaylist playlist = ((HlsManifest) manifest).mediaPlaylist;
+        if (!playlist.hasEndTag) {
+            return; // live playlists have little to fetch ahead
+        }
+
+        if (factory == null) {
+            MediaItems.VideoSource source = activity.videoSources.get(activity.currentSourceIndex);
+            factory = activity.playerCore.buildDataSourceFactory(source);
+        }
+
+        // Skip what is buffered and the segment the player is loading right now
+        long loadingUs = activity.player.getBufferedPosition() * 1000;
+        boolean skippedLoading = false;
+        int ahead = 0;
+        for (HlsMediaPlaylist.Segment segment : playlist.segments) {
+            if (segment.relativeStartTimeUs + segment.durationUs <= loadingUs) {
+                continue;
+            }
+            if (!skippedLoading) {
+                skippedLoading = true;
+                continue;
+            }
+            if (ahead++ >= PREFETCH_SEGMENTS || inFlight.size() >= concurrency) {
+                break;
+            }
+            DataSpec dataSpec = new DataSpec.Builder()
+                    .setUri(UriUtil.resolveToUri(playlist.baseUri, segment.url))
+                    .setPosition(segment.byteRangeOffset)
+                    .setLength(segment.byteRangeLength)
+                    .build();
+            String key = dataSpec.uri + "@" + dataSpec.position;
+            if (!fetched.contains(key) && !inFlight.contains(key)) {
+                fetch(key, dataSpec);
+            }
+        }
+    }
+
+    private void fetch(String key, DataSpec dataSpec) {
+        inFlight.add(key);
+        DataSource.Factory fetchFactory = factory;
+        int fetchGeneration = generation;
+        int level = inFlight.size(); // connections running alongside this one
+
+        executor.execute(() -> {
+            long startedAt = SystemClock.elapsedRealtime();
+            long bytes = 0;
+            IOException failure = null;
+            DataSource dataSource = fetchFactory.createDataSource();
+            try {
+                dataSource.open(dataSpec);
+                byte[] buffer = new byte[32 * 1024];
+                int read;
+                while (generation == fetchGeneration
+                        && (read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                    bytes += read;
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                try {
+                    dataSource.close();
+                } catch (IOException ignored) {
+                }
+            }
+            long elapsedMs = Math.max(1, SystemClock.elapsedRealtime() - startedAt);
+            long fetchedBytes = bytes;
+            IOException error = failure;
+            activity.handler.post(() -> onFetched(key, fetchGeneration, level, fetchedBytes, elapsedMs, error));
+        });
+    }
+
+    private void onFetched(String key, int fetchGeneration, int level, long bytes, long elapsedMs,
+                           IOException error) {
+        if (fetchGeneration != generation) {
+            return;
+        }
+        inFlight.remove(key);
+
+        if (error != null) {
+            int responseCode = error instanceof HttpDataSource.InvalidResponseCodeException
+                    ? ((HttpDataSource.InvalidResponseCodeException) error).responseCode : -1;
+            if (responseCode == 429 || responseCode == 503) {
+                long retryAfterMs = retryAfterMs((HttpDataSource.InvalidResponseCodeException) error);
+                long pauseMs = Math.max(backoffMs, retryAfterMs);
+                pausedUntil = SystemClock.elapsedRealtime() + pauseMs;
+                backoffMs = Math.min(MAX_BACKOFF_MS, backoffMs * 2);
+                concurrency = 1;
+                Log.w(TAG, "Host returned " + responseCode + ", pausing prefetch for " + pauseMs + "ms");
+            } else {
+                // Left to the player, which will load it itself
+                fetched.add(key);
+                Log.w(TAG, "Segment prefetch failed: " + error.getMessage());
+            }
+            return;
+        }
+
+        fetched.add(key);
+        backoffMs = INITIAL_BACKOFF_MS;
+        bytesFetched += bytes;
+        fetchTimeMs += elapsedMs;
+        adjustConcurrency(level, bytes * 8000.0 / elapsedMs);
+        onProgress();
+    }
+
+    /**
+     * Hill-climb on per-connection throughput: another connection is worth it while
+     * each one still gets most of what fewer connections got (and got last time the
+     * level above was tried)
+     */
+    private void adjustConcurrency(int level, double bitsPerSecond) {
+        throughputAt[level] = throughputAt[level] == 0
+                ? bitsPerSecond
+                : SMOOTHING * bitsPerSecond + (1 - SMOOTHING) * throughputAt[level];
+        if (level != concurrency) {
+            return;
+        }
+        double below = level > 1 ? throughputAt[level - 1] : 0;
+        if (below > 0 && throughputAt[level] < below * DROP_THROUGHPUT_SHARE) {
+            concurrency = level - 1;
+            Log.i(TAG, "Connections are sharing the link, prefetching over " + concurrency);
+        } else if (level < MAX_CONNECTIONS
+                && (below == 0 || throughputAt[level] >= below * KEEP_THROUGHPUT_SHARE)
+                && (throughputAt[level + 1] == 0
+                        || throughputAt[level + 1] >= throughputAt[level] * KEEP_THROUGHPUT_SHARE)) {
+            concurrency = level + 1;
+            Log.i(TAG, "Per-connection throughput holds, prefetching over " + concurrency);
+        }
+    }
+
+    private static long retryAfterMs(HttpDataSource.InvalidResponseCodeException error) {
+        for (Map.Entry<String, List<String>> header : error.headerFields.entrySet()) {
+            if ("Retry-After".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                try {
+                    return Long.parseLong(header.getValue().get(0).trim()) * 1000;
+                } catch (NumberFormatException e) {
+                    return 0; // an HTTP date; the exponential backoff applies
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Current state for the stats overlay
+     */
+    public String describe() {
+        double aggregate = fetchTimeMs > 0 ? bytesFetched * 8000.0 / fetchTimeMs * concurrency : 0;
+        return String.format(Locale.US, "Prefetch: %d connections, %d segments, ~%.1f Mbps%s",
+                concurrency, fetched.size(), aggregate / 1_000_000.0,
+                SystemClock.elapsedRealtime() < pausedUntil ? " (backing off)" : "");
+    }
+}
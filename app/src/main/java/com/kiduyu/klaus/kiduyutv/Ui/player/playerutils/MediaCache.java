@@ -0,0 +1,162 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.database.StandaloneDatabaseProvider;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.cache.Cache;
+import androidx.media3.datasource.cache.CacheDataSource;
+import androidx.media3.datasource.cache.CacheKeyFactory;
+import androidx.media3.datasource.cache.LeastRecentlyUsedCacheEvictor;
+import androidx.media3.datasource.cache.SimpleCache;
+
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * MediaCache - On-disk cache for played media (Settings: Progressive Cache)
+ *
+ * One SimpleCache per process under cacheDir/media_cache, evicted least recently
+ * used once it passes the size from PreferencesManager (capped at half the free
+ * space). Segments are keyed without the parameters of a recognised URL-signing
+ * scheme, so a re-resolved URL for the same file still hits what was downloaded
+ * before. Every other parameter stays in the key, since it may select the bytes
+ * (a rendition, a byte range). Manifests keep their full URL as key so a stale
+ * playlist is never served for fresh tokens.
+ */
+@UnstableApi
+public final class MediaCache {
+    private static final String TAG = "MediaCache";
+
+    public static final String CACHE_DIR = "media_cache";
+
+    // Akamai tokens: the whole signature travels in one parameter
+    private static final Set<String> AKAMAI_PARAMS = new HashSet<>(Arrays.asList("hdnts", "hdnea"));
+    // CloudFront signed URLs: Key-Pair-Id + Signature, with Policy or Expires
+    private static final Set<String> CLOUDFRONT_PARAMS = new HashSet<>(Arrays.asList(
+            "key-pair-id", "signature", "policy", "expires"));
+    // Generic expiring signature, only when both halves are present
+    private static final Set<String> EXPIRING_SIGNATURE_PARAMS = new HashSet<>(Arrays.asList(
+            "expires", "signature"));
+
+    private static volatile SimpleCache cache;
+
+    private MediaCache() {
+    }
+
+    /**
+     * The process-wide cache, created on first use
+     */
+    public static Cache get(Context context) {
+        if (cache == null) {
+            synchronized (MediaCache.class) {
+                if (cache == null) {
+                    Context appContext = context.getApplicationContext();
+                    File dir = new File(appContext.getCacheDir(), CACHE_DIR);
+                    long maxBytes = maxBytes(appContext, dir);
+                    cache = new SimpleCache(dir, new LeastRecentlyUsedCacheEvictor(maxBytes),
+                            new StandaloneDatabaseProvider(appContext));
+                    Log.i(TAG, "Media cache ready: " + (maxBytes / (1024 * 1024)) + " MB max");
+                }
+            }
+        }
+        return cache;
+    }
+
+    /**
+     * Wrap an upstream factory so reads go through the cache.
+     * Cache errors fall back to the network rather than failing playback.
+     */
+    public static DataSource.Factory wrap(Context context, DataSource.Factory upstream) {
+        return new CacheDataSource.Factory()
+                .setCache(get(context))
+                .setUpstreamDataSourceFactory(upstream)
+                .setCacheKeyFactory(KEY_FACTORY)
+                .setFlags(CacheDataSource.FLAG_IGNORE_CACHE_ON_ERROR);
+    }
+
+    /**
+     * Drop every cached resource. Blocks on disk I/O, so call it off the main thread.
+     */
+    public static void clear(Context context) {
+        Cache mediaCache = get(context);
+        for (String key : new ArrayList<>(mediaCache.getKeys())) {
+            mediaCache.removeResource(key);
+        }
+        Log.i(TAG, "Media cache cleared");
+    }
+
+    private static final CacheKeyFactory KEY_FACTORY = (DataSpec dataSpec) ->
+            dataSpec.key != null ? dataSpec.key : keyFor(dataSpec.uri);
+
+    /**
+     * Cache key for a media URL: the URL minus its signing parameters
+     */
+    static String keyFor(Uri uri) {
+        String path = uri.getPath() != null ? uri.getPath().toLowerCase(Locale.US) : "";
+        if (uri.getQuery() == null || path.endsWith(".m3u8") || path.endsWith(".mpd")) {
+            return uri.toString();
+        }
+
+        Set<String> names = new HashSet<>();
+        for (String name : uri.getQueryParameterNames()) {
+            names.add(name.toLowerCase(Locale.US));
+        }
+        Set<String> signing = signingParams(names);
+        if (signing.isEmpty()) {
+            return uri.toString();
+        }
+
+        Uri.Builder builder = uri.buildUpon().clearQuery();
+        for (String name : uri.getQueryParameterNames()) {
+            if (signing.contains(name.toLowerCase(Locale.US))) {
+                continue;
+            }
+            for (String value : uri.getQueryParameters(name)) {
+                builder.appendQueryParameter(name, value);
+            }
+        }
+        return builder.build().toString();
+    }
+
+    /**
+     * The (lower-case) parameters of the signing schemes present in a query
+     */
+    private static Set<String> signingParams(Set<String> names) {
+        Set<String> signing = new HashSet<>();
+        for (String name : names) {
+            // AWS SigV4
+            if (name.startsWith("x-amz-")) {
+                signing.add(name);
+            }
+        }
+        for (String name : AKAMAI_PARAMS) {
+            if (names.contains(name)) {
+                signing.add(name);
+            }
+        }
+        if (names.contains("key-pair-id") && names.contains("signature")) {
+            signing.addAll(CLOUDFRONT_PARAMS);
+        } else if (names.containsAll(EXPIRING_SIGNATURE_PARAMS)) {
+            signing.addAll(EXPIRING_SIGNATURE_PARAMS);
+        }
+        return signing;
+    }
+
+    private static long maxBytes(Context context, File dir) {
+        long configured = PreferencesManager.getInstance(context).getMediaCacheSizeMb() * 1024L * 1024L;
+        File probe = dir.exists() ? dir : context.getCacheDir();
+        long available = probe.getUsableSpace() / 2;
+        return available > 0 ? Math.min(configured, available) : configured;
+    }
+}
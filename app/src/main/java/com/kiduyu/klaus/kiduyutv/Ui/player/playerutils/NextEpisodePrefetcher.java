@@ -0,0 +1,273 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.media3.common.MediaItem;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+
+import com.kiduyu.klaus.kiduyutv.Api.StreamRequest;
+import com.kiduyu.klaus.kiduyutv.Api.StreamResolver;
+import com.kiduyu.klaus.kiduyutv.Api.TmdbRepository;
+import com.kiduyu.klaus.kiduyutv.Ui.player.PlayerActivity;
+import com.kiduyu.klaus.kiduyutv.model.Episode;
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * NextEpisodePrefetcher - Resolves and preloads the next episode while the current one plays
+ *
+ * Once playback passes the prefetch threshold (Settings, default 85%) the next
+ * episode is resolved in the background. Its best source is appended to the
+ * player's playlist, so ExoPlayer buffers its opening seconds as soon as the
+ * current episode has finished loading. playPrefetched() then switches in place
+ * instead of restarting the activity. Seeking back below the threshold or leaving
+ * the player cancels the prefetch.
+ */
+@UnstableApi
+public class NextEpisodePrefetcher {
+    private static final String TAG = "NextEpisodePrefetcher";
+    private static final String PRELOAD_ID_PREFIX = "next_episode:";
+
+    private final PlayerActivity activity;
+    private final StreamResolver streamResolver;
+    private final int thresholdPercent;
+
+    private boolean started;
+    private String nextSeason;
+    private String nextEpisode;
+    private StreamRequest nextRequest;
+    private StreamResolver.Resolution resolution;
+    private List<MediaItems.VideoSource> nextSources;
+    private List<MediaItems.SubtitleItem> nextSubtitles;
+    private MediaItem preloadedItem;
+
+    public NextEpisodePrefetcher(PlayerActivity activity) {
+        this.activity = activity;
+        this.streamResolver = new StreamResolver(activity);
+        this.thresholdPercent = PreferencesManager.getInstance(activity).getNextEpisodePrefetchPercent();
+    }
+
+    /**
+     * Called with every progress tick; starts the prefetch once the threshold is passed
+     */
+    void onProgress(long positionMs, long durationMs) {
+        if (started || thresholdPercent <= 0 || durationMs <= 0 || !"TV".equalsIgnoreCase(activity.mediaType)) {
+            return;
+        }
+        if (positionMs * 100 >= durationMs * thresholdPercent) {
+            start();
+        }
+    }
+
+    /**
+     * A seek back below the threshold abandons the prefetch; it re-arms when passed again
+     */
+    void onSeek(Player.PositionInfo oldPosition, Player.PositionInfo newPosition) {
+        if (!started || oldPosition.mediaItemIndex != newPosition.mediaItemIndex || activity.player == null) {
+            return;
+        }
+        long duration = activity.player.getDuration();
+        if (duration > 0 && newPosition.positionMs * 100 < duration * thresholdPercent) {
+            Log.i(TAG, "Seeked back below " + thresholdPercent + "%, cancelling prefetch");
+            cancel();
+        }
+    }
+
+    boolean isPrefetchedItem(MediaItem mediaItem) {
+        return preloadedItem != null && mediaItem != null && preloadedItem.mediaId.equals(mediaItem.mediaId);
+    }
+
+    private void start() {
+        MediaItems media = activity.mediaItems;
+        if (media == null || media.getTmdbId() == null || media.getSeason() == null || media.getEpisode() == null) {
+            return;
+        }
+
+        int season;
+        int episode;
+        try {
+            season = Integer.parseInt(media.getSeason());
+            episode = Integer.parseInt(media.getEpisode());
+        } catch (NumberFormatException e) {
+            Log.e(TAG, "Error parsing season/episode: " + e.getMessage());
+            return;
+        }
+
+        started = true;
+        String tmdbId = media.getTmdbId();
+        Log.i(TAG, "Prefetching episode after S" + season + "E" + episode);
+
+        new TmdbRepository(activity).getSeasonEpisodes(tmdbId, season, new TmdbRepository.EpisodesCallback() {
+            @Override
+            public void onSuccess(List<Episode> episodes) {
+                if (!started || activity.isFinishing() || episodes.size() <= episode) {
+                    return;
+                }
+                nextSeason = String.valueOf(season);
+                nextEpisode = String.valueOf(episode + 1);
+                resolveNext(media, tmdbId);
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Error checking next episode: " + error);
+            }
+        });
+    }
+
+    private void resolveNext(MediaItems media, String tmdbId) {
+        String year = media.getYear() > 0 ? String.valueOf(media.getYear()) : null;
+        StreamRequest request = StreamRequest.episode(media.getTitle(), year, tmdbId, null, nextSeason, nextEpisode);
+        nextRequest = request;
+
+        resolution = streamResolver.resolve(request, new StreamResolver.ResolveCallback() {
+            @Override
+            public void onFirstSource(StreamResolver.Resolution resolution,
+                                      List<MediaItems.VideoSource> sources,
+                                      List<MediaItems.SubtitleItem> subtitles) {
+                nextSources = sources;
+                nextSubtitles = subtitles;
+                Log.i(TAG, "Next episode resolved: " + sources.size() + " sources");
+                preload(sources.get(0));
+            }
+
+            @Override
+            public void onProgress(int completed, int total) {
+            }
+
+            @Override
+            public void onComplete(StreamResolver.Resolution resolution) {
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.e(TAG, "Next episode prefetch failed: " + error);
+            }
+        }, true);
+    }
+
+    /**
+     * Queue the best source behind the current episode so the player buffers its start
+     */
+    private void preload(MediaItems.VideoSource source) {
+        if (activity.player == null) {
+            return;
+        }
+        preloadedItem = new MediaItem.Builder()
+                .setMediaId(PRELOAD_ID_PREFIX + nextSeason + ":" + nextEpisode)
+                .setUri(source.getUrl())
+                .build();
+        // Re-resolves as the next episode, not the one playing, if its URL expires
+        activity.player.addMediaSource(activity.playerCore.buildMediaSource(source, preloadedItem, nextRequest));
+        Log.i(TAG, "Preloading S" + nextSeason + "E" + nextEpisode + " from " + source.getQuality());
+    }
+
+    /**
+     * Switch to the prefetched episode in place. Returns false when nothing is ready,
+     * in which case the caller falls back to fetching and restarting.
+     */
+    public boolean playPrefetched() {
+        if (nextSources == null || nextSources.isEmpty() || activity.player == null) {
+            return false;
+        }
+
+        int preloadedIndex = findPreloadedIndex();
+        StreamResolver.Resolution nextResolution = resolution;
+        String season = nextSeason;
+        String episode = nextEpisode;
+
+        // Close out the finished episode before the player moves on
+        if (preloadedIndex != activity.player.getCurrentMediaItemIndex()) {
+            activity.playerCore.saveWatchProgress(true);
+        }
+
+        activity.mediaItems.setSeason(season);
+        activity.mediaItems.setEpisode(episode);
+        activity.mediaItems.setVideoSources(nextSources);
+        activity.mediaItems.setSubtitles(nextSubtitles);
+        activity.videoSources = new ArrayList<>(nextSources);
+        activity.subtitles = new ArrayList<>(nextSubtitles);
+        activity.currentSourceIndex = 0;
+        activity.currentSubtitleIndex = -1;
+        activity.loadControl.resetStallHistory();
+
+        // Servers still resolving for the next episode keep merging into the player
+        if (activity.streamResolution != null) {
+            activity.streamResolution.removeListener(activity.resolvedSourcesListener);
+            activity.streamResolution.cancel();
+        }
+        activity.streamResolution = nextResolution;
+        activity.waitingForSources = false;
+        reset();
+        if (nextResolution != null) {
+            nextResolution.addListener(activity.resolvedSourcesListener);
+        }
+
+        if (preloadedIndex >= 0) {
+            if (activity.player.getCurrentMediaItemIndex() != preloadedIndex) {
+                activity.player.seekTo(preloadedIndex, 0);
+            }
+            // Drop the finished episode so the preloaded one is the only item
+            activity.player.removeMediaItems(0, preloadedIndex);
+            activity.player.setPlayWhenReady(true);
+            activity.playerCore.markLoaded();
+            activity.dialogManager.updateServerButton();
+            activity.dialogManager.updateQualityButton();
+        } else {
+            // The playlist was replaced (e.g. a server switch), start from the resolved sources
+            activity.playerCore.loadVideoSource(0);
+        }
+
+        activity.nextEpisodeTriggered = false;
+        activity.controlsManager.hideLoading();
+        activity.subtitleManager.fetchExternalSubtitles();
+        Toast.makeText(activity, "Playing Episode " + episode, Toast.LENGTH_SHORT).show();
+        Log.i(TAG, "Switched to prefetched S" + season + "E" + episode
+                + (preloadedIndex >= 0 ? " (preloaded)" : ""));
+        return true;
+    }
+
+    private int findPreloadedIndex() {
+        if (preloadedItem == null) {
+            return -1;
+        }
+        for (int i = 0; i < activity.player.getMediaItemCount(); i++) {
+            if (preloadedItem.mediaId.equals(activity.player.getMediaItemAt(i).mediaId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Abandon the prefetch: stop resolving and drop the preloaded item from the playlist
+     */
+    public void cancel() {
+        if (resolution != null) {
+            resolution.cancel();
+        }
+        if (activity.player != null) {
+            int index = findPreloadedIndex();
+            if (index >= 0 && index != activity.player.getCurrentMediaItemIndex()) {
+                activity.player.removeMediaItem(index);
+            }
+        }
+        reset();
+    }
+
+    private void reset() {
+        started = false;
+        resolution = null;
+        nextSources = null;
+        nextSubtitles = null;
+        nextSeason = null;
+        nextEpisode = null;
+        nextRequest = null;
+        preloadedItem = null;
+    }
+}
@@ -0,0 +1,278 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.BaseDataSource;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelRangeDataSource - Progressive file reads split into concurrent Range requests
+ *
+ * A throttling host caps each connection, so one HTTP stream limits startup and
+ * seeks on a large MP4. Every open streams its first chunk straight from the
+ * upstream source (the first bytes arrive as fast as before) while the following
+ * chunks are fetched as Range requests on up to parallelism - 1 further connections.
+ * Chunks are handed to the extractor strictly in order. Servers that do not answer
+ * with a Content-Range, and reads no larger than one chunk, use a single stream.
+ *
+ * Memory in use is at most parallelism chunks per open source.
+ */
+@UnstableApi
+public final class ParallelRangeDataSource extends BaseDataSource {
+    private static final String TAG = "ParallelRangeDataSource";
+
+    private static final int MAX_THREADS = 8;
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    private static final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            MAX_THREADS, MAX_THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            runnable -> {
+                Thread thread = new Thread(runnable, "range-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    static {
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Creates sources over an HTTP factory (the shared OkHttp client with the source headers)
+     */
+    public static final class Factory implements DataSource.Factory {
+        private final HttpDataSource.Factory upstreamFactory;
+        private final int chunkSize;
+        private final int parallelism;
+
+        public Factory(HttpDataSource.Factory upstreamFactory, int chunkSize, int parallelism) {
+            this.upstreamFactory = upstreamFactory;
+            this.chunkSize = chunkSize;
+            this.parallelism = Math.min(MAX_THREADS, parallelism);
+        }
+
+        @NonNull
+        @Override
+        public DataSource createDataSource() {
+            return new ParallelRangeDataSource(upstreamFactory, chunkSize, parallelism);
+        }
+    }
+
+    private final HttpDataSource.Factory upstreamFactory;
+    private final int chunkSize;
+    private final int parallelism;
+
+    @Nullable private DataSpec dataSpec;
+    @Nullable private HttpDataSource head;      // streams the first chunk, or everything when not ranged
+    private Map<String, List<String>> responseHeaders = Collections.emptyMap();
+    private final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+    @Nullable private byte[] chunk;
+    private int chunkOffset;
+    private long nextChunkStart;                // first byte not yet requested
+    private long end;                           // exclusive end of the read
+    private long bytesRemaining;
+    private boolean opened;
+
+    private ParallelRangeDataSource(HttpDataSource.Factory upstreamFactory, int chunkSize, int parallelism) {
+        super(/* isNetwork= */ true);
+        this.upstreamFactory = upstreamFactory;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public long open(@NonNull DataSpec dataSpec) throws IOException {
+        this.dataSpec = dataSpec;
+        transferInitializing(dataSpec);
+
+        long firstLength = dataSpec.length != C.LENGTH_UNSET ? Math.min(dataSpec.length, chunkSize) : chunkSize;
+        head = upstreamFactory.createDataSource();
+        long headLength = head.open(dataSpec.buildUpon().setLength(firstLength).build());
+        responseHeaders = head.getResponseHeaders();
+
+        long total = parseTotalLength(responseHeaders);
+        if (total == C.LENGTH_UNSET) {
+            // No byte ranges: read the whole request from one stream
+            head.close();
+            head = upstreamFactory.createDataSource();
+            bytesRemaining = head.open(dataSpec);
+            responseHeaders = head.getResponseHeaders();
+            end = C.LENGTH_UNSET;
+            nextChunkStart = C.LENGTH_UNSET;
+        } else {
+            end = dataSpec.length != C.LENGTH_UNSET
+                    ? Math.min(total, dataSpec.position + dataSpec.length) : total;
+            nextChunkStart = dataSpec.position + (headLength != C.LENGTH_UNSET ? headLength : firstLength);
+            bytesRemaining = end - dataSpec.position;
+            scheduleChunks();
+        }
+
+        opened = true;
+        transferStarted(dataSpec);
+        return bytesRemaining;
+    }
+
+    @Override
+    public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        if (bytesRemaining == 0) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        int read;
+        if (head != null) {
+            int toRead = bytesRemaining == C.LENGTH_UNSET ? length : (int) Math.min(length, bytesRemaining);
+            read = head.read(buffer, offset, toRead);
+            if (read == C.RESULT_END_OF_INPUT) {
+                head.close();
+                head = null;
+                if (end == C.LENGTH_UNSET) {
+                    return C.RESULT_END_OF_INPUT;
+                }
+                return read(buffer, offset, length);
+            }
+        } else {
+            if (chunk == null || chunkOffset == chunk.length) {
+                chunk = nextChunk();
+                chunkOffset = 0;
+                scheduleChunks();
+            }
+            read = (int) Math.min(Math.min(length, chunk.length - chunkOffset), bytesRemaining);
+            System.arraycopy(chunk, chunkOffset, buffer, offset, read);
+            chunkOffset += read;
+        }
+
+        if (bytesRemaining != C.LENGTH_UNSET) {
+            bytesRemaining -= read;
+        }
+        bytesTransferred(read);
+        return read;
+    }
+
+    @Nullable
+    @Override
+    public Uri getUri() {
+        return dataSpec != null ? dataSpec.uri : null;
+    }
+
+    @NonNull
+    @Override
+    public Map<String, List<String>> getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Future<byte[]> future : pending) {
+            future.cancel(true);
+        }
+        pending.clear();
+        chunk = null;
+        dataSpec = null;
+        try {
+            if (head != null) {
+                head.close();
+            }
+        } finally {
+            head = null;
+            if (opened) {
+                opened = false;
+                transferEnded();
+            }
+        }
+    }
+
+    // ===================== CHUNKS =====================
+
+    /**
+     * Keep up to parallelism - 1 Range requests running ahead of the reader
+     */
+    private void scheduleChunks() {
+        while (pending.size() < Math.max(1, parallelism - 1) && nextChunkStart < end) {
+            long start = nextChunkStart;
+            int size = (int) Math.min(chunkSize, end - start);
+            nextChunkStart += size;
+            DataSpec rangeSpec = dataSpec.buildUpon().setPosition(start).setLength(size).build();
+            pending.addLast(executor.submit(() -> fetchChunk(rangeSpec, size)));
+        }
+    }
+
+    private byte[] fetchChunk(DataSpec rangeSpec, int size) throws IOException {
+        HttpDataSource source = upstreamFactory.createDataSource();
+        try {
+            source.open(rangeSpec);
+            byte[] data = new byte[size];
+            int filled = 0;
+            while (filled < size) {
+                int read = source.read(data, filled, size - filled);
+                if (read == C.RESULT_END_OF_INPUT) {
+                    throw new IOException("Range " + rangeSpec.position + "+" + size + " ended after " + filled);
+                }
+                filled += read;
+            }
+            return data;
+        } finally {
+            source.close();
+        }
+    }
+
+    private byte[] nextChunk() throws IOException {
+        Future<byte[]> future = pending.pollFirst();
+        if (future == null) {
+            throw new IOException("No chunk scheduled at " + nextChunkStart);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            Log.w(TAG, "Range request failed: " + (cause != null ? cause.getMessage() : e.getMessage()));
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+    }
+
+    /**
+     * Full file size from a 206 response's Content-Range, or C.LENGTH_UNSET when ranges are not served
+     */
+    private static long parseTotalLength(Map<String, List<String>> headers) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!"Content-Range".equalsIgnoreCase(header.getKey()) || header.getValue().isEmpty()) {
+                continue;
+            }
+            String value = header.getValue().get(0);
+            int slash = value.lastIndexOf('/');
+            if (slash < 0) {
+                return C.LENGTH_UNSET;
+            }
+            try {
+                return Long.parseLong(value.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                return C.LENGTH_UNSET; // "*": size unknown
+            }
+        }
+        return C.LENGTH_UNSET;
+    }
+}
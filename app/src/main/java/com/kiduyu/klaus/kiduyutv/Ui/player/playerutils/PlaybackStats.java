@@ -0,0 +1,308 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.net.Uri;
+import android.os.Build;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.Format;
+import androidx.media3.common.PlaybackException;
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.DecoderReuseEvaluation;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+
+import com.kiduyu.klaus.kiduyutv.Api.ApiClient;
+import com.kiduyu.klaus.kiduyutv.Ui.player.PlayerActivity;
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import java.util.Locale;
+
+/**
+ * PlaybackStats - QoE metrics for each source played (Settings panel: Playback Stats)
+ *
+ * An AnalyticsListener on the player that records, per source session, time to
+ * first frame, startup buffering, rebuffers, dropped frames, video bitrate
+ * switches and bandwidth estimates, tagged with the provider and host. Finished
+ * sessions go to {@link PlaybackStatsLog}; the live numbers can be shown in an
+ * on-screen overlay.
+ */
+@UnstableApi
+public class PlaybackStats implements AnalyticsListener {
+    private static final String TAG = "PlaybackStats";
+    private static final long OVERLAY_REFRESH_MS = 1000;
+
+    private final PlayerActivity activity;
+
+    private Session session;
+    private long loadAt;
+    private long playingSince;
+    private long rebufferSince;
+    private boolean started;
+    private boolean seeking;
+    private int lastVideoBitrate = Format.NO_VALUE;
+    private long bandwidthSum;
+    private int bandwidthCount;
+
+    private boolean overlayVisible;
+    private String providerSummary = "";
+
+    /**
+     * One source played from load until it was replaced or the player closed.
+     * Stored as JSON, so fields are plain values.
+     */
+    public static class Session {
+        long startedAt;
+        String device;
+        String provider;
+        String host;
+        String quality;
+        long firstFrameMs;
+        long startupBufferMs;
+        int rebufferCount;
+        long rebufferMs;
+        long playMs;
+        int droppedFrames;
+        int bitrateSwitches;
+        int videoBitrate;
+        int videoHeight;
+        long bandwidthEstimate;
+        long averageBandwidth;
+        String error;
+    }
+
+    public PlaybackStats(PlayerActivity activity) {
+        this.activity = activity;
+    }
+
+    // ===================== SESSIONS =====================
+
+    /**
+     * Close the running session and start one for a newly loaded source
+     */
+    void startSession(MediaItems.VideoSource source) {
+        endSession();
+
+        session = new Session();
+        session.startedAt = System.currentTimeMillis();
+        session.device = Build.MANUFACTURER + " " + Build.MODEL;
+        session.provider = source.getProvider();
+        session.host = Uri.parse(source.getUrl()).getHost();
+        session.quality = source.getQuality();
+
+        loadAt = SystemClock.elapsedRealtime();
+        playingSince = 0;
+        rebufferSince = 0;
+        started = false;
+        seeking = false;
+        lastVideoBitrate = Format.NO_VALUE;
+        bandwidthSum = 0;
+        bandwidthCount = 0;
+    }
+
+    /**
+     * Close the running session and append it to the log if anything happened
+     */
+    public void endSession() {
+        if (session == null) {
+            return;
+        }
+        long now = SystemClock.elapsedRealtime();
+        if (playingSince > 0) {
+            session.playMs += now - playingSince;
+        }
+        if (rebufferSince > 0) {
+            session.rebufferMs += now - rebufferSince;
+        }
+        if (started || session.error != null) {
+            Log.i(TAG, "Session: " + describe(session));
+            PlaybackStatsLog.append(activity, session);
+        }
+        session = null;
+    }
+
+    // ===================== ANALYTICS =====================
+
+    @Override
+    public void onPlaybackStateChanged(@NonNull EventTime eventTime, int state) {
+        if (session == null) {
+            return;
+        }
+        long now = eventTime.realtimeMs;
+        if (state == Player.STATE_READY) {
+            if (!started) {
+                started = true;
+                session.startupBufferMs = now - loadAt;
+            }
+            if (rebufferSince > 0) {
+                session.rebufferMs += now - rebufferSince;
+                rebufferSince = 0;
+            }
+            seeking = false;
+        } else if (state == Player.STATE_BUFFERING && started && !seeking && rebufferSince == 0) {
+            session.rebufferCount++;
+            rebufferSince = now;
+        }
+    }
+
+    @Override
+    public void onIsPlayingChanged(@NonNull EventTime eventTime, boolean isPlaying) {
+        if (session == null) {
+            return;
+        }
+        if (isPlaying) {
+            playingSince = eventTime.realtimeMs;
+        } else if (playingSince > 0) {
+            session.playMs += eventTime.realtimeMs - playingSince;
+            playingSince = 0;
+        }
+    }
+
+    @Override
+    public void onPositionDiscontinuity(@NonNull EventTime eventTime,
+                                        @NonNull Player.PositionInfo oldPosition,
+                                        @NonNull Player.PositionInfo newPosition, int reason) {
+        if (reason == Player.DISCONTINUITY_REASON_SEEK) {
+            seeking = true;
+        }
+    }
+
+    @Override
+    public void onRenderedFirstFrame(@NonNull EventTime eventTime, @NonNull Object output, long renderTimeMs) {
+        if (session != null && session.firstFrameMs == 0) {
+            session.firstFrameMs = eventTime.realtimeMs - loadAt;
+        }
+    }
+
+    @Override
+    public void onDroppedVideoFrames(@NonNull EventTime eventTime, int droppedFrames, long elapsedMs) {
+        if (session != null) {
+            session.droppedFrames += droppedFrames;
+        }
+    }
+
+    @Override
+    public void onVideoInputFormatChanged(@NonNull EventTime eventTime, @NonNull Format format,
+                                          @Nullable DecoderReuseEvaluation decoderReuseEvaluation) {
+        if (session == null) {
+            return;
+        }
+        int bitrate = format.bitrate != Format.NO_VALUE ? format.bitrate : format.peakBitrate;
+        if (lastVideoBitrate != Format.NO_VALUE && bitrate != lastVideoBitrate) {
+            session.bitrateSwitches++;
+        }
+        lastVideoBitrate = bitrate;
+        session.videoBitrate = bitrate;
+        session.videoHeight = format.height;
+    }
+
+    @Override
+    public void onBandwidthEstimate(@NonNull EventTime eventTime, int totalLoadTimeMs,
+                                    long totalBytesLoaded, long bitrateEstimate) {
+        if (session == null) {
+            return;
+        }
+        session.bandwidthEstimate = bitrateEstimate;
+        bandwidthSum += bitrateEstimate;
+        bandwidthCount++;
+        session.averageBandwidth = bandwidthSum / bandwidthCount;
+    }
+
+    @Override
+    public void onPlayerError(@NonNull EventTime eventTime, @NonNull PlaybackException error) {
+        if (session != null) {
+            session.error = error.getErrorCodeName();
+        }
+    }
+
+    // ===================== OVERLAY =====================
+
+    /**
+     * Show or hide the stats overlay; it refreshes itself while visible
+     */
+    public void setOverlayVisible(boolean visible) {
+        overlayVisible = visible;
+        activity.statsOverlay.setVisibility(visible ? View.VISIBLE : View.GONE);
+        activity.handler.removeCallbacks(refreshOverlay);
+        if (visible) {
+            PlaybackStatsLog.load(activity, sessions -> {
+                String summary = PlaybackStatsLog.summarizeByProvider(sessions);
+                activity.runOnUiThread(() -> providerSummary = summary);
+            });
+            activity.handler.post(refreshOverlay);
+        }
+    }
+
+    private final Runnable refreshOverlay = new Runnable() {
+        @Override
+        public void run() {
+            if (!overlayVisible) {
+                return;
+            }
+            activity.statsOverlay.setText(buildOverlayText());
+            activity.handler.postDelayed(this, OVERLAY_REFRESH_MS);
+        }
+    };
+
+    private String buildOverlayText() {
+        StringBuilder text = new StringBuilder();
+        if (session == null) {
+            text.append("No active source\n");
+        } else {
+            long now = SystemClock.elapsedRealtime();
+            long playMs = session.playMs + (playingSince > 0 ? now - playingSince : 0);
+            long rebufferMs = session.rebufferMs + (rebufferSince > 0 ? now - rebufferSince : 0);
+
+            text.append("Source: ").append(session.provider != null ? session.provider : "unknown")
+                    .append(" (").append(session.host).append(")\n");
+            text.append(String.format(Locale.US, "Video: %dp @ %s, %d switches\n",
+                    session.videoHeight, formatBitrate(session.videoBitrate), session.bitrateSwitches));
+            text.append("Bandwidth: ").append(formatBitrate(session.bandwidthEstimate))
+                    .append(" (avg ").append(formatBitrate(session.averageBandwidth)).append(")\n");
+            if (activity.player != null) {
+                long ahead = activity.player.getBufferedPosition() - activity.player.getCurrentPosition();
+                text.append("Buffered: ").append(Math.max(0, ahead) / 1000).append("s ahead\n");
+            }
+            text.append(String.format(Locale.US, "Startup: %s, first frame %s\n",
+                    formatMs(session.startupBufferMs), formatMs(session.firstFrameMs)));
+            text.append(String.format(Locale.US, "Rebuffers: %d (%s, %.1f%%)\n",
+                    session.rebufferCount, formatMs(rebufferMs),
+                    playMs + rebufferMs > 0 ? rebufferMs * 100.0 / (playMs + rebufferMs) : 0.0));
+            text.append("Dropped frames: ").append(session.droppedFrames).append("\n");
+        }
+        if (activity.loadControl != null) {
+            text.append(activity.loadControl.describe()).append("\n");
+        }
+        if (activity.segmentPrefetcher != null) {
+            text.append(activity.segmentPrefetcher.describe()).append("\n");
+        }
+        text.append(ApiClient.getDnsStats(activity)).append("\n");
+        if (!providerSummary.isEmpty()) {
+            text.append("\nRecent sessions\n").append(providerSummary);
+        }
+        return text.toString().trim();
+    }
+
+    private static String describe(Session session) {
+        return String.format(Locale.US,
+                "%s %s first frame %dms, startup %dms, %d rebuffers %dms over %dms played, "
+                        + "%d dropped, %d switches, %s",
+                session.provider, session.host, session.firstFrameMs, session.startupBufferMs,
+                session.rebufferCount, session.rebufferMs, session.playMs, session.droppedFrames,
+                session.bitrateSwitches, session.error != null ? session.error : "ok");
+    }
+
+    private static String formatBitrate(long bitsPerSecond) {
+        if (bitsPerSecond <= 0) {
+            return "-";
+        }
+        return String.format(Locale.US, "%.1f Mbps", bitsPerSecond / 1_000_000.0);
+    }
+
+    private static String formatMs(long ms) {
+        return ms > 0 ? String.format(Locale.US, "%.1fs", ms / 1000.0) : "-";
+    }
+}
@@ -0,0 +1,127 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * PlaybackStatsLog - Bounded on-device log of finished playback sessions
+ *
+ * Keeps the last MAX_SESSIONS {@link PlaybackStats.Session}s as a JSON array in
+ * filesDir, oldest dropped first. All file access runs on one background thread.
+ */
+public class PlaybackStatsLog {
+    private static final String TAG = "PlaybackStatsLog";
+    private static final String FILE_NAME = "playback_stats.json";
+    private static final int MAX_SESSIONS = 100;
+
+    private static final Gson GSON = new Gson();
+    private static final Type LIST_TYPE = new TypeToken<List<PlaybackStats.Session>>() {}.getType();
+    private static final ExecutorService IO = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "playback-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Callback for reading the log
+     */
+    public interface SessionsCallback {
+        void onSessions(List<PlaybackStats.Session> sessions);
+    }
+
+    private PlaybackStatsLog() {
+    }
+
+    public static void append(Context context, PlaybackStats.Session session) {
+        File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        IO.execute(() -> {
+            List<PlaybackStats.Session> sessions = read(file);
+            sessions.add(session);
+            while (sessions.size() > MAX_SESSIONS) {
+                sessions.remove(0);
+            }
+            write(file, sessions);
+        });
+    }
+
+    /**
+     * Read every logged session; the callback runs on the log's background thread
+     */
+    public static void load(Context context, SessionsCallback callback) {
+        File file = new File(context.getApplicationContext().getFilesDir(), FILE_NAME);
+        IO.execute(() -> callback.onSessions(read(file)));
+    }
+
+    /**
+     * One line per provider: sessions, average first frame and rebuffer ratio
+     */
+    public static String summarizeByProvider(List<PlaybackStats.Session> sessions) {
+        Map<String, long[]> totals = new LinkedHashMap<>(); // count, ttff sum, ttff count, rebufferMs, watchedMs
+        for (PlaybackStats.Session session : sessions) {
+            String provider = session.provider != null ? session.provider : "unknown";
+            long[] total = totals.get(provider);
+            if (total == null) {
+                total = new long[5];
+                totals.put(provider, total);
+            }
+            total[0]++;
+            if (session.firstFrameMs > 0) {
+                total[1] += session.firstFrameMs;
+                total[2]++;
+            }
+            total[3] += session.rebufferMs;
+            total[4] += session.playMs + session.rebufferMs;
+        }
+
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            long[] total = entry.getValue();
+            summary.append(String.format(Locale.US, "%s: %d runs, first frame %s, rebuffer %.1f%%\n",
+                    entry.getKey(), total[0],
+                    total[2] > 0 ? String.format(Locale.US, "%.1fs", total[1] / (total[2] * 1000.0)) : "-",
+                    total[4] > 0 ? total[3] * 100.0 / total[4] : 0.0));
+        }
+        return summary.toString();
+    }
+
+    private static List<PlaybackStats.Session> read(File file) {
+        if (!file.exists()) {
+            return new ArrayList<>();
+        }
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            List<PlaybackStats.Session> sessions = GSON.fromJson(reader, LIST_TYPE);
+            return sessions != null ? sessions : new ArrayList<>();
+        } catch (Exception e) {
+            Log.w(TAG, "Unreadable stats log, starting over: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    private static void write(File file, List<PlaybackStats.Session> sessions) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            GSON.toJson(sessions, LIST_TYPE, writer);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to write stats log: " + e.getMessage());
+        }
+    }
+}
@@ -141,6 +141,15 @@ public class PlayerControlsManager {
             if (duration > 0) {
                 activity.progressBar.setProgress(currentPos);
 
+                // Resolve and preload the next episode ahead of the transition
+                activity.nextEpisodePrefetcher.onProgress(currentPos, duration);
+
+                // Keep the next server warm at the current position
+                activity.sourceFailover.onProgress(currentPos, duration);
+
+                // Pull upcoming HLS segments into the cache over parallel connections
+                activity.segmentPrefetcher.onProgress();
+
                 // Check if 3 minutes (180,000 ms) are remaining
                 if ("TV".equals(activity.mediaType) && !activity.nextEpisodeTriggered) {
                     long remainingTime = duration - currentPos;
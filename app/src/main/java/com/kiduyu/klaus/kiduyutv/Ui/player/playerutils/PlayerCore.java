@@ -1,5 +1,7 @@
 package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
 
+import android.content.Context;
+import android.os.SystemClock;
 import android.util.Log;
 import android.widget.Toast;
 
@@ -17,8 +19,8 @@ import androidx.media3.common.text.CueGroup;
 import androidx.media3.common.util.UnstableApi;
 import androidx.media3.datasource.DataSource;
 import androidx.media3.datasource.DefaultDataSource;
+import androidx.media3.datasource.HttpDataSource;
 import androidx.media3.datasource.okhttp.OkHttpDataSource;
-import androidx.media3.exoplayer.DefaultLoadControl;
 import androidx.media3.exoplayer.DefaultRenderersFactory;
 import androidx.media3.exoplayer.ExoPlayer;
 import androidx.media3.exoplayer.dash.DashMediaSource;
@@ -26,13 +28,18 @@ import androidx.media3.exoplayer.hls.HlsMediaSource;
 import androidx.media3.exoplayer.source.MediaSource;
 import androidx.media3.exoplayer.source.ProgressiveMediaSource;
 import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
 import androidx.media3.ui.SubtitleView;
 
+import com.kiduyu.klaus.kiduyutv.Api.ApiClient;
 import com.kiduyu.klaus.kiduyutv.Api.FetchStreams;
+import com.kiduyu.klaus.kiduyutv.Api.ResolvedStreamCache;
+import com.kiduyu.klaus.kiduyutv.Api.StreamRequest;
 import com.kiduyu.klaus.kiduyutv.Ui.player.PlayerActivity;
 import com.kiduyu.klaus.kiduyutv.model.MediaItems;
 import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -43,47 +50,45 @@ public class PlayerCore {
     private static final String TAG = "PlayerCore";
 
     private final PlayerActivity activity;
+    private final boolean fastStart;
+
+    // Time to first frame, from opening the player and from the latest source load
+    private final long createdAt = SystemClock.elapsedRealtime();
+    private long loadStartedAt;
+    private boolean awaitingFirstFrame;
+    private boolean firstFrameRendered;
+    private final List<Runnable> afterFirstFrame = new ArrayList<>();
+
+    private WarmPlayer warm;
+    private Player.Listener playerListener;
 
     public PlayerCore(PlayerActivity activity) {
         this.activity = activity;
+        this.fastStart = PreferencesManager.getInstance(activity).isFastStartEnabled();
     }
 
-    public void initializePlayer() {
-        // Get buffer duration from preferences (in minutes)
+    /**
+     * Take the warm player (built here when there is none for the current playback
+     * settings) and attach this screen to it. Returns true when it still has this title
+     * loaded, e.g. after the activity was recreated, so playback carries on without
+     * loading the source again.
+     */
+    public boolean initializePlayer() {
+        // Buffer duration preference (in minutes) is the upper bound; the load control
+        // picks the actual target from memory, throughput and stalls
         int bufferMinutes = PreferencesManager.getInstance(activity).getPlaybackBufferDuration();
-        int maxBufferMs = bufferMinutes * 60 * 1000; // Convert minutes to milliseconds
-
-        DefaultLoadControl loadControl = new DefaultLoadControl.Builder()
-                .setBufferDurationsMs(
-                        PlayerActivity.MIN_BUFFER_MS,   // Min buffer (30s) - required before playback starts
-                        maxBufferMs,                    // Max buffer (10min) - maximum ahead of current position
-                        PlayerActivity.PLAYBACK_BUFFER_MS,   // Buffer for playback (10s) - after seek
-                        PlayerActivity.REBUFFER_MS      // Buffer after rebuffer (10s)
-                )
-                .setPrioritizeTimeOverSizeThresholds(true)
-                .build();
-        activity.trackSelector = new DefaultTrackSelector(activity);
-        activity.trackSelector.setParameters(
-                activity.trackSelector.buildUponParameters()
-                        .clearVideoSizeConstraints()
-                        .setMaxVideoBitrate(Integer.MAX_VALUE)
-                        .setForceHighestSupportedBitrate(true)
-                        .setAllowVideoMixedMimeTypeAdaptiveness(true)
-                        .setAllowAudioMixedMimeTypeAdaptiveness(true)
-                        .setPreferredTextLanguage("en")  // Enable subtitle track
-                        .setSelectUndeterminedTextLanguage(true)  // Show subtitles even if language is undefined
-        );
-
-        // Enable text rendering for subtitle support (CRITICAL FIX)
-        activity.player = new ExoPlayer.Builder(activity)
-                .setLoadControl(loadControl)
-                .setTrackSelector(activity.trackSelector)
-                .setRenderersFactory(
-                        new DefaultRenderersFactory(activity)
-                                .setExtensionRendererMode(DefaultRenderersFactory.EXTENSION_RENDERER_MODE_PREFER)
-                )
-                .build();
-
+        long knownBitrate = activity.currentSourceIndex < activity.videoSources.size()
+                ? BandwidthHistory.getInstance(activity)
+                        .getEstimate(activity.videoSources.get(activity.currentSourceIndex).getUrl())
+                : 0;
+
+        // Rebuilt only when a setting baked into the player changed
+        String configKey = fastStart + "|" + bufferMinutes;
+        warm = WarmPlayer.obtain(configKey, () -> buildPlayer(configKey, bufferMinutes, knownBitrate));
+        activity.player = warm.player;
+        activity.trackSelector = warm.trackSelector;
+        activity.loadControl = warm.loadControl;
+        activity.streamUrlRefresher = warm.urlRefresher;
 
         // Configure subtitle view
         activity.subtitleView.setUserDefaultStyle();
@@ -93,7 +98,7 @@ public class PlayerCore {
         activity.player.setVideoSurfaceView(activity.videoSurface);        // CRITICAL FIX: Set as media overlay to ensure subtitles display on top\n        activity.videoSurface.setZOrderMediaOverlay(true);
 
         // Add player listener
-        activity.player.addListener(new Player.Listener() {
+        playerListener = new Player.Listener() {
             @Override
             public void onCues(@NonNull CueGroup cueGroup) {
                 activity.subtitleView.setCues(cueGroup.cues);
@@ -110,28 +115,27 @@ public class PlayerCore {
 
             @Override
             public void onTracksChanged(@NonNull Tracks tracks) {
-                // Log available tracks for debugging
-                for (Tracks.Group trackGroup : tracks.getGroups()) {
-                    if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
-                        Log.i(TAG, "Text track group found with " + trackGroup.length + " tracks");
-                        for (int i = 0; i < trackGroup.length; i++) {
-                            if (trackGroup.isTrackSupported(i)) {
-                                Log.i(TAG, "  Track " + i + " is supported and selected: " +
-                                        trackGroup.isTrackSelected(i));
-                            }
-                        }
-                    }
+                // During a fast start the tracks are logged once the first frame is up
+                if (!fastStart || firstFrameRendered) {
+                    logTextTracks(tracks);
                 }
             }
 
+            @Override
+            public void onRenderedFirstFrame() {
+                onFirstFrame();
+            }
+
             @Override
             public void onPlaybackStateChanged(int playbackState) {
                 switch (playbackState) {
                     case Player.STATE_BUFFERING:
 
                         activity.controlsManager.showLoadingServer();
+                        activity.sourceFailover.onBuffering();
                         break;
                     case Player.STATE_READY:
+                        activity.sourceFailover.onReady();
                         activity.loadingIndicator.setVisibility(android.view.View.GONE);
                         activity.controlsManager.hideLoading();
                         activity.controlsManager.updateLoadingUi(false);
@@ -178,6 +182,24 @@ public class PlayerCore {
                 }
             }
 
+            @Override
+            public void onPositionDiscontinuity(@NonNull Player.PositionInfo oldPosition,
+                                                @NonNull Player.PositionInfo newPosition, int reason) {
+                if (reason == Player.DISCONTINUITY_REASON_SEEK) {
+                    activity.sourceFailover.onSeek();
+                    activity.nextEpisodePrefetcher.onSeek(oldPosition, newPosition);
+                }
+            }
+
+            @Override
+            public void onMediaItemTransition(MediaItem mediaItem, int reason) {
+                // Playback ran into the preloaded next episode on its own
+                if (reason == Player.MEDIA_ITEM_TRANSITION_REASON_AUTO
+                        && activity.nextEpisodePrefetcher.isPrefetchedItem(mediaItem)) {
+                    activity.nextEpisodePrefetcher.playPrefetched();
+                }
+            }
+
             @Override
             public void onPlayerError(PlaybackException error) {
                 Log.e(TAG, "Player error: " + error.getMessage());
@@ -195,7 +217,192 @@ public class PlayerCore {
                     activity.controlsManager.showControls();
                 }
             }
-        });
+        };
+        // QoE metrics per source session come from this screen's stats
+        warm.attach(this, playerListener, activity.playbackStats);
+
+        if (warm.isPlaying(contentKey())) {
+            activity.currentSourceIndex = warm.sourceIndex;
+            Log.i(TAG, "Continuing playback on the warm player (source " + warm.sourceIndex + ")");
+            if (activity.currentSourceIndex < activity.videoSources.size()) {
+                activity.playbackStats.startSession(activity.videoSources.get(activity.currentSourceIndex));
+            }
+            playerListener.onPlaybackStateChanged(activity.player.getPlaybackState());
+            activity.player.setPlayWhenReady(true);
+            return true;
+        }
+
+        // A new title starts from default track selection and speed, not the last screen's,
+        // and without the last title's stalls pushing its buffer target up
+        activity.trackSelector.setParameters(defaultTrackSelectionParameters());
+        activity.loadControl.resetStallHistory();
+        activity.player.setPlaybackSpeed(activity.currentSpeed);
+        return false;
+    }
+
+    private WarmPlayer buildPlayer(String configKey, int bufferMinutes, long knownBitrate) {
+        // The player outlives this activity, so nothing it holds may reference it
+        Context context = activity.getApplicationContext();
+
+        // Start from what the first source's host sustained last time on this network.
+        // Without history, fast start begins from a low estimate so the first segments are a
+        // small rendition; adaptive selection then ramps up as real throughput is measured
+        DefaultBandwidthMeter.Builder bandwidthMeterBuilder = new DefaultBandwidthMeter.Builder(context);
+        if (knownBitrate > 0) {
+            Log.i(TAG, "Seeding bandwidth estimate from history: " + knownBitrate + " bps");
+            bandwidthMeterBuilder.setInitialBitrateEstimate(knownBitrate);
+        } else if (fastStart) {
+            bandwidthMeterBuilder.setInitialBitrateEstimate(PlayerActivity.FAST_START_INITIAL_BITRATE);
+        }
+        // Re-seeded per source from that source's host (see loadVideoSource)
+        SeededBandwidthMeter bandwidthMeter = new SeededBandwidthMeter(bandwidthMeterBuilder.build());
+
+        int maxBufferMs = bufferMinutes * 60 * 1000; // Convert minutes to milliseconds
+
+        AdaptiveLoadControl loadControl = new AdaptiveLoadControl(
+                context,
+                bandwidthMeter,
+                fastStart ? PlayerActivity.FAST_START_MIN_BUFFER_MS
+                        : PlayerActivity.MIN_BUFFER_MS,   // Min buffer (30s) - required before playback starts
+                maxBufferMs,                    // Max buffer (10min) - upper bound ahead of current position
+                fastStart ? PlayerActivity.FAST_START_PLAYBACK_BUFFER_MS
+                        : PlayerActivity.PLAYBACK_BUFFER_MS,   // Buffer for playback (10s) - after seek
+                fastStart ? PlayerActivity.FAST_START_REBUFFER_MS
+                        : PlayerActivity.REBUFFER_MS      // Buffer after rebuffer (10s)
+        );
+
+        DefaultTrackSelector trackSelector = new DefaultTrackSelector(context);
+
+        // Enable text rendering for subtitle support (CRITICAL FIX)
+        ExoPlayer player = new ExoPlayer.Builder(context)
+                .setLoadControl(loadControl)
+                .setTrackSelector(trackSelector)
+                .setBandwidthMeter(bandwidthMeter)
+                .setRenderersFactory(
+                        new DefaultRenderersFactory(context)
+                                .setExtensionRendererMode(DefaultRenderersFactory.EXTENSION_RENDERER_MODE_PREFER)
+                )
+                .build();
+        player.addAnalyticsListener(BandwidthHistory.getInstance(context));
+        player.addAnalyticsListener(loadControl);
+
+        return new WarmPlayer(player, trackSelector, loadControl, bandwidthMeter,
+                new StreamUrlRefresher(context), configKey);
+    }
+
+    private DefaultTrackSelector.Parameters defaultTrackSelectionParameters() {
+        return new DefaultTrackSelector.Parameters.Builder(activity)
+                .clearVideoSizeConstraints()
+                .setMaxVideoBitrate(Integer.MAX_VALUE)
+                .setForceHighestSupportedBitrate(!fastStart)
+                .setAllowVideoMixedMimeTypeAdaptiveness(true)
+                .setAllowAudioMixedMimeTypeAdaptiveness(true)
+                .setPreferredTextLanguage("en")  // Enable subtitle track
+                .setSelectUndeterminedTextLanguage(true)  // Show subtitles even if language is undefined
+                .build();
+    }
+
+    /**
+     * Detach this screen from the warm player. Leaving the player (finishing) stops
+     * playback but keeps the player warm for the next launch; a recreated activity
+     * leaves it playing so the new instance can pick it up.
+     */
+    public void releasePlayer(boolean finishing) {
+        if (warm == null) {
+            return;
+        }
+        activity.player.clearVideoSurfaceView(activity.videoSurface);
+        if (warm.detach(this) && finishing) {
+            warm.park();
+        }
+        warm = null;
+    }
+
+    /**
+     * Another player screen took the warm player (next episode restart); stop driving it
+     */
+    void onPlayerTakenOver() {
+        Log.i(TAG, "Player taken over by a new player screen");
+        warm = null;
+        activity.handler.removeCallbacks(activity.updateProgressTask);
+        activity.sourceFailover.reset();
+        activity.segmentPrefetcher.reset();
+        activity.playbackStats.endSession();
+    }
+
+    /**
+     * Whether this screen still drives the shared player
+     */
+    boolean ownsPlayer() {
+        return warm != null;
+    }
+
+    /**
+     * Identifies the loaded title so a recreated activity can tell it is still playing
+     */
+    private String contentKey() {
+        MediaItems item = activity.mediaItems;
+        return item.getTmdbId() + ":" + item.getSeason() + ":" + item.getEpisode();
+    }
+
+    /**
+     * Record what the warm player has loaded (also after an in-place episode switch)
+     */
+    void markLoaded() {
+        if (warm != null) {
+            warm.contentKey = contentKey();
+            warm.sourceIndex = activity.currentSourceIndex;
+        }
+    }
+
+    /**
+     * Log available text tracks for debugging
+     */
+    private void logTextTracks(Tracks tracks) {
+        for (Tracks.Group trackGroup : tracks.getGroups()) {
+            if (trackGroup.getType() == C.TRACK_TYPE_TEXT) {
+                Log.i(TAG, "Text track group found with " + trackGroup.length + " tracks");
+                for (int i = 0; i < trackGroup.length; i++) {
+                    if (trackGroup.isTrackSupported(i)) {
+                        Log.i(TAG, "  Track " + i + " is supported and selected: " +
+                                trackGroup.isTrackSelected(i));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Run non-essential startup work once the first frame is on screen (immediately
+     * when fast start is off or the frame is already up)
+     */
+    public void runAfterFirstFrame(Runnable task) {
+        if (!fastStart || firstFrameRendered) {
+            task.run();
+        } else {
+            afterFirstFrame.add(task);
+        }
+    }
+
+    private void onFirstFrame() {
+        if (awaitingFirstFrame) {
+            awaitingFirstFrame = false;
+            long now = SystemClock.elapsedRealtime();
+            Log.i(TAG, "Time to first frame: " + (now - loadStartedAt) + "ms from load, "
+                    + (now - createdAt) + "ms from open (fast start " + (fastStart ? "on" : "off")
+                    + ", source " + activity.currentSourceIndex + ")");
+        }
+        if (firstFrameRendered) {
+            return;
+        }
+        firstFrameRendered = true;
+
+        logTextTracks(activity.player.getCurrentTracks());
+        List<Runnable> tasks = new ArrayList<>(afterFirstFrame);
+        afterFirstFrame.clear();
+        for (Runnable task : tasks) {
+            task.run();
+        }
     }
 
     void updateBufferProgress() {
@@ -224,16 +431,23 @@ public class PlayerCore {
         }
 
         activity.currentSourceIndex = sourceIndex;
+        activity.sourceFailover.reset();
+        activity.segmentPrefetcher.reset();
+        loadStartedAt = SystemClock.elapsedRealtime();
+        awaitingFirstFrame = true;
         MediaItems.VideoSource source = activity.videoSources.get(sourceIndex);
+        activity.playbackStats.startSession(source);
+
+        // The warm player last measured whatever host played before; start from this one's history
+        if (warm != null) {
+            warm.bandwidthMeter.seed(BandwidthHistory.getInstance(activity).getEstimate(source.getUrl()));
+        }
 
         Log.i(TAG, "Loading video source: " + source.getQuality() + " - " + source.getUrl());
 
         // Show loading
         activity.controlsManager.showLoadingServer();
 
-        // Build data source factory with custom headers
-        DataSource.Factory dataSourceFactory = buildDataSourceFactory(source);
-
         // Build MediaItem with subtitles
         String url = source.getUrl();
         MediaItem.Builder mediaItemBuilder = new MediaItem.Builder()
@@ -283,42 +497,59 @@ public class PlayerCore {
         activity.controlsManager.hideLoading();
         activity.controlsManager.showStreamingStatus();
 
-        // Build media source based on URL type
-        MediaSource videoSource;
-
-        if (url.contains(".m3u8")) {
-            // HLS stream
-            videoSource = new HlsMediaSource.Factory(dataSourceFactory)
-                    .createMediaSource(mediaItem);
-        } else if (url.contains(".mpd")) {
-            // DASH stream
-            videoSource = new DashMediaSource.Factory(dataSourceFactory)
-                    .createMediaSource(mediaItem);
-        } else {
-            // Progressive stream
-            videoSource = new ProgressiveMediaSource.Factory(dataSourceFactory)
-                    .createMediaSource(mediaItem);
-        }
+        MediaSource videoSource = buildMediaSource(source, mediaItem);
 
-        // Prepare player
-        activity.player.setMediaSource(videoSource);
-        activity.player.prepare();
-
-        // Seek to start position if provided
+        // Prepare player at the start position (resume or failover) so loading starts there
         if (activity.startPosition > 0) {
-            activity.player.seekTo(activity.startPosition);
+            activity.player.setMediaSource(videoSource, activity.startPosition);
             activity.startPosition = 0; // Reset after first use
+        } else {
+            activity.player.setMediaSource(videoSource);
         }
+        activity.player.prepare();
+        markLoaded();
 
         activity.player.setPlayWhenReady(true);
-        activity.dialogManager.showCurrentTrackInfo();
+        runAfterFirstFrame(activity.dialogManager::showCurrentTrackInfo);
 
         // Update UI
         activity.dialogManager.updateServerButton();
         activity.dialogManager.updateQualityButton();
     }
 
+    /**
+     * Build the media source for a video source based on URL type, with its custom headers
+     */
+    MediaSource buildMediaSource(MediaItems.VideoSource source, MediaItem mediaItem) {
+        return buildMediaSource(source, mediaItem, StreamUrlRefresher.requestFor(activity.mediaItems));
+    }
+
+    /**
+     * As above, for a source of another title (request re-resolves it when its URL expires)
+     */
+    MediaSource buildMediaSource(MediaItems.VideoSource source, MediaItem mediaItem, StreamRequest request) {
+        DataSource.Factory dataSourceFactory = buildDataSourceFactory(source, request);
+        String url = source.getUrl();
+
+        if (url.contains(".m3u8")) {
+            // HLS stream
+            return new HlsMediaSource.Factory(dataSourceFactory)
+                    .createMediaSource(mediaItem);
+        } else if (url.contains(".mpd")) {
+            // DASH stream
+            return new DashMediaSource.Factory(dataSourceFactory)
+                    .createMediaSource(mediaItem);
+        }
+        // Progressive stream
+        return new ProgressiveMediaSource.Factory(dataSourceFactory)
+                .createMediaSource(mediaItem);
+    }
+
     DataSource.Factory buildDataSourceFactory(MediaItems.VideoSource source) {
+        return buildDataSourceFactory(source, StreamUrlRefresher.requestFor(activity.mediaItems));
+    }
+
+    DataSource.Factory buildDataSourceFactory(MediaItems.VideoSource source, StreamRequest request) {
         // Clear previous headers - we only want User Agent, Referer, and Origin
         activity.headers.clear();
 
@@ -355,15 +586,36 @@ public class PlayerCore {
         }
 
         // Use the shared OkHttpClient which maintains cookies/sessions from FetchStreams
-        // This shares the connection pool and cookie jar with API calls
-        OkHttpDataSource.Factory okHttpDataSourceFactory = new OkHttpDataSource.Factory(activity.sharedOkHttpClient);
+        // This shares the connection pool and cookie jar with API calls. OkHttpDataSource
+        // enqueues its calls, so they are marked async: never held for a retry backoff
+        OkHttpDataSource.Factory okHttpDataSourceFactory =
+                new OkHttpDataSource.Factory(ApiClient.asyncCalls(activity.sharedOkHttpClient));
 
         // Set custom headers for the data source
         if (!activity.headers.isEmpty()) {
             okHttpDataSourceFactory.setDefaultRequestProperties(activity.headers);
         }
 
-        return new DefaultDataSource.Factory(activity, okHttpDataSourceFactory);
+        // Parallel Downloads: large progressive files are read over several Range requests
+        PreferencesManager preferences = PreferencesManager.getInstance(activity);
+        DataSource.Factory httpFactory = okHttpDataSourceFactory;
+        String sourceUrl = source.getUrl();
+        if (!sourceUrl.contains(".m3u8") && !sourceUrl.contains(".mpd")
+                && preferences.getParallelRangeConnections() > 1) {
+            httpFactory = new ParallelRangeDataSource.Factory(okHttpDataSourceFactory,
+                    preferences.getParallelRangeChunkKb() * 1024,
+                    preferences.getParallelRangeConnections());
+        }
+
+        DataSource.Factory upstream = new DefaultDataSource.Factory(activity, httpFactory);
+
+        // Progressive Cache: serve seek-backs, rewatches and resumes from disk
+        if (preferences.isProgressiveCacheEnabled()) {
+            upstream = MediaCache.wrap(activity, upstream);
+        }
+
+        // Expired signed URLs are re-resolved and swapped in without stopping playback
+        return activity.streamUrlRefresher.wrap(source, request, upstream);
     }
 
     void handlePlayerError(PlaybackException error) {
@@ -371,15 +623,44 @@ public class PlayerCore {
         activity.controlsManager.hideStreamingStatus();
         Toast.makeText(activity, "Playback error: " + error.getMessage(), Toast.LENGTH_LONG).show();
 
-        // Try next server if available
-        if (activity.currentSourceIndex < activity.videoSources.size() - 1) {
-
-            loadVideoSource(activity.currentSourceIndex + 1);
+        // A rejected signed URL means the cached resolution for it is stale
+        int responseCode = getHttpResponseCode(error);
+        if ((responseCode == 403 || responseCode == 410)
+                && activity.currentSourceIndex >= 0
+                && activity.currentSourceIndex < activity.videoSources.size()) {
+            String url = activity.videoSources.get(activity.currentSourceIndex).getUrl();
+            if (activity.streamUrlRefresher.takeReloadableUrl(url)) {
+                // Re-resolved, but segments are signed one by one: reload from the fresh URL
+                Log.i(TAG, "Reloading source " + activity.currentSourceIndex + " from its re-resolved URL");
+                activity.startPosition = activity.player.getCurrentPosition();
+                loadVideoSource(activity.currentSourceIndex);
+                return;
+            }
+            ResolvedStreamCache.getInstance(activity).invalidateUrl(url);
+        }
 
-        } else {
+        // Try next server at the same position if available
+        if (!activity.sourceFailover.failover("error " + error.getErrorCodeName())) {
             activity.loadingIndicator.setVisibility(android.view.View.GONE);
             activity.loadingStatusContainer.setVisibility(android.view.View.GONE);
+            // Servers still resolving will resume playback when they arrive
+            activity.waitingForSources = activity.streamResolution != null
+                    && !activity.streamResolution.isFinished();
+        }
+    }
+
+    /**
+     * HTTP status behind a playback error, or -1 when it was not an HTTP response error
+     */
+    static int getHttpResponseCode(PlaybackException error) {
+        Throwable cause = error.getCause();
+        while (cause != null) {
+            if (cause instanceof HttpDataSource.InvalidResponseCodeException) {
+                return ((HttpDataSource.InvalidResponseCodeException) cause).responseCode;
+            }
+            cause = cause.getCause();
         }
+        return -1;
     }
 
     public void saveWatchProgress() {
@@ -387,7 +668,8 @@ public class PlayerCore {
     }
 
     void saveWatchProgress(boolean completed) {
-        if (activity.player == null || activity.mediaItems == null || activity.preferencesManager == null) {
+        // After a takeover the player holds another episode's position
+        if (!ownsPlayer() || activity.player == null || activity.mediaItems == null || activity.preferencesManager == null) {
             return;
         }
 
@@ -8,7 +8,8 @@ import android.widget.Toast;
 
 import androidx.media3.common.util.UnstableApi;
 
-import com.kiduyu.klaus.kiduyutv.Api.FetchStreams;
+import com.kiduyu.klaus.kiduyutv.Api.StreamRequest;
+import com.kiduyu.klaus.kiduyutv.Api.StreamResolver;
 import com.kiduyu.klaus.kiduyutv.Api.TmdbRepository;
 import com.kiduyu.klaus.kiduyutv.Ui.player.PlayerActivity;
 import com.kiduyu.klaus.kiduyutv.model.MediaItems;
@@ -23,9 +24,12 @@ public class PlayerGenreTagsManager {
     private static final String TAG = "PlayerGenreTagsManager";
 
     private final PlayerActivity activity;
+    private final StreamResolver streamResolver;
+    private StreamResolver.Resolution nextEpisodeResolution;
 
     public PlayerGenreTagsManager(PlayerActivity activity) {
         this.activity = activity;
+        this.streamResolver = new StreamResolver(activity);
     }
 
     /**
@@ -233,6 +237,11 @@ public class PlayerGenreTagsManager {
             return;
         }
 
+        // Already resolved (and usually buffered) in the background
+        if (activity.nextEpisodePrefetcher.playPrefetched()) {
+            return;
+        }
+
         String currentSeasonStr = activity.mediaItems.getSeason();
         String currentEpisodeStr = activity.mediaItems.getEpisode();
 
@@ -245,7 +254,7 @@ public class PlayerGenreTagsManager {
             activity.controlsManager.showLoadingServer();
             activity.loadingStatusText.setText("CHECKING NEXT EPISODE...");
 
-            TmdbRepository tmdbRepository = new TmdbRepository();
+            TmdbRepository tmdbRepository = new TmdbRepository(activity);
             tmdbRepository.getSeasonEpisodes(activity.mediaItems.getTmdbId(), currentSeason, new TmdbRepository.EpisodesCallback() {
                 @Override
                 public void onSuccess(List<com.kiduyu.klaus.kiduyutv.model.Episode> episodes) {
@@ -278,16 +287,21 @@ public class PlayerGenreTagsManager {
 
 
     void fetchNextEpisodeStreams(String tmdbId, String season, String episodeNumber) {
-        activity.runOnUiThread(() -> activity.loadingStatusText.setText("FETCHING NEXT EPISODE..."));
-
-        FetchStreams fetchStreams = new FetchStreams(activity);
-        fetchStreams.fetchHexaTV(tmdbId, season, episodeNumber, new FetchStreams.StreamCallback() {
-            @Override
-            public void onSuccess(MediaItems nextMedia) {
-                if (nextMedia.getVideoSources() != null && !nextMedia.getVideoSources().isEmpty()) {
+        activity.runOnUiThread(() -> {
+            activity.loadingStatusText.setText("FETCHING NEXT EPISODE...");
+            cancelNextEpisodeFetch();
+
+            MediaItems media = activity.mediaItems;
+            String year = media.getYear() > 0 ? String.valueOf(media.getYear()) : null;
+            StreamRequest request = StreamRequest.episode(media.getTitle(), year, tmdbId, null, season, episodeNumber);
+            nextEpisodeResolution = streamResolver.resolve(request, new StreamResolver.ResolveCallback() {
+                @Override
+                public void onFirstSource(StreamResolver.Resolution resolution,
+                                          List<MediaItems.VideoSource> sources,
+                                          List<MediaItems.SubtitleItem> subtitles) {
                     // Update current media items with next episode info - matching DetailsActivityTv intent extras
-                    activity.mediaItems.setVideoSources(nextMedia.getVideoSources());
-                    activity.mediaItems.setSubtitles(nextMedia.getSubtitles());
+                    activity.mediaItems.setVideoSources(sources);
+                    activity.mediaItems.setSubtitles(subtitles);
                     activity.mediaItems.setSeason(season);
                     activity.mediaItems.setEpisode(episodeNumber);
 
@@ -300,43 +314,56 @@ public class PlayerGenreTagsManager {
                         activity.mediaItems.setBackgroundImageUrl(activity.mediaItems.getPosterUrl());
                     }
 
-                    // Instead of just updating the info, restart the activity fresh
-                    // This ensures all initialization logic runs exactly like DetailsActivityTv launched it
-                    activity.runOnUiThread(() -> {
-                        activity.nextEpisodeTriggered = false; // Reset flag for the next episode
+                    activity.nextEpisodeTriggered = false; // Reset flag for the next episode
 
-                        // Restart the activity with the updated mediaItems (fresh start)
-                        Intent restartIntent = new Intent(activity, PlayerActivity.class);
-                        restartIntent.putExtra("media_item", activity.mediaItems);
-                        restartIntent.putExtra("media_type", "tv");
-                        restartIntent.putExtra("start_position", 0); // Start from beginning for new episode
+                    // Restart the activity with the updated mediaItems (fresh start)
+                    Intent restartIntent = new Intent(activity, PlayerActivity.class);
+                    restartIntent.putExtra("media_item", activity.mediaItems);
+                    restartIntent.putExtra("media_type", "tv");
+                    restartIntent.putExtra("start_position", 0); // Start from beginning for new episode
+                    // The new instance keeps receiving sources from the providers still running
+                    restartIntent.putExtra(StreamResolver.EXTRA_RESOLUTION_ID, resolution.getId());
 
-                        // Clear any existing activity stack and start fresh
-                        restartIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
-                        activity.startActivity(restartIntent);
+                    // Clear any existing activity stack and start fresh
+                    restartIntent.setFlags(Intent.FLAG_ACTIVITY_CLEAR_TOP | Intent.FLAG_ACTIVITY_NEW_TASK);
+                    activity.startActivity(restartIntent);
 
-                        // Finish this instance so pressing back goes to DetailsActivityTv
-                        activity.finish();
+                    // Handed over; finishing this instance must not cancel it
+                    nextEpisodeResolution = null;
 
-                        Toast.makeText(activity, "Playing Episode " + episodeNumber, Toast.LENGTH_SHORT).show();
-                    });
-                } else {
-                    activity.runOnUiThread(() -> {
-                        activity.controlsManager.hideLoading();
-                        Toast.makeText(activity, "No streams found for next episode", Toast.LENGTH_SHORT).show();
-                    });
+                    // Finish this instance so pressing back goes to DetailsActivityTv
+                    activity.finish();
+
+                    Toast.makeText(activity, "Playing Episode " + episodeNumber, Toast.LENGTH_SHORT).show();
+                }
+
+                @Override
+                public void onProgress(int completed, int total) {
+                }
+
+                @Override
+                public void onComplete(StreamResolver.Resolution resolution) {
                 }
-            }
 
-            @Override
-            public void onError(String error) {
-                activity.runOnUiThread(() -> {
+                @Override
+                public void onError(String error) {
+                    nextEpisodeResolution = null;
                     activity.nextEpisodeTriggered = false; // Reset flag to allow retry if needed
                     activity.controlsManager.hideLoading();
                     Log.e(TAG, "Error fetching next episode streams: " + error);
                     Toast.makeText(activity, "Failed to load next episode", Toast.LENGTH_SHORT).show();
-                });
-            }
+                }
+            });
         });
     }
+
+    /**
+     * Abort a next-episode lookup that is still in flight
+     */
+    public void cancelNextEpisodeFetch() {
+        if (nextEpisodeResolution != null) {
+            nextEpisodeResolution.cancel();
+            nextEpisodeResolution = null;
+        }
+    }
 }
@@ -9,8 +9,10 @@ import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.widget.SwitchCompat;
 import androidx.media3.common.util.UnstableApi;
 
+import com.kiduyu.klaus.kiduyutv.Api.ApiClient;
 import com.kiduyu.klaus.kiduyutv.R;
 import com.kiduyu.klaus.kiduyutv.Ui.player.PlayerActivity;
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
 
 @UnstableApi
 public class PlayerSettingsManager {
@@ -33,6 +35,7 @@ public class PlayerSettingsManager {
         activity.switchUseDoh = activity.findViewById(R.id.switchUseDoh);
         activity.switchProgressiveCache = activity.findViewById(R.id.switchProgressiveCache);
         activity.switchImageCdn = activity.findViewById(R.id.switchImageCdn);
+        activity.switchPlaybackStats = activity.findViewById(R.id.switchPlaybackStats);
         activity.textBufferSize = activity.findViewById(R.id.textBufferSize);
         activity.textSubtitleLanguage = activity.findViewById(R.id.textSubtitleLanguage);
         activity.btnCloseSettings = activity.findViewById(R.id.btnCloseSettings);
@@ -68,11 +71,35 @@ public class PlayerSettingsManager {
         });
 
         activity.switchUseDoh.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            boolean usingDoh = !PreferencesManager.DNS_RESOLVER_SYSTEM.equals(activity.preferencesManager.getDnsResolver());
+            if (isChecked == usingDoh) {
+                return; // loadSettingsValues() syncing the switch, nothing changed
+            }
+            // The panel only switches DoH on and off; Settings picks the service
+            activity.preferencesManager.setDnsResolver(isChecked
+                    ? PreferencesManager.DNS_RESOLVER_CLOUDFLARE : PreferencesManager.DNS_RESOLVER_SYSTEM);
+            ApiClient.applyDnsResolver(activity);
             activity.controlsManager.showToast("DoH " + (isChecked ? "enabled" : "disabled"));
         });
 
         activity.switchProgressiveCache.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            if (isChecked == activity.preferencesManager.isProgressiveCacheEnabled()) {
+                return; // loadSettingsValues() syncing the switch, nothing changed
+            }
+            activity.preferencesManager.setProgressiveCacheEnabled(isChecked);
             activity.controlsManager.showToast("Progressive Cache " + (isChecked ? "enabled" : "disabled"));
+
+            // Rebuild the media source so the data source picks up the change
+            if (activity.player != null && activity.videoSources != null && !activity.videoSources.isEmpty()) {
+                long currentPos = activity.player.getCurrentPosition();
+                activity.playerCore.loadVideoSource(activity.currentSourceIndex);
+                activity.player.seekTo(currentPos);
+            }
+        });
+
+        activity.switchPlaybackStats.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            activity.preferencesManager.setPlaybackStatsOverlayEnabled(isChecked);
+            activity.playbackStats.setOverlayVisible(isChecked);
         });
 
         activity.switchImageCdn.setOnCheckedChangeListener((buttonView, isChecked) -> {
@@ -87,9 +114,11 @@ public class PlayerSettingsManager {
         activity.findViewById(R.id.settingShowSubtitles).setOnClickListener(v ->
                 activity.controlsManager.showToast("Show Subtitles clicked"));
         activity.findViewById(R.id.settingUseDoh).setOnClickListener(v ->
-                activity.controlsManager.showToast("Use DoH clicked"));
+                activity.switchUseDoh.toggle());
         activity.findViewById(R.id.settingProgressiveCache).setOnClickListener(v ->
-                activity.controlsManager.showToast("Progressive Cache clicked"));
+                activity.switchProgressiveCache.toggle());
+        activity.findViewById(R.id.settingPlaybackStats).setOnClickListener(v ->
+                activity.switchPlaybackStats.toggle());
         activity.findViewById(R.id.settingImageCdn).setOnClickListener(v ->
                 activity.controlsManager.showToast("Use Image CDN clicked"));
     }
@@ -107,9 +136,11 @@ public class PlayerSettingsManager {
         activity.textSubtitleLanguage.setText(getLanguageName(subtitleLang));
 
         // Set default toggles (these would normally be stored in preferences)
-        activity.switchUseDoh.setChecked(true);
-        activity.switchProgressiveCache.setChecked(true);
+        activity.switchUseDoh.setChecked(
+                !PreferencesManager.DNS_RESOLVER_SYSTEM.equals(activity.preferencesManager.getDnsResolver()));
+        activity.switchProgressiveCache.setChecked(activity.preferencesManager.isProgressiveCacheEnabled());
         activity.switchImageCdn.setChecked(true);
+        activity.switchPlaybackStats.setChecked(activity.preferencesManager.isPlaybackStatsOverlayEnabled());
     }
 
     /**
@@ -0,0 +1,103 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.os.Handler;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.TransferListener;
+import androidx.media3.exoplayer.upstream.BandwidthMeter;
+import androidx.media3.exoplayer.upstream.DefaultBandwidthMeter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * SeededBandwidthMeter - A DefaultBandwidthMeter that can be re-seeded per source
+ *
+ * DefaultBandwidthMeter only takes an initial estimate when it is built, but the
+ * warm player outlives titles and sources that come from different hosts. After
+ * {@link #seed} the meter reports that host's remembered throughput (from
+ * BandwidthHistory) until a few network transfers have been measured, then hands
+ * back to the wrapped meter's own estimate.
+ */
+@UnstableApi
+public class SeededBandwidthMeter implements BandwidthMeter, TransferListener {
+    // Completed network transfers (manifest, first segments) before measurements take over
+    private static final int SEED_TRANSFERS = 3;
+
+    private final DefaultBandwidthMeter delegate;
+    private final AtomicInteger transfersSinceSeed = new AtomicInteger(SEED_TRANSFERS);
+    private volatile long seedBitrate;
+
+    public SeededBandwidthMeter(DefaultBandwidthMeter delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Report this estimate (bits/s) until the next source has been measured
+     */
+    public void seed(long bitrate) {
+        if (bitrate <= 0) {
+            return;
+        }
+        seedBitrate = bitrate;
+        transfersSinceSeed.set(0);
+    }
+
+    @Override
+    public long getBitrateEstimate() {
+        if (transfersSinceSeed.get() < SEED_TRANSFERS) {
+            return seedBitrate;
+        }
+        return delegate.getBitrateEstimate();
+    }
+
+    @Override
+    public long getTimeToFirstByteEstimateUs() {
+        return delegate.getTimeToFirstByteEstimateUs();
+    }
+
+    @Nullable
+    @Override
+    public TransferListener getTransferListener() {
+        return this;
+    }
+
+    @Override
+    public void addEventListener(@NonNull Handler eventHandler, @NonNull EventListener eventListener) {
+        delegate.addEventListener(eventHandler, eventListener);
+    }
+
+    @Override
+    public void removeEventListener(@NonNull EventListener eventListener) {
+        delegate.removeEventListener(eventListener);
+    }
+
+    // ===================== TRANSFERS =====================
+
+    @Override
+    public void onTransferInitializing(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+        delegate.onTransferInitializing(source, dataSpec, isNetwork);
+    }
+
+    @Override
+    public void onTransferStart(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+        delegate.onTransferStart(source, dataSpec, isNetwork);
+    }
+
+    @Override
+    public void onBytesTransferred(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork,
+                                   int bytesTransferred) {
+        delegate.onBytesTransferred(source, dataSpec, isNetwork, bytesTransferred);
+    }
+
+    @Override
+    public void onTransferEnd(@NonNull DataSource source, @NonNull DataSpec dataSpec, boolean isNetwork) {
+        delegate.onTransferEnd(source, dataSpec, isNetwork);
+        if (isNetwork) {
+            transfersSinceSeed.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.media3.common.C;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+
+import com.kiduyu.klaus.kiduyutv.Api.StreamExecutor;
+import com.kiduyu.klaus.kiduyutv.Ui.player.PlayerActivity;
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * SourceFailover - Switches to the next server at the current timestamp
+ *
+ * The next-ranked source is kept warm while the current one plays: its manifest
+ * is fetched and the segments around the playback position are read through the
+ * media cache (see {@link MediaCache}), so a switch starts from disk instead of
+ * from a cold CDN. Each standby is warmed once, and again only after a seek or a
+ * position jump, on StreamExecutor's background pool so it never competes with
+ * stream resolution. A fatal player error, or MAX_REBUFFERS stalls within
+ * REBUFFER_WINDOW_MS, moves playback to the standby at the same position.
+ */
+@UnstableApi
+public class SourceFailover {
+    private static final String TAG = "SourceFailover";
+
+    private static final long POSITION_JUMP_MS = 30 * 1000L;   // between two progress ticks
+    private static final int WARM_SEGMENTS = 2;
+    private static final long WARM_PROGRESSIVE_BYTES = 2 * 1024 * 1024L;
+    private static final int MAX_MANIFEST_BYTES = 4 * 1024 * 1024;
+
+    private static final int MAX_REBUFFERS = 3;
+    private static final long REBUFFER_WINDOW_MS = 60 * 1000L;
+    private static final long SEEK_GRACE_MS = 2000L;
+
+    private final PlayerActivity activity;
+    private final ArrayDeque<Long> rebuffers = new ArrayDeque<>();
+
+    private boolean ready;
+    private long lastSeekAt;
+    private int standbyIndex = -1;
+    private String standbyUrl;
+    private boolean rewarmPending;
+    private long lastPositionMs = C.TIME_UNSET;
+    // Bumped on every switch and warm-up so an outdated warm-up stops early
+    private volatile int generation;
+
+    public SourceFailover(PlayerActivity activity) {
+        this.activity = activity;
+    }
+
+    // ===================== PLAYER EVENTS =====================
+
+    /**
+     * Called with every progress tick; keeps the standby warm around the current position
+     */
+    void onProgress(long positionMs, long durationMs) {
+        int next = nextIndex();
+        if (next < 0) {
+            return;
+        }
+        // A jump without a seek event, e.g. the player skipping ahead after an error
+        boolean jumped = lastPositionMs != C.TIME_UNSET && Math.abs(positionMs - lastPositionMs) > POSITION_JUMP_MS;
+        lastPositionMs = positionMs;
+
+        String nextUrl = activity.videoSources.get(next).getUrl();
+        if (next != standbyIndex || !nextUrl.equals(standbyUrl) || rewarmPending || jumped) {
+            warm(next, positionMs, durationMs);
+        }
+    }
+
+    void onReady() {
+        ready = true;
+    }
+
+    void onSeek() {
+        lastSeekAt = SystemClock.elapsedRealtime();
+        rewarmPending = true; // the warmed segments are around the old position
+    }
+
+    /**
+     * A stall after playback started (not caused by a seek) counts toward a failover
+     */
+    void onBuffering() {
+        long now = SystemClock.elapsedRealtime();
+        if (!ready || activity.player == null || !activity.player.getPlayWhenReady()
+                || now - lastSeekAt < SEEK_GRACE_MS) {
+            return;
+        }
+
+        rebuffers.addLast(now);
+        while (!rebuffers.isEmpty() && now - rebuffers.peekFirst() > REBUFFER_WINDOW_MS) {
+            rebuffers.removeFirst();
+        }
+        Log.w(TAG, "Rebuffer " + rebuffers.size() + "/" + MAX_REBUFFERS + " on source " + activity.currentSourceIndex);
+        if (rebuffers.size() >= MAX_REBUFFERS && failover("repeated rebuffering")) {
+            Toast.makeText(activity, "Slow server, switching...", Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    // ===================== FAILOVER =====================
+
+    /**
+     * Move playback to the next source at the current position.
+     * Returns false when there is no other source to try.
+     */
+    public boolean failover(String reason) {
+        int next = nextIndex();
+        if (next < 0 || activity.player == null) {
+            return false;
+        }
+
+        long position = activity.player.getCurrentPosition();
+        Log.i(TAG, "Failing over to source " + next + " at " + position + "ms (" + reason + ")"
+                + (next == standbyIndex ? ", standby warm" : ""));
+
+        activity.startPosition = position;
+        activity.playerCore.loadVideoSource(next);
+        return true;
+    }
+
+    /**
+     * Forget the standby and stall history, e.g. when a new source starts loading
+     */
+    public void reset() {
+        generation++;
+        ready = false;
+        rebuffers.clear();
+        standbyIndex = -1;
+        standbyUrl = null;
+        rewarmPending = false;
+        lastPositionMs = C.TIME_UNSET;
+    }
+
+    private int nextIndex() {
+        if (activity.videoSources == null) {
+            return -1;
+        }
+        int next = activity.currentSourceIndex + 1;
+        return next < activity.videoSources.size() ? next : -1;
+    }
+
+    // ===================== STANDBY =====================
+
+    private void warm(int index, long positionMs, long durationMs) {
+        MediaItems.VideoSource source = activity.videoSources.get(index);
+        standbyIndex = index;
+        standbyUrl = source.getUrl();
+        rewarmPending = false;
+
+        // Built on the main thread; the factory keeps its own copy of the source headers
+        DataSource.Factory factory = activity.playerCore.buildDataSourceFactory(source);
+        boolean cacheEnabled = PreferencesManager.getInstance(activity).isProgressiveCacheEnabled();
+        // A new warm-up supersedes one still running for an older position
+        int warmGeneration = ++generation;
+        String url = source.getUrl();
+
+        StreamExecutor.background().execute(() -> {
+            try {
+                if (url.contains(".m3u8")) {
+                    warmHls(factory, Uri.parse(url), positionMs, cacheEnabled, warmGeneration);
+                } else if (url.contains(".mpd")) {
+                    readFully(factory, new DataSpec(Uri.parse(url)));
+                } else {
+                    warmProgressive(factory, Uri.parse(url), positionMs, durationMs, cacheEnabled);
+                }
+                Log.i(TAG, "Standby source " + index + " warm at " + positionMs + "ms");
+            } catch (IOException | RuntimeException e) {
+                Log.w(TAG, "Could not warm standby source " + index + ": " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Fetch the playlist (and best variant) plus the segments covering the position
+     */
+    private void warmHls(DataSource.Factory factory, Uri playlistUri, long positionMs,
+                         boolean cacheEnabled, int warmGeneration) throws IOException {
+        String playlist = readFully(factory, new DataSpec(playlistUri));
+
+        if (playlist.contains("#EXT-X-STREAM-INF")) {
+            // Master playlist: follow the highest bandwidth variant, as the track selector does
+            Uri variant = null;
+            long bestBandwidth = -1;
+            String[] lines = playlist.split("\n");
+            for (int i = 0; i < lines.length - 1; i++) {
+                String line = lines[i].trim();
+                if (!line.startsWith("#EXT-X-STREAM-INF")) {
+                    continue;
+                }
+                long bandwidth = parseAttribute(line, "BANDWIDTH");
+                String next = lines[i + 1].trim();
+                if (!next.isEmpty() && !next.startsWith("#") && bandwidth > bestBandwidth) {
+                    bestBandwidth = bandwidth;
+                    variant = resolve(playlistUri, next);
+                }
+            }
+            if (variant == null || generation != warmGeneration) {
+                return;
+            }
+            playlistUri = variant;
+            playlist = readFully(factory, new DataSpec(playlistUri));
+        }
+
+        // Segments only help when they land in the cache, and byte-range playlists
+        // would pull the whole file per segment
+        if (!cacheEnabled || playlist.contains("#EXT-X-BYTERANGE")) {
+            return;
+        }
+
+        long segmentStartMs = 0;
+        int warmed = 0;
+        String[] lines = playlist.split("\n");
+        for (int i = 0; i < lines.length && warmed < WARM_SEGMENTS; i++) {
+            String line = lines[i].trim();
+            if (line.startsWith("#EXT-X-MAP")) {
+                String initUri = parseUriAttribute(line);
+                if (initUri != null) {
+                    readFully(factory, new DataSpec(resolve(playlistUri, initUri)));
+                }
+            } else if (line.startsWith("#EXTINF:")) {
+                long durationMs = parseExtinfMs(line);
+                String segment = nextUriLine(lines, i + 1);
+                if (segment != null && (warmed > 0 || segmentStartMs + durationMs > positionMs)) {
+                    if (generation != warmGeneration) {
+                        return;
+                    }
+                    readFully(factory, new DataSpec(resolve(playlistUri, segment)));
+                    warmed++;
+                }
+                segmentStartMs += durationMs;
+            }
+        }
+    }
+
+    /**
+     * Read the head of the file (container index) and the bytes around the position
+     */
+    private void warmProgressive(DataSource.Factory factory, Uri uri, long positionMs, long durationMs,
+                                 boolean cacheEnabled) throws IOException {
+        DataSource dataSource = factory.createDataSource();
+        long length;
+        try {
+            length = dataSource.open(new DataSpec.Builder()
+                    .setUri(uri)
+                    .setLength(cacheEnabled ? WARM_PROGRESSIVE_BYTES : 1)
+                    .build());
+            drain(dataSource);
+        } finally {
+            dataSource.close();
+        }
+
+        if (!cacheEnabled || durationMs <= 0 || positionMs <= 0) {
+            return;
+        }
+        // Without the index the byte offset is estimated from the position
+        DataSource ranged = factory.createDataSource();
+        try {
+            long total = length != C.LENGTH_UNSET ? length : 0;
+            if (total <= WARM_PROGRESSIVE_BYTES) {
+                return;
+            }
+            long offset = Math.min(total * positionMs / durationMs, total - WARM_PROGRESSIVE_BYTES);
+            ranged.open(new DataSpec.Builder()
+                    .setUri(uri)
+                    .setPosition(offset)
+                    .setLength(WARM_PROGRESSIVE_BYTES)
+                    .build());
+            drain(ranged);
+        } finally {
+            ranged.close();
+        }
+    }
+
+    // ===================== HELPERS =====================
+
+    private static String readFully(DataSource.Factory factory, DataSpec dataSpec) throws IOException {
+        DataSource dataSource = factory.createDataSource();
+        try {
+            dataSource.open(dataSpec);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[16 * 1024];
+            int read;
+            while ((read = dataSource.read(buffer, 0, buffer.length)) != C.RESULT_END_OF_INPUT) {
+                if (out.size() < MAX_MANIFEST_BYTES) {
+                    out.write(buffer, 0, read);
+                }
+            }
+            return out.toString(StandardCharsets.UTF_8.name());
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    private static void drain(DataSource dataSource) throws IOException {
+        byte[] buffer = new byte[16 * 1024];
+        while (dataSource.read(buffer, 0, buffer.length) != C.RESULT_END_OF_INPUT) {
+            // Reading is what fills the cache
+        }
+    }
+
+    private static Uri resolve(Uri base, String reference) {
+        return Uri.parse(java.net.URI.create(base.toString()).resolve(reference.trim()).toString());
+    }
+
+    private static String nextUriLine(String[] lines, int from) {
+        for (int i = from; i < lines.length; i++) {
+            String line = lines[i].trim();
+            if (!line.isEmpty() && !line.startsWith("#")) {
+                return line;
+            }
+        }
+        return null;
+    }
+
+    private static long parseAttribute(String line, String name) {
+        int start = line.indexOf(name + "=");
+        if (start < 0) {
+            return 0;
+        }
+        start += name.length() + 1;
+        int end = start;
+        while (end < line.length() && Character.isDigit(line.charAt(end))) {
+            end++;
+        }
+        try {
+            return Long.parseLong(line.substring(start, end));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static String parseUriAttribute(String line) {
+        int start = line.indexOf("URI=\"");
+        if (start < 0) {
+            return null;
+        }
+        int end = line.indexOf('"', start + 5);
+        return end > start ? line.substring(start + 5, end) : null;
+    }
+
+    private static long parseExtinfMs(String line) {
+        int end = line.indexOf(',');
+        String value = line.substring("#EXTINF:".length(), end > 0 ? end : line.length());
+        try {
+            return (long) (Double.parseDouble(value.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
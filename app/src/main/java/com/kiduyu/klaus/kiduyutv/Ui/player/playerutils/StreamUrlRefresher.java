@@ -0,0 +1,394 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.datasource.TransferListener;
+
+import com.kiduyu.klaus.kiduyutv.Api.FetchStreams;
+import com.kiduyu.klaus.kiduyutv.Api.ResolvedStreamCache;
+import com.kiduyu.klaus.kiduyutv.Api.StreamHandle;
+import com.kiduyu.klaus.kiduyutv.Api.StreamProviderRegistry;
+import com.kiduyu.klaus.kiduyutv.Api.StreamRequest;
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StreamUrlRefresher - Re-resolves a source whose signed URL expired during playback
+ *
+ * Wraps the data source of each source. When a request is refused with 401/403/410,
+ * the loading thread waits (the player keeps playing from its buffer) while the
+ * source's provider is run again for the same title. The fresh URL then replaces
+ * the expired one in every later request: the source URL itself, and URLs under
+ * the same path or carrying the same signed query (HLS segments and keys). The
+ * refused request is retried once with the rewritten URL.
+ *
+ * When the provider cannot re-resolve, the error reaches the player and
+ * {@link SourceFailover} moves to another source. When it re-resolved but the
+ * rewrite could not fix the request (segments signed one by one), PlayerCore
+ * reloads the same source from its fresh URL at the current position instead.
+ *
+ * Owned by the {@link WarmPlayer}, like the data sources it wraps, so it holds no
+ * player screen: a recreated activity that resumes the warm player keeps using the
+ * refreshes already running.
+ */
+@UnstableApi
+public class StreamUrlRefresher {
+    private static final String TAG = "StreamUrlRefresher";
+
+    private static final long REFRESH_TIMEOUT_MS = 20_000;
+    private static final long MIN_REFRESH_INTERVAL_MS = 30_000;
+
+    private final Reresolver reresolver;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Keyed by the URL the source was loaded with
+    private final Map<String, Refresh> refreshes = new HashMap<>();
+    // Fresh URLs the player has not reloaded yet, see takeReloadableUrl()
+    private final Set<String> reloadable = new HashSet<>();
+    private StreamHandle handle = new StreamHandle();
+
+    private static class Refresh {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile String freshUrl;       // latest good URL, kept across a failed later refresh
+        volatile boolean succeeded;
+        volatile long finishedAt;
+    }
+
+    /**
+     * Runs a source's provider again for its title; the registry in the app, a stub in tests
+     */
+    interface Reresolver {
+        /**
+         * Start re-resolving; false when the source's provider is not registered
+         */
+        boolean reresolve(MediaItems.VideoSource source, StreamRequest request, StreamHandle handle,
+                          FetchStreams.StreamCallback callback);
+    }
+
+    public StreamUrlRefresher(Context context) {
+        this(registryReresolver(context.getApplicationContext()));
+    }
+
+    StreamUrlRefresher(Reresolver reresolver) {
+        this.reresolver = reresolver;
+    }
+
+    private static Reresolver registryReresolver(Context context) {
+        return (source, request, handle, callback) -> {
+            StreamProviderRegistry registry = StreamProviderRegistry.getInstance(context);
+            StreamProviderRegistry.Entry entry = findProvider(registry, source.getProvider());
+            if (entry == null) {
+                return false;
+            }
+            // The cached resolution holds the expired URL
+            ResolvedStreamCache.getInstance(context).invalidateUrl(source.getUrl());
+            Log.i(TAG, "Re-resolving " + entry.getName() + " for an expired URL");
+            registry.resolve(entry, request, handle, callback);
+            return true;
+        };
+    }
+
+    /**
+     * A factory whose sources follow refreshes of this source's URL; request is the
+     * title the source was resolved for
+     */
+    DataSource.Factory wrap(MediaItems.VideoSource source, StreamRequest request, DataSource.Factory upstream) {
+        String originalUrl = source.getUrl();
+        return () -> new RefreshingDataSource(upstream.createDataSource(), source, request, originalUrl);
+    }
+
+    /**
+     * The fresh URL of a source that was re-resolved but still failed, once; the caller
+     * reloads the source from it rather than failing over
+     */
+    synchronized boolean takeReloadableUrl(String url) {
+        return reloadable.remove(url);
+    }
+
+    /**
+     * Abandon running re-resolutions, e.g. when the player closes
+     */
+    public void cancel() {
+        handle.cancel();
+        handle = new StreamHandle();
+        synchronized (this) {
+            for (Refresh refresh : refreshes.values()) {
+                refresh.done.countDown();
+            }
+            refreshes.clear();
+            reloadable.clear();
+        }
+    }
+
+    // ===================== REFRESH =====================
+
+    /**
+     * Latest fresh URL for the source, re-resolving it unless that just happened.
+     * Blocks the calling (loading) thread; null when the provider could not re-resolve.
+     */
+    @Nullable
+    private String awaitFreshUrl(MediaItems.VideoSource source, StreamRequest request, String originalUrl)
+            throws InterruptedIOException {
+        Refresh refresh;
+        boolean start = false;
+        synchronized (this) {
+            refresh = refreshes.get(originalUrl);
+            if (refresh == null || (refresh.finishedAt > 0
+                    && SystemClock.elapsedRealtime() - refresh.finishedAt > MIN_REFRESH_INTERVAL_MS)) {
+                Refresh previous = refresh;
+                refresh = new Refresh();
+                refresh.freshUrl = previous != null ? previous.freshUrl : null;
+                refreshes.put(originalUrl, refresh);
+                start = true;
+            }
+        }
+        if (start) {
+            Refresh started = refresh;
+            mainHandler.post(() -> refresh(source, request, started));
+        }
+        try {
+            if (!refresh.done.await(REFRESH_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                Log.w(TAG, "Re-resolution timed out");
+                return null;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        return refresh.succeeded ? refresh.freshUrl : null;
+    }
+
+    /**
+     * Run the source's provider again for its title (main thread)
+     */
+    private void refresh(MediaItems.VideoSource source, StreamRequest request, Refresh refresh) {
+        String expiredUrl = source.getUrl();
+        boolean started = reresolver.reresolve(source, request, handle, new FetchStreams.StreamCallback() {
+            @Override
+            public void onSuccess(MediaItems item) {
+                MediaItems.VideoSource fresh = pickFresh(item.getVideoSources(), source);
+                if (fresh == null || fresh.getUrl().equals(expiredUrl)) {
+                    Log.w(TAG, "Provider returned no new URL");
+                    finish(refresh, null);
+                    return;
+                }
+                // Later reloads, failovers and stats use the fresh URL too
+                source.setUrl(fresh.getUrl());
+                synchronized (StreamUrlRefresher.this) {
+                    reloadable.add(fresh.getUrl());
+                }
+                Log.i(TAG, "Swapped in fresh URL from " + source.getProvider());
+                finish(refresh, fresh.getUrl());
+            }
+
+            @Override
+            public void onError(String error) {
+                Log.w(TAG, "Re-resolution failed: " + error);
+                finish(refresh, null);
+            }
+        });
+        if (!started) {
+            Log.w(TAG, "No provider to re-resolve " + expiredUrl);
+            finish(refresh, null);
+        }
+    }
+
+    @Nullable
+    private static StreamProviderRegistry.Entry findProvider(StreamProviderRegistry registry, String name) {
+        for (StreamProviderRegistry.Entry entry : registry.getAllProviders()) {
+            if (entry.getName().equals(name)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static void finish(Refresh refresh, @Nullable String freshUrl) {
+        if (freshUrl != null) {
+            refresh.freshUrl = freshUrl;
+            refresh.succeeded = true;
+        }
+        refresh.finishedAt = SystemClock.elapsedRealtime();
+        refresh.done.countDown();
+    }
+
+    /**
+     * The same quality from the new result, else its first source
+     */
+    @Nullable
+    private static MediaItems.VideoSource pickFresh(@Nullable List<MediaItems.VideoSource> sources,
+                                                    MediaItems.VideoSource expired) {
+        if (sources == null || sources.isEmpty()) {
+            return null;
+        }
+        for (MediaItems.VideoSource candidate : sources) {
+            if (Objects.equals(candidate.getQuality(), expired.getQuality())) {
+                return candidate;
+            }
+        }
+        return sources.get(0);
+    }
+
+    /**
+     * The request that re-resolves a title's sources
+     */
+    static StreamRequest requestFor(MediaItems media) {
+        String year = media.getYear() > 0 ? String.valueOf(media.getYear()) : null;
+        if (media.getSeason() != null && media.getEpisode() != null) {
+            return StreamRequest.episode(media.getTitle(), year, media.getTmdbId(), null,
+                    media.getSeason(), media.getEpisode());
+        }
+        return StreamRequest.movie(media.getTitle(), year, media.getTmdbId(), null);
+    }
+
+    /**
+     * Point a request for the expired source at the fresh one. Only URLs on the
+     * source's host change: the source URL itself, paths under its directory
+     * (tokens in the path) and the same signed query string.
+     */
+    static Uri rewrite(Uri uri, String expiredUrl, String freshUrl) {
+        String url = uri.toString();
+        if (url.equals(expiredUrl)) {
+            return Uri.parse(freshUrl);
+        }
+        Uri expired = Uri.parse(expiredUrl);
+        Uri fresh = Uri.parse(freshUrl);
+        if (!Objects.equals(uri.getHost(), expired.getHost())) {
+            return uri;
+        }
+
+        String path = stripQuery(url);
+        String expiredBase = directoryOf(stripQuery(expiredUrl));
+        if (path.startsWith(expiredBase)) {
+            path = directoryOf(stripQuery(freshUrl)) + path.substring(expiredBase.length());
+        }
+        String query = uri.getEncodedQuery();
+        if (query != null && query.equals(expired.getEncodedQuery())) {
+            query = fresh.getEncodedQuery();
+        }
+        return Uri.parse(query != null ? path + "?" + query : path);
+    }
+
+    private static String stripQuery(String url) {
+        int query = url.indexOf('?');
+        return query >= 0 ? url.substring(0, query) : url;
+    }
+
+    private static String directoryOf(String url) {
+        return url.substring(0, url.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * HTTP status behind a data source failure, or -1
+     */
+    private static int responseCodeOf(IOException error) {
+        Throwable cause = error;
+        while (cause != null) {
+            if (cause instanceof HttpDataSource.InvalidResponseCodeException) {
+                return ((HttpDataSource.InvalidResponseCodeException) cause).responseCode;
+            }
+            cause = cause.getCause();
+        }
+        return -1;
+    }
+
+    // ===================== DATA SOURCE =====================
+
+    private class RefreshingDataSource implements DataSource {
+        private final DataSource upstream;
+        private final MediaItems.VideoSource source;
+        private final StreamRequest request;
+        private final String originalUrl;
+
+        RefreshingDataSource(DataSource upstream, MediaItems.VideoSource source, StreamRequest request,
+                             String originalUrl) {
+            this.upstream = upstream;
+            this.source = source;
+            this.request = request;
+            this.originalUrl = originalUrl;
+        }
+
+        @Override
+        public void addTransferListener(@NonNull TransferListener transferListener) {
+            upstream.addTransferListener(transferListener);
+        }
+
+        @Override
+        public long open(@NonNull DataSpec dataSpec) throws IOException {
+            DataSpec target = rewritten(dataSpec);
+            try {
+                return upstream.open(target);
+            } catch (IOException e) {
+                int responseCode = responseCodeOf(e);
+                if (responseCode != 401 && responseCode != 403 && responseCode != 410) {
+                    throw e;
+                }
+                upstream.close();
+                if (awaitFreshUrl(source, this.request, originalUrl) == null) {
+                    throw e;
+                }
+                DataSpec retry = rewritten(dataSpec);
+                if (retry.uri.equals(target.uri)) {
+                    throw e; // the fresh URL does not cover this request
+                }
+                Log.i(TAG, "Retrying with the fresh URL after " + responseCode);
+                return upstream.open(retry);
+            }
+        }
+
+        private DataSpec rewritten(DataSpec dataSpec) {
+            Refresh refresh;
+            synchronized (StreamUrlRefresher.this) {
+                refresh = refreshes.get(originalUrl);
+            }
+            String freshUrl = refresh != null ? refresh.freshUrl : null;
+            if (freshUrl == null) {
+                return dataSpec;
+            }
+            return dataSpec.withUri(rewrite(dataSpec.uri, originalUrl, freshUrl));
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) throws IOException {
+            return upstream.read(buffer, offset, length);
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return upstream.getUri();
+        }
+
+        @NonNull
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return upstream.getResponseHeaders();
+        }
+
+        @Override
+        public void close() throws IOException {
+            upstream.close();
+        }
+    }
+}
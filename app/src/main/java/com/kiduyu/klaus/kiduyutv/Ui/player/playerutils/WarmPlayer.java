@@ -0,0 +1,146 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import android.util.Log;
+
+import androidx.media3.common.Player;
+import androidx.media3.common.util.UnstableApi;
+import androidx.media3.exoplayer.ExoPlayer;
+import androidx.media3.exoplayer.analytics.AnalyticsListener;
+import androidx.media3.exoplayer.trackselection.DefaultTrackSelector;
+
+/**
+ * WarmPlayer - The ExoPlayer and its components, kept alive between PlayerActivity launches
+ *
+ * Built once with the current playback settings and reused by every player screen
+ * until the settings change or {@link com.kiduyu.klaus.kiduyutv.Ui.player.PlaybackService}
+ * goes idle and releases it. Reopening the player, or restarting it for the next
+ * episode, then skips creating the player, renderers, playback thread and bandwidth
+ * estimate. Main thread only.
+ */
+@UnstableApi
+public final class WarmPlayer {
+    private static final String TAG = "WarmPlayer";
+
+    private static WarmPlayer current;
+
+    public final ExoPlayer player;
+    public final DefaultTrackSelector trackSelector;
+    public final AdaptiveLoadControl loadControl;
+    final SeededBandwidthMeter bandwidthMeter;
+    public final StreamUrlRefresher urlRefresher;
+    private final String configKey;
+
+    // What is loaded, so a recreated activity can pick playback back up
+    String contentKey;
+    int sourceIndex;
+
+    // The player screen currently driving the player and the listeners it added
+    private PlayerCore owner;
+    private Player.Listener ownerListener;
+    private AnalyticsListener ownerAnalytics;
+
+    /**
+     * Builds a new player when no warm one matches the settings
+     */
+    interface Factory {
+        WarmPlayer create();
+    }
+
+    WarmPlayer(ExoPlayer player, DefaultTrackSelector trackSelector, AdaptiveLoadControl loadControl,
+               SeededBandwidthMeter bandwidthMeter, StreamUrlRefresher urlRefresher, String configKey) {
+        this.player = player;
+        this.trackSelector = trackSelector;
+        this.loadControl = loadControl;
+        this.bandwidthMeter = bandwidthMeter;
+        this.urlRefresher = urlRefresher;
+        this.configKey = configKey;
+    }
+
+    /**
+     * The warm player for these settings, built by the factory if there is none
+     */
+    static WarmPlayer obtain(String configKey, Factory factory) {
+        if (current != null && current.configKey.equals(configKey)) {
+            Log.i(TAG, "Reusing warm player");
+            return current;
+        }
+        if (current != null) {
+            Log.i(TAG, "Playback settings changed, rebuilding player");
+            release();
+        }
+        current = factory.create();
+        return current;
+    }
+
+    /**
+     * Whether the warm player still has this content loaded (e.g. across activity recreation)
+     */
+    boolean isPlaying(String contentKey) {
+        return contentKey != null && contentKey.equals(this.contentKey)
+                && player.getMediaItemCount() > 0
+                && player.getPlaybackState() != Player.STATE_IDLE;
+    }
+
+    /**
+     * Hand the player to a player screen. The next-episode restart starts the new
+     * activity before the old one is destroyed, so the previous owner is detached here.
+     */
+    void attach(PlayerCore core, Player.Listener listener, AnalyticsListener analytics) {
+        PlayerCore previous = owner;
+        removeOwnerListeners();
+        owner = core;
+        ownerListener = listener;
+        ownerAnalytics = analytics;
+        player.addListener(listener);
+        player.addAnalyticsListener(analytics);
+        if (previous != null && previous != core) {
+            previous.onPlayerTakenOver();
+        }
+    }
+
+    /**
+     * Release the player from a player screen; false if another screen already took it over
+     */
+    boolean detach(PlayerCore core) {
+        if (owner != core) {
+            return false;
+        }
+        removeOwnerListeners();
+        owner = null;
+        return true;
+    }
+
+    private void removeOwnerListeners() {
+        if (ownerListener != null) {
+            player.removeListener(ownerListener);
+            ownerListener = null;
+        }
+        if (ownerAnalytics != null) {
+            player.removeAnalyticsListener(ownerAnalytics);
+            ownerAnalytics = null;
+        }
+    }
+
+    /**
+     * Stop playback but keep the player and its renderers for the next launch
+     */
+    void park() {
+        urlRefresher.cancel();
+        player.stop();
+        player.clearMediaItems();
+        contentKey = null;
+    }
+
+    public static WarmPlayer get() {
+        return current;
+    }
+
+    public static void release() {
+        if (current != null) {
+            current.urlRefresher.cancel();
+            current.player.release();
+            current = null;
+            Log.i(TAG, "Warm player released");
+        }
+    }
+}
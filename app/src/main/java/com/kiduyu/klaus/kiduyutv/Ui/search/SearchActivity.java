@@ -83,7 +83,7 @@ public class SearchActivity extends AppCompatActivity {
         EdgeToEdge.enable(this);
         setContentView(R.layout.activity_search);
 
-        tmdbRepository =  new TmdbRepository();
+        tmdbRepository =  new TmdbRepository(this);
         preferencesManager = PreferencesManager.getInstance(this);
 
         initializeViews();
@@ -16,11 +16,17 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.activity.EdgeToEdge;
+import androidx.annotation.OptIn;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.widget.Toolbar;
 import androidx.core.widget.NestedScrollView;
+import androidx.media3.common.util.UnstableApi;
 
+import com.kiduyu.klaus.kiduyutv.Api.ApiClient;
+import com.kiduyu.klaus.kiduyutv.Api.ResolvedStreamCache;
+import com.kiduyu.klaus.kiduyutv.Api.TmdbClient;
 import com.kiduyu.klaus.kiduyutv.R;
+import com.kiduyu.klaus.kiduyutv.Ui.player.playerutils.MediaCache;
 import com.kiduyu.klaus.kiduyutv.utils.PreferencesManager;
 
 import java.io.File;
@@ -32,11 +38,18 @@ public class SettingsActivity extends AppCompatActivity {
     // UI Components
     private TextView videoQualityValue;
     private TextView subtitleLanguageValue;
+    private TextView nextEpisodePrefetchValue;
+    private TextView parallelDownloadsValue;
+    private TextView dnsResolverValue;
     private TextView cacheSizeValue;
     private TextView bufferSizeValue;
     private TextView appVersionValue;
+    private TextView catalogCacheValue;
+    private TextView catalogCachePolicyText;
+    private TextView catalogStaleValue;
     private Switch darkThemeSwitch;
     private Switch autoQualitySwitch;
+    private Switch fastStartSwitch;
     private Switch voiceSearchSwitch;
     private SeekBar bufferSizeSeekBar;
     private Button clearCacheButton;
@@ -44,11 +57,17 @@ public class SettingsActivity extends AppCompatActivity {
     private Button aboutButton;
     private LinearLayout videoQualityContainer;
     private LinearLayout subtitleContainer;
+    private LinearLayout nextEpisodePrefetchContainer;
+    private LinearLayout parallelDownloadsContainer;
+    private LinearLayout dnsResolverContainer;
     private LinearLayout themeContainer;
     private LinearLayout voiceSearchContainer;
     private LinearLayout bufferSizeContainer;
     private LinearLayout cacheContainer;
+    private LinearLayout catalogCacheContainer;
+    private LinearLayout catalogStaleContainer;
     private LinearLayout autoQualityContainer;
+    private LinearLayout fastStartContainer;
     private LinearLayout appInfoContainer;
     private NestedScrollView scrollView;
     private View scrollOverlay;
@@ -95,13 +114,20 @@ public class SettingsActivity extends AppCompatActivity {
         // Value displays
         videoQualityValue = findViewById(R.id.videoQualityValue);
         subtitleLanguageValue = findViewById(R.id.subtitleLanguageValue);
+        nextEpisodePrefetchValue = findViewById(R.id.nextEpisodePrefetchValue);
+        parallelDownloadsValue = findViewById(R.id.parallelDownloadsValue);
+        dnsResolverValue = findViewById(R.id.dnsResolverValue);
         cacheSizeValue = findViewById(R.id.cacheSizeValue);
         bufferSizeValue = findViewById(R.id.bufferSizeValue);
         appVersionValue = findViewById(R.id.appVersionValue);
+        catalogCacheValue = findViewById(R.id.catalogCacheValue);
+        catalogCachePolicyText = findViewById(R.id.catalogCachePolicyText);
+        catalogStaleValue = findViewById(R.id.catalogStaleValue);
 
         // Switches
         darkThemeSwitch = findViewById(R.id.darkThemeSwitch);
         autoQualitySwitch = findViewById(R.id.autoQualitySwitch);
+        fastStartSwitch = findViewById(R.id.fastStartSwitch);
         voiceSearchSwitch = findViewById(R.id.voiceSearchSwitch);
 
         // SeekBar
@@ -115,11 +141,17 @@ public class SettingsActivity extends AppCompatActivity {
         // Containers for navigation
         videoQualityContainer = findViewById(R.id.videoQualityContainer);
         subtitleContainer = findViewById(R.id.subtitleContainer);
+        nextEpisodePrefetchContainer = findViewById(R.id.nextEpisodePrefetchContainer);
+        parallelDownloadsContainer = findViewById(R.id.parallelDownloadsContainer);
+        dnsResolverContainer = findViewById(R.id.dnsResolverContainer);
         themeContainer = findViewById(R.id.themeContainer);
         voiceSearchContainer = findViewById(R.id.voiceSearchContainer);
         bufferSizeContainer = findViewById(R.id.bufferSizeContainer);
         cacheContainer = findViewById(R.id.cacheContainer);
+        catalogCacheContainer = findViewById(R.id.catalogCacheContainer);
+        catalogStaleContainer = findViewById(R.id.catalogStaleContainer);
         autoQualityContainer = findViewById(R.id.autoQualityContainer);
+        fastStartContainer = findViewById(R.id.fastStartContainer);
         appInfoContainer = findViewById(R.id.appInfoContainer);
     }
 
@@ -163,11 +195,17 @@ public class SettingsActivity extends AppCompatActivity {
         // Apply focus listener to all focusable items
         videoQualityContainer.setOnFocusChangeListener(focusChangeListener);
         subtitleContainer.setOnFocusChangeListener(focusChangeListener);
+        nextEpisodePrefetchContainer.setOnFocusChangeListener(focusChangeListener);
+        parallelDownloadsContainer.setOnFocusChangeListener(focusChangeListener);
+        dnsResolverContainer.setOnFocusChangeListener(focusChangeListener);
         themeContainer.setOnFocusChangeListener(focusChangeListener);
         voiceSearchContainer.setOnFocusChangeListener(focusChangeListener);
         bufferSizeContainer.setOnFocusChangeListener(focusChangeListener);
         cacheContainer.setOnFocusChangeListener(focusChangeListener);
+        catalogCacheContainer.setOnFocusChangeListener(focusChangeListener);
+        catalogStaleContainer.setOnFocusChangeListener(focusChangeListener);
         autoQualityContainer.setOnFocusChangeListener(focusChangeListener);
+        fastStartContainer.setOnFocusChangeListener(focusChangeListener);
         appInfoContainer.setOnFocusChangeListener(focusChangeListener);
         clearCacheButton.setOnFocusChangeListener(focusChangeListener);
         resetDefaultsButton.setOnFocusChangeListener(focusChangeListener);
@@ -176,9 +214,13 @@ public class SettingsActivity extends AppCompatActivity {
         // Container clicks for navigation
         videoQualityContainer.setOnClickListener(v -> showVideoQualityDialog());
         subtitleContainer.setOnClickListener(v -> showSubtitleLanguageDialog());
+        nextEpisodePrefetchContainer.setOnClickListener(v -> showNextEpisodePrefetchDialog());
+        parallelDownloadsContainer.setOnClickListener(v -> showParallelDownloadsDialog());
+        dnsResolverContainer.setOnClickListener(v -> showDnsResolverDialog());
 
         // Auto Quality container click to toggle switch
         autoQualityContainer.setOnClickListener(v -> autoQualitySwitch.setChecked(!autoQualitySwitch.isChecked()));
+        fastStartContainer.setOnClickListener(v -> fastStartSwitch.setChecked(!fastStartSwitch.isChecked()));
 
         // Theme container click to toggle switch
         themeContainer.setOnClickListener(v -> {
@@ -195,6 +237,10 @@ public class SettingsActivity extends AppCompatActivity {
             showClearCacheDialog();
         });
 
+        // Catalog cache policy clicks
+        catalogCacheContainer.setOnClickListener(v -> showCatalogCacheDialog());
+        catalogStaleContainer.setOnClickListener(v -> showCatalogStaleDialog());
+
         // App Info container click
         appInfoContainer.setOnClickListener(v -> {
             Toast.makeText(this, "App Version: " + appVersionValue.getText(), Toast.LENGTH_SHORT).show();
@@ -211,6 +257,11 @@ public class SettingsActivity extends AppCompatActivity {
             Toast.makeText(this, "Auto quality " + (isChecked ? "enabled" : "disabled"), Toast.LENGTH_SHORT).show();
         });
 
+        fastStartSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            preferencesManager.setFastStartEnabled(isChecked);
+            Toast.makeText(this, "Fast start " + (isChecked ? "enabled" : "disabled"), Toast.LENGTH_SHORT).show();
+        });
+
         voiceSearchSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
             preferencesManager.setVoiceSearchEnabled(isChecked);
             Toast.makeText(this, "Voice search " + (isChecked ? "enabled" : "disabled"), Toast.LENGTH_SHORT).show();
@@ -245,14 +296,20 @@ public class SettingsActivity extends AppCompatActivity {
         // Load current values
         videoQualityValue.setText(preferencesManager.getVideoQuality());
         subtitleLanguageValue.setText(getLanguageName(preferencesManager.getSubtitleLanguage()));
+        nextEpisodePrefetchValue.setText(formatPrefetchPercent(preferencesManager.getNextEpisodePrefetchPercent()));
+        parallelDownloadsValue.setText(formatConnections(preferencesManager.getParallelRangeConnections()));
+        dnsResolverValue.setText(formatDnsResolver(preferencesManager.getDnsResolver()));
         darkThemeSwitch.setChecked(preferencesManager.isDarkThemeEnabled());
         autoQualitySwitch.setChecked(preferencesManager.isAutoQualityEnabled());
+        fastStartSwitch.setChecked(preferencesManager.isFastStartEnabled());
         voiceSearchSwitch.setChecked(preferencesManager.isVoiceSearchEnabled());
 
         int bufferSize = preferencesManager.getPlaybackBufferDuration();
         bufferSizeSeekBar.setProgress(bufferSize);
         bufferSizeValue.setText(bufferSize + " MB");
 
+        updateCatalogCachePolicy();
+
         // Load app version
         try {
             PackageInfo packageInfo = getPackageManager().getPackageInfo(getPackageName(), 0);
@@ -327,9 +384,15 @@ public class SettingsActivity extends AppCompatActivity {
     /**
      * Clear app cache
      */
+    @OptIn(markerClass = UnstableApi.class)
     private void clearCache() {
         new Thread(() -> {
             try {
+                // Evict the TMDB response cache through OkHttp so its journal stays consistent
+                TmdbClient.getInstance(this).clearCache();
+                ResolvedStreamCache.getInstance(this).clear();
+                MediaCache.clear(this);
+
                 // Clear internal cache
                 File cacheDir = getCacheDir();
                 deleteDir(cacheDir);
@@ -358,6 +421,7 @@ public class SettingsActivity extends AppCompatActivity {
     /**
      * Delete directory contents recursively
      */
+    @OptIn(markerClass = UnstableApi.class)
     private boolean deleteDir(File dir) {
         if (dir == null || !dir.exists()) {
             return false;
@@ -367,6 +431,10 @@ public class SettingsActivity extends AppCompatActivity {
             File[] files = dir.listFiles();
             if (files != null) {
                 for (File file : files) {
+                    if (file.isDirectory() && (file.getName().equals(TmdbClient.HTTP_CACHE_DIR)
+                            || file.getName().equals(MediaCache.CACHE_DIR))) {
+                        continue; // live OkHttp/media caches, already evicted above
+                    }
                     if (file.isDirectory()) {
                         deleteDir(file);
                     } else {
@@ -408,6 +476,110 @@ public class SettingsActivity extends AppCompatActivity {
         builder.show();
     }
 
+    private String formatPrefetchPercent(int percent) {
+        return percent > 0 ? "At " + percent + "%" : "Off";
+    }
+
+    private void showNextEpisodePrefetchDialog() {
+        String[] options = {"Off", "At 75%", "At 85%", "At 90%", "At 95%"};
+        int[] percents = {0, 75, 85, 90, 95};
+        int current = preferencesManager.getNextEpisodePrefetchPercent();
+
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("Prefetch Next Episode");
+
+        int selectedIndex = 2;
+        for (int i = 0; i < percents.length; i++) {
+            if (percents[i] == current) {
+                selectedIndex = i;
+                break;
+            }
+        }
+
+        builder.setSingleChoiceItems(options, selectedIndex, (dialog, which) -> {
+            preferencesManager.setNextEpisodePrefetchPercent(percents[which]);
+            nextEpisodePrefetchValue.setText(options[which]);
+            Toast.makeText(SettingsActivity.this, "Next episode prefetch: " + options[which], Toast.LENGTH_SHORT).show();
+            dialog.dismiss();
+        });
+
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private String formatConnections(int connections) {
+        return connections > 1 ? connections + " connections" : "Off";
+    }
+
+    private void showParallelDownloadsDialog() {
+        String[] options = {"Off", "2 connections", "4 connections", "6 connections"};
+        int[] connections = {1, 2, 4, 6};
+        int current = preferencesManager.getParallelRangeConnections();
+
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("Parallel Downloads (MP4 sources)");
+
+        int selectedIndex = 2;
+        for (int i = 0; i < connections.length; i++) {
+            if (connections[i] == current) {
+                selectedIndex = i;
+                break;
+            }
+        }
+
+        builder.setSingleChoiceItems(options, selectedIndex, (dialog, which) -> {
+            preferencesManager.setParallelRangeConnections(connections[which]);
+            parallelDownloadsValue.setText(options[which]);
+            Toast.makeText(SettingsActivity.this, "Parallel downloads: " + options[which], Toast.LENGTH_SHORT).show();
+            dialog.dismiss();
+        });
+
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private static final String[] DNS_RESOLVER_NAMES = {"System", "Cloudflare (DoH)", "Google (DoH)"};
+    private static final String[] DNS_RESOLVER_SETTINGS = {
+            PreferencesManager.DNS_RESOLVER_SYSTEM,
+            PreferencesManager.DNS_RESOLVER_CLOUDFLARE,
+            PreferencesManager.DNS_RESOLVER_GOOGLE
+    };
+
+    private String formatDnsResolver(String setting) {
+        for (int i = 0; i < DNS_RESOLVER_SETTINGS.length; i++) {
+            if (DNS_RESOLVER_SETTINGS[i].equals(setting)) {
+                return DNS_RESOLVER_NAMES[i];
+            }
+        }
+        return DNS_RESOLVER_NAMES[0];
+    }
+
+    private void showDnsResolverDialog() {
+        String current = preferencesManager.getDnsResolver();
+
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("DNS Resolver");
+
+        int selectedIndex = 0;
+        for (int i = 0; i < DNS_RESOLVER_SETTINGS.length; i++) {
+            if (DNS_RESOLVER_SETTINGS[i].equals(current)) {
+                selectedIndex = i;
+                break;
+            }
+        }
+
+        builder.setSingleChoiceItems(DNS_RESOLVER_NAMES, selectedIndex, (dialog, which) -> {
+            preferencesManager.setDnsResolver(DNS_RESOLVER_SETTINGS[which]);
+            ApiClient.applyDnsResolver(SettingsActivity.this);
+            dnsResolverValue.setText(DNS_RESOLVER_NAMES[which]);
+            Toast.makeText(SettingsActivity.this, "DNS resolver: " + DNS_RESOLVER_NAMES[which], Toast.LENGTH_SHORT).show();
+            dialog.dismiss();
+        });
+
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
     private void showSubtitleLanguageDialog() {
         String[] languages = {"English", "Spanish", "French", "German", "Italian", "Portuguese", "Japanese", "Korean", "Chinese"};
         String[] languageCodes = {"en", "es", "fr", "de", "it", "pt", "ja", "ko", "zh"};
@@ -436,6 +608,72 @@ public class SettingsActivity extends AppCompatActivity {
         builder.show();
     }
 
+    /**
+     * Refresh the catalog cache rows from the current policy
+     */
+    private void updateCatalogCachePolicy() {
+        int ttlHours = preferencesManager.getCatalogCacheTtlHours();
+        int staleDays = preferencesManager.getCatalogStaleDays();
+
+        catalogCacheValue.setText(ttlHours > 0 ? ttlHours + (ttlHours == 1 ? " hour" : " hours") : "Off");
+        catalogStaleValue.setText(staleDays > 0 ? "Up to " + staleDays + (staleDays == 1 ? " day" : " days") : "Never");
+        catalogCachePolicyText.setText(TmdbClient.getInstance(this).getCachePolicy().describe());
+    }
+
+    private void showCatalogCacheDialog() {
+        String[] options = {"Off", "1 hour", "3 hours", "6 hours", "12 hours", "24 hours"};
+        int[] hours = {0, 1, 3, 6, 12, 24};
+        int current = preferencesManager.getCatalogCacheTtlHours();
+
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("Refresh Home Rows Every");
+
+        int selectedIndex = 3;
+        for (int i = 0; i < hours.length; i++) {
+            if (hours[i] == current) {
+                selectedIndex = i;
+                break;
+            }
+        }
+
+        builder.setSingleChoiceItems(options, selectedIndex, (dialog, which) -> {
+            preferencesManager.setCatalogCacheTtlHours(hours[which]);
+            updateCatalogCachePolicy();
+            Toast.makeText(SettingsActivity.this, "Catalog refresh set to " + options[which], Toast.LENGTH_SHORT).show();
+            dialog.dismiss();
+        });
+
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
+    private void showCatalogStaleDialog() {
+        String[] options = {"Never", "1 day", "7 days", "30 days"};
+        int[] days = {0, 1, 7, 30};
+        int current = preferencesManager.getCatalogStaleDays();
+
+        androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
+        builder.setTitle("Show Cached Rows While Refreshing");
+
+        int selectedIndex = 2;
+        for (int i = 0; i < days.length; i++) {
+            if (days[i] == current) {
+                selectedIndex = i;
+                break;
+            }
+        }
+
+        builder.setSingleChoiceItems(options, selectedIndex, (dialog, which) -> {
+            preferencesManager.setCatalogStaleDays(days[which]);
+            updateCatalogCachePolicy();
+            Toast.makeText(SettingsActivity.this, "Stale catalog window set to " + options[which], Toast.LENGTH_SHORT).show();
+            dialog.dismiss();
+        });
+
+        builder.setNegativeButton("Cancel", null);
+        builder.show();
+    }
+
     private void showClearCacheDialog() {
         androidx.appcompat.app.AlertDialog.Builder builder = new androidx.appcompat.app.AlertDialog.Builder(this);
         builder.setTitle("Clear Cache");
@@ -453,6 +691,7 @@ public class SettingsActivity extends AppCompatActivity {
         builder.setMessage("Are you sure you want to reset all settings to their default values?");
         builder.setPositiveButton("Reset", (dialog, which) -> {
             preferencesManager.resetToDefaults();
+            ApiClient.applyDnsResolver(this);
             loadCurrentSettings();
             Toast.makeText(this, "Settings reset to defaults", Toast.LENGTH_SHORT).show();
         });
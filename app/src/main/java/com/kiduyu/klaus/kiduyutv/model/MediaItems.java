@@ -542,6 +542,9 @@ public class MediaItems implements Parcelable {
         private String refererUrl;
         private Map<String, String> responseHeaders;
 
+        // Name of the stream provider that resolved this source
+        private String provider;
+
         public VideoSource() {
             this.customHeaders = new HashMap<>();
             this.responseHeaders = new HashMap<>();
@@ -554,6 +557,21 @@ public class MediaItems implements Parcelable {
             this.responseHeaders = new HashMap<>();
         }
 
+        /**
+         * Copy of another source, so one holder can change its URL without the other seeing it
+         */
+        public VideoSource(VideoSource other) {
+            this.quality = other.quality;
+            this.url = other.url;
+            this.sessionCookie = other.sessionCookie;
+            this.refererUrl = other.refererUrl;
+            this.customHeaders = other.customHeaders != null
+                    ? new HashMap<>(other.customHeaders) : new HashMap<>();
+            this.responseHeaders = other.responseHeaders != null
+                    ? new HashMap<>(other.responseHeaders) : new HashMap<>();
+            this.provider = other.provider;
+        }
+
         protected VideoSource(Parcel in) {
             quality = in.readString();
             url = in.readString();
@@ -579,6 +597,8 @@ public class MediaItems implements Parcelable {
                 String value = in.readString();
                 responseHeaders.put(key, value);
             }
+
+            provider = in.readString();
         }
 
         public static final Creator<VideoSource> CREATOR = new Creator<VideoSource>() {
@@ -642,6 +662,14 @@ public class MediaItems implements Parcelable {
             this.responseHeaders = responseHeaders != null ? responseHeaders : new HashMap<>();
         }
 
+        public String getProvider() {
+            return provider;
+        }
+
+        public void setProvider(String provider) {
+            this.provider = provider;
+        }
+
         @Override
         public int describeContents() {
             return 0;
@@ -677,6 +705,8 @@ public class MediaItems implements Parcelable {
             } else {
                 dest.writeInt(0);
             }
+
+            dest.writeString(provider);
         }
 
         @Override
@@ -45,6 +45,46 @@ public class PreferencesManager {
     private static final String KEY_PLAYBACK_BUFFER_DURATION = "playback_buffer_duration";
     private static final int DEFAULT_BUFFER_DURATION = 10; // 10 minutes
 
+    // Catalog (TMDB) response cache policy
+    private static final String KEY_CATALOG_CACHE_TTL_HOURS = "catalog_cache_ttl_hours";
+    private static final String KEY_CATALOG_STALE_DAYS = "catalog_stale_days";
+    private static final int DEFAULT_CATALOG_CACHE_TTL_HOURS = 6;
+    private static final int DEFAULT_CATALOG_STALE_DAYS = 7;
+
+    // Next episode prefetch - percent watched before the next episode is resolved, 0 = off
+    private static final String KEY_NEXT_EPISODE_PREFETCH_PERCENT = "next_episode_prefetch_percent";
+    private static final int DEFAULT_NEXT_EPISODE_PREFETCH_PERCENT = 85;
+
+    // Fast start - low first rendition and short startup buffer, heavier work after the first frame
+    private static final String KEY_FAST_START_ENABLED = "fast_start_enabled";
+    private static final boolean DEFAULT_FAST_START_ENABLED = true;
+
+    // Playback stats overlay in the player
+    private static final String KEY_PLAYBACK_STATS_OVERLAY = "playback_stats_overlay";
+    private static final boolean DEFAULT_PLAYBACK_STATS_OVERLAY = false;
+
+    // Progressive (media) cache - on-disk cache for played segments and files
+    private static final String KEY_PROGRESSIVE_CACHE_ENABLED = "progressive_cache_enabled";
+    private static final String KEY_MEDIA_CACHE_SIZE_MB = "media_cache_size_mb";
+    private static final boolean DEFAULT_PROGRESSIVE_CACHE_ENABLED = true;
+    private static final int DEFAULT_MEDIA_CACHE_SIZE_MB = 512;
+
+    // Parallel range downloads for progressive files - connections per file (1 = off) and chunk size
+    private static final String KEY_PARALLEL_RANGE_CONNECTIONS = "parallel_range_connections";
+    private static final String KEY_PARALLEL_RANGE_CHUNK_KB = "parallel_range_chunk_kb";
+    private static final int DEFAULT_PARALLEL_RANGE_CONNECTIONS = 4;
+    private static final int DEFAULT_PARALLEL_RANGE_CHUNK_KB = 2048;
+
+    // DNS resolver for app traffic - "system", or a DNS-over-HTTPS service ("cloudflare", "google")
+    private static final String KEY_DNS_RESOLVER = "dns_resolver";
+    public static final String DNS_RESOLVER_SYSTEM = "system";
+    public static final String DNS_RESOLVER_CLOUDFLARE = "cloudflare";
+    public static final String DNS_RESOLVER_GOOGLE = "google";
+    private static final String DEFAULT_DNS_RESOLVER = DNS_RESOLVER_SYSTEM;
+
+    // Stream providers - one flag per provider name, enabled unless switched off
+    private static final String KEY_STREAM_PROVIDER_ENABLED_PREFIX = "stream_provider_enabled_";
+
     private static PreferencesManager instance;
     private final SharedPreferences preferences;
     private final Context context;
@@ -179,6 +219,113 @@ public class PreferencesManager {
         return preferences.getString(KEY_CACHE_SIZE, "0 MB");
     }
 
+    // Fast Start
+    public boolean isFastStartEnabled() {
+        return preferences.getBoolean(KEY_FAST_START_ENABLED, DEFAULT_FAST_START_ENABLED);
+    }
+
+    public void setFastStartEnabled(boolean enabled) {
+        preferences.edit().putBoolean(KEY_FAST_START_ENABLED, enabled).apply();
+        Log.i(TAG, "Fast start " + (enabled ? "enabled" : "disabled"));
+    }
+
+    // Playback Stats Overlay
+    public boolean isPlaybackStatsOverlayEnabled() {
+        return preferences.getBoolean(KEY_PLAYBACK_STATS_OVERLAY, DEFAULT_PLAYBACK_STATS_OVERLAY);
+    }
+
+    public void setPlaybackStatsOverlayEnabled(boolean enabled) {
+        preferences.edit().putBoolean(KEY_PLAYBACK_STATS_OVERLAY, enabled).apply();
+        Log.i(TAG, "Playback stats overlay " + (enabled ? "enabled" : "disabled"));
+    }
+
+    // Progressive Cache
+    public boolean isProgressiveCacheEnabled() {
+        return preferences.getBoolean(KEY_PROGRESSIVE_CACHE_ENABLED, DEFAULT_PROGRESSIVE_CACHE_ENABLED);
+    }
+
+    public void setProgressiveCacheEnabled(boolean enabled) {
+        preferences.edit().putBoolean(KEY_PROGRESSIVE_CACHE_ENABLED, enabled).apply();
+        Log.i(TAG, "Progressive cache " + (enabled ? "enabled" : "disabled"));
+    }
+
+    public int getMediaCacheSizeMb() {
+        return preferences.getInt(KEY_MEDIA_CACHE_SIZE_MB, DEFAULT_MEDIA_CACHE_SIZE_MB);
+    }
+
+    public void setMediaCacheSizeMb(int sizeMb) {
+        preferences.edit().putInt(KEY_MEDIA_CACHE_SIZE_MB, sizeMb).apply();
+        Log.i(TAG, "Media cache size set to: " + sizeMb + " MB");
+    }
+
+    // Parallel Range Downloads
+    public int getParallelRangeConnections() {
+        return preferences.getInt(KEY_PARALLEL_RANGE_CONNECTIONS, DEFAULT_PARALLEL_RANGE_CONNECTIONS);
+    }
+
+    public void setParallelRangeConnections(int connections) {
+        preferences.edit().putInt(KEY_PARALLEL_RANGE_CONNECTIONS, connections).apply();
+        Log.i(TAG, "Parallel range connections set to: " + connections);
+    }
+
+    public int getParallelRangeChunkKb() {
+        return preferences.getInt(KEY_PARALLEL_RANGE_CHUNK_KB, DEFAULT_PARALLEL_RANGE_CHUNK_KB);
+    }
+
+    public void setParallelRangeChunkKb(int chunkKb) {
+        preferences.edit().putInt(KEY_PARALLEL_RANGE_CHUNK_KB, chunkKb).apply();
+        Log.i(TAG, "Parallel range chunk size set to: " + chunkKb + " KB");
+    }
+
+    // DNS Resolver
+    public String getDnsResolver() {
+        return preferences.getString(KEY_DNS_RESOLVER, DEFAULT_DNS_RESOLVER);
+    }
+
+    public void setDnsResolver(String resolver) {
+        preferences.edit().putString(KEY_DNS_RESOLVER, resolver).apply();
+        Log.i(TAG, "DNS resolver set to: " + resolver);
+    }
+
+    // Catalog Cache Policy
+    public int getCatalogCacheTtlHours() {
+        return preferences.getInt(KEY_CATALOG_CACHE_TTL_HOURS, DEFAULT_CATALOG_CACHE_TTL_HOURS);
+    }
+
+    public void setCatalogCacheTtlHours(int hours) {
+        preferences.edit().putInt(KEY_CATALOG_CACHE_TTL_HOURS, hours).apply();
+        Log.i(TAG, "Catalog cache TTL set to: " + hours + " hours");
+    }
+
+    public int getCatalogStaleDays() {
+        return preferences.getInt(KEY_CATALOG_STALE_DAYS, DEFAULT_CATALOG_STALE_DAYS);
+    }
+
+    public void setCatalogStaleDays(int days) {
+        preferences.edit().putInt(KEY_CATALOG_STALE_DAYS, days).apply();
+        Log.i(TAG, "Catalog stale window set to: " + days + " days");
+    }
+
+    // Next Episode Prefetch
+    public int getNextEpisodePrefetchPercent() {
+        return preferences.getInt(KEY_NEXT_EPISODE_PREFETCH_PERCENT, DEFAULT_NEXT_EPISODE_PREFETCH_PERCENT);
+    }
+
+    public void setNextEpisodePrefetchPercent(int percent) {
+        preferences.edit().putInt(KEY_NEXT_EPISODE_PREFETCH_PERCENT, percent).apply();
+        Log.i(TAG, "Next episode prefetch set to: " + percent + "%");
+    }
+
+    // Stream Providers
+    public boolean isStreamProviderEnabled(String provider) {
+        return preferences.getBoolean(KEY_STREAM_PROVIDER_ENABLED_PREFIX + provider, true);
+    }
+
+    public void setStreamProviderEnabled(String provider, boolean enabled) {
+        preferences.edit().putBoolean(KEY_STREAM_PROVIDER_ENABLED_PREFIX + provider, enabled).apply();
+        Log.i(TAG, "Stream provider " + provider + " " + (enabled ? "enabled" : "disabled"));
+    }
+
     public void clearAllPreferences() {
         preferences.edit().clear().apply();
         Log.i(TAG, "All preferences cleared");
@@ -209,13 +356,29 @@ public class PreferencesManager {
 
     // Reset to defaults
     public void resetToDefaults() {
-        preferences.edit()
+        SharedPreferences.Editor editor = preferences.edit();
+        for (String key : preferences.getAll().keySet()) {
+            if (key.startsWith(KEY_STREAM_PROVIDER_ENABLED_PREFIX)) {
+                editor.remove(key);
+            }
+        }
+        editor
                 .putString(KEY_VIDEO_QUALITY, DEFAULT_VIDEO_QUALITY)
                 .putString(KEY_SUBTITLE_LANGUAGE, DEFAULT_SUBTITLE_LANGUAGE)
                 .putBoolean(KEY_DARK_THEME, DEFAULT_DARK_THEME)
                 .putBoolean(KEY_AUTO_QUALITY, DEFAULT_AUTO_QUALITY)
                 .putBoolean(KEY_VOICE_SEARCH_ENABLED, DEFAULT_VOICE_SEARCH_ENABLED)
                 .putInt(KEY_PLAYBACK_BUFFER_DURATION, DEFAULT_BUFFER_DURATION)
+                .putInt(KEY_CATALOG_CACHE_TTL_HOURS, DEFAULT_CATALOG_CACHE_TTL_HOURS)
+                .putInt(KEY_CATALOG_STALE_DAYS, DEFAULT_CATALOG_STALE_DAYS)
+                .putInt(KEY_NEXT_EPISODE_PREFETCH_PERCENT, DEFAULT_NEXT_EPISODE_PREFETCH_PERCENT)
+                .putBoolean(KEY_FAST_START_ENABLED, DEFAULT_FAST_START_ENABLED)
+                .putBoolean(KEY_PLAYBACK_STATS_OVERLAY, DEFAULT_PLAYBACK_STATS_OVERLAY)
+                .putBoolean(KEY_PROGRESSIVE_CACHE_ENABLED, DEFAULT_PROGRESSIVE_CACHE_ENABLED)
+                .putInt(KEY_MEDIA_CACHE_SIZE_MB, DEFAULT_MEDIA_CACHE_SIZE_MB)
+                .putInt(KEY_PARALLEL_RANGE_CONNECTIONS, DEFAULT_PARALLEL_RANGE_CONNECTIONS)
+                .putInt(KEY_PARALLEL_RANGE_CHUNK_KB, DEFAULT_PARALLEL_RANGE_CHUNK_KB)
+                .putString(KEY_DNS_RESOLVER, DEFAULT_DNS_RESOLVER)
                 .apply();
         Log.i(TAG, "Preferences reset to defaults");
     }
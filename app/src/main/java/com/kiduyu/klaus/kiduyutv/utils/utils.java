@@ -20,71 +20,6 @@ import java.util.Map;
 
 public class utils {
 
-    /**
-     * Map genre IDs to genre names
-     */
-    public static String getGenreName(int genreId) {
-        switch (genreId) {
-            case 28:
-                return "Action";
-            case 12:
-                return "Adventure";
-            case 16:
-                return "Animation";
-            case 35:
-                return "Comedy";
-            case 80:
-                return "Crime";
-            case 99:
-                return "Documentary";
-            case 18:
-                return "Drama";
-            case 10751:
-                return "Family";
-            case 14:
-                return "Fantasy";
-            case 36:
-                return "History";
-            case 27:
-                return "Horror";
-            case 10402:
-                return "Music";
-            case 9648:
-                return "Mystery";
-            case 10749:
-                return "Romance";
-            case 878:
-                return "Science Fiction";
-            case 10770:
-                return "TV Movie";
-            case 53:
-                return "Thriller";
-            case 10752:
-                return "War";
-            case 37:
-                return "Western";
-            // TV genres
-            case 10759:
-                return "Action & Adventure";
-            case 10762:
-                return "Kids";
-            case 10763:
-                return "News";
-            case 10764:
-                return "Reality";
-            case 10765:
-                return "Sci-Fi & Fantasy";
-            case 10766:
-                return "Soap";
-            case 10767:
-                return "Talk";
-            case 10768:
-                return "War & Politics";
-            default:
-                return null;
-        }
-    }
-
     /**
      * Check if device has network connectivity
      * @param context Application context
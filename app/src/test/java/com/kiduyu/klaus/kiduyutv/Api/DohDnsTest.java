@@ -0,0 +1,217 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+
+/**
+ * DohDns against a local stand-in for the DoH JSON API. The stand-in is reached as
+ * "localhost" through the bootstrap address, like the real services.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class DohDnsTest {
+    private static final String HOST = "media.example";
+
+    private HttpServer server;
+    private HttpUrl endpoint;
+    private final Map<String, Answer> answers = new HashMap<>();   // by query type
+    private final List<String> queriedTypes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger fallbackCalls = new AtomicInteger();
+    private InetAddress fallbackAddress;
+
+    private static final class Answer {
+        final int code;
+        final String body;
+
+        Answer(int code, String body) {
+            this.code = code;
+            this.body = body;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        fallbackAddress = InetAddress.getByName("192.0.2.7");
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0), 0);
+        server.createContext("/dns-query", exchange -> {
+            String type = queryParameter(exchange.getRequestURI().getRawQuery(), "type");
+            queriedTypes.add(type);
+            Answer answer = answers.getOrDefault(type, new Answer(200, "{\"Status\":0}"));
+            byte[] body = answer.body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/dns-json");
+            exchange.sendResponseHeaders(answer.code, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        endpoint = HttpUrl.get("http://localhost:" + server.getAddress().getPort() + "/dns-query");
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private DohDns newDns(HttpUrl url) throws UnknownHostException {
+        Dns fallback = hostname -> {
+            fallbackCalls.incrementAndGet();
+            return Collections.singletonList(fallbackAddress);
+        };
+        return new DohDns("Test", url, Collections.singletonList(InetAddress.getByName("127.0.0.1")), fallback);
+    }
+
+    private static String records(int type, String... dataAndTtl) {
+        StringBuilder json = new StringBuilder("{\"Status\":0,\"Answer\":[");
+        for (int i = 0; i < dataAndTtl.length; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"name\":\"").append(HOST).append(".\",\"type\":").append(type)
+                    .append(",\"TTL\":").append(dataAndTtl[i + 1])
+                    .append(",\"data\":\"").append(dataAndTtl[i]).append("\"}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private static String queryParameter(String query, String name) {
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                return pair.substring(name.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void answersFromARecords() throws Exception {
+        answers.put("1", new Answer(200, records(1, "203.0.113.10", "300", "203.0.113.11", "300")));
+
+        DohDns.Answer answer = newDns(endpoint).resolve(HOST);
+
+        assertEquals(2, answer.addresses.size());
+        assertEquals(InetAddress.getByName("203.0.113.10"), answer.addresses.get(0));
+        assertEquals(300_000L, answer.ttlMs);
+        assertEquals(Collections.singletonList("1"), queriedTypes);
+        assertEquals(0, fallbackCalls.get());
+    }
+
+    @Test
+    public void fallsBackToAaaaWhenThereAreNoARecords() throws Exception {
+        // A CNAME on the way is not an address
+        answers.put("1", new Answer(200, records(5, "cdn.example.", "300")));
+        answers.put("28", new Answer(200, records(28, "2001:db8::1", "120")));
+
+        DohDns.Answer answer = newDns(endpoint).resolve(HOST);
+
+        assertEquals(Collections.singletonList(InetAddress.getByName("2001:db8::1")), answer.addresses);
+        assertEquals(120_000L, answer.ttlMs);
+        assertEquals(List.of("1", "28"), queriedTypes);
+        assertEquals(0, fallbackCalls.get());
+    }
+
+    @Test
+    public void shortTtlIsRaisedToTheMinimum() throws Exception {
+        answers.put("1", new Answer(200, records(1, "203.0.113.10", "5")));
+
+        assertEquals(60_000L, newDns(endpoint).resolve(HOST).ttlMs);
+    }
+
+    @Test
+    public void longTtlIsCappedAtTheMaximum() throws Exception {
+        answers.put("1", new Answer(200, records(1, "203.0.113.10", "86400")));
+
+        assertEquals(3_600_000L, newDns(endpoint).resolve(HOST).ttlMs);
+    }
+
+    @Test
+    public void lowestRecordTtlWins() throws Exception {
+        answers.put("1", new Answer(200, records(1, "203.0.113.10", "900", "203.0.113.11", "240")));
+
+        assertEquals(240_000L, newDns(endpoint).resolve(HOST).ttlMs);
+    }
+
+    @Test
+    public void nxdomainDoesNotFallBack() throws Exception {
+        answers.put("1", new Answer(200, "{\"Status\":3}"));
+
+        try {
+            newDns(endpoint).resolve(HOST);
+            fail("Expected UnknownHostException");
+        } catch (UnknownHostException expected) {
+            // the name does not exist; asking the ISP resolver would not change that
+        }
+        assertEquals(0, fallbackCalls.get());
+    }
+
+    @Test
+    public void httpErrorFallsBackToTheSystemResolver() throws Exception {
+        answers.put("1", new Answer(500, "{}"));
+
+        DohDns.Answer answer = newDns(endpoint).resolve(HOST);
+
+        assertEquals(Collections.singletonList(fallbackAddress), answer.addresses);
+        assertEquals(60_000L, answer.ttlMs);
+        assertEquals(1, fallbackCalls.get());
+    }
+
+    @Test
+    public void serverFailureStatusFallsBackToTheSystemResolver() throws Exception {
+        answers.put("1", new Answer(200, "{\"Status\":2}"));
+
+        DohDns.Answer answer = newDns(endpoint).resolve(HOST);
+
+        assertEquals(Collections.singletonList(fallbackAddress), answer.addresses);
+        assertEquals(1, fallbackCalls.get());
+    }
+
+    @Test
+    public void malformedAnswerFallsBackToTheSystemResolver() throws Exception {
+        answers.put("1", new Answer(200, "<html>captive portal</html>"));
+
+        DohDns.Answer answer = newDns(endpoint).resolve(HOST);
+
+        assertEquals(Collections.singletonList(fallbackAddress), answer.addresses);
+        assertEquals(1, fallbackCalls.get());
+    }
+
+    @Test
+    public void connectionErrorFallsBackToTheSystemResolver() throws Exception {
+        int port = server.getAddress().getPort();
+        server.stop(0);
+        server = null;
+
+        DohDns.Answer answer = newDns(HttpUrl.get("http://localhost:" + port + "/dns-query")).resolve(HOST);
+
+        assertEquals(Collections.singletonList(fallbackAddress), answer.addresses);
+        assertEquals(60_000L, answer.ttlMs);
+        assertEquals(1, fallbackCalls.get());
+    }
+}
@@ -0,0 +1,103 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import static org.junit.Assert.assertEquals;
+
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FetchStreamsParseStreamDataTest {
+
+    @Test
+    public void hexaSourcesUseServerNamesAndHexaHeaders() throws IOException {
+        MediaItems item = FetchStreams.parseStreamData(
+                StreamPayloadFixtures.payload(StreamPayloadFixtures.HEXA), "https://hexa.su/", new HashMap<>());
+
+        List<MediaItems.VideoSource> sources = item.getVideoSources();
+        assertEquals(2, sources.size()); // the empty URL is skipped
+        assertEquals("Alpha", sources.get(0).getQuality());
+        assertEquals("https://alpha.hexcdn.example/hls/550/master.m3u8", sources.get(0).getUrl());
+        assertEquals("Bravo", sources.get(1).getQuality());
+        assertEquals("https://hexa.su/", sources.get(0).getCustomHeaders().get("Referer"));
+        assertEquals("https://hexa.su", sources.get(0).getCustomHeaders().get("Origin"));
+        assertEquals(0, item.getSubtitles().size());
+    }
+
+    @Test
+    public void vidlinkPlaylistIsCleanedAndCarriesItsHeaders() throws IOException {
+        MediaItems item = FetchStreams.parseStreamData(
+                StreamPayloadFixtures.payload(StreamPayloadFixtures.VIDLINK), "https://vidlink.pro/", new HashMap<>());
+
+        List<MediaItems.VideoSource> sources = item.getVideoSources();
+        assertEquals(1, sources.size());
+        assertEquals("HLS", sources.get(0).getQuality());
+        assertEquals("https://storm.vodvidl.example/proxy/file2/abc123/playlist.m3u8", sources.get(0).getUrl());
+        assertEquals("https://videostr.net/", sources.get(0).getCustomHeaders().get("Referer"));
+        assertEquals("https://videostr.net", sources.get(0).getCustomHeaders().get("Origin"));
+        assertEquals("https://videostr.net/", sources.get(0).getRefererUrl());
+
+        List<MediaItems.SubtitleItem> subtitles = item.getSubtitles();
+        assertEquals(2, subtitles.size());
+        assertEquals("https://subs.vidlink.example/550/eng-2.vtt", subtitles.get(0).getUrl());
+        assertEquals("en", subtitles.get(0).getLang());
+        assertEquals("English", subtitles.get(0).getLanguage());
+        // No url: the id is used
+        assertEquals("https://subs.vidlink.example/550/spa-3.vtt", subtitles.get(1).getUrl());
+        assertEquals("es", subtitles.get(1).getLang());
+    }
+
+    @Test
+    public void standardSourcesDefaultToAutoAndPreferSubtitlesOverCaptions() throws IOException {
+        MediaItems item = FetchStreams.parseStreamData(
+                StreamPayloadFixtures.payload(StreamPayloadFixtures.STANDARD), "https://videasy.net/", new HashMap<>());
+
+        List<MediaItems.VideoSource> sources = item.getVideoSources();
+        assertEquals(2, sources.size());
+        assertEquals("1080p", sources.get(0).getQuality());
+        assertEquals("auto", sources.get(1).getQuality());
+        assertEquals("https://videasy.net/", sources.get(1).getCustomHeaders().get("Referer"));
+        assertEquals("https://videasy.net", sources.get(1).getCustomHeaders().get("Origin"));
+
+        List<MediaItems.SubtitleItem> subtitles = item.getSubtitles();
+        assertEquals(1, subtitles.size());
+        assertEquals("https://subs.videasy.example/550/en.vtt", subtitles.get(0).getUrl());
+        assertEquals("en", subtitles.get(0).getLang());
+    }
+
+    @Test(expected = IOException.class)
+    public void nullPayloadIsRejected() throws IOException {
+        FetchStreams.parseStreamData(null, "https://vidlink.pro/", new HashMap<>());
+    }
+
+    @Test
+    public void headersAreReadFromThePlaylistQuery() {
+        Map<String, String> headers = FetchStreams.extractHeadersFromUrl(
+                "https://storm.example/playlist.m3u8?headers=%7B%22referer%22%3A%22https%3A%2F%2Fvideostr.net%2F%22"
+                        + "%2C%22user-agent%22%3A%22UA%22%7D&host=https%3A%2F%2Fstorm.example");
+
+        assertEquals(2, headers.size());
+        assertEquals("https://videostr.net/", headers.get("Referer"));
+        assertEquals("UA", headers.get("User-Agent"));
+    }
+
+    @Test
+    public void urlWithoutHeadersYieldsNone() {
+        assertEquals(0, FetchStreams.extractHeadersFromUrl("https://storm.example/playlist.m3u8?host=x").size());
+        // Malformed JSON is logged, not thrown
+        assertEquals(0, FetchStreams.extractHeadersFromUrl("https://storm.example/p.m3u8?headers={oops").size());
+    }
+
+    @Test
+    public void languageCodeComesFromTheIdBeforeTheName() {
+        assertEquals("en", FetchStreams.extractLanguageCode("Unknown", "eng-2.vtt"));
+        assertEquals("fr", FetchStreams.extractLanguageCode("", "fra-1.vtt"));
+        assertEquals("de", FetchStreams.extractLanguageCode("German (Forced)", ""));
+        assertEquals("tu", FetchStreams.extractLanguageCode("Turkish", null));
+        assertEquals("unknown", FetchStreams.extractLanguageCode(null, null));
+    }
+}
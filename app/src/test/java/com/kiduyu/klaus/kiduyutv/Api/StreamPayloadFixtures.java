@@ -0,0 +1,38 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+/**
+ * Captured provider payloads under src/test/resources/stream_payloads
+ */
+final class StreamPayloadFixtures {
+    static final String HEXA = "hexa.json";
+    static final String VIDLINK = "vidlink.json";
+    static final String STANDARD = "standard.json";
+
+    private StreamPayloadFixtures() {
+    }
+
+    static ResponseBody body(String name) throws IOException {
+        return ResponseBody.create(read(name), MediaType.get("application/json"));
+    }
+
+    static StreamPayload payload(String name) throws IOException {
+        return StreamPayload.read(body(name));
+    }
+
+    private static String read(String name) throws IOException {
+        try (InputStream in = StreamPayloadFixtures.class.getClassLoader()
+                .getResourceAsStream("stream_payloads/" + name)) {
+            if (in == null) {
+                throw new IOException("Missing fixture " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
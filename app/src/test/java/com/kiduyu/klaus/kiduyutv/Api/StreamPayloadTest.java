@@ -0,0 +1,74 @@
+package com.kiduyu.klaus.kiduyutv.Api;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+
+public class StreamPayloadTest {
+
+    @Test
+    public void hexaLayout() throws IOException {
+        StreamPayload payload = StreamPayloadFixtures.payload(StreamPayloadFixtures.HEXA);
+
+        assertTrue(payload.isHexaLayout());
+        assertEquals("hx-550", payload.sourceId);
+        assertEquals(3, payload.sources.size());
+        assertEquals("Alpha", payload.sources.get(0).server);
+        assertEquals("https://alpha.hexcdn.example/hls/550/master.m3u8", payload.sources.get(0).url);
+        assertEquals("Bravo", payload.sources.get(1).server);
+        assertNull(payload.subtitles);
+        assertNull(payload.stream);
+    }
+
+    @Test
+    public void vidlinkLayout() throws IOException {
+        StreamPayload payload = StreamPayloadFixtures.payload(StreamPayloadFixtures.VIDLINK);
+
+        assertFalse(payload.isHexaLayout());
+        assertNull(payload.sources);
+        assertNotNull(payload.stream);
+        assertEquals("hls", payload.stream.type);
+        assertTrue(payload.stream.playlist.startsWith(
+                "https://storm.vodvidl.example/proxy/file2/abc123/playlist.m3u8?headers="));
+        assertEquals(2, payload.stream.captions.size());
+        assertEquals("English", payload.stream.captions.get(0).language);
+        assertEquals("https://subs.vidlink.example/550/eng-2.vtt", payload.stream.captions.get(0).url);
+        assertNull(payload.stream.captions.get(1).url);
+        assertEquals("https://subs.vidlink.example/550/spa-3.vtt", payload.stream.captions.get(1).id);
+    }
+
+    @Test
+    public void standardLayout() throws IOException {
+        StreamPayload payload = StreamPayloadFixtures.payload(StreamPayloadFixtures.STANDARD);
+
+        assertFalse(payload.isHexaLayout());
+        assertNull(payload.stream);
+        assertEquals(2, payload.sources.size());
+        assertEquals("1080p", payload.sources.get(0).quality);
+        assertNull(payload.sources.get(1).quality);
+        assertEquals(1, payload.subtitles.size());
+        assertEquals("en", payload.subtitles.get(0).lang);
+        assertEquals("English", payload.subtitles.get(0).language);
+        assertEquals(1, payload.captions.size());
+        assertEquals("French", payload.captions.get(0).language);
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedBodyIsAnIOException() throws IOException {
+        StreamPayload.read(ResponseBody.create("{\"sources\": [", MediaType.get("application/json")));
+    }
+
+    @Test(expected = IOException.class)
+    public void emptyBodyIsAnIOException() throws IOException {
+        StreamPayload.read(ResponseBody.create("", MediaType.get("application/json")));
+    }
+}
@@ -0,0 +1,70 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import static org.junit.Assert.assertEquals;
+
+import android.net.Uri;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+/**
+ * MediaCache's segment keys: only recognised signing parameters leave the key.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class MediaCacheTest {
+
+    private static String keyFor(String url) {
+        return MediaCache.keyFor(Uri.parse(url));
+    }
+
+    @Test
+    public void awsSignatureIsStripped() {
+        assertEquals("https://bucket.example/v/seg-1.ts?range=2",
+                keyFor("https://bucket.example/v/seg-1.ts?X-Amz-Algorithm=AWS4-HMAC-SHA256"
+                        + "&X-Amz-Date=20260101T000000Z&X-Amz-Expires=3600&range=2&X-Amz-Signature=abc"));
+    }
+
+    @Test
+    public void akamaiTokenIsStripped() {
+        assertEquals("https://cdn.example/v/seg-1.ts?q=720",
+                keyFor("https://cdn.example/v/seg-1.ts?hdnts=st%3D1~exp%3D2~hmac%3Dabc&q=720"));
+        assertEquals("https://cdn.example/v/seg-1.ts",
+                keyFor("https://cdn.example/v/seg-1.ts?hdnea=exp%3D2~hmac%3Dabc"));
+    }
+
+    @Test
+    public void cloudFrontSignatureIsStripped() {
+        assertEquals("https://d1.example/v/seg-1.ts?part=3",
+                keyFor("https://d1.example/v/seg-1.ts?part=3&Policy=eyJ9&Signature=abc&Key-Pair-Id=K1"));
+        assertEquals("https://d1.example/v/seg-1.ts",
+                keyFor("https://d1.example/v/seg-1.ts?Expires=1767225600&Signature=abc&Key-Pair-Id=K1"));
+    }
+
+    @Test
+    public void expiringSignatureIsStrippedOnlyAsAPair() {
+        assertEquals("https://cdn.example/v/seg-1.ts?id=9",
+                keyFor("https://cdn.example/v/seg-1.ts?id=9&expires=1767225600&signature=abc"));
+        assertEquals("https://cdn.example/v/seg-1.ts?id=9&expires=1767225600",
+                keyFor("https://cdn.example/v/seg-1.ts?id=9&expires=1767225600"));
+        assertEquals("https://cdn.example/v/seg-1.ts?signature=abc",
+                keyFor("https://cdn.example/v/seg-1.ts?signature=abc"));
+    }
+
+    @Test
+    public void otherParametersStayInTheKey() {
+        // e.g. a token or key that may pick different bytes on an unknown host
+        String url = "https://cdn.example/v/seg-1.ts?token=abc&key=2&t=5&e=9";
+
+        assertEquals(url, keyFor(url));
+    }
+
+    @Test
+    public void manifestsKeepTheirFullUrl() {
+        String url = "https://bucket.example/v/master.m3u8?X-Amz-Signature=abc";
+
+        assertEquals(url, keyFor(url));
+    }
+}
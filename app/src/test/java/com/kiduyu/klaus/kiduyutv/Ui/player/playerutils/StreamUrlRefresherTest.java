@@ -0,0 +1,261 @@
+package com.kiduyu.klaus.kiduyutv.Ui.player.playerutils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.net.Uri;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media3.common.C;
+import androidx.media3.datasource.DataSource;
+import androidx.media3.datasource.DataSpec;
+import androidx.media3.datasource.HttpDataSource;
+import androidx.media3.datasource.TransferListener;
+
+import com.kiduyu.klaus.kiduyutv.Api.StreamRequest;
+import com.kiduyu.klaus.kiduyutv.model.MediaItems;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * StreamUrlRefresher's URL rewriting, and the refused request that is retried with
+ * a re-resolved URL. The provider is a stub; the loading thread is a test executor.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class StreamUrlRefresherTest {
+    private static final String EXPIRED = "https://cdn.example/t/abc123/master.m3u8?token=old&exp=1";
+    private static final String FRESH = "https://cdn.example/t/def456/master.m3u8?token=new&exp=2";
+
+    private final ExecutorService loader = Executors.newSingleThreadExecutor();
+    private final StreamRequest request = StreamRequest.movie("Title", "2024", "42", null);
+
+    @After
+    public void tearDown() {
+        loader.shutdownNow();
+    }
+
+    // ===================== REWRITE =====================
+
+    @Test
+    public void rewriteReplacesTheSourceUrl() {
+        assertEquals(FRESH, StreamUrlRefresher.rewrite(Uri.parse(EXPIRED), EXPIRED, FRESH).toString());
+    }
+
+    @Test
+    public void rewriteMovesPathsUnderTheSourceDirectory() {
+        Uri segment = Uri.parse("https://cdn.example/t/abc123/720p/seg-5.ts");
+
+        assertEquals("https://cdn.example/t/def456/720p/seg-5.ts",
+                StreamUrlRefresher.rewrite(segment, EXPIRED, FRESH).toString());
+    }
+
+    @Test
+    public void rewriteReplacesTheSameSignedQuery() {
+        Uri key = Uri.parse("https://cdn.example/keys/k1.key?token=old&exp=1");
+
+        assertEquals("https://cdn.example/keys/k1.key?token=new&exp=2",
+                StreamUrlRefresher.rewrite(key, EXPIRED, FRESH).toString());
+    }
+
+    @Test
+    public void rewriteKeepsAnotherQuery() {
+        Uri segment = Uri.parse("https://cdn.example/t/abc123/seg-5.ts?part=2");
+
+        assertEquals("https://cdn.example/t/def456/seg-5.ts?part=2",
+                StreamUrlRefresher.rewrite(segment, EXPIRED, FRESH).toString());
+    }
+
+    @Test
+    public void rewriteLeavesOtherHostsAlone() {
+        Uri subtitle = Uri.parse("https://subs.example/t/abc123/en.vtt?token=old&exp=1");
+
+        assertEquals(subtitle, StreamUrlRefresher.rewrite(subtitle, EXPIRED, FRESH));
+    }
+
+    // ===================== REFRESH =====================
+
+    @Test
+    public void refusedRequestIsRetriedWithTheFreshUrl() throws Exception {
+        MediaItems.VideoSource source = new MediaItems.VideoSource("1080p", EXPIRED);
+        source.setProvider("Stub");
+        AtomicInteger reresolutions = new AtomicInteger();
+        StreamUrlRefresher refresher = new StreamUrlRefresher((expired, title, handle, callback) -> {
+            reresolutions.incrementAndGet();
+            assertSame(request, title);
+            callback.onSuccess(itemWith(new MediaItems.VideoSource("1080p", FRESH)));
+            return true;
+        });
+        FakeUpstream upstream = new FakeUpstream(Collections.singleton(FRESH));
+
+        long length = open(refresher.wrap(source, request, () -> upstream).createDataSource(), EXPIRED);
+
+        assertEquals(FakeUpstream.LENGTH, length);
+        assertEquals(List.of(EXPIRED, FRESH), upstream.opened);
+        assertEquals(1, reresolutions.get());
+        assertEquals(FRESH, source.getUrl());
+        assertTrue(refresher.takeReloadableUrl(FRESH));
+        assertFalse(refresher.takeReloadableUrl(FRESH));
+    }
+
+    @Test
+    public void laterRequestsUseTheFreshUrlWithoutReresolving() throws Exception {
+        MediaItems.VideoSource source = new MediaItems.VideoSource("1080p", EXPIRED);
+        source.setProvider("Stub");
+        AtomicInteger reresolutions = new AtomicInteger();
+        StreamUrlRefresher refresher = new StreamUrlRefresher((expired, title, handle, callback) -> {
+            reresolutions.incrementAndGet();
+            callback.onSuccess(itemWith(new MediaItems.VideoSource("1080p", FRESH)));
+            return true;
+        });
+        FakeUpstream upstream = new FakeUpstream(
+                new HashSet<>(List.of(FRESH, "https://cdn.example/t/def456/seg-1.ts")));
+        DataSource.Factory factory = refresher.wrap(source, request, () -> upstream);
+
+        open(factory.createDataSource(), EXPIRED);
+        open(factory.createDataSource(), "https://cdn.example/t/abc123/seg-1.ts");
+
+        assertEquals(List.of(EXPIRED, FRESH, "https://cdn.example/t/def456/seg-1.ts"), upstream.opened);
+        assertEquals(1, reresolutions.get());
+    }
+
+    @Test
+    public void refusalIsRethrownWhenTheProviderCannotReresolve() throws Exception {
+        MediaItems.VideoSource source = new MediaItems.VideoSource("1080p", EXPIRED);
+        source.setProvider("Gone");
+        StreamUrlRefresher refresher = new StreamUrlRefresher((expired, title, handle, callback) -> false);
+        FakeUpstream upstream = new FakeUpstream(Collections.emptySet());
+
+        try {
+            open(refresher.wrap(source, request, () -> upstream).createDataSource(), EXPIRED);
+            fail("Expected the 403 to reach the player");
+        } catch (HttpDataSource.InvalidResponseCodeException expected) {
+            assertEquals(403, expected.responseCode);
+        }
+        assertEquals(List.of(EXPIRED), upstream.opened);
+        assertEquals(EXPIRED, source.getUrl());
+        assertFalse(refresher.takeReloadableUrl(FRESH));
+    }
+
+    @Test
+    public void otherErrorsAreNotRefreshed() throws Exception {
+        MediaItems.VideoSource source = new MediaItems.VideoSource("1080p", EXPIRED);
+        AtomicInteger reresolutions = new AtomicInteger();
+        StreamUrlRefresher refresher = new StreamUrlRefresher((expired, title, handle, callback) -> {
+            reresolutions.incrementAndGet();
+            return false;
+        });
+        FakeUpstream upstream = new FakeUpstream(Collections.emptySet());
+        upstream.refusalCode = 404;
+
+        try {
+            open(refresher.wrap(source, request, () -> upstream).createDataSource(), EXPIRED);
+            fail("Expected the 404 to reach the player");
+        } catch (HttpDataSource.InvalidResponseCodeException expected) {
+            assertEquals(404, expected.responseCode);
+        }
+        assertEquals(0, reresolutions.get());
+    }
+
+    // ===================== HELPERS =====================
+
+    private static MediaItems itemWith(MediaItems.VideoSource source) {
+        MediaItems item = new MediaItems();
+        item.setVideoSources(new ArrayList<>(Collections.singletonList(source)));
+        return item;
+    }
+
+    /**
+     * Open on the loading thread while this thread runs the main looper, where the
+     * re-resolution is posted
+     */
+    private long open(DataSource dataSource, String url) throws Exception {
+        Future<Long> opened = loader.submit(() -> dataSource.open(new DataSpec(Uri.parse(url))));
+        while (!opened.isDone()) {
+            shadowOf(Looper.getMainLooper()).idle();
+            Thread.sleep(5);
+        }
+        try {
+            return opened.get();
+        } catch (ExecutionException e) {
+            throw (Exception) e.getCause();
+        }
+    }
+
+    /**
+     * Accepts the given URLs and refuses everything else
+     */
+    private static class FakeUpstream implements DataSource {
+        static final long LENGTH = 1024;
+
+        final Set<String> accepted;
+        final List<String> opened = Collections.synchronizedList(new ArrayList<>());
+        int refusalCode = 403;
+        @Nullable private Uri uri;
+
+        FakeUpstream(Set<String> accepted) {
+            this.accepted = accepted;
+        }
+
+        @Override
+        public void addTransferListener(@NonNull TransferListener transferListener) {
+        }
+
+        @Override
+        public long open(@NonNull DataSpec dataSpec) throws IOException {
+            String url = dataSpec.uri.toString();
+            opened.add(url);
+            if (!accepted.contains(url)) {
+                throw new HttpDataSource.InvalidResponseCodeException(refusalCode, "Refused", null,
+                        Collections.emptyMap(), dataSpec, new byte[0]);
+            }
+            uri = dataSpec.uri;
+            return LENGTH;
+        }
+
+        @Override
+        public int read(@NonNull byte[] buffer, int offset, int length) {
+            return C.RESULT_END_OF_INPUT;
+        }
+
+        @Nullable
+        @Override
+        public Uri getUri() {
+            return uri;
+        }
+
+        @NonNull
+        @Override
+        public Map<String, List<String>> getResponseHeaders() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public void close() {
+            uri = null;
+        }
+    }
+}